@@ -34,6 +34,8 @@ public class APIMgtGatewayConstants {
     public static final String API_PUBLISHER = "api.ut.apiPublisher";
     public static final String OPEN_API_OBJECT = "OPEN_API_OBJECT";
     public static final String OPEN_API_STRING = "OPEN_API_STRING";
+    public static final String OPEN_API_MODEL = "OPEN_API_MODEL";
+    public static final String GATEWAY_REQUEST_CONTEXT = "GATEWAY_REQUEST_CONTEXT";
     public static final String APPLICATION_NAME = "api.ut.application.name";
     public static final String APPLICATION_ID = "api.ut.application.id";
     public static final String REQUEST_START_TIME = "api.ut.requestTime";
@@ -19,20 +19,30 @@
 package org.wso2.carbon.apimgt.gateway;
 
 import com.google.gson.Gson;
+import org.apache.axiom.om.util.AXIOMUtil;
 import org.apache.axis2.AxisFault;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.apimgt.api.gateway.GatewayAPIDTO;
+import org.wso2.carbon.apimgt.api.gateway.GatewayContentDTO;
 import org.wso2.carbon.apimgt.gateway.service.APIGatewayAdmin;
+import org.wso2.carbon.apimgt.gateway.utils.GatewayUtils;
+import org.wso2.carbon.apimgt.gateway.utils.OpenAPIModelCache;
+import org.wso2.carbon.apimgt.gateway.utils.ResourceRouterCache;
 import org.wso2.carbon.apimgt.impl.APIConstants;
 import org.wso2.carbon.apimgt.impl.dto.GatewayArtifactSynchronizerProperties;
 import org.wso2.carbon.apimgt.impl.gatewayartifactsynchronizer.ArtifactRetriever;
 import org.wso2.carbon.apimgt.impl.gatewayartifactsynchronizer.exception.ArtifactSynchronizerException;
 import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
 
-import java.util.Iterator;
-import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.stream.XMLStreamException;
 
 /**
  * This class contains the methods used to retrieve artifacts from a storage and deploy and undeploy the API in gateway
@@ -40,6 +50,10 @@ import java.util.Set;
 public class InMemoryAPIDeployer {
 
     private static Log log = LogFactory.getLog(InMemoryAPIDeployer.class);
+    private static final int DEPLOYMENT_QUEUE_SIZE_PER_THREAD = 4;
+    private static final int PROGRESS_LOG_INTERVAL = 100;
+    private static final long PROGRESS_LOG_INTERVAL_SECONDS = 30;
+    private static final AtomicInteger deploymentThreadCount = new AtomicInteger();
     APIGatewayAdmin apiGatewayAdmin;
     ArtifactRetriever artifactRetriever;
     GatewayArtifactSynchronizerProperties gatewayArtifactSynchronizerProperties;
@@ -70,6 +84,7 @@ public class InMemoryAPIDeployer {
                     if (gatewayRuntimeArtifact != null) {
                         GatewayAPIDTO gatewayAPIDTO = new Gson().fromJson(gatewayRuntimeArtifact, GatewayAPIDTO.class);
                         apiGatewayAdmin.deployAPI(gatewayAPIDTO);
+                        loadOpenAPIDefinition(gatewayAPIDTO);
                         return true;
                     } else {
                         log.error("Error retrieving artifacts for API " + apiId + ". Storage returned null");
@@ -85,7 +100,12 @@ public class InMemoryAPIDeployer {
     }
 
     /**
-     * Deploy an API in the gateway using the deployAPI method in gateway admin
+     * Deploy all the APIs of the given labels in the gateway using the deployAPI method in gateway admin. The
+     * artifacts are read from the storage one by one, and deployed by a bounded pool of threads as they are read.
+     * Each API is deployed along with its local entries, endpoints and sequences, which are deployed before the API.
+     * Only the parts of a deployment which do not take a server wide lock run in parallel. The mediation admin
+     * services serialize the addition of artifacts to the Synapse configuration, and client certificates are added
+     * one at a time, hence the startup time does not shrink in proportion to the size of the pool.
      *
      * @param assignedGatewayLabels - The labels which the gateway subscribed to
      * @return True if all API artifacts retrieved from the storage and successfully deployed without any error. else
@@ -95,29 +115,37 @@ public class InMemoryAPIDeployer {
 
         if (gatewayArtifactSynchronizerProperties.isRetrieveFromStorageEnabled()) {
             if (artifactRetriever != null) {
+                int parallelism = Math.max(1, gatewayArtifactSynchronizerProperties.getDeploymentParallelism());
+                // Once the queue is full, the artifacts are deployed by the thread which reads them, so that the
+                // artifacts are not read faster than they can be deployed
+                ThreadPoolExecutor deploymentPool = new ThreadPoolExecutor(parallelism, parallelism, 0L,
+                        TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(parallelism * DEPLOYMENT_QUEUE_SIZE_PER_THREAD),
+                        runnable -> {
+                            Thread thread = new Thread(runnable);
+                            thread.setName("APIDeployer-" + deploymentThreadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }, new ThreadPoolExecutor.CallerRunsPolicy());
+                AtomicInteger deployedCount = new AtomicInteger();
+                AtomicInteger failedCount = new AtomicInteger();
+                long startTime = System.currentTimeMillis();
+                log.info("Deploying the APIs of gateway labels " + assignedGatewayLabels + " with " + parallelism +
+                        " threads");
                 try {
-                    Iterator<String> it = assignedGatewayLabels.iterator();
-                    while (it.hasNext()) {
-                        String label = it.next();
-                        List<String> gatewayRuntimeArtifacts = ServiceReferenceHolder
-                                .getInstance().getArtifactRetriever().retrieveAllArtifacts(label);
-                        for (String APIruntimeArtifact :gatewayRuntimeArtifacts){
-                            GatewayAPIDTO gatewayAPIDTO = null;
-                            try {
-                                if (APIruntimeArtifact != null) {
-                                    gatewayAPIDTO = new Gson().fromJson(APIruntimeArtifact, GatewayAPIDTO.class);
-                                    log.info("Deploying synapse artifacts of " + gatewayAPIDTO.getName());
-                                    apiGatewayAdmin.deployAPI(gatewayAPIDTO);
-                                }
-                            } catch (AxisFault axisFault) {
-                                log.error("Error in deploying" + gatewayAPIDTO.getName()+ " to the Gateway ");
-                                continue;
-                            }
-                        }
+                    for (String label : assignedGatewayLabels) {
+                        artifactRetriever.retrieveAllArtifacts(label, APIruntimeArtifact -> deploymentPool.execute(
+                                () -> deployArtifactAtGatewayStartup(APIruntimeArtifact, deployedCount,
+                                        failedCount)));
                     }
                     return true;
-                } catch (ArtifactSynchronizerException e ) {
+                } catch (ArtifactSynchronizerException e) {
                     log.error("Error  deploying APIs to the Gateway " + e );
+                } finally {
+                    deploymentPool.shutdown();
+                    awaitDeployment(deploymentPool, deployedCount, failedCount);
+                    log.info("Completed deploying the APIs in the Gateway. Deployed " + deployedCount.get() +
+                            " APIs in " + (System.currentTimeMillis() - startTime) + " ms" +
+                            (failedCount.get() > 0 ? ", " + failedCount.get() + " APIs failed to deploy" : ""));
                 }
             } else {
                 log.error("Artifact retriever not found");
@@ -126,6 +154,46 @@ public class InMemoryAPIDeployer {
         return false;
     }
 
+    private void deployArtifactAtGatewayStartup(String APIruntimeArtifact, AtomicInteger deployedCount,
+                                                AtomicInteger failedCount) {
+
+        if (APIruntimeArtifact == null) {
+            return;
+        }
+        GatewayAPIDTO gatewayAPIDTO = new Gson().fromJson(APIruntimeArtifact, GatewayAPIDTO.class);
+        PrivilegedCarbonContext.startTenantFlow();
+        try {
+            PrivilegedCarbonContext.getThreadLocalCarbonContext()
+                    .setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME, true);
+            log.info("Deploying synapse artifacts of " + gatewayAPIDTO.getName());
+            apiGatewayAdmin.deployAPI(gatewayAPIDTO);
+            loadOpenAPIDefinition(gatewayAPIDTO);
+            int deployed = deployedCount.incrementAndGet();
+            if (deployed % PROGRESS_LOG_INTERVAL == 0) {
+                log.info("Deployed " + deployed + " APIs in the Gateway");
+            }
+        } catch (AxisFault axisFault) {
+            failedCount.incrementAndGet();
+            log.error("Error in deploying " + gatewayAPIDTO.getName() + " to the Gateway ", axisFault);
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    private static void awaitDeployment(ThreadPoolExecutor deploymentPool, AtomicInteger deployedCount,
+                                        AtomicInteger failedCount) {
+
+        try {
+            while (!deploymentPool.awaitTermination(PROGRESS_LOG_INTERVAL_SECONDS, TimeUnit.SECONDS)) {
+                log.info("Deployed " + deployedCount.get() + " APIs in the Gateway, " + failedCount.get() +
+                        " failed. " + deploymentPool.getQueue().size() + " APIs are waiting to be deployed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while waiting for the APIs to be deployed in the Gateway", e);
+        }
+    }
+
     /**
      * UnDeploy an API in the gateway using the uneployAPI method in gateway admin
      *
@@ -145,6 +213,8 @@ public class InMemoryAPIDeployer {
                     if (gatewayRuntimeArtifact != null) {
                         GatewayAPIDTO gatewayAPIDTO = new Gson().fromJson(gatewayRuntimeArtifact, GatewayAPIDTO.class);
                         apiGatewayAdmin.unDeployAPI(gatewayAPIDTO);
+                        OpenAPIModelCache.getInstance().invalidate(apiId);
+                        invalidateResourceRouters(gatewayAPIDTO);
                         return true;
                     } else {
                         log.error("Error retrieving artifacts for API " + apiId + ". Storage returned null");
@@ -189,4 +259,43 @@ public class InMemoryAPIDeployer {
         return gatewayAPIDTO;
     }
 
+    /**
+     * Remove the compiled resource routers of an undeployed API and of its default version
+     *
+     * @param gatewayAPIDTO - DTO Object that contains the artifacts of the undeployed API
+     */
+    private void invalidateResourceRouters(GatewayAPIDTO gatewayAPIDTO) {
+
+        ResourceRouterCache.getInstance().invalidate(GatewayUtils.getQualifiedApiName(gatewayAPIDTO.getProvider(),
+                gatewayAPIDTO.getName(), gatewayAPIDTO.getVersion()));
+        ResourceRouterCache.getInstance().invalidate(GatewayUtils.getQualifiedDefaultApiName(
+                gatewayAPIDTO.getProvider(), gatewayAPIDTO.getName()));
+    }
+
+    /**
+     * Load the OpenAPI definition of a deployed API into the gateway wide cache, so that it is parsed once ahead of
+     * the first request, and shared by the handlers of the API
+     *
+     * @param gatewayAPIDTO - DTO Object that contains the artifacts of the deployed API
+     */
+    private void loadOpenAPIDefinition(GatewayAPIDTO gatewayAPIDTO) {
+
+        String apiId = gatewayAPIDTO.getApiId();
+        if (apiId == null || gatewayAPIDTO.getLocalEntriesToBeAdd() == null) {
+            return;
+        }
+        for (GatewayContentDTO localEntry : gatewayAPIDTO.getLocalEntriesToBeAdd()) {
+            if (apiId.equals(localEntry.getName())) {
+                try {
+                    // The local entry of the API holds the OpenAPI definition as its text
+                    String definition = AXIOMUtil.stringToOM(localEntry.getContent()).getText();
+                    OpenAPIModelCache.getInstance().load(apiId, definition);
+                } catch (XMLStreamException e) {
+                    log.error("Error reading the OpenAPI definition of " + apiId, e);
+                }
+                return;
+            }
+        }
+    }
+
 }
@@ -42,6 +42,7 @@ import org.apache.synapse.rest.AbstractHandler;
 import org.apache.synapse.rest.RESTConstants;
 import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.handlers.Utils;
+import org.wso2.carbon.apimgt.gateway.handlers.common.GatewayRequestContext;
 import org.wso2.carbon.apimgt.gateway.MethodStats;
 import org.wso2.carbon.apimgt.gateway.handlers.security.APISecurityUtils;
 import org.wso2.carbon.apimgt.gateway.handlers.security.AuthenticationContext;
@@ -176,14 +177,8 @@ public class APIMgtGoogleAnalyticsTrackingHandler extends AbstractHandler {
         }
 
         // Get client IP
-        String xForwardedFor = (String) headers.get(APIMgtUsagePublisherConstants.X_FORWARDED_FOR_HEADER);
-        String userIP;
-        if(xForwardedFor == null || xForwardedFor.isEmpty()) {
-            userIP = (String) ((Axis2MessageContext) msgCtx).getAxis2MessageContext()
-                    .getProperty(org.apache.axis2.context.MessageContext.REMOTE_ADDR);
-        } else {
-            userIP = xForwardedFor.split(",")[0];
-        }
+        GatewayRequestContext requestContext = GatewayRequestContext.get(msgCtx);
+        String userIP = requestContext.getClientIp();
         String path = (String) msgCtx.getProperty(RESTConstants.REST_FULL_REQUEST_PATH);
         String documentPath = path;
         if (isEmpty(documentPath)) {
@@ -192,7 +187,7 @@ public class APIMgtGoogleAnalyticsTrackingHandler extends AbstractHandler {
 
         String account = config.googleAnalyticsTrackingID;
 
-        String userAgent = (String) headers.get(HttpHeaders.USER_AGENT);
+        String userAgent = requestContext.getUserAgent();
         if (isEmpty(userAgent)) {
             userAgent = "";
         }
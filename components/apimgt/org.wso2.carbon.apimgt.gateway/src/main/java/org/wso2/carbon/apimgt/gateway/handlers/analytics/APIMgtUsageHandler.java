@@ -16,15 +16,14 @@
 
 package org.wso2.carbon.apimgt.gateway.handlers.analytics;
 
-import org.apache.axis2.Constants;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
-import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.rest.AbstractHandler;
 import org.apache.synapse.rest.RESTConstants;
 import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.MethodStats;
+import org.wso2.carbon.apimgt.gateway.handlers.common.GatewayRequestContext;
 import org.wso2.carbon.apimgt.impl.APIConstants;
 import org.wso2.carbon.apimgt.impl.APIManagerAnalyticsConfiguration;
 import org.wso2.carbon.apimgt.tracing.TracingSpan;
@@ -33,7 +32,6 @@ import org.wso2.carbon.apimgt.tracing.Util;
 import org.wso2.carbon.apimgt.usage.publisher.APIMgtUsageDataPublisher;
 import org.wso2.carbon.apimgt.usage.publisher.DataPublisherUtil;
 
-import java.util.Map;
 import java.util.regex.Pattern;
 
 public class APIMgtUsageHandler extends AbstractHandler {
@@ -52,8 +50,7 @@ public class APIMgtUsageHandler extends AbstractHandler {
         // (only for graphQL APIs)
         if (mc.getProperty(APIConstants.API_TYPE) != null &&
                 APIConstants.GRAPHQL_API.equals(mc.getProperty(APIConstants.API_TYPE).toString())) {
-            ((Axis2MessageContext) mc).getAxis2MessageContext().
-                    setProperty(Constants.Configuration.HTTP_METHOD, mc.getProperty(APIConstants.HTTP_VERB));
+            GatewayRequestContext.get(mc).setHttpMethod((String) mc.getProperty(APIConstants.HTTP_VERB));
         }
 
         if (Util.tracingEnabled()) {
@@ -71,12 +68,9 @@ public class APIMgtUsageHandler extends AbstractHandler {
         /*setting global analytic enabled status. Which use at by the by bam mediator in
         synapse to enable or disable destination based stat publishing*/
         mc.setProperty("isStatEnabled", Boolean.toString(enabled));
-        org.apache.axis2.context.MessageContext axis2MsgContext =
-                ((Axis2MessageContext) mc).getAxis2MessageContext();
-        Map headers = (Map) (axis2MsgContext)
-                .getProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS);
-        String userAgent = (String) headers.get(APIConstants.USER_AGENT);
-        String clientIp = DataPublisherUtil.getClientIp(axis2MsgContext);
+        GatewayRequestContext requestContext = GatewayRequestContext.get(mc);
+        String userAgent = requestContext.getUserAgent();
+        String clientIp = requestContext.getClientIp();
         mc.setProperty(APIMgtGatewayConstants.CLIENT_USER_AGENT, userAgent);
         mc.setProperty(APIMgtGatewayConstants.CLIENT_IP, clientIp);
         return true;
@@ -17,9 +17,6 @@
 */
 package org.wso2.carbon.apimgt.gateway.handlers.common;
 
-import io.swagger.parser.OpenAPIParser;
-import io.swagger.v3.oas.models.OpenAPI;
-import org.apache.axis2.Constants;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
@@ -28,13 +25,13 @@ import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.rest.AbstractHandler;
 import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.handlers.security.AuthenticationContext;
+import org.wso2.carbon.apimgt.gateway.utils.OpenAPIModel;
+import org.wso2.carbon.apimgt.gateway.utils.OpenAPIModelCache;
 import org.wso2.carbon.apimgt.impl.utils.APIUtil;
 
 public class APIMgtLatencyStatsHandler extends AbstractHandler {
     private static final Log log = LogFactory.getLog(APIMgtLatencyStatsHandler.class);
-    private OpenAPI openAPI;
     private String apiUUID;
-    private String swagger;
 
     public String getApiUUID() {
         return apiUUID;
@@ -51,8 +48,7 @@ public class APIMgtLatencyStatsHandler extends AbstractHandler {
         if (messageContext.getProperty(APIMgtGatewayConstants.REQUEST_EXECUTION_START_TIME) == null) {
             messageContext.setProperty(APIMgtGatewayConstants.REQUEST_EXECUTION_START_TIME, Long.toString(System
                     .currentTimeMillis()));
-            String method = (String) (axis2MsgContext.getProperty(
-                    Constants.Configuration.HTTP_METHOD));
+            String method = GatewayRequestContext.get(messageContext).getHttpMethod();
             messageContext.setProperty(APIMgtGatewayConstants.HTTP_METHOD, method);
         }
         /*
@@ -86,29 +82,24 @@ public class APIMgtLatencyStatsHandler extends AbstractHandler {
     }
 
     private void setSwaggerToMessageContext(MessageContext messageContext) {
-        // Read OpenAPI from local entry
-        if (openAPI == null && apiUUID != null) {
-            synchronized (this) {
-                if (openAPI == null) {
-                    long startTime = System.currentTimeMillis();
-                    Entry localEntryObj = (Entry) messageContext.getConfiguration().getLocalRegistry().get(apiUUID);
-                    if (localEntryObj != null) {
-                        swagger = localEntryObj.getValue().toString();
-                        OpenAPIParser parser = new OpenAPIParser();
-                        openAPI = parser.readContents(swagger,
-                                null, null).getOpenAPI();
-                    }
-                    long endTime = System.currentTimeMillis();
-                    if (log.isDebugEnabled()) {
-                        log.debug("Time to parse the swagger(ms) : " + (endTime - startTime));
-                    }
-                }
+        // Read OpenAPI from local entry. The parsed OpenAPI is shared by all the handlers through the cache.
+        OpenAPIModel openAPIModel = null;
+        if (apiUUID != null) {
+            Entry localEntryObj = (Entry) messageContext.getConfiguration().getLocalRegistry().get(apiUUID);
+            if (localEntryObj != null && localEntryObj.getValue() != null) {
+                openAPIModel = OpenAPIModelCache.getInstance().getModel(apiUUID, localEntryObj.getValue().toString());
             }
         }
+        if (openAPIModel == null) {
+            messageContext.setProperty(APIMgtGatewayConstants.OPEN_API_OBJECT, null);
+            messageContext.setProperty(APIMgtGatewayConstants.OPEN_API_STRING, null);
+            return;
+        }
+        messageContext.setProperty(APIMgtGatewayConstants.OPEN_API_MODEL, openAPIModel);
         // Add OpenAPI to message context
-        messageContext.setProperty(APIMgtGatewayConstants.OPEN_API_OBJECT, openAPI);
+        messageContext.setProperty(APIMgtGatewayConstants.OPEN_API_OBJECT, openAPIModel.getOpenAPI());
         // Add swagger String to message context
-        messageContext.setProperty(APIMgtGatewayConstants.OPEN_API_STRING, swagger);
+        messageContext.setProperty(APIMgtGatewayConstants.OPEN_API_STRING, openAPIModel.getDefinition());
     }
 
 }
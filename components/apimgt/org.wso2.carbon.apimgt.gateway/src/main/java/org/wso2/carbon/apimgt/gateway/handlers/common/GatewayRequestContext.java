@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.handlers.common;
+
+import org.apache.axis2.Constants;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.rest.RESTConstants;
+import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
+import org.wso2.carbon.apimgt.gateway.utils.GatewayUtils;
+import org.wso2.carbon.apimgt.impl.APIConstants;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Attributes of a request which are used by more than one handler of an API, such as the client IP, the HTTP method,
+ * the tenant domain and the identifiers of the API. The context is attached to the message context by the first handler which uses it,
+ * and each attribute is resolved at most once per request, when a handler first asks for it, instead of each handler
+ * reading and parsing it again.
+ */
+public class GatewayRequestContext {
+
+    private static final String API_NAME_SEPARATOR = "--";
+
+    private final MessageContext messageContext;
+    private final org.apache.axis2.context.MessageContext axis2MessageContext;
+
+    private String httpMethod;
+    private String clientIp;
+    private boolean clientIpResolved;
+    private String userAgent;
+    private boolean userAgentResolved;
+    private String qualifiedApiName;
+    private String apiPublisher;
+    private String apiNameWithVersion;
+    private String apiName;
+    private boolean apiIdentifiersResolved;
+    private String tenantDomain;
+    private String accessTokenCacheKey;
+    private String accessTokenCacheKeyToken;
+
+    GatewayRequestContext(MessageContext messageContext) {
+
+        this.messageContext = messageContext;
+        this.axis2MessageContext = ((Axis2MessageContext) messageContext).getAxis2MessageContext();
+    }
+
+    /**
+     * Returns the context of a request, attaching a new context to the message context if it does not have one yet
+     *
+     * @param messageContext message context of the request
+     * @return context of the request
+     */
+    public static GatewayRequestContext get(MessageContext messageContext) {
+
+        Object requestContext = messageContext.getProperty(APIMgtGatewayConstants.GATEWAY_REQUEST_CONTEXT);
+        if (requestContext instanceof GatewayRequestContext) {
+            return (GatewayRequestContext) requestContext;
+        }
+        GatewayRequestContext newRequestContext = new GatewayRequestContext(messageContext);
+        messageContext.setProperty(APIMgtGatewayConstants.GATEWAY_REQUEST_CONTEXT, newRequestContext);
+        return newRequestContext;
+    }
+
+    /**
+     * @return HTTP method of the request
+     */
+    public String getHttpMethod() {
+
+        if (httpMethod == null) {
+            httpMethod = (String) axis2MessageContext.getProperty(Constants.Configuration.HTTP_METHOD);
+        }
+        return httpMethod;
+    }
+
+    /**
+     * Replaces the HTTP method of the request, such as with the operation type of a GraphQL query, for the handlers
+     * which come after
+     *
+     * @param httpMethod HTTP method to be used by the rest of the handlers
+     */
+    public void setHttpMethod(String httpMethod) {
+
+        this.httpMethod = httpMethod;
+        axis2MessageContext.setProperty(Constants.Configuration.HTTP_METHOD, httpMethod);
+        // The cache key of a token includes the HTTP method
+        accessTokenCacheKey = null;
+    }
+
+    /**
+     * @return tenant domain of the API being invoked
+     */
+    public String getTenantDomain() {
+
+        if (tenantDomain == null) {
+            tenantDomain = GatewayUtils.getTenantDomain();
+        }
+        return tenantDomain;
+    }
+
+    /**
+     * Returns the key of a token in the gateway token caches, which is made of the token and the context, version,
+     * resource and HTTP method of the request
+     *
+     * @param token access token of the request, or the signature of the JWT or API key
+     * @return cache key of the token
+     */
+    public String getAccessTokenCacheKey(String token) {
+
+        if (accessTokenCacheKey == null || !token.equals(accessTokenCacheKeyToken)) {
+            accessTokenCacheKey = GatewayUtils.getAccessTokenCacheKey(token,
+                    (String) messageContext.getProperty(RESTConstants.REST_API_CONTEXT),
+                    (String) messageContext.getProperty(RESTConstants.SYNAPSE_REST_API_VERSION),
+                    (String) messageContext.getProperty(APIConstants.API_ELECTED_RESOURCE), getHttpMethod());
+            accessTokenCacheKeyToken = token;
+        }
+        return accessTokenCacheKey;
+    }
+
+    /**
+     * Returns the IP of the client, which is the first address of the X-Forwarded-For header if the request was
+     * forwarded, or the remote address of the request otherwise
+     *
+     * @return IP of the client
+     */
+    public String getClientIp() {
+
+        if (!clientIpResolved) {
+            String forwardedFor = getTransportHeader(APIMgtGatewayConstants.X_FORWARDED_FOR);
+            if (forwardedFor != null && !forwardedFor.isEmpty()) {
+                int index = forwardedFor.indexOf(',');
+                clientIp = index > 0 ? forwardedFor.substring(0, index) : forwardedFor;
+            } else {
+                clientIp = (String) axis2MessageContext.getProperty(
+                        org.apache.axis2.context.MessageContext.REMOTE_ADDR);
+            }
+            clientIpResolved = true;
+        }
+        return clientIp;
+    }
+
+    /**
+     * @return User-Agent header of the request
+     */
+    public String getUserAgent() {
+
+        if (!userAgentResolved) {
+            userAgent = getTransportHeader(APIConstants.USER_AGENT);
+            userAgentResolved = true;
+        }
+        return userAgent;
+    }
+
+    /**
+     * @return name of the API in the Synapse configuration, such as admin--PizzaShackAPI:v1.0.0
+     */
+    public String getQualifiedApiName() {
+
+        resolveApiIdentifiers();
+        return qualifiedApiName;
+    }
+
+    /**
+     * @return provider of the API
+     */
+    public String getApiPublisher() {
+
+        resolveApiIdentifiers();
+        return apiPublisher;
+    }
+
+    /**
+     * @return name of the API followed by its version, such as PizzaShackAPI:v1.0.0
+     */
+    public String getApiNameWithVersion() {
+
+        resolveApiIdentifiers();
+        return apiNameWithVersion;
+    }
+
+    /**
+     * @return name of the API
+     */
+    public String getApiName() {
+
+        resolveApiIdentifiers();
+        return apiName;
+    }
+
+    private void resolveApiIdentifiers() {
+
+        if (apiIdentifiersResolved) {
+            return;
+        }
+        qualifiedApiName = (String) messageContext.getProperty(RESTConstants.SYNAPSE_REST_API);
+        apiPublisher = (String) messageContext.getProperty(APIMgtGatewayConstants.API_PUBLISHER);
+        if (qualifiedApiName != null) {
+            int index = qualifiedApiName.indexOf(API_NAME_SEPARATOR);
+            //if publisher is null,extract the publisher from the api name
+            if (apiPublisher == null && index != -1) {
+                apiPublisher = qualifiedApiName.substring(0, index).replace(
+                        APIConstants.EMAIL_DOMAIN_SEPARATOR_REPLACEMENT, APIConstants.EMAIL_DOMAIN_SEPARATOR);
+            }
+            apiNameWithVersion = index != -1 ? qualifiedApiName.substring(index + API_NAME_SEPARATOR.length()) :
+                    qualifiedApiName;
+            int versionIndex = apiNameWithVersion.indexOf(':');
+            apiName = versionIndex != -1 ? apiNameWithVersion.substring(0, versionIndex) : apiNameWithVersion;
+        }
+        apiIdentifiersResolved = true;
+    }
+
+    private String getTransportHeader(String name) {
+
+        Map headers = (Map) axis2MessageContext.getProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS);
+        if (headers == null) {
+            return null;
+        }
+        Object value = headers.get(name);
+        if (value == null && !(headers instanceof TreeMap &&
+                ((TreeMap) headers).comparator() == String.CASE_INSENSITIVE_ORDER)) {
+            // Header names are case insensitive, although not all the header maps are
+            for (Object header : headers.entrySet()) {
+                Map.Entry entry = (Map.Entry) header;
+                if (entry.getKey() instanceof String && name.equalsIgnoreCase((String) entry.getKey())) {
+                    value = entry.getValue();
+                    break;
+                }
+            }
+        }
+        return (String) value;
+    }
+}
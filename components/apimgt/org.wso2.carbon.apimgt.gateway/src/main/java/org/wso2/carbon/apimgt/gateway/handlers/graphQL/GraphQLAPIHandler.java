@@ -48,9 +48,11 @@ import org.apache.synapse.rest.AbstractHandler;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
 import org.wso2.carbon.apimgt.api.model.URITemplate;
 import org.wso2.carbon.apimgt.gateway.handlers.Utils;
+import org.wso2.carbon.apimgt.gateway.handlers.common.GatewayRequestContext;
 import org.wso2.carbon.apimgt.gateway.handlers.security.APISecurityConstants;
 import org.wso2.carbon.apimgt.impl.APIConstants;
 import org.wso2.carbon.apimgt.impl.definitions.GraphQLSchemaDefinition;
+import org.wso2.carbon.apimgt.impl.utils.TinyLFUCache;
 
 import java.io.IOException;
 import java.util.Base64;
@@ -58,7 +60,9 @@ import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.xml.stream.XMLStreamException;
 
 import static org.apache.axis2.Constants.Configuration.*;
@@ -71,12 +75,24 @@ public class GraphQLAPIHandler extends AbstractHandler {
     private static final String HTTP_VERB = "HTTP_VERB";
     private static final String UNICODE_TRANSFORMATION_FORMAT = "UTF-8";
     private static final String GRAPHQL_IDENTIFIER = "_graphQL";
-    private static final String CLASS_NAME_AND_METHOD = "_GraphQLAPIHandler_handleRequest";
+    private static final int QUERY_CACHE_SIZE = 1000;
     private static final Log log = LogFactory.getLog(GraphQLAPIHandler.class);
-    private GraphQLSchema schema = null;
+    private volatile GraphQLSchema schema = null;
     private static Validator validator;
     private String apiUUID;
     private String schemaDefinition;
+    private final Object schemaLock = new Object();
+
+    // Mappings decoded from the additional types of the schema, which are loaded along with the schema
+    private HashMap<String, ArrayList<String>> scopeRoleMappingList = new HashMap<>();
+    private HashMap<String, String> operationScopeMappingList = new HashMap<>();
+    private HashMap<String, String> operationThrottlingMappingList = new HashMap<>();
+    private HashMap<String, Boolean> operationAuthSchemeMappingList = new HashMap<>();
+    private String graphQLAccessControlPolicy = null;
+
+    // Queries of this API which were parsed and validated against the schema, by the query
+    private final Map<String, ValidatedQuery> validatedQueries = new TinyLFUCache<>(QUERY_CACHE_SIZE);
+    private final Map<String, ArrayList<String>> supportedFieldsByOperation = new ConcurrentHashMap<>();
 
     public GraphQLAPIHandler() {
 
@@ -96,7 +112,6 @@ public class GraphQLAPIHandler extends AbstractHandler {
     public boolean handleRequest(MessageContext messageContext) {
         try {
             String payload;
-            Parser parser = new Parser();
 
             org.apache.axis2.context.MessageContext axis2MC = ((Axis2MessageContext) messageContext).
                     getAxis2MessageContext();
@@ -125,37 +140,47 @@ public class GraphQLAPIHandler extends AbstractHandler {
                 return false;
             }
 
-            // Validate payload with graphQLSchema
-            Document document = parser.parseDocument(payload);
-
-            if (validatePayloadWithSchema(messageContext, document)) {
-                supportForBasicAndAuthentication(messageContext);
+            loadSchema(messageContext);
+            ValidatedQuery validatedQuery = validatedQueries.get(payload);
+            if (validatedQuery == null) {
+                // Validate payload with graphQLSchema
+                Document document = new Parser().parseDocument(payload);
+                if (!validatePayloadWithSchema(messageContext, document)) {
+                    return false;
+                }
 
                 // Extract the operation type and operations from the payload
                 for (Definition definition : document.getDefinitions()) {
                     if (definition instanceof OperationDefinition) {
                         OperationDefinition operation = (OperationDefinition) definition;
                         if (operation.getOperation() != null) {
-                            String httpVerb = ((Axis2MessageContext) messageContext).getAxis2MessageContext().
-                                    getProperty(HTTP_METHOD).toString();
-                            messageContext.setProperty(HTTP_VERB, httpVerb);
-                            ((Axis2MessageContext) messageContext).getAxis2MessageContext().setProperty(HTTP_METHOD,
-                                    operation.getOperation().toString());
-                            String operationList = getOperationList(messageContext, operation);
-                            messageContext.setProperty(APIConstants.API_ELECTED_RESOURCE, operationList);
-                            if (log.isDebugEnabled()) {
-                                log.debug("Operation list has been successfully added to elected property");
-                            }
-                            return true;
+                            validatedQuery = new ValidatedQuery(operation.getOperation().toString(),
+                                    getOperationList(messageContext, operation));
+                            validatedQueries.put(payload, validatedQuery);
+                            break;
                         }
                     } else {
                         handleFailure(messageContext, "Operation definition cannot be empty");
                         return false;
                     }
                 }
-            } else {
-                return false;
+                if (validatedQuery == null) {
+                    return false;
+                }
+            } else if (log.isDebugEnabled()) {
+                log.debug("Query was validated earlier against the schema of API " + apiUUID);
+            }
+
+            supportForBasicAndAuthentication(messageContext);
+            GatewayRequestContext requestContext = GatewayRequestContext.get(messageContext);
+            String httpVerb = requestContext.getHttpMethod();
+            messageContext.setProperty(HTTP_VERB, httpVerb);
+            requestContext.setHttpMethod(validatedQuery.operationType);
+            messageContext.setProperty(APIConstants.API_ELECTED_RESOURCE, validatedQuery.operationList);
+            if (log.isDebugEnabled()) {
+                log.debug("Operation list has been successfully added to elected property");
             }
+            return true;
         } catch (IOException | XMLStreamException | InvalidSyntaxException e) {
             log.error(e.getMessage());
             handleFailure(messageContext, e.getMessage());
@@ -171,12 +196,14 @@ public class GraphQLAPIHandler extends AbstractHandler {
      */
     private String getOperationList(MessageContext messageContext,OperationDefinition operation) {
         String operationList = "";
-        GraphQLSchemaDefinition graphql = new GraphQLSchemaDefinition();
         ArrayList<String> operationArray = new ArrayList<>();
 
-        List<URITemplate> list = graphql.extractGraphQLOperationList(schemaDefinition,
-                operation.getOperation().toString());
-        ArrayList<String> supportedFields = getSupportedFields(list);
+        ArrayList<String> supportedFields = supportedFieldsByOperation.computeIfAbsent(
+                operation.getOperation().toString(), operationType -> {
+                    GraphQLSchemaDefinition graphql = new GraphQLSchemaDefinition();
+                    List<URITemplate> list = graphql.extractGraphQLOperationList(schemaDefinition, operationType);
+                    return getSupportedFields(list);
+                });
 
         getNestedLevelOperations(operation.getSelectionSet().getSelections(), supportedFields, operationArray);
         operationList = String.join(",", operationArray);
@@ -220,82 +247,117 @@ public class GraphQLAPIHandler extends AbstractHandler {
     }
 
     /**
-     * Support GraphQL APIs for basic,JWT  authentication, this method extract the scopes and operations from
-     * local Entry and set them to properties. If the operations have scopes, scopes operation mapping and scope
-     * role mappings are added to schema as additional types before adding them to local entry
+     * Support GraphQL APIs for basic,JWT  authentication, this method sets the scopes and operations extracted from
+     * local Entry along with the schema to properties.
      *
      * @param messageContext message context of the request
      */
     private void supportForBasicAndAuthentication(MessageContext messageContext) {
+        messageContext.setProperty(APIConstants.SCOPE_ROLE_MAPPING, scopeRoleMappingList);
+        messageContext.setProperty(APIConstants.SCOPE_OPERATION_MAPPING, operationScopeMappingList);
+        messageContext.setProperty(APIConstants.OPERATION_THROTTLING_MAPPING, operationThrottlingMappingList);
+        messageContext.setProperty(APIConstants.OPERATION_AUTH_SCHEME_MAPPING, operationAuthSchemeMappingList);
+        messageContext.setProperty(APIConstants.GRAPHQL_ACCESS_CONTROL_POLICY, graphQLAccessControlPolicy);
+        messageContext.setProperty(APIConstants.API_TYPE, GRAPHQL_API);
+        messageContext.setProperty(APIConstants.GRAPHQL_SCHEMA, schema);
+    }
+
+    /**
+     * This method loads the schema of the API from the local entry once, and extracts the scopes and operations
+     * from it. If the operations have scopes, scopes operation mapping and scope role mappings are added to schema as
+     * additional types before adding them to local entry
+     *
+     * @param messageContext message context of the request
+     */
+    private void loadSchema(MessageContext messageContext) {
+        if (schema != null) {
+            return;
+        }
+        synchronized (schemaLock) {
+            if (schema == null) {
+                Entry localEntryObj = (Entry) messageContext.getConfiguration().getLocalRegistry().get(apiUUID +
+                        GRAPHQL_IDENTIFIER);
+                if (localEntryObj != null) {
+                    SchemaParser schemaParser = new SchemaParser();
+                    schemaDefinition = localEntryObj.getValue().toString();
+                    TypeDefinitionRegistry registry = schemaParser.parse(schemaDefinition);
+                    GraphQLSchema graphQLSchema = UnExecutableSchemaGenerator.makeUnExecutableSchema(registry);
+                    decodeAdditionalTypes(graphQLSchema);
+                    schema = graphQLSchema;
+                }
+            }
+        }
+    }
+
+    /**
+     * This method extracts the scopes and operations from the additional types of the schema
+     *
+     * @param schema schema of the API
+     */
+    private void decodeAdditionalTypes(GraphQLSchema schema) {
         ArrayList<String> roleArrayList = new ArrayList<>();
-        @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
         HashMap<String, String> operationThrottlingMappingList = new HashMap<>();
-        @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
         HashMap<String, Boolean> operationAuthSchemeMappingList = new HashMap<>();
         HashMap<String, String> operationScopeMappingList = new HashMap<>();
         HashMap<String, ArrayList<String>> scopeRoleMappingList = new HashMap<>();
         String graphQLAccessControlPolicy = null;
 
-        if (schema != null) {
-            Set<GraphQLType> additionalTypes = schema.getAdditionalTypes();
-            for (GraphQLType additionalType : additionalTypes) {
-                String[] additionalTypeNameArray = additionalType.getName().split("_", 2);
-                if (additionalTypeNameArray.length > 1) {
-                    String additionalTypeName = additionalTypeNameArray[1];
-                    String base64DecodedAdditionalType = new String(Base64.getUrlDecoder().decode(additionalTypeName));
-                    for (GraphQLType type : additionalType.getChildren()) {
-                        if (additionalType.getName().contains(APIConstants.SCOPE_ROLE_MAPPING)) {
-                            String base64DecodedURLRole = new String(Base64.getUrlDecoder().decode(type.getName()));
-                            roleArrayList = new ArrayList<>();
-                            roleArrayList.add(base64DecodedURLRole);
-                        } else if (additionalType.getName().contains(APIConstants.SCOPE_OPERATION_MAPPING)) {
-                            String base64DecodedURLScope = new String(Base64.getUrlDecoder().decode(type.getName()));
-                            operationScopeMappingList.put(base64DecodedAdditionalType, base64DecodedURLScope);
-                            if (log.isDebugEnabled()) {
-                                log.debug("Added operation " + base64DecodedAdditionalType + "with scope "
-                                        + base64DecodedURLScope);
-                            }
-                        } else if (additionalType.getName().contains(APIConstants.OPERATION_THROTTLING_MAPPING)) {
-                            String base64DecodedURLThrottlingTier = new String(Base64.getUrlDecoder().decode(type.getName()));
-                            operationThrottlingMappingList.put(base64DecodedAdditionalType, base64DecodedURLThrottlingTier);
-                            if (log.isDebugEnabled()) {
-                                log.debug("Added operation " + base64DecodedAdditionalType + "with throttling "
-                                        + base64DecodedURLThrottlingTier);
-                            }
-
-                        } else if (additionalType.getName().contains(APIConstants.OPERATION_AUTH_SCHEME_MAPPING)) {
-                            boolean isSecurityEnabled = true;
-                            if (APIConstants.OPERATION_SECURITY_DISABLED.equalsIgnoreCase(type.getName())) {
-                                isSecurityEnabled = false;
-                            }
-                            operationAuthSchemeMappingList.put(base64DecodedAdditionalType, isSecurityEnabled);
-                            if (log.isDebugEnabled()) {
-                                log.debug("Added operation " + base64DecodedAdditionalType + "with security "
-                                        + isSecurityEnabled);
-                            }
-
-                        } else if (additionalType.getName().contains(APIConstants.GRAPHQL_ACCESS_CONTROL_POLICY)) {
-                            graphQLAccessControlPolicy = new String(Base64.getUrlDecoder().decode(type.getName()));
+        Set<GraphQLType> additionalTypes = schema.getAdditionalTypes();
+        for (GraphQLType additionalType : additionalTypes) {
+            String[] additionalTypeNameArray = additionalType.getName().split("_", 2);
+            if (additionalTypeNameArray.length > 1) {
+                String additionalTypeName = additionalTypeNameArray[1];
+                String base64DecodedAdditionalType = new String(Base64.getUrlDecoder().decode(additionalTypeName));
+                for (GraphQLType type : additionalType.getChildren()) {
+                    if (additionalType.getName().contains(APIConstants.SCOPE_ROLE_MAPPING)) {
+                        String base64DecodedURLRole = new String(Base64.getUrlDecoder().decode(type.getName()));
+                        roleArrayList = new ArrayList<>();
+                        roleArrayList.add(base64DecodedURLRole);
+                    } else if (additionalType.getName().contains(APIConstants.SCOPE_OPERATION_MAPPING)) {
+                        String base64DecodedURLScope = new String(Base64.getUrlDecoder().decode(type.getName()));
+                        operationScopeMappingList.put(base64DecodedAdditionalType, base64DecodedURLScope);
+                        if (log.isDebugEnabled()) {
+                            log.debug("Added operation " + base64DecodedAdditionalType + "with scope "
+                                    + base64DecodedURLScope);
                         }
-                    }
-                    if (!roleArrayList.isEmpty()) {
-                        scopeRoleMappingList.put(base64DecodedAdditionalType, roleArrayList);
+                    } else if (additionalType.getName().contains(APIConstants.OPERATION_THROTTLING_MAPPING)) {
+                        String base64DecodedURLThrottlingTier = new String(Base64.getUrlDecoder().decode(type.getName()));
+                        operationThrottlingMappingList.put(base64DecodedAdditionalType, base64DecodedURLThrottlingTier);
                         if (log.isDebugEnabled()) {
-                            log.debug("Added scope " + base64DecodedAdditionalType + "with role list "
-                                    + String.join(",", roleArrayList));
+                            log.debug("Added operation " + base64DecodedAdditionalType + "with throttling "
+                                    + base64DecodedURLThrottlingTier);
                         }
+
+                    } else if (additionalType.getName().contains(APIConstants.OPERATION_AUTH_SCHEME_MAPPING)) {
+                        boolean isSecurityEnabled = true;
+                        if (APIConstants.OPERATION_SECURITY_DISABLED.equalsIgnoreCase(type.getName())) {
+                            isSecurityEnabled = false;
+                        }
+                        operationAuthSchemeMappingList.put(base64DecodedAdditionalType, isSecurityEnabled);
+                        if (log.isDebugEnabled()) {
+                            log.debug("Added operation " + base64DecodedAdditionalType + "with security "
+                                    + isSecurityEnabled);
+                        }
+
+                    } else if (additionalType.getName().contains(APIConstants.GRAPHQL_ACCESS_CONTROL_POLICY)) {
+                        graphQLAccessControlPolicy = new String(Base64.getUrlDecoder().decode(type.getName()));
+                    }
+                }
+                if (!roleArrayList.isEmpty()) {
+                    scopeRoleMappingList.put(base64DecodedAdditionalType, roleArrayList);
+                    if (log.isDebugEnabled()) {
+                        log.debug("Added scope " + base64DecodedAdditionalType + "with role list "
+                                + String.join(",", roleArrayList));
                     }
                 }
             }
         }
 
-        messageContext.setProperty(APIConstants.SCOPE_ROLE_MAPPING, scopeRoleMappingList);
-        messageContext.setProperty(APIConstants.SCOPE_OPERATION_MAPPING, operationScopeMappingList);
-        messageContext.setProperty(APIConstants.OPERATION_THROTTLING_MAPPING, operationThrottlingMappingList);
-        messageContext.setProperty(APIConstants.OPERATION_AUTH_SCHEME_MAPPING, operationAuthSchemeMappingList);
-        messageContext.setProperty(APIConstants.GRAPHQL_ACCESS_CONTROL_POLICY, graphQLAccessControlPolicy);
-        messageContext.setProperty(APIConstants.API_TYPE, GRAPHQL_API);
-        messageContext.setProperty(APIConstants.GRAPHQL_SCHEMA, schema);
+        this.scopeRoleMappingList = scopeRoleMappingList;
+        this.operationScopeMappingList = operationScopeMappingList;
+        this.operationThrottlingMappingList = operationThrottlingMappingList;
+        this.operationAuthSchemeMappingList = operationAuthSchemeMappingList;
+        this.graphQLAccessControlPolicy = graphQLAccessControlPolicy;
     }
 
     /**
@@ -310,19 +372,6 @@ public class GraphQLAPIHandler extends AbstractHandler {
         List<ValidationError> validationErrors;
         String validationErrorMessage;
 
-        synchronized (apiUUID + CLASS_NAME_AND_METHOD) {
-            if (schema == null) {
-                Entry localEntryObj = (Entry) messageContext.getConfiguration().getLocalRegistry().get(apiUUID +
-                        GRAPHQL_IDENTIFIER);
-                if (localEntryObj != null) {
-                    SchemaParser schemaParser = new SchemaParser();
-                    schemaDefinition = localEntryObj.getValue().toString();
-                    TypeDefinitionRegistry registry = schemaParser.parse(schemaDefinition);
-                    schema = UnExecutableSchemaGenerator.makeUnExecutableSchema(registry);
-                }
-            }
-        }
-
         validationErrors = validator.validateDocument(schema, document);
         if (validationErrors != null && validationErrors.size() > 0) {
             if (log.isDebugEnabled()) {
@@ -381,6 +430,21 @@ public class GraphQLAPIHandler extends AbstractHandler {
     public boolean handleResponse(MessageContext messageContext) {
         return true;
     }
+
+    /**
+     * Operation type and the operation list of a query which was validated against the schema
+     */
+    private static class ValidatedQuery {
+
+        private final String operationType;
+        private final String operationList;
+
+        ValidatedQuery(String operationType, String operationList) {
+
+            this.operationType = operationType;
+            this.operationList = operationList;
+        }
+    }
 }
 
 
@@ -40,20 +40,28 @@ import org.json.simple.parser.ParseException;
 import org.wso2.carbon.apimgt.gateway.handlers.Utils;
 import org.wso2.carbon.apimgt.gateway.handlers.security.APISecurityConstants;
 import org.wso2.carbon.apimgt.impl.APIConstants;
+import org.wso2.carbon.apimgt.impl.utils.TinyLFUCache;
 import org.wso2.carbon.apimgt.rest.api.util.utils.RestApiUtil;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This Handler can be used to analyse GraphQL Query. This implementation uses previously set
  * complexity and depth limitation to block the complex queries before it reaches the backend.
+ * The runtimes for each limitation and the results of the queries analysed with them are kept until the schema or
+ * the access control policy of the API changes, hence a repeated query is not analysed again.
  */
 public class GraphQLQueryAnalysisHandler extends AbstractHandler {
 
     private static final Log log = LogFactory.getLog(GraphQLQueryAnalysisHandler.class);
+    private static final int QUERY_CACHE_SIZE = 1000;
     private GraphQLSchema schema = null;
+    private volatile QueryAnalysisCache analysisCache;
 
     public boolean handleRequest(MessageContext messageContext) {
         schema = (GraphQLSchema) messageContext.getProperty(APIConstants.GRAPHQL_SCHEMA);
@@ -122,38 +130,23 @@ public class GraphQLQueryAnalysisHandler extends AbstractHandler {
         int maxQueryDepth = getMaxQueryDepth(messageContext);
 
         if (maxQueryDepth > 0) {
-            MaxQueryDepthInstrumentation maxQueryDepthInstrumentation =
-                    new MaxQueryDepthInstrumentation(maxQueryDepth);
-            GraphQL runtime = GraphQL.newGraphQL(schema).instrumentation(maxQueryDepthInstrumentation).build();
+            QueryAnalysisCache cache = getAnalysisCache(messageContext);
+            QueryAnalyser queryAnalyser = cache.depthAnalysers.computeIfAbsent(maxQueryDepth,
+                    maxDepth -> new QueryAnalyser(GraphQL.newGraphQL(cache.schema)
+                            .instrumentation(new MaxQueryDepthInstrumentation(maxDepth)).build()));
 
             try {
-                ExecutionResult executionResult = runtime.execute(payload);
-                List<GraphQLError> errors = executionResult.getErrors();
-                if (errors.size() > 0) {
-                    List<String> errorList = new ArrayList<>();
-                    for (GraphQLError error : errors) {
-                        errorList.add(error.getMessage());
+                List<String> errorList = queryAnalyser.analyse(payload);
+                if (errorList.size() == 0) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Maximum query depth of " + maxQueryDepth + " was not exceeded");
                     }
-
-                    // TODO: https://github.com/wso2/carbon-apimgt/issues/8147
-                    ListIterator<String> iterator = errorList.listIterator();
-                    while (iterator.hasNext()) {
-                        if (iterator.next().contains("non-nullable")) {
-                            iterator.remove();
-                        }
-                    }
-                    if (errorList.size() == 0) {
-                        if (log.isDebugEnabled()) {
-                            log.debug("Maximum query depth of " + maxQueryDepth + " was not exceeded");
-                        }
-                        return true;
-                    }
-                    handleFailure(APISecurityConstants.GRAPHQL_QUERY_TOO_DEEP, messageContext,
-                            APISecurityConstants.GRAPHQL_QUERY_TOO_DEEP_MESSAGE, errorList.toString());
-                    log.error(errorList.toString());
-                    return false;
+                    return true;
                 }
-                return true;
+                handleFailure(APISecurityConstants.GRAPHQL_QUERY_TOO_DEEP, messageContext,
+                        APISecurityConstants.GRAPHQL_QUERY_TOO_DEEP_MESSAGE, errorList.toString());
+                log.error(errorList.toString());
+                return false;
             } catch (Throwable e) {
                 log.error(e);
             }
@@ -171,45 +164,32 @@ public class GraphQLQueryAnalysisHandler extends AbstractHandler {
      * @return true, if query complexity does not exceed the maximum or false, if query complexity exceeds the maximum
      */
     private boolean analyseQueryComplexity(MessageContext messageContext, String payload) {
-        FieldComplexityCalculator fieldComplexityCalculator = new FieldComplexityCalculatorImpl(messageContext);
         int maxQueryComplexity = getMaxQueryComplexity(messageContext);
 
         if (maxQueryComplexity > 0) {
-            MaxQueryComplexityInstrumentation maxQueryComplexityInstrumentation =
-                    new MaxQueryComplexityInstrumentation(maxQueryComplexity, fieldComplexityCalculator);
-            GraphQL runtime = GraphQL.newGraphQL(schema).instrumentation(maxQueryComplexityInstrumentation).build();
+            QueryAnalysisCache cache = getAnalysisCache(messageContext);
+            QueryAnalyser queryAnalyser = cache.complexityAnalysers.computeIfAbsent(maxQueryComplexity,
+                    maxComplexity -> {
+                        FieldComplexityCalculator fieldComplexityCalculator =
+                                new FieldComplexityCalculatorImpl(messageContext);
+                        return new QueryAnalyser(GraphQL.newGraphQL(cache.schema).instrumentation(
+                                new MaxQueryComplexityInstrumentation(maxComplexity, fieldComplexityCalculator))
+                                .build());
+                    });
 
             try {
-                ExecutionResult executionResult = runtime.execute(payload);
-                List<GraphQLError> errors = executionResult.getErrors();
-                if (errors.size() > 0) {
-                    List<String> errorList = new ArrayList<>();
-                    for (GraphQLError error : errors) {
-                        errorList.add(error.getMessage());
-                    }
-
-                    // TODO: https://github.com/wso2/carbon-apimgt/issues/8147
-                    ListIterator<String> iterator = errorList.listIterator();
-                    while (iterator.hasNext()) {
-                        if (iterator.next().contains("non-nullable")) {
-                            iterator.remove();
-                        }
-                    }
-                    if (errorList.size() == 0) {
-                        if (log.isDebugEnabled()) {
-                            log.debug("Maximum query complexity was not exceeded");
-                        }
-                        return true;
-                    } else {
-                        log.error(errorList);
-                        errorList.clear();
-                        errorList.add("maximum query complexity exceeded");
+                List<String> errorList = queryAnalyser.analyse(payload);
+                if (errorList.size() == 0) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Maximum query complexity was not exceeded");
                     }
-                    handleFailure(APISecurityConstants.GRAPHQL_QUERY_TOO_COMPLEX, messageContext,
-                            APISecurityConstants.GRAPHQL_QUERY_TOO_COMPLEX_MESSAGE, errorList.toString());
-                    return false;
+                    return true;
                 }
-                return true;
+                log.error(errorList);
+                handleFailure(APISecurityConstants.GRAPHQL_QUERY_TOO_COMPLEX, messageContext,
+                        APISecurityConstants.GRAPHQL_QUERY_TOO_COMPLEX_MESSAGE,
+                        Collections.singletonList("maximum query complexity exceeded").toString());
+                return false;
             } catch (Throwable e) {
                 log.error(e);
             }
@@ -219,6 +199,25 @@ public class GraphQLQueryAnalysisHandler extends AbstractHandler {
         return false;
     }
 
+    /**
+     * This method returns the runtimes and the analysed queries of the schema and the access control policy of the
+     * request, and starts over if either of them changed since they were cached
+     *
+     * @param messageContext message context of the request
+     * @return cache of the runtimes and the analysed queries
+     */
+    private QueryAnalysisCache getAnalysisCache(MessageContext messageContext) {
+        String accessControlPolicy = (String) messageContext.getProperty(APIConstants.GRAPHQL_ACCESS_CONTROL_POLICY);
+        GraphQLSchema schema = (GraphQLSchema) messageContext.getProperty(APIConstants.GRAPHQL_SCHEMA);
+        QueryAnalysisCache cache = analysisCache;
+        if (cache == null || cache.schema != schema || !Objects.equals(cache.accessControlPolicy,
+                accessControlPolicy)) {
+            cache = new QueryAnalysisCache(schema, accessControlPolicy);
+            analysisCache = cache;
+        }
+        return cache;
+    }
+
     /**
      * This method returns the maximum query complexity value
      *
@@ -289,4 +288,68 @@ public class GraphQLQueryAnalysisHandler extends AbstractHandler {
     public boolean handleResponse(MessageContext messageContext) {
         return true;
     }
+
+    /**
+     * Runtimes of a schema and an access control policy, by the limitation they check
+     */
+    private static class QueryAnalysisCache {
+
+        private final GraphQLSchema schema;
+        private final String accessControlPolicy;
+        private final Map<Integer, QueryAnalyser> depthAnalysers = new ConcurrentHashMap<>();
+        private final Map<Integer, QueryAnalyser> complexityAnalysers = new ConcurrentHashMap<>();
+
+        QueryAnalysisCache(GraphQLSchema schema, String accessControlPolicy) {
+
+            this.schema = schema;
+            this.accessControlPolicy = accessControlPolicy;
+        }
+    }
+
+    /**
+     * Runtime which checks a limitation, along with the errors of the queries it analysed
+     */
+    static class QueryAnalyser {
+
+        private final GraphQL runtime;
+        private final Map<String, List<String>> analysedQueries;
+
+        QueryAnalyser(GraphQL runtime) {
+
+            this(runtime, QUERY_CACHE_SIZE);
+        }
+
+        QueryAnalyser(GraphQL runtime, int cacheSize) {
+
+            this.runtime = runtime;
+            this.analysedQueries = new TinyLFUCache<>(cacheSize);
+        }
+
+        int getAnalysedQueryCount() {
+
+            return analysedQueries.size();
+        }
+
+        /**
+         * @param payload payload of the request
+         * @return errors of the query, which is empty if the query does not exceed the limitation
+         */
+        List<String> analyse(String payload) {
+
+            List<String> errorList = analysedQueries.get(payload);
+            if (errorList == null) {
+                ExecutionResult executionResult = runtime.execute(payload);
+                errorList = new ArrayList<>();
+                for (GraphQLError error : executionResult.getErrors()) {
+                    // TODO: https://github.com/wso2/carbon-apimgt/issues/8147
+                    if (!error.getMessage().contains("non-nullable")) {
+                        errorList.add(error.getMessage());
+                    }
+                }
+                errorList = Collections.unmodifiableList(errorList);
+                analysedQueries.put(payload, errorList);
+            }
+            return errorList;
+        }
+    }
 }
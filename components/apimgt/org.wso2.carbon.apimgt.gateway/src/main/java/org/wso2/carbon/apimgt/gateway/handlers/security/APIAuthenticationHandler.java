@@ -16,7 +16,6 @@
 
 package org.wso2.carbon.apimgt.gateway.handlers.security;
 
-import io.swagger.v3.oas.models.OpenAPI;
 import org.apache.axiom.om.OMAbstractFactory;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMFactory;
@@ -43,6 +42,7 @@ import org.wso2.carbon.apimgt.api.APIManagementException;
 import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.MethodStats;
 import org.wso2.carbon.apimgt.gateway.handlers.Utils;
+import org.wso2.carbon.apimgt.gateway.handlers.common.GatewayRequestContext;
 import org.wso2.carbon.apimgt.gateway.handlers.security.apikey.ApiKeyAuthenticator;
 import org.wso2.carbon.apimgt.gateway.handlers.security.authenticator.MutualSSLAuthenticator;
 import org.wso2.carbon.apimgt.gateway.handlers.security.basicauth.BasicAuthAuthenticator;
@@ -93,7 +93,6 @@ public class APIAuthenticationHandler extends AbstractHandler implements Managed
     private String certificateInformation;
     private String apiUUID;
     private String apiType = String.valueOf(APIConstants.ApiTypes.API); // Default API Type
-    private OpenAPI openAPI;
     private String keyManagers;
     private List<String> keyManagersList = new ArrayList<>();
     public String getApiUUID() {
@@ -646,8 +645,6 @@ public class APIAuthenticationHandler extends AbstractHandler implements Managed
     protected void setAPIParametersToMessageContext(MessageContext messageContext) {
 
         AuthenticationContext authContext = getAuthenticationContext(messageContext);
-        org.apache.axis2.context.MessageContext axis2MsgContext =
-                ((Axis2MessageContext) messageContext).getAxis2MessageContext();
 
         String consumerKey = "";
         String username = "";
@@ -661,29 +658,13 @@ public class APIAuthenticationHandler extends AbstractHandler implements Managed
         }
 
         String context = (String) messageContext.getProperty(RESTConstants.REST_API_CONTEXT);
-        String apiVersion = (String) messageContext.getProperty(RESTConstants.SYNAPSE_REST_API);
-
-        String apiPublisher = (String) messageContext.getProperty(APIMgtGatewayConstants.API_PUBLISHER);
-        //if publisher is null,extract the publisher from the api_version
-        if (apiPublisher == null) {
-            int ind = apiVersion.indexOf("--");
-            apiPublisher = apiVersion.substring(0, ind);
-            if (apiPublisher.contains(APIConstants.EMAIL_DOMAIN_SEPARATOR_REPLACEMENT)) {
-                apiPublisher = apiPublisher
-                        .replace(APIConstants.EMAIL_DOMAIN_SEPARATOR_REPLACEMENT, APIConstants.EMAIL_DOMAIN_SEPARATOR);
-            }
-        }
-        int index = apiVersion.indexOf("--");
-
-        if (index != -1) {
-            apiVersion = apiVersion.substring(index + 2);
-        }
-
-        String api = apiVersion.split(":")[0];
+        GatewayRequestContext requestContext = GatewayRequestContext.get(messageContext);
+        String apiVersion = requestContext.getApiNameWithVersion();
+        String apiPublisher = requestContext.getApiPublisher();
+        String api = requestContext.getApiName();
         String version = (String) messageContext.getProperty(RESTConstants.SYNAPSE_REST_API_VERSION);
         String resource = extractResource(messageContext);
-        String method = (String) (axis2MsgContext.getProperty(
-                Constants.Configuration.HTTP_METHOD));
+        String method = requestContext.getHttpMethod();
         String hostName = APIUtil.getHostAddress();
 
         messageContext.setProperty(APIMgtGatewayConstants.CONSUMER_KEY, consumerKey);
@@ -17,21 +17,17 @@
 package org.wso2.carbon.apimgt.gateway.handlers.security;
 
 import org.wso2.carbon.apimgt.impl.dto.APIKeyValidationInfoDTO;
-import org.wso2.carbon.apimgt.impl.utils.LRUCache;
+import org.wso2.carbon.apimgt.impl.utils.TinyLFUCache;
 
 import java.util.Map;
 
 /**
  * A simple in-memory cache for API keys and validation information related to API keys.
  * In order to conserve resources, this implementation imposes hard upper bounds on the
- * number of valid and invalid keys kept in the cache. When the cache is full, a simple
- * LRU algorithm is used to replace existing cache entries. This cache implementation is
- * thread safe. It supports multiple concurrent read operations. That is read operations
- * may overlap and will return the results without blocking. But write operations are
- * carried out in a mutually exclusive manner. When multiple write operations are requested,
- * they will be executed in serial manner with thread blocking. Similarly overlapping read and
- * write operations will be executed in serial fashion. In general this cache is designed
- * for many read operations and less write operations.
+ * number of valid and invalid keys kept in the cache. When the cache is full, entries are
+ * replaced based on how recently and how often they are used. This cache implementation is
+ * thread safe. Read operations do not block, and write operations only block other writes
+ * to the same segment of the cache.
  */
 public class APIKeyCache {
 
@@ -39,8 +35,8 @@ public class APIKeyCache {
     private Map<String,APIKeyValidationInfoDTO> invalidKeys;
 
     APIKeyCache(int maxValidKeys, int maxInvalidKeys) {
-        validKeys = new LRUCache<String, APIKeyValidationInfoDTO>(maxValidKeys);
-        invalidKeys = new LRUCache<String, APIKeyValidationInfoDTO>(maxInvalidKeys);
+        validKeys = new TinyLFUCache<String, APIKeyValidationInfoDTO>(maxValidKeys);
+        invalidKeys = new TinyLFUCache<String, APIKeyValidationInfoDTO>(maxInvalidKeys);
     }
 
     public void addValidKey(String key, APIKeyValidationInfoDTO info) {
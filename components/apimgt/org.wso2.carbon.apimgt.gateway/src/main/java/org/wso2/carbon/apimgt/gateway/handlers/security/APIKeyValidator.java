@@ -36,7 +36,10 @@ import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.MethodStats;
 import org.wso2.carbon.apimgt.gateway.handlers.security.keys.APIKeyDataStore;
 import org.wso2.carbon.apimgt.gateway.handlers.security.keys.WSAPIKeyDataStore;
+import org.wso2.carbon.apimgt.gateway.handlers.throttling.ConditionGroupPlan;
 import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.gateway.utils.ResourceRouter;
+import org.wso2.carbon.apimgt.gateway.utils.ResourceRouterCache;
 import org.wso2.carbon.apimgt.impl.APIConstants;
 import org.wso2.carbon.apimgt.impl.APIManagerConfiguration;
 import org.wso2.carbon.apimgt.impl.caching.CacheProvider;
@@ -52,11 +55,14 @@ import org.wso2.carbon.apimgt.tracing.Util;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.cache.Cache;
@@ -390,17 +396,11 @@ public class APIKeyValidator {
             String resourceString;
 
             if (selectedApi != null) {
-                Resource[] selectedAPIResources = selectedApi.getResources();
-
-                Set<Resource> acceptableResources = new LinkedHashSet<Resource>();
-
-                for (Resource resource : selectedAPIResources) {
-                    //If the requesting method is OPTIONS or if the Resource contains the requesting method
-                    if (RESTConstants.METHOD_OPTIONS.equals(httpMethod) ||
-                            (resource.getMethods() != null && Arrays.asList(resource.getMethods()).contains(httpMethod))) {
-                        acceptableResources.add(resource);
-                    }
-                }
+                //If the requesting method is OPTIONS all the resources are acceptable, otherwise only the resources
+                //of the requesting method which may match the request path
+                Set<Resource> acceptableResources = ResourceRouterCache.getInstance().getRouter(selectedApi)
+                        .findCandidates(requestPath, RESTConstants.METHOD_OPTIONS.equals(httpMethod) ?
+                                ResourceRouter.ANY_METHOD : httpMethod);
 
                 if (acceptableResources.size() > 0) {
                     for (RESTDispatcher dispatcher : RESTUtils.getDispatchers()) {
@@ -587,6 +587,9 @@ public class APIKeyValidator {
             verbInfoDTO.setContentAware(uriTemplate.checkContentAwareFromThrottlingTiers());
             verbInfoDTO.setThrottlingConditions(uriTemplate.getThrottlingConditions());
             verbInfoDTO.setConditionGroups(uriTemplate.getConditionGroups());
+            if (uriTemplate.getConditionGroups() != null) {
+                verbInfoDTO.setConditionGroupPlan(ConditionGroupPlan.compile(uriTemplate.getConditionGroups()));
+            }
             verbInfoDTO.setApplicableLevel(uriTemplate.getApplicableLevel());
             resourceInfoDTO.getHttpVerbs().add(verbInfoDTO);
         }
@@ -595,6 +598,11 @@ public class APIKeyValidator {
     }
 
     /**
+     * Resources of the API are compiled into a {@link ResourceVerbIndex}, which is kept in the resource cache in place
+     * of the API info, hence it expires and is cleared along with the rest of the resource cache. The request key of
+     * the matching verb is the section of the request path which matched the resource, and it is built only for that
+     * section instead of for each section which is tried.
+     *
      * @param messageContext     The message context
      * @param context     API context of API
      * @param apiVersion  Version of API
@@ -606,104 +614,97 @@ public class APIKeyValidator {
             throws APISecurityException {
 
         String cacheKey = context + ':' + apiVersion;
-        APIInfoDTO apiInfoDTO = null;
+        ResourceVerbIndex index = null;
         if (isGatewayAPIResourceValidationEnabled) {
-            apiInfoDTO = (APIInfoDTO) getResourceCache().get(cacheKey);
+            Object cachedIndex = getResourceCache().get(cacheKey);
+            if (cachedIndex instanceof ResourceVerbIndex) {
+                index = (ResourceVerbIndex) cachedIndex;
+            }
         }
-        if (apiInfoDTO == null) {
-            apiInfoDTO = doGetAPIInfo(messageContext, context, apiVersion);
+        if (index == null) {
+            index = new ResourceVerbIndex(doGetAPIInfo(messageContext, context, apiVersion));
             if (isGatewayAPIResourceValidationEnabled) {
-                getResourceCache().put(cacheKey, apiInfoDTO);
+                getResourceCache().put(cacheKey, index);
             }
         }
+        return index.getMatchingVerb(context, apiVersion, requestPath, httpMethod);
+    }
 
-        //Match the case where the direct api context is matched
-        if ("/".equals(requestPath)) {
-            String requestCacheKey = context + '/' + apiVersion + requestPath + ':' + httpMethod;
+    /**
+     * Verbs of the resources of an API, by HTTP method, in the order of the resources. The URL patterns of the
+     * resources are trimmed once, and request paths are matched against them without building substrings.
+     */
+    private static class ResourceVerbIndex implements Serializable {
 
-            //Get decision from cache.
-            VerbInfoDTO matchingVerb = null;
-            if (isGatewayAPIResourceValidationEnabled) {
-                matchingVerb = (VerbInfoDTO) getResourceCache().get(requestCacheKey);
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> urlPatterns = new ArrayList<>();
+        private final List<Map<String, VerbInfoDTO>> resourceVerbs = new ArrayList<>();
+        // Verbs of the resources whose url-context is '/*', which are the only ones matching the request path '/'
+        private final Map<String, VerbInfoDTO> rootVerbs = new HashMap<>();
+
+        ResourceVerbIndex(APIInfoDTO apiInfoDTO) {
+
+            if (apiInfoDTO.getResources() == null) {
+                return;
             }
-            //On a cache hit
-            if (matchingVerb != null) {
-                matchingVerb.setRequestKey(requestCacheKey);
-                return matchingVerb;
-            } else {
-                if (apiInfoDTO.getResources() != null) {
-                    for (ResourceInfoDTO resourceInfoDTO : apiInfoDTO.getResources()) {
-                        String urlPattern = resourceInfoDTO.getUrlPattern();
-
-                        //If the request patch is '/', it can only be matched with a resource whose url-context is '/*'
-                        if ("/*".equals(urlPattern)) {
-                            for (VerbInfoDTO verbDTO : resourceInfoDTO.getHttpVerbs()) {
-                                if (verbDTO.getHttpVerb().equals(httpMethod)) {
-                                    //Store verb in cache
-                                    if (isGatewayAPIResourceValidationEnabled) {
-                                        getResourceCache().put(requestCacheKey, verbDTO);
-                                    }
-                                    verbDTO.setRequestKey(requestCacheKey);
-                                    return verbDTO;
-                                }
-                            }
-                        }
-                    }
+            for (ResourceInfoDTO resourceInfoDTO : apiInfoDTO.getResources()) {
+                String urlPattern = resourceInfoDTO.getUrlPattern();
+                Map<String, VerbInfoDTO> verbs = new HashMap<>();
+                for (VerbInfoDTO verbDTO : resourceInfoDTO.getHttpVerbs()) {
+                    verbs.putIfAbsent(verbDTO.getHttpVerb(), verbDTO);
+                }
+                if ("/*".equals(urlPattern)) {
+                    verbs.forEach(rootVerbs::putIfAbsent);
                 }
+                if (urlPattern.endsWith("/*")) {
+                    //Remove the ending '/*'
+                    urlPattern = urlPattern.substring(0, urlPattern.length() - 2);
+                }
+                //If the urlPattern ends with a '/', remove that as well.
+                urlPatterns.add(RESTUtils.trimTrailingSlashes(urlPattern));
+                resourceVerbs.add(verbs);
             }
         }
 
-        //Remove the ending '/' from request
-        requestPath = RESTUtils.trimTrailingSlashes(requestPath);
-
-        while (requestPath.length() > 1) {
-
-            String requestCacheKey = context + '/' + apiVersion + requestPath + ':' + httpMethod;
+        private VerbInfoDTO getMatchingVerb(String context, String apiVersion, String requestPath,
+                                            String httpMethod) {
 
-            //Get decision from cache.
-            VerbInfoDTO matchingVerb = null;
-            if (isGatewayAPIResourceValidationEnabled) {
-                matchingVerb = (VerbInfoDTO) getResourceCache().get(requestCacheKey);
-            }
-
-            //On a cache hit
-            if (matchingVerb != null) {
-                matchingVerb.setRequestKey(requestCacheKey);
-                return matchingVerb;
+            //Match the case where the direct api context is matched
+            if ("/".equals(requestPath)) {
+                VerbInfoDTO verbDTO = rootVerbs.get(httpMethod);
+                if (verbDTO != null) {
+                    verbDTO.setRequestKey(context + '/' + apiVersion + requestPath + ':' + httpMethod);
+                    return verbDTO;
+                }
             }
-            //On a cache miss
-            else {
-                for (ResourceInfoDTO resourceInfoDTO : apiInfoDTO.getResources()) {
-                    String urlPattern = resourceInfoDTO.getUrlPattern();
-                    if (urlPattern.endsWith("/*")) {
-                        //Remove the ending '/*'
-                        urlPattern = urlPattern.substring(0, urlPattern.length() - 2);
-                    }
-                    //If the urlPattern ends with a '/', remove that as well.
-                    urlPattern = RESTUtils.trimTrailingSlashes(urlPattern);
 
-                    if (requestPath.endsWith(urlPattern)) {
-
-                        for (VerbInfoDTO verbDTO : resourceInfoDTO.getHttpVerbs()) {
-                            if (verbDTO.getHttpVerb().equals(httpMethod)) {
-                                //Store verb in cache
-                                if (isGatewayAPIResourceValidationEnabled) {
-                                    getResourceCache().put(requestCacheKey, verbDTO);
-                                }
-                                verbDTO.setRequestKey(requestCacheKey);
-                                return verbDTO;
-                            }
+            //Remove the ending '/' from request
+            requestPath = RESTUtils.trimTrailingSlashes(requestPath);
+
+            // The request path is matched up to this length, and is shortened by a section at a time
+            int length = requestPath.length();
+            while (length > 1) {
+                for (int i = 0; i < urlPatterns.size(); i++) {
+                    String urlPattern = urlPatterns.get(i);
+                    int offset = length - urlPattern.length();
+                    if (offset >= 0 && requestPath.startsWith(urlPattern, offset)) {
+                        VerbInfoDTO verbDTO = resourceVerbs.get(i).get(httpMethod);
+                        if (verbDTO != null) {
+                            verbDTO.setRequestKey(context + '/' + apiVersion + requestPath.substring(0, length) +
+                                    ':' + httpMethod);
+                            return verbDTO;
                         }
                     }
                 }
-            }
 
-            //Remove the section after the last occurrence of the '/' character
-            int index = requestPath.lastIndexOf('/');
-            requestPath = requestPath.substring(0, index <= 0 ? 0 : index);
+                //Remove the section after the last occurrence of the '/' character
+                int index = requestPath.lastIndexOf('/', length - 1);
+                length = index <= 0 ? 0 : index;
+            }
+            //nothing found. return the highest level of security
+            return null;
         }
-        //nothing found. return the highest level of security
-        return null;
     }
 
 
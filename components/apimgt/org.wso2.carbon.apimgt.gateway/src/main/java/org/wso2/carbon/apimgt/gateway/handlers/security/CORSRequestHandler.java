@@ -36,6 +36,8 @@ import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.MethodStats;
 import org.wso2.carbon.apimgt.gateway.handlers.Utils;
 import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.gateway.utils.ResourceRouter;
+import org.wso2.carbon.apimgt.gateway.utils.ResourceRouterCache;
 import org.wso2.carbon.apimgt.impl.APIConstants;
 import org.wso2.carbon.apimgt.impl.APIManagerConfigurationService;
 import org.wso2.carbon.apimgt.impl.utils.APIUtil;
@@ -46,8 +48,8 @@ import org.wso2.carbon.metrics.manager.MetricManager;
 import org.wso2.carbon.metrics.manager.Timer;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -165,16 +167,13 @@ public class CORSRequestHandler extends AbstractHandler implements ManagedLifecy
             messageContext.setProperty(RESTConstants.REST_SUB_REQUEST_PATH, subPath);
 
             if (selectedApi != null) {
-                Resource[] allAPIResources = selectedApi.getResources();
-                Set<Resource> acceptableResources = new LinkedHashSet<>();
-
-                for (Resource resource : allAPIResources) {
-                    //If the requesting method is OPTIONS or if the Resource contains the requesting method
-                    if ((RESTConstants.METHOD_OPTIONS.equals(httpMethod) && resource.getMethods() != null &&
-                            Arrays.asList(resource.getMethods()).contains(corsRequestMethod)) ||
-                            (resource.getMethods() != null && Arrays.asList(resource.getMethods()).contains(httpMethod))) {
-                        acceptableResources.add(resource);
-                    }
+                ResourceRouter router = ResourceRouterCache.getInstance().getRouter(selectedApi);
+                Set<Resource> acceptableResources;
+                //If the requesting method is OPTIONS, the resources of the CORS request method are acceptable as well
+                if (RESTConstants.METHOD_OPTIONS.equals(httpMethod)) {
+                    acceptableResources = router.findCandidates(subPath, corsRequestMethod, httpMethod);
+                } else {
+                    acceptableResources = router.findCandidates(subPath, httpMethod);
                 }
 
                 if (!acceptableResources.isEmpty()) {
@@ -186,14 +185,15 @@ public class CORSRequestHandler extends AbstractHandler implements ManagedLifecy
                         }
                     }
                     if (selectedResource == null) {
-                        handleResourceNotFound(messageContext, Arrays.asList(allAPIResources));
+                        handleResourceNotFound(messageContext,
+                                router.findCandidates(subPath, ResourceRouter.ANY_METHOD));
                         return false;
                     }
                 }
                 //If no acceptable resources are found
                 else {
                     //We're going to send a 405 or a 404. Run the following logic to determine which.
-                    handleResourceNotFound(messageContext, Arrays.asList(allAPIResources));
+                    handleResourceNotFound(messageContext, router.findCandidates(subPath, ResourceRouter.ANY_METHOD));
                     return false;
                 }
 
@@ -270,12 +270,12 @@ public class CORSRequestHandler extends AbstractHandler implements ManagedLifecy
         return true;
     }
 
-    private void handleResourceNotFound(MessageContext messageContext, List<Resource> allAPIResources) {
+    private void handleResourceNotFound(MessageContext messageContext, Collection<Resource> uriMatchingResources) {
 
         Resource uriMatchingResource = null;
 
         for (RESTDispatcher dispatcher : RESTUtils.getDispatchers()) {
-            uriMatchingResource = dispatcher.findResource(messageContext, allAPIResources);
+            uriMatchingResource = dispatcher.findResource(messageContext, uriMatchingResources);
             //If a resource with a matching URI was found.
             if (uriMatchingResource != null) {
                 onResourceNotFoundError(messageContext, HttpStatus.SC_METHOD_NOT_ALLOWED,
@@ -35,33 +35,48 @@ import org.apache.synapse.commons.json.JsonUtil;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.rest.AbstractHandler;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
+import org.everit.json.schema.EmptySchema;
 import org.everit.json.schema.Schema;
 import org.everit.json.schema.ValidationException;
 import org.everit.json.schema.loader.SchemaLoader;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.wso2.carbon.apimgt.api.APIManagementException;
 import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.utils.GatewayUtils;
+import org.wso2.carbon.apimgt.gateway.utils.OpenAPIModel;
 import org.wso2.carbon.apimgt.impl.APIConstants;
 
 import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This SchemaValidator handler validates the request/response messages against schema defined in the swagger.
+ * The schema of each resource, verb and response status is extracted from the swagger and compiled once, and the
+ * message is built only when there is a schema to validate it against.
  */
 public class SchemaValidator extends AbstractHandler {
 
     private static final Log logger = LogFactory.getLog(SchemaValidator.class);
+    private static final String REQUEST_SCHEMA_PREFIX = "request:";
+    private static final String RESPONSE_SCHEMA_PREFIX = "response:";
     private String uuid;
     private String swagger = null;
+    private volatile OpenAPIModel openAPIModel;
     private JsonObject rootNode;
     private String requestMethod;
     private String schemaContent = null;
+    // Compiled schemas by message direction, verb, resource and response status. EmptySchema denotes no schema.
+    private final Map<String, Schema> schemas = new ConcurrentHashMap<>();
 
     public void setLocalentry(String localEntry) {
         this.uuid = localEntry;
@@ -80,14 +95,13 @@ public class SchemaValidator extends AbstractHandler {
                 messageContext).getAxis2MessageContext();
         String contentType;
         Object objContentType = axis2MC.getProperty(APIMgtGatewayConstants.REST_CONTENT_TYPE);
-        swagger = messageContext.getProperty(APIMgtGatewayConstants.OPEN_API_STRING).toString();
-        if (swagger == null) {
+        Object openApi = messageContext.getProperty(APIMgtGatewayConstants.OPEN_API_STRING);
+        if (openApi == null) {
             return true;
         }
+        setSwagger(openApi.toString(),
+                (OpenAPIModel) messageContext.getProperty(APIMgtGatewayConstants.OPEN_API_MODEL));
         try {
-            JsonParser jsonParser = new JsonParser();
-            rootNode = jsonParser.parse(swagger).getAsJsonObject();
-
             Object reqMethod = messageContext.getProperty(APIMgtGatewayConstants.
                     ELECTED_REQUEST_METHOD);
             if (reqMethod == null) {
@@ -106,16 +120,11 @@ public class SchemaValidator extends AbstractHandler {
             if (logger.isDebugEnabled()) {
                 logger.debug("Content type of the request message: " + contentType);
             }
-            RelayUtils.buildMessage(axis2MC);
-            logger.debug("Successfully built the request message");
-            if (!APIMgtGatewayConstants.APPLICATION_JSON.equals(contentType)) {
+            if (!APIMgtGatewayConstants.APPLICATION_JSON.equals(contentType) ||
+                    APIConstants.SupportedHTTPVerbs.GET.name().equals(requestMethod)) {
                 return true;
             }
-            JsonElement payloadObject = getMessageContent(messageContext);
-            if (!APIConstants.SupportedHTTPVerbs.GET.name().equals(requestMethod) &&
-                    payloadObject != null && !APIMgtGatewayConstants.EMPTY_ARRAY.equals(payloadObject)) {
-                validateRequest(messageContext);
-            }
+            validateRequest(messageContext);
         } catch (IOException | XMLStreamException e) {
             logger.error("Error occurred while building the API request", e);
             return false;
@@ -138,16 +147,6 @@ public class SchemaValidator extends AbstractHandler {
         String contentType;
         org.apache.axis2.context.MessageContext axis2MC = ((Axis2MessageContext) messageContext).
                 getAxis2MessageContext();
-        try {
-            RelayUtils.buildMessage(axis2MC);
-            logger.debug("Successfully built the response message");
-        } catch (IOException e) {
-            logger.error("Error occurred while building the API response", e);
-            return false;
-        } catch (XMLStreamException e) {
-            logger.error("Error occurred while validating the API response", e);
-            return false;
-        }
         Object objectResponse = axis2MC.getProperty(APIMgtGatewayConstants.REST_CONTENT_TYPE);
         if (objectResponse == null) {
             return true;
@@ -158,7 +157,10 @@ public class SchemaValidator extends AbstractHandler {
         }
         try {
             validateResponse(messageContext);
-        } catch (APIManagementException e) {
+        } catch (IOException e) {
+            logger.error("Error occurred while building the API response", e);
+            return false;
+        } catch (XMLStreamException | APIManagementException e) {
             logger.error("Error occurred while validating the API response", e);
             return false;
         }
@@ -169,22 +171,17 @@ public class SchemaValidator extends AbstractHandler {
      * Validate the Request/response content.
      *
      * @param payloadObject  Request/response payload
-     * @param schemaString   Schema which uses to validate request/response messages
+     * @param schema         Schema which uses to validate request/response messages
      * @param messageContext Message context
-     * @return Weather Schema validation success or not, if schema is null return true
+     * @return Weather Schema validation success or not
      */
-    private boolean validateContent(JsonElement payloadObject, String schemaString, MessageContext messageContext) {
+    private boolean validateContent(Object payloadObject, Schema schema, MessageContext messageContext) {
         logger.debug("Validating JSON content against the schema");
         StringBuilder finalMessage = new StringBuilder();
         List<String> errorMessages;
 
-        JSONObject jsonSchema = new JSONObject(schemaString);
-        Schema schema = SchemaLoader.load(jsonSchema);
-        if (schema == null) {
-            return true;
-        }
         try {
-            schema.validate(new JSONObject(payloadObject.toString()));
+            schema.validate(payloadObject);
             return true;
         } catch (ValidationException e) {
             errorMessages = e.getAllMessages();
@@ -206,29 +203,38 @@ public class SchemaValidator extends AbstractHandler {
         }
     }
 
+    /**
+     * Fail the Request/response whose payload could not be read as JSON.
+     *
+     * @param messageContext Message context
+     * @param e              Error occurred while reading the payload
+     */
+    private void handleInvalidPayload(MessageContext messageContext, Exception e) {
+        if (messageContext.isResponse()) {
+            String message = "Schema validation failed in the Response: ";
+            logger.error(message + e.getMessage(), e);
+            GatewayUtils.handleThreat(messageContext, APIMgtGatewayConstants.INTERNAL_ERROR_CODE,
+                    message + "Invalid JSON payload");
+        } else {
+            String errMessage = "Schema validation failed in the Request: ";
+            logger.error(errMessage + e.getMessage(), e);
+            GatewayUtils.handleThreat(messageContext, APIMgtGatewayConstants.HTTP_SC_CODE,
+                    errMessage + "Invalid JSON payload");
+        }
+    }
+
     /**
      * Validate the API Request JSON Body.
      *
      * @param messageContext Message context to be validate the request
      */
-    private void validateRequest(MessageContext messageContext) throws APIManagementException {
-        //extract particular schema content.
-        String schema = getSchemaContent(messageContext);
-        //extract the request payload.
-        JsonElement payloadObject = getMessageContent(messageContext);
-        if (schema != null && !APIMgtGatewayConstants.EMPTY.equals(schema) &&
-                payloadObject != null && !APIMgtGatewayConstants.EMPTY_ARRAY.equals(payloadObject)) {
-            if (payloadObject.isJsonArray()) {
-                for (JsonElement payloadItem : payloadObject.getAsJsonArray()) {
-                    // if validation fails stop validation other items.
-                    if (!validateContent(payloadItem, schema, messageContext)) {
-                        return;
-                    }
-                }
-            } else {
-                validateContent(payloadObject, schema, messageContext);
-            }
-        }
+    private void validateRequest(MessageContext messageContext) throws APIManagementException, IOException,
+            XMLStreamException {
+        org.apache.axis2.context.MessageContext axis2MC = ((Axis2MessageContext)
+                messageContext).getAxis2MessageContext();
+        String schemaKey = REQUEST_SCHEMA_PREFIX + axis2MC.getProperty(APIMgtGatewayConstants.HTTP_REQUEST_METHOD) +
+                ":" + messageContext.getProperty(APIMgtGatewayConstants.API_ELECTED_RESOURCE);
+        validatePayload(messageContext, getSchema(messageContext, schemaKey));
     }
 
     /**
@@ -236,50 +242,161 @@ public class SchemaValidator extends AbstractHandler {
      *
      * @param messageContext Message context to be validate the response
      */
-    private void validateResponse(MessageContext messageContext) throws APIManagementException {
-        String responseSchema = getSchemaContent(messageContext);
+    private void validateResponse(MessageContext messageContext) throws APIManagementException, IOException,
+            XMLStreamException {
+        org.apache.axis2.context.MessageContext axis2MC = ((Axis2MessageContext)
+                messageContext).getAxis2MessageContext();
+        Object method = messageContext.getProperty(APIMgtGatewayConstants.ELECTED_REQUEST_METHOD);
+        if (method == null) {
+            method = axis2MC.getProperty(APIMgtGatewayConstants.HTTP_REQUEST_METHOD);
+        }
+        String schemaKey = RESPONSE_SCHEMA_PREFIX + method + ":" +
+                messageContext.getProperty(APIMgtGatewayConstants.API_ELECTED_RESOURCE) + ":" +
+                axis2MC.getProperty(APIMgtGatewayConstants.HTTP_SC);
+        validatePayload(messageContext, getSchema(messageContext, schemaKey));
+    }
+
+    /**
+     * Validate the Request/response payload, or each of its items if it is an array, against the schema.
+     *
+     * @param messageContext Message context
+     * @param schema         Schema which uses to validate request/response messages
+     */
+    private void validatePayload(MessageContext messageContext, Schema schema) throws IOException,
+            XMLStreamException {
+        if (schema == EmptySchema.INSTANCE) {
+            return;
+        }
+        Object payloadObject;
         try {
-            new JSONObject(responseSchema);
-        } catch (JSONException ex) {
+            payloadObject = getPayload(messageContext);
+        } catch (AxisFault | JSONException e) {
+            // A payload which is not valid JSON does not match any schema
+            handleInvalidPayload(messageContext, e);
             return;
         }
-        JsonElement payloadObject = getMessageContent(messageContext);
-        if (responseSchema != null && !APIMgtGatewayConstants.EMPTY_ARRAY.equals(responseSchema) &&
-                payloadObject != null && !APIMgtGatewayConstants.EMPTY_ARRAY.equals(payloadObject)) {
-            if (payloadObject.isJsonArray()) {
-                for (JsonElement payloadItem : payloadObject.getAsJsonArray()) {
-                    // if validation fails stop validation other items.
-                    if (validateContent(payloadItem, responseSchema, messageContext)) {
-                        return;
-                    }
+        if (payloadObject instanceof JSONArray) {
+            JSONArray payloadArray = (JSONArray) payloadObject;
+            for (int i = 0; i < payloadArray.length(); i++) {
+                // if validation fails stop validation other items.
+                if (!validateContent(payloadArray.get(i), schema, messageContext)) {
+                    return;
                 }
-            } else {
-                validateContent(payloadObject, responseSchema, messageContext);
             }
+        } else if (payloadObject != null) {
+            validateContent(payloadObject, schema, messageContext);
         }
     }
 
     /**
-     * Get the Request/Response messageContent as a JsonObject.
+     * Get the compiled schema of the request/response, extracting it from the swagger at the first time.
      *
      * @param messageContext Message context
-     * @return JsonElement which contains the request/response message content
+     * @param schemaKey      Key of the schema in the compiled schemas
+     * @return compiled schema, or EmptySchema if the request/response has no schema
      */
-    private JsonElement getMessageContent(MessageContext messageContext) {
-        JsonElement payloadObject = null;
-        if (messageContext.getEnvelope().getBody() != null) {
-            Object objFirstElement = messageContext.getEnvelope().getBody().getFirstElement();
-            if (objFirstElement != null) {
-                OMElement xmlResponse = messageContext.getEnvelope().getBody().getFirstElement();
-                try {
-                    JsonParser jsonParser = new JsonParser();
-                    payloadObject = jsonParser.parse(JsonUtil.toJsonString(xmlResponse).toString());
-                } catch (AxisFault axisFault) {
-                    logger.error(" Error occurred while converting the String payload to Json");
+    private Schema getSchema(MessageContext messageContext, String schemaKey) throws APIManagementException {
+        Schema schema = schemas.get(schemaKey);
+        if (schema == null) {
+            synchronized (this) {
+                schema = schemas.get(schemaKey);
+                if (schema == null) {
+                    if (rootNode == null) {
+                        rootNode = openAPIModel != null ? openAPIModel.getJsonObject()
+                                : new JsonParser().parse(swagger).getAsJsonObject();
+                    }
+                    schema = compileSchema(getSchemaContent(messageContext));
+                    schemas.put(schemaKey, schema);
+                    if (openAPIModel != null) {
+                        // The shared model keeps the parsed swagger, hence it can be released under memory pressure
+                        rootNode = null;
+                    }
+                }
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * Compile the schema content extracted from the swagger.
+     *
+     * @param schemaString Schema content
+     * @return compiled schema, or EmptySchema if there is no schema content
+     */
+    private Schema compileSchema(String schemaString) {
+        if (schemaString == null || APIMgtGatewayConstants.EMPTY.equals(schemaString) ||
+                APIMgtGatewayConstants.EMPTY_ARRAY.equals(schemaString)) {
+            return EmptySchema.INSTANCE;
+        }
+        JSONObject jsonSchema;
+        try {
+            jsonSchema = new JSONObject(schemaString);
+        } catch (JSONException e) {
+            return EmptySchema.INSTANCE;
+        }
+        Schema schema = SchemaLoader.load(jsonSchema);
+        return schema != null ? schema : EmptySchema.INSTANCE;
+    }
+
+    /**
+     * Set the swagger of the API, and drop the schemas extracted from the previous swagger if it changed.
+     *
+     * @param openApi      Swagger of the API
+     * @param openAPIModel Shared model of the swagger, or null if it is not available
+     */
+    private void setSwagger(String openApi, OpenAPIModel openAPIModel) {
+        if (!openApi.equals(swagger)) {
+            synchronized (this) {
+                if (!openApi.equals(swagger)) {
+                    schemas.clear();
+                    rootNode = null;
+                    this.openAPIModel = null;
+                    swagger = openApi;
                 }
             }
         }
-        return payloadObject;
+        if (openAPIModel != null && openAPIModel != this.openAPIModel) {
+            synchronized (this) {
+                if (openAPIModel.getDefinition().equals(swagger)) {
+                    this.openAPIModel = openAPIModel;
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the Request/Response message and get its payload as a JSON value. The JSON stream which the message
+     * builder keeps for a JSON payload is parsed as it is, instead of being converted from the payload element.
+     * <p>
+     * The message is still built, as the pass-through pipe can only be read once, and the payload has to be sent to
+     * the backend or the client after it is validated. The payload is also parsed in full, as the schemas validate
+     * JSON values rather than a stream of tokens.
+     *
+     * @param messageContext Message context
+     * @return JSONObject, JSONArray or other JSON value of the payload, or null if there is no payload
+     * @throws AxisFault     if the payload cannot be converted to JSON
+     * @throws JSONException if the payload is not valid JSON
+     */
+    private Object getPayload(MessageContext messageContext) throws IOException, XMLStreamException {
+        org.apache.axis2.context.MessageContext axis2MC = ((Axis2MessageContext) messageContext).
+                getAxis2MessageContext();
+        RelayUtils.buildMessage(axis2MC);
+        logger.debug("Successfully built the message");
+        if (JsonUtil.hasAJsonPayload(axis2MC)) {
+            InputStream jsonPayload = JsonUtil.getJsonPayload(axis2MC);
+            if (jsonPayload != null) {
+                // The stream is not closed, as it is read again when the message is sent
+                return new JSONTokener(new InputStreamReader(jsonPayload, StandardCharsets.UTF_8)).nextValue();
+            }
+        }
+        if (messageContext.getEnvelope().getBody() == null) {
+            return null;
+        }
+        OMElement firstElement = messageContext.getEnvelope().getBody().getFirstElement();
+        if (firstElement == null) {
+            return null;
+        }
+        return new JSONTokener(JsonUtil.toJsonString(firstElement).toString()).nextValue();
     }
 
     /**
@@ -25,7 +25,6 @@ import com.nimbusds.jwt.SignedJWT;
 import com.nimbusds.jwt.proc.BadJWTException;
 import com.nimbusds.jwt.proc.DefaultJWTClaimsVerifier;
 import io.swagger.v3.oas.models.OpenAPI;
-import org.apache.axis2.Constants;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -39,6 +38,7 @@ import org.jaxen.JaxenException;
 import org.json.JSONException;
 import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.dto.JWTTokenPayloadInfo;
+import org.wso2.carbon.apimgt.gateway.handlers.common.GatewayRequestContext;
 import org.wso2.carbon.apimgt.gateway.handlers.security.APISecurityConstants;
 import org.wso2.carbon.apimgt.gateway.handlers.security.APISecurityException;
 import org.wso2.carbon.apimgt.gateway.handlers.security.APISecurityUtils;
@@ -150,8 +150,8 @@ public class ApiKeyAuthenticator implements Authenticator {
 
             String apiContext = (String) synCtx.getProperty(RESTConstants.REST_API_CONTEXT);
             String apiVersion = (String) synCtx.getProperty(RESTConstants.SYNAPSE_REST_API_VERSION);
-            String httpMethod = (String)((Axis2MessageContext) synCtx).getAxis2MessageContext().
-                    getProperty(Constants.Configuration.HTTP_METHOD);
+            GatewayRequestContext requestContext = GatewayRequestContext.get(synCtx);
+            String httpMethod = requestContext.getHttpMethod();
             String matchingResource = (String) synCtx.getProperty(APIConstants.API_ELECTED_RESOURCE);
 
             OpenAPI openAPI = (OpenAPI) synCtx.getProperty(APIMgtGatewayConstants.OPEN_API_OBJECT);
@@ -174,9 +174,8 @@ public class ApiKeyAuthenticator implements Authenticator {
             verbInfoList.add(verbInfoDTO);
             synCtx.setProperty(APIConstants.VERB_INFO_DTO, verbInfoList);
 
-            String cacheKey = GatewayUtils.getAccessTokenCacheKey(tokenSignature, apiContext, apiVersion,
-                    matchingResource, httpMethod);
-            String tenantDomain = GatewayUtils.getTenantDomain();
+            String cacheKey = requestContext.getAccessTokenCacheKey(tokenSignature);
+            String tenantDomain = requestContext.getTenantDomain();
             boolean isVerified = false;
 
             // Validate from cache
@@ -372,7 +371,7 @@ public class ApiKeyAuthenticator implements Authenticator {
 
         if (StringUtils.isNotEmpty(permittedIPList)) {
             // Validate client IP against permitted IPs
-            String clientIP = GatewayUtils.getIp(axis2MessageContext);
+            String clientIP = GatewayRequestContext.get(synCtx).getClientIp();
 
             if (StringUtils.isNotEmpty(clientIP)) {
                 for (String restrictedIP : permittedIPList.split(",")) {
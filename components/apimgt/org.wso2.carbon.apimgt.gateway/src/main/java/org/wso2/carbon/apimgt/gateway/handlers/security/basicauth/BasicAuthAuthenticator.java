@@ -17,7 +17,6 @@
 package org.wso2.carbon.apimgt.gateway.handlers.security.basicauth;
 
 import io.swagger.v3.oas.models.OpenAPI;
-import org.apache.axis2.Constants;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -30,6 +29,7 @@ import org.apache.ws.security.util.Base64;
 import org.wso2.carbon.apimgt.api.dto.ConditionGroupDTO;
 import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.MethodStats;
+import org.wso2.carbon.apimgt.gateway.handlers.common.GatewayRequestContext;
 import org.wso2.carbon.apimgt.gateway.handlers.security.*;
 import org.wso2.carbon.apimgt.gateway.utils.OpenAPIUtils;
 import org.wso2.carbon.apimgt.impl.APIConstants;
@@ -40,7 +40,6 @@ import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.TreeMap;
 import java.util.Map;
 
 /**
@@ -123,8 +122,7 @@ public class BasicAuthAuthenticator implements Authenticator {
 
         String apiContext = (String) synCtx.getProperty(RESTConstants.REST_API_CONTEXT);
         String apiVersion = (String) synCtx.getProperty(RESTConstants.SYNAPSE_REST_API_VERSION);
-        String httpMethod = (String)((Axis2MessageContext) synCtx).getAxis2MessageContext().
-                getProperty(Constants.Configuration.HTTP_METHOD);
+        String httpMethod = GatewayRequestContext.get(synCtx).getHttpMethod();
         String matchingResource = (String) synCtx.getProperty(APIConstants.API_ELECTED_RESOURCE);
 
         // Check for resource level authentication
@@ -169,26 +167,7 @@ public class BasicAuthAuthenticator implements Authenticator {
             if (log.isDebugEnabled()) {
                 log.debug("Basic Authentication: Found Resource Authentication Scheme: ".concat(authenticationScheme));
             }
-            //using existing constant in Message context removing the additional constant in API Constants
-            String clientIP = null;
-            org.apache.axis2.context.MessageContext axis2MessageContext = ((Axis2MessageContext) synCtx).
-                    getAxis2MessageContext();
-            TreeMap<String, String> transportHeaderMap = (TreeMap<String, String>) axis2MessageContext
-                    .getProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS);
-
-            if (transportHeaderMap != null) {
-                clientIP = transportHeaderMap.get(APIMgtGatewayConstants.X_FORWARDED_FOR);
-            }
-
-            //Setting IP of the client
-            if (clientIP != null && !clientIP.isEmpty()) {
-                if (clientIP.indexOf(",") > 0) {
-                    clientIP = clientIP.substring(0, clientIP.indexOf(","));
-                }
-            } else {
-                clientIP = (String) axis2MessageContext
-                        .getProperty(org.apache.axis2.context.MessageContext.REMOTE_ADDR);
-            }
+            String clientIP = GatewayRequestContext.get(synCtx).getClientIp();
 
             //Create a dummy AuthenticationContext object with hard coded values for
             // Tier and KeyType. This is because we cannot determine the Tier nor Key
@@ -19,7 +19,6 @@ package org.wso2.carbon.apimgt.gateway.handlers.security.jwt;
 import com.nimbusds.jwt.SignedJWT;
 import com.nimbusds.jwt.util.DateUtils;
 import io.swagger.v3.oas.models.OpenAPI;
-import org.apache.axis2.Constants;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -32,6 +31,7 @@ import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.MethodStats;
 import org.wso2.carbon.apimgt.gateway.dto.JWTInfoDto;
 import org.wso2.carbon.apimgt.gateway.handlers.WebsocketUtil;
+import org.wso2.carbon.apimgt.gateway.handlers.common.GatewayRequestContext;
 import org.wso2.carbon.apimgt.gateway.handlers.security.APIKeyValidator;
 import org.wso2.carbon.apimgt.gateway.handlers.security.APISecurityConstants;
 import org.wso2.carbon.apimgt.gateway.handlers.security.APISecurityException;
@@ -117,11 +117,7 @@ public class JWTValidator {
             throws APISecurityException {
 
         String tokenSignature = jwtToken.getSignature().toString();
-        String apiContext = (String) synCtx.getProperty(RESTConstants.REST_API_CONTEXT);
-        String apiVersion = (String) synCtx.getProperty(RESTConstants.SYNAPSE_REST_API_VERSION);
-        String httpMethod = (String) ((Axis2MessageContext) synCtx).getAxis2MessageContext().
-                getProperty(Constants.Configuration.HTTP_METHOD);
-        String matchingResource = (String) synCtx.getProperty(APIConstants.API_ELECTED_RESOURCE);
+        GatewayRequestContext requestContext = GatewayRequestContext.get(synCtx);
 
         String jwtHeader = jwtToken.getHeader().toString();
         if (RevokedJWTDataHolder.isJWTTokenSignatureExistsInRevokedMap(tokenSignature)) {
@@ -133,10 +129,10 @@ public class JWTValidator {
             throw new APISecurityException(APISecurityConstants.API_AUTH_INVALID_CREDENTIALS,
                     "Invalid JWT token");
         }
-        String cacheKey = GatewayUtils
-                .getAccessTokenCacheKey(tokenSignature, apiContext, apiVersion, matchingResource, httpMethod);
+        String cacheKey = requestContext.getAccessTokenCacheKey(tokenSignature);
 
-        JWTValidationInfo jwtValidationInfo = getJwtValidationInfo(jwtToken, cacheKey);
+        JWTValidationInfo jwtValidationInfo = getJwtValidationInfo(jwtToken, cacheKey,
+                requestContext.getTenantDomain());
 
         if (jwtValidationInfo != null) {
             if (jwtValidationInfo.isValid()) {
@@ -240,15 +236,15 @@ public class JWTValidator {
 
         String apiContext = (String) synCtx.getProperty(RESTConstants.REST_API_CONTEXT);
         String apiVersion = (String) synCtx.getProperty(RESTConstants.SYNAPSE_REST_API_VERSION);
-        return validateSubscriptionUsingKeyManager(apiContext, apiVersion, jwtValidationInfo);
+        return validateSubscriptionUsingKeyManager(apiContext, apiVersion, jwtValidationInfo,
+                GatewayRequestContext.get(synCtx).getTenantDomain());
     }
 
     private APIKeyValidationInfoDTO validateSubscriptionUsingKeyManager(String apiContext, String apiVersion,
-                                                                        JWTValidationInfo jwtValidationInfo)
+                                                                        JWTValidationInfo jwtValidationInfo,
+                                                                        String tenantDomain)
             throws APISecurityException {
 
-        String tenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain();
-
         String consumerKey = jwtValidationInfo.getConsumerKey();
         String keyManager = jwtValidationInfo.getKeyManager();
         if (consumerKey != null && keyManager != null) {
@@ -280,7 +276,7 @@ public class JWTValidator {
         String cacheKey = WebsocketUtil.getAccessTokenCacheKey(tokenSignature, apiContext);
         JWTValidationInfo jwtValidationInfo = null;
         String jwtHeader = jwtToken.getHeader().toString();
-        jwtValidationInfo = getJwtValidationInfo(jwtToken, cacheKey);
+        jwtValidationInfo = getJwtValidationInfo(jwtToken, cacheKey, GatewayUtils.getTenantDomain());
         if (RevokedJWTDataHolder.isJWTTokenSignatureExistsInRevokedMap(tokenSignature)) {
             if (log.isDebugEnabled()) {
                 log.debug("Token retrieved from the revoked jwt token map. Token: " + GatewayUtils.
@@ -303,7 +299,8 @@ public class JWTValidator {
                 if (validateSubscriptionViaKM) {
                     log.debug("Begin subscription validation via Key Manager");
                     APIKeyValidationInfoDTO apiKeyValidationInfoDTO = validateSubscriptionUsingKeyManager(apiContext,
-                            apiVersion, jwtValidationInfo);
+                            apiVersion, jwtValidationInfo,
+                            PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain());
 
                     if (log.isDebugEnabled()) {
                         log.debug("Subscription validation via Key Manager. Status: " +
@@ -454,11 +451,10 @@ public class JWTValidator {
         return OAuthServerConfiguration.getInstance().getTimeStampSkewInSeconds();
     }
 
-    private JWTValidationInfo getJwtValidationInfo(SignedJWT jwtToken, String cacheKey)
+    private JWTValidationInfo getJwtValidationInfo(SignedJWT jwtToken, String cacheKey, String tenantDomain)
             throws APISecurityException {
 
         String jwtHeader = jwtToken.getHeader().toString();
-        String tenantDomain = GatewayUtils.getTenantDomain();
         String tokenSignature = jwtToken.getSignature().toString();
         JWTValidationInfo jwtValidationInfo = null;
         if (isGatewayTokenCacheEnabled) {
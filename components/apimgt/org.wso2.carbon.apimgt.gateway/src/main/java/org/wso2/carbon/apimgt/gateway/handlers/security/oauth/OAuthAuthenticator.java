@@ -18,7 +18,6 @@ package org.wso2.carbon.apimgt.gateway.handlers.security.oauth;
 
 import com.nimbusds.jwt.SignedJWT;
 import io.swagger.v3.oas.models.OpenAPI;
-import org.apache.axis2.Constants;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -30,6 +29,7 @@ import org.apache.synapse.rest.RESTConstants;
 import org.wso2.carbon.apimgt.api.APIManagementException;
 import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.MethodStats;
+import org.wso2.carbon.apimgt.gateway.handlers.common.GatewayRequestContext;
 import org.wso2.carbon.apimgt.gateway.handlers.security.APIKeyValidator;
 import org.wso2.carbon.apimgt.gateway.handlers.security.APISecurityConstants;
 import org.wso2.carbon.apimgt.gateway.handlers.security.APISecurityException;
@@ -58,7 +58,6 @@ import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
 /**
  * An API consumer authenticator which authenticates user requests using
@@ -160,8 +159,7 @@ public class OAuthAuthenticator implements Authenticator {
 
         String apiContext = (String) synCtx.getProperty(RESTConstants.REST_API_CONTEXT);
         String apiVersion = (String) synCtx.getProperty(RESTConstants.SYNAPSE_REST_API_VERSION);
-        String httpMethod = (String)((Axis2MessageContext) synCtx).getAxis2MessageContext().
-                getProperty(Constants.Configuration.HTTP_METHOD);
+        String httpMethod = GatewayRequestContext.get(synCtx).getHttpMethod();
         String matchingResource = (String) synCtx.getProperty(APIConstants.API_ELECTED_RESOURCE);
         SignedJWT signedJWT = null;
 
@@ -242,26 +240,7 @@ public class OAuthAuthenticator implements Authenticator {
                 log.debug("Found Authentication Scheme: ".concat(authenticationScheme));
             }
 
-            //using existing constant in Message context removing the additinal constant in API Constants
-            String clientIP = null;
-            org.apache.axis2.context.MessageContext axis2MessageContext = ((Axis2MessageContext) synCtx).
-                    getAxis2MessageContext();
-            TreeMap<String, String> transportHeaderMap = (TreeMap<String, String>)
-                                                         axis2MessageContext.getProperty
-                                                                 (org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS);
-
-            if (transportHeaderMap != null) {
-                clientIP = transportHeaderMap.get(APIMgtGatewayConstants.X_FORWARDED_FOR);
-            }
-
-            //Setting IP of the client
-            if (clientIP != null && !clientIP.isEmpty()) {
-                if (clientIP.indexOf(",") > 0) {
-                    clientIP = clientIP.substring(0, clientIP.indexOf(","));
-                }
-            } else {
-                clientIP = (String) axis2MessageContext.getProperty(org.apache.axis2.context.MessageContext.REMOTE_ADDR);
-            }
+            String clientIP = GatewayRequestContext.get(synCtx).getClientIp();
 
             //Create a dummy AuthenticationContext object with hard coded values for
             // Tier and KeyType. This is because we cannot determine the Tier nor Key
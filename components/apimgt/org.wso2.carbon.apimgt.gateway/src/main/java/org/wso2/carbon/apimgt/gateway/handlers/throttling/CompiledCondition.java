@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.handlers.throttling;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.apimgt.api.dto.ConditionDTO;
+import org.wso2.carbon.apimgt.api.model.policy.PolicyConstants;
+import org.wso2.carbon.apimgt.impl.dto.ConditionDto;
+import org.wso2.carbon.apimgt.impl.dto.ThrottleProperties;
+import org.wso2.carbon.apimgt.impl.utils.APIUtil;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A throttling condition compiled into a predicate over the attributes of a request. Regular expressions and IP
+ * addresses of the condition are parsed once, when the condition is compiled.
+ */
+final class CompiledCondition {
+
+    private static final Log log = LogFactory.getLog(CompiledCondition.class);
+
+    // Relative costs of evaluating conditions, so that the cheaper conditions of a conjunction are evaluated first.
+    private static final int COST_IP = 0;
+    private static final int COST_HEADER = 1;
+    private static final int COST_QUERY_PARAM = 2;
+    private static final int COST_JWT_CLAIM = 3;
+
+    static final Comparator<CompiledCondition> BY_COST = Comparator.comparingInt(condition -> condition.cost);
+
+    private final int cost;
+    private final Predicate<ConditionRequestAttributes> predicate;
+
+    private CompiledCondition(int cost, Predicate<ConditionRequestAttributes> predicate) {
+
+        this.cost = cost;
+        this.predicate = predicate;
+    }
+
+    boolean test(ConditionRequestAttributes attributes) {
+
+        return predicate.test(attributes);
+    }
+
+    /**
+     * Compiles a condition of a condition group of an API policy.
+     */
+    static CompiledCondition compile(ConditionDTO condition) {
+
+        String name = condition.getConditionName();
+        String value = condition.getConditionValue();
+        int cost;
+        Predicate<ConditionRequestAttributes> predicate;
+        switch (String.valueOf(condition.getConditionType())) {
+            case PolicyConstants.IP_RANGE_TYPE: {
+                // For an IP Range Condition, starting IP is set as a the name, ending IP as the value.
+                BigInteger startIp = APIUtil.ipToBigInteger(name);
+                BigInteger endIp = APIUtil.ipToBigInteger(value);
+                cost = COST_IP;
+                predicate = attributes -> !attributes.getIp().isEmpty()
+                        && isWithinRange(attributes.getIpValue(), startIp, endIp);
+                break;
+            }
+            case PolicyConstants.IP_SPECIFIC_TYPE: {
+                cost = COST_IP;
+                predicate = attributes -> attributes.getIp().equals(value);
+                break;
+            }
+            case PolicyConstants.QUERY_PARAMETER_TYPE: {
+                Pattern pattern = compilePattern(value);
+                cost = COST_QUERY_PARAM;
+                predicate = attributes -> matches(attributes.getQueryParams(), name, pattern);
+                break;
+            }
+            case PolicyConstants.JWT_CLAIMS_TYPE: {
+                Pattern pattern = compilePattern(value);
+                cost = COST_JWT_CLAIM;
+                predicate = attributes -> {
+                    Map claims = attributes.getJwtClaims();
+                    Object claim = claims != null ? claims.get(name) : null;
+                    return claim instanceof String && find(pattern, (String) claim);
+                };
+                break;
+            }
+            case PolicyConstants.HEADER_TYPE: {
+                Pattern pattern = compilePattern(value);
+                cost = COST_HEADER;
+                predicate = attributes -> matches(attributes.getTransportHeaders(), name, pattern);
+                break;
+            }
+            default: {
+                cost = COST_IP;
+                predicate = attributes -> false;
+            }
+        }
+        return new CompiledCondition(cost, condition.isInverted() ? predicate.negate() : predicate);
+    }
+
+    /**
+     * Compiles the conditions of a throttled key published by the traffic manager. All the conditions of the
+     * returned list have to hold for the ConditionDto to hold.
+     */
+    static List<CompiledCondition> compile(ConditionDto condition) {
+
+        List<CompiledCondition> conditions = new ArrayList<>();
+        ConditionDto.IPCondition ipCondition = condition.getIpCondition();
+        ConditionDto.IPCondition ipRangeCondition = condition.getIpRangeCondition();
+        if (ipCondition != null) {
+            BigInteger specificIp = ipCondition.getSpecificIp();
+            boolean invert = ipCondition.isInvert();
+            conditions.add(new CompiledCondition(COST_IP,
+                    attributes -> attributes.getIpValue().equals(specificIp) != invert));
+        } else if (ipRangeCondition != null) {
+            BigInteger startIp = ipRangeCondition.getStartingIp();
+            BigInteger endIp = ipRangeCondition.getEndingIp();
+            boolean invert = ipRangeCondition.isInvert();
+            conditions.add(new CompiledCondition(COST_IP, attributes -> StringUtils.isNotEmpty(attributes.getIp())
+                    && isWithinRange(attributes.getIpValue(), startIp, endIp) != invert));
+        }
+        ConditionDto.HeaderConditions headerConditions = condition.getHeaderConditions();
+        if (headerConditions != null && !headerConditions.getValues().isEmpty()) {
+            Map<String, Pattern> patterns = compilePatterns(headerConditions.getValues());
+            boolean invert = headerConditions.isInvert();
+            conditions.add(new CompiledCondition(COST_HEADER, attributes -> {
+                ThrottleProperties properties = attributes.getThrottleProperties();
+                if (!properties.isEnableHeaderConditions()) {
+                    return true;
+                }
+                Map<String, String> headers = attributes.getTransportHeaders();
+                // Header conditions hold for requests without transport headers, while empty headers are missing.
+                return (headers == null || matchesAll(patterns,
+                        headerName -> StringUtils.defaultIfEmpty(headers.get(headerName), null))) != invert;
+            }));
+        }
+        ConditionDto.QueryParamConditions queryParamConditions = condition.getQueryParameterConditions();
+        if (queryParamConditions != null && !queryParamConditions.getValues().isEmpty()) {
+            Map<String, Pattern> patterns = compilePatterns(queryParamConditions.getValues());
+            boolean invert = queryParamConditions.isInvert();
+            conditions.add(new CompiledCondition(COST_QUERY_PARAM, attributes -> {
+                ThrottleProperties properties = attributes.getThrottleProperties();
+                if (!properties.isEnableQueryParamConditions()) {
+                    return true;
+                }
+                Map<String, String> queryParams = attributes.getQueryParams();
+                return (queryParams != null && matchesAll(patterns, queryParams::get)) != invert;
+            }));
+        }
+        ConditionDto.JWTClaimConditions jwtClaimConditions = condition.getJwtClaimConditions();
+        if (jwtClaimConditions != null && !jwtClaimConditions.getValues().isEmpty()) {
+            Map<String, Pattern> patterns = compilePatterns(jwtClaimConditions.getValues());
+            boolean invert = jwtClaimConditions.isInvert();
+            conditions.add(new CompiledCondition(COST_JWT_CLAIM, attributes -> {
+                ThrottleProperties properties = attributes.getThrottleProperties();
+                if (!properties.isEnableJwtConditions()) {
+                    return true;
+                }
+                Map claims = attributes.getJwtClaims();
+                return (claims != null && matchesAll(patterns, claimName -> {
+                    Object claim = claims.get(claimName);
+                    return claim instanceof String ? (String) claim : null;
+                })) != invert;
+            }));
+        }
+        conditions.sort(BY_COST);
+        return conditions;
+    }
+
+    private static boolean isWithinRange(BigInteger ip, BigInteger startIp, BigInteger endIp) {
+
+        return startIp.compareTo(ip) <= 0 && endIp.compareTo(ip) >= 0;
+    }
+
+    private static boolean matches(Map<String, String> values, String name, Pattern pattern) {
+
+        if (values == null) {
+            return false;
+        }
+        String value = values.get(name);
+        return value != null && find(pattern, value);
+    }
+
+    /**
+     * @param values function returning the value of a name, or null if the value is missing
+     */
+    private static boolean matchesAll(Map<String, Pattern> patterns, Function<String, String> values) {
+
+        for (Map.Entry<String, Pattern> entry : patterns.entrySet()) {
+            String value = values.apply(entry.getKey());
+            if (value == null || !find(entry.getValue(), value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean find(Pattern pattern, String value) {
+
+        return pattern != null && pattern.matcher(value).find();
+    }
+
+    private static Map<String, Pattern> compilePatterns(Map<String, String> regexes) {
+
+        Map<String, Pattern> patterns = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : regexes.entrySet()) {
+            patterns.put(entry.getKey(), compilePattern(entry.getValue()));
+        }
+        return patterns;
+    }
+
+    /**
+     * @return the compiled pattern, or null if the regular expression is invalid, in which case it never matches
+     */
+    private static Pattern compilePattern(String regex) {
+
+        try {
+            return Pattern.compile(regex);
+        } catch (PatternSyntaxException | NullPointerException e) {
+            log.error("Invalid regular expression in throttling condition: " + regex, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.handlers.throttling;
+
+import org.wso2.carbon.apimgt.api.dto.ConditionDTO;
+import org.wso2.carbon.apimgt.api.dto.ConditionGroupDTO;
+import org.wso2.carbon.apimgt.impl.APIConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable evaluation plan of the condition groups of an API policy. The conditions of each group are compiled
+ * once and ordered so that the cheapest conditions are evaluated first.
+ */
+public final class ConditionGroupPlan {
+
+    private final ConditionGroupDTO[] conditionGroups;
+    private final CompiledCondition[][] groupConditions;
+    private final ConditionGroupDTO defaultGroup;
+
+    private ConditionGroupPlan(ConditionGroupDTO[] conditionGroups, CompiledCondition[][] groupConditions,
+                               ConditionGroupDTO defaultGroup) {
+
+        this.conditionGroups = conditionGroups;
+        this.groupConditions = groupConditions;
+        this.defaultGroup = defaultGroup;
+    }
+
+    public static ConditionGroupPlan compile(ConditionGroupDTO[] inputConditionGroups) {
+
+        List<ConditionGroupDTO> conditionGroups = new ArrayList<>(inputConditionGroups.length);
+        List<CompiledCondition[]> groupConditions = new ArrayList<>(inputConditionGroups.length);
+        ConditionGroupDTO defaultGroup = null;
+        for (ConditionGroupDTO conditionGroup : inputConditionGroups) {
+            if (APIConstants.THROTTLE_POLICY_DEFAULT.equals(conditionGroup.getConditionGroupId())) {
+                defaultGroup = conditionGroup;
+                continue;
+            }
+            ConditionDTO[] conditions = conditionGroup.getConditions();
+            if (conditions == null || conditions.length == 0) {
+                // A group without conditions is never applicable.
+                continue;
+            }
+            CompiledCondition[] compiledConditions = new CompiledCondition[conditions.length];
+            for (int i = 0; i < conditions.length; i++) {
+                compiledConditions[i] = CompiledCondition.compile(conditions[i]);
+            }
+            Arrays.sort(compiledConditions, CompiledCondition.BY_COST);
+            conditionGroups.add(conditionGroup);
+            groupConditions.add(compiledConditions);
+        }
+        return new ConditionGroupPlan(conditionGroups.toArray(new ConditionGroupDTO[0]),
+                groupConditions.toArray(new CompiledCondition[0][]), defaultGroup);
+    }
+
+    /**
+     * @return the condition groups applicable for the request, or a list of the default group (which is null if
+     * the policy has no default group) if none of the groups are applicable
+     */
+    List<ConditionGroupDTO> getApplicableConditions(ConditionRequestAttributes attributes) {
+
+        List<ConditionGroupDTO> matchingConditions = new ArrayList<>(conditionGroups.length + 1);
+        for (int i = 0; i < conditionGroups.length; i++) {
+            if (allMatch(groupConditions[i], attributes)) {
+                matchingConditions.add(conditionGroups[i]);
+            }
+        }
+        // If no matching ConditionGroups are present, apply the default group.
+        if (matchingConditions.isEmpty()) {
+            matchingConditions.add(defaultGroup);
+        }
+        return matchingConditions;
+    }
+
+    static boolean allMatch(CompiledCondition[] conditions, ConditionRequestAttributes attributes) {
+
+        for (CompiledCondition condition : conditions) {
+            if (!condition.test(attributes)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.handlers.throttling;
+
+import org.apache.axis2.context.MessageContext;
+import org.wso2.carbon.apimgt.gateway.handlers.common.GatewayRequestContext;
+import org.wso2.carbon.apimgt.gateway.handlers.security.AuthenticationContext;
+import org.wso2.carbon.apimgt.gateway.utils.GatewayUtils;
+import org.wso2.carbon.apimgt.impl.dto.ThrottleProperties;
+import org.wso2.carbon.apimgt.impl.utils.APIUtil;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * Attributes of a request which throttling conditions are evaluated against. Each attribute is resolved at most
+ * once per request, however many conditions refer to it, and only if a condition refers to it.
+ */
+final class ConditionRequestAttributes {
+
+    private final GatewayRequestContext requestContext;
+    private final MessageContext messageContext;
+    private final AuthenticationContext authenticationContext;
+    private final ThrottleProperties throttleProperties;
+    private String ip;
+    private BigInteger ipValue;
+    private Map<String, String> queryParams;
+    private boolean queryParamsResolved;
+    private Map jwtClaims;
+    private boolean jwtClaimsResolved;
+
+    ConditionRequestAttributes(GatewayRequestContext requestContext, MessageContext messageContext,
+                               AuthenticationContext authenticationContext, ThrottleProperties throttleProperties) {
+
+        this.requestContext = requestContext;
+        this.messageContext = messageContext;
+        this.authenticationContext = authenticationContext;
+        this.throttleProperties = throttleProperties;
+    }
+
+    /**
+     * @return client IP of the request, or an empty string if it is not known
+     */
+    String getIp() {
+
+        if (ip == null) {
+            String remoteIp = requestContext.getClientIp();
+            ip = remoteIp != null ? remoteIp : "";
+        }
+        return ip;
+    }
+
+    BigInteger getIpValue() {
+
+        if (ipValue == null) {
+            ipValue = APIUtil.ipToBigInteger(getIp());
+        }
+        return ipValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, String> getTransportHeaders() {
+
+        return (Map<String, String>) messageContext.getProperty(MessageContext.TRANSPORT_HEADERS);
+    }
+
+    Map<String, String> getQueryParams() {
+
+        if (!queryParamsResolved) {
+            queryParams = GatewayUtils.getQueryParams(messageContext);
+            queryParamsResolved = true;
+        }
+        return queryParams;
+    }
+
+    Map getJwtClaims() {
+
+        if (!jwtClaimsResolved) {
+            jwtClaims = GatewayUtils.getJWTClaims(authenticationContext);
+            jwtClaimsResolved = true;
+        }
+        return jwtClaims;
+    }
+
+    ThrottleProperties getThrottleProperties() {
+
+        return throttleProperties;
+    }
+}
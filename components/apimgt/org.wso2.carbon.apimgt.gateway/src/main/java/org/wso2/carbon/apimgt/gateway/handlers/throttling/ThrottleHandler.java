@@ -53,20 +53,22 @@ import org.wso2.carbon.apimgt.api.dto.ConditionGroupDTO;
 import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.MethodStats;
 import org.wso2.carbon.apimgt.gateway.handlers.Utils;
+import org.wso2.carbon.apimgt.gateway.handlers.common.GatewayRequestContext;
 import org.wso2.carbon.apimgt.gateway.handlers.security.APISecurityUtils;
 import org.wso2.carbon.apimgt.gateway.handlers.security.AuthenticationContext;
 import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.gateway.throttling.KeyTemplate;
+import org.wso2.carbon.apimgt.gateway.throttling.LocalRateLimiter;
 import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDataHolder;
 import org.wso2.carbon.apimgt.gateway.throttling.publisher.ThrottleDataPublisher;
 import org.wso2.carbon.apimgt.gateway.utils.GatewayUtils;
 import org.wso2.carbon.apimgt.impl.APIConstants;
-import org.wso2.carbon.apimgt.impl.dto.ConditionDto;
 import org.wso2.carbon.apimgt.impl.dto.VerbInfoDTO;
 import org.wso2.carbon.apimgt.impl.utils.APIUtil;
 import org.wso2.carbon.apimgt.tracing.TracingSpan;
 import org.wso2.carbon.apimgt.tracing.TracingTracer;
 import org.wso2.carbon.apimgt.tracing.Util;
-import org.wso2.carbon.context.CarbonContext;
+import org.wso2.carbon.metrics.manager.Counter;
 import org.wso2.carbon.metrics.manager.Level;
 import org.wso2.carbon.metrics.manager.MetricManager;
 import org.wso2.carbon.metrics.manager.Timer;
@@ -74,6 +76,7 @@ import org.wso2.carbon.metrics.manager.Timer;
 import java.math.BigInteger;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -90,7 +93,6 @@ import javax.xml.stream.XMLStreamException;
 public class ThrottleHandler extends AbstractHandler implements ManagedLifecycle {
 
     private static final Log log = LogFactory.getLog(ThrottleHandler.class);
-    private static final String HEADER_X_FORWARDED_FOR = "X-FORWARDED-FOR";
     private volatile Throttle throttle;
     private String policyKeyApplication = null;
     private static final String THROTTLE_MAIN = "THROTTLE_MAIN";
@@ -99,6 +101,8 @@ public class ThrottleHandler extends AbstractHandler implements ManagedLifecycle
     private static final String HANDLE_THROTTLE_OUT = "HANDLE_THROTTLE_OUT";
     private static final String RESOURCE_THROTTLE = "RESOURCE_THROTTLE";
     private static final String BLOCKED_TEST = "BLOCKED_TEST";
+    private static final String LOCAL_THROTTLE_OUT = "LOCAL_THROTTLE_OUT";
+    private static final String GLOBAL_THROTTLE_OUT = "GLOBAL_THROTTLE_OUT";
 
     /**
      * The key for getting the throttling policy - key refers to a/an [registry] Resource entry
@@ -188,7 +192,7 @@ public class ThrottleHandler extends AbstractHandler implements ManagedLifecycle
         apiVersion = apiVersion != null ? apiVersion : "";
         String clientIp = getClientIp(synCtx);
         String subscriberTenantDomain = "";
-        String apiTenantDomain = getTenantDomain();
+        String apiTenantDomain = getTenantDomain(synCtx);
         ConditionGroupDTO[] conditionGroupDTOs;
         String applicationId = authContext.getApplicationId();
         //If Authz context is not null only we can proceed with throttling
@@ -273,13 +277,13 @@ public class ThrottleHandler extends AbstractHandler implements ManagedLifecycle
                         if (getThrottleDataHolder().isAPIThrottled
                                 (resourceLevelThrottleKey)) {
                             if (getThrottleDataHolder().isConditionsAvailable(resourceLevelThrottleKey)) {
-                                Map<String, List<ConditionDto>> conditionDtoMap = getThrottleDataHolder()
-                                        .getConditionDtoMap(resourceLevelThrottleKey);
-                                if (log.isDebugEnabled()) {
-                                    log.debug("Conditions available" + conditionDtoMap.size());
+                                ThrottledConditionPlan conditionPlan = getThrottleDataHolder()
+                                        .getConditionPlan(resourceLevelThrottleKey);
+                                if (log.isDebugEnabled() && conditionPlan != null) {
+                                    log.debug("Conditions available" + conditionPlan.size());
                                 }
                                 String throttledCondition = getThrottleConditionEvaluator().getThrottledInCondition
-                                        (synCtx, authContext, conditionDtoMap);
+                                        (synCtx, authContext, conditionPlan);
                                 if (StringUtils.isNotEmpty(throttledCondition)) {
                                     if (log.isDebugEnabled()) {
                                         log.debug("Throttled with Condition :" + throttledCondition);
@@ -311,7 +315,8 @@ public class ThrottleHandler extends AbstractHandler implements ManagedLifecycle
                                     }
                                     //Then we will apply resource level throttling
                                     List<ConditionGroupDTO> applicableConditions = getThrottleConditionEvaluator()
-                                            .getApplicableConditions(synCtx, authContext, conditionGroupDTOs);
+                                            .getApplicableConditions(synCtx, authContext,
+                                                    ThrottleConditionEvaluator.getConditionGroupPlan(verbInfoDTO));
                                     for (ConditionGroupDTO conditionGroup : applicableConditions) {
                                         String combinedResourceLevelThrottleKey = resourceLevelThrottleKey +
                                                 conditionGroup.getConditionGroupId();
@@ -387,7 +392,7 @@ public class ThrottleHandler extends AbstractHandler implements ManagedLifecycle
                                             applicationLevelThrottleKey, resourceLevelThrottleKey, apiLevelThrottleKey,
                                             subscriptionLevelThrottleKey, apiContext, apiVersion, subscriberTenantDomain,
                                             apiTenantDomain, applicationId, clientIp,
-                                            getThrottleDataHolder().getKeyTemplateMap(),
+                                            getThrottleDataHolder().getKeyTemplates(),
                                             synCtx)) {
                                         //Pass message context and continue to avoid performance issue.
                                         //Did not throttled at any level. So let message go and publish event.
@@ -395,6 +400,11 @@ public class ThrottleHandler extends AbstractHandler implements ManagedLifecycle
                                         if (isHardLimitThrottled(synCtx, authContext, apiContext, apiVersion)) {
                                             isThrottled = true;
 
+                                        } else if (isLocallyThrottled(synCtx, applicationLevelThrottleKey,
+                                                applicationLevelTier, subscriptionLevelThrottleKey,
+                                                subscriptionLevelTier, stopOnQuotaReach, verbInfo,
+                                                apiLevelThrottleKey, apiLevelTier, authorizedUser)) {
+                                            isThrottled = true;
                                         } else {
                                             ServiceReferenceHolder.getInstance().getThrottleDataPublisher().
                                                     publishNonThrottledEvent(applicationLevelThrottleKey,
@@ -488,8 +498,8 @@ public class ThrottleHandler extends AbstractHandler implements ManagedLifecycle
         return ServiceReferenceHolder.getInstance().getThrottleDataHolder();
     }
 
-    protected String getTenantDomain() {
-        return CarbonContext.getThreadLocalCarbonContext().getTenantDomain();
+    protected String getTenantDomain(MessageContext synCtx) {
+        return GatewayRequestContext.get(synCtx).getTenantDomain();
     }
 
 
@@ -581,6 +591,12 @@ public class ThrottleHandler extends AbstractHandler implements ManagedLifecycle
             context.stop();
         }
         if (isThrottled) {
+            if (getThrottleDataHolder() != null && getThrottleDataHolder().getLocalRateLimiter() != null) {
+                boolean isThrottledLocally =
+                        Boolean.TRUE.equals(messageContext.getProperty(APIThrottleConstants.THROTTLED_LOCALLY));
+                getCounter(MetricManager.name(APIConstants.METRICS_PREFIX, this.getClass().getSimpleName(),
+                        isThrottledLocally ? LOCAL_THROTTLE_OUT : GLOBAL_THROTTLE_OUT)).inc();
+            }
             Timer timer = getTimer(MetricManager.name(
                     APIConstants.METRICS_PREFIX, this.getClass().getSimpleName(), HANDLE_THROTTLE_OUT));
             Timer.Context context = timer.start();
@@ -595,6 +611,66 @@ public class ThrottleHandler extends AbstractHandler implements ManagedLifecycle
         return MetricManager.timer(Level.INFO, name);
     }
 
+    protected Counter getCounter(String name) {
+        return MetricManager.counter(Level.INFO, name);
+    }
+
+    /**
+     * Checks the node local rate limiter, if local throttling is enabled, for the application, subscription and
+     * resource levels. The decisions of the traffic manager are still applied and the requests which pass are still
+     * published to it, this only rejects the requests beyond the share of the tier limits of this gateway before the
+     * traffic manager throttles the keys. A request which is rejected at a level does not use up the tokens of the
+     * levels checked before it, since they are returned.
+     *
+     * @return whether the request is throttled by the local rate limiter
+     */
+    private boolean isLocallyThrottled(MessageContext synCtx, String applicationLevelThrottleKey,
+                                       String applicationLevelTier, String subscriptionLevelThrottleKey,
+                                       String subscriptionLevelTier, boolean stopOnQuotaReach, VerbInfoDTO verbInfo,
+                                       String apiLevelThrottleKey, String apiLevelTier, String authorizedUser) {
+
+        LocalRateLimiter localRateLimiter = getThrottleDataHolder().getLocalRateLimiter();
+        if (localRateLimiter == null) {
+            return false;
+        }
+        // As with the traffic manager, an API level policy applies instead of the resource level policies.
+        String resourceLevelThrottleKey = verbInfo.getRequestKey();
+        String resourceLevelTier = verbInfo.getThrottling();
+        boolean isApiLevelPolicy =
+                !StringUtils.isEmpty(apiLevelTier) && !APIConstants.UNLIMITED_TIER.equalsIgnoreCase(apiLevelTier);
+        if (isApiLevelPolicy) {
+            resourceLevelThrottleKey = apiLevelThrottleKey;
+            resourceLevelTier = apiLevelTier;
+        }
+        if (APIConstants.API_POLICY_USER_LEVEL.equalsIgnoreCase(verbInfo.getApplicableLevel())) {
+            resourceLevelThrottleKey = resourceLevelThrottleKey + "_" + authorizedUser;
+        }
+        String reason = null;
+        if (!localRateLimiter.tryAcquire(applicationLevelThrottleKey, applicationLevelTier)) {
+            reason = APIThrottleConstants.APPLICATION_LIMIT_EXCEEDED;
+        } else if (stopOnQuotaReach
+                && !localRateLimiter.tryAcquire(subscriptionLevelThrottleKey, subscriptionLevelTier)) {
+            localRateLimiter.release(applicationLevelThrottleKey, applicationLevelTier);
+            reason = APIThrottleConstants.SUBSCRIPTION_LIMIT_EXCEEDED;
+        } else if (!localRateLimiter.tryAcquire(resourceLevelThrottleKey, resourceLevelTier)) {
+            localRateLimiter.release(applicationLevelThrottleKey, applicationLevelTier);
+            if (stopOnQuotaReach) {
+                localRateLimiter.release(subscriptionLevelThrottleKey, subscriptionLevelTier);
+            }
+            reason = isApiLevelPolicy ? APIThrottleConstants.API_LIMIT_EXCEEDED
+                    : APIThrottleConstants.RESOURCE_LIMIT_EXCEEDED;
+        }
+        if (reason == null) {
+            return false;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Request throttled locally with reason " + reason);
+        }
+        synCtx.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON, reason);
+        synCtx.setProperty(APIThrottleConstants.THROTTLED_LOCALLY, Boolean.TRUE);
+        return true;
+    }
+
 
     private OMElement getFaultPayload(int throttleErrorCode, String message, String description,
                                       String nextAccessTimeValue) {
@@ -771,23 +847,7 @@ public class ThrottleHandler extends AbstractHandler implements ManagedLifecycle
     }
 
     private String getClientIp(MessageContext synCtx) {
-        String clientIp;
-
-        org.apache.axis2.context.MessageContext axis2MsgContext =
-                ((Axis2MessageContext) synCtx).getAxis2MessageContext();
-        Map headers =
-                (Map) (axis2MsgContext).getProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS);
-        String xForwardForHeader = (String) headers.get(HEADER_X_FORWARDED_FOR);
-        if (!StringUtils.isEmpty(xForwardForHeader)) {
-            clientIp = xForwardForHeader;
-            int idx = xForwardForHeader.indexOf(',');
-            if (idx > -1) {
-                clientIp = clientIp.substring(0, idx);
-            }
-        } else {
-            clientIp = (String) axis2MsgContext.getProperty(org.apache.axis2.context.MessageContext.REMOTE_ADDR);
-        }
-        return clientIp;
+        return GatewayRequestContext.get(synCtx).getClientIp();
     }
 
 
@@ -968,22 +1028,48 @@ public class ThrottleHandler extends AbstractHandler implements ManagedLifecycle
                                         Map<String, String> keyTemplateMap,
                                         MessageContext messageContext) {
         if (keyTemplateMap != null && keyTemplateMap.size() > 0) {
+            List<KeyTemplate> keyTemplates = new ArrayList<>(keyTemplateMap.size());
             for (String key : keyTemplateMap.keySet()) {
-                key = key.replaceAll("\\$resourceKey", resourceKey);
-                key = key.replaceAll("\\$userId", userID);
-                key = key.replaceAll("\\$apiContext", apiContext);
-                key = key.replaceAll("\\$apiVersion", apiVersion);
-                key = key.replaceAll("\\$appTenant", appTenant);
-                key = key.replaceAll("\\$apiTenant", apiTenant);
-                key = key.replaceAll("\\$appId", appId);
-                if (clientIp != null){
-                    key = key.replaceAll("\\$clientIp", APIUtil.ipToBigInteger(clientIp).toString());
-                }
-                if (getThrottleDataHolder().isThrottled(key)) {
-                    long timestamp = getThrottleDataHolder().getThrottleNextAccessTimestamp(key);
-                    messageContext.setProperty(APIThrottleConstants.THROTTLED_NEXT_ACCESS_TIMESTAMP, timestamp);
-                    return true;
-                }
+                keyTemplates.add(KeyTemplate.parse(key));
+            }
+            return validateCustomPolicy(userID, appKey, resourceKey, apiKey, subscriptionKey, apiContext, apiVersion,
+                    appTenant, apiTenant, appId, clientIp, keyTemplates, messageContext);
+        }
+        return false;
+    }
+
+    /**
+     * Validates the custom policies against key templates which are already parsed. Each template is rendered in a
+     * single pass and the client IP is converted at most once per request.
+     *
+     * @return whether the request is throttled by a custom policy
+     */
+    public boolean validateCustomPolicy(String userID, String appKey, String resourceKey, String apiKey,
+                                        String subscriptionKey, String apiContext, String apiVersion, String appTenant,
+                                        String apiTenant, String appId, String clientIp,
+                                        Collection<KeyTemplate> keyTemplates, MessageContext messageContext) {
+
+        if (keyTemplates == null || keyTemplates.isEmpty()) {
+            return false;
+        }
+        String[] values = new String[KeyTemplate.Variable.values().length];
+        values[KeyTemplate.Variable.RESOURCE_KEY.ordinal()] = resourceKey;
+        values[KeyTemplate.Variable.USER_ID.ordinal()] = userID;
+        values[KeyTemplate.Variable.API_CONTEXT.ordinal()] = apiContext;
+        values[KeyTemplate.Variable.API_VERSION.ordinal()] = apiVersion;
+        values[KeyTemplate.Variable.APP_TENANT.ordinal()] = appTenant;
+        values[KeyTemplate.Variable.API_TENANT.ordinal()] = apiTenant;
+        values[KeyTemplate.Variable.APP_ID.ordinal()] = appId;
+        for (KeyTemplate keyTemplate : keyTemplates) {
+            if (clientIp != null && keyTemplate.usesClientIp()
+                    && values[KeyTemplate.Variable.CLIENT_IP.ordinal()] == null) {
+                values[KeyTemplate.Variable.CLIENT_IP.ordinal()] = APIUtil.ipToBigInteger(clientIp).toString();
+            }
+            String key = keyTemplate.render(values);
+            if (getThrottleDataHolder().isThrottled(key)) {
+                long timestamp = getThrottleDataHolder().getThrottleNextAccessTimestamp(key);
+                messageContext.setProperty(APIThrottleConstants.THROTTLED_NEXT_ACCESS_TIMESTAMP, timestamp);
+                return true;
             }
         }
         return false;
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.handlers.throttling;
+
+import org.wso2.carbon.apimgt.impl.dto.ConditionDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable evaluation plan of the conditions under which a resource has been throttled, as published by the
+ * traffic manager. Each entry maps a condition key to a list of alternative conditions, any of which makes the
+ * request fall into that condition.
+ */
+public final class ThrottledConditionPlan {
+
+    private static final String DEFAULT_CONDITION = "default";
+
+    private final String[] conditionKeys;
+    private final CompiledCondition[][][] conditions;
+    // Null if there is no default condition.
+    private final CompiledCondition[][] defaultConditions;
+
+    private ThrottledConditionPlan(String[] conditionKeys, CompiledCondition[][][] conditions,
+                                   CompiledCondition[][] defaultConditions) {
+
+        this.conditionKeys = conditionKeys;
+        this.conditions = conditions;
+        this.defaultConditions = defaultConditions;
+    }
+
+    public static ThrottledConditionPlan compile(Map<String, List<ConditionDto>> conditionDtoMap) {
+
+        List<String> conditionKeys = new ArrayList<>(conditionDtoMap.size());
+        List<CompiledCondition[][]> conditions = new ArrayList<>(conditionDtoMap.size());
+        CompiledCondition[][] defaultConditions = null;
+        for (Map.Entry<String, List<ConditionDto>> entry : conditionDtoMap.entrySet()) {
+            CompiledCondition[][] alternatives = compile(entry.getValue());
+            if (DEFAULT_CONDITION.equals(entry.getKey())) {
+                defaultConditions = alternatives;
+            } else {
+                conditionKeys.add(entry.getKey());
+                conditions.add(alternatives);
+            }
+        }
+        return new ThrottledConditionPlan(conditionKeys.toArray(new String[0]),
+                conditions.toArray(new CompiledCondition[0][][]), defaultConditions);
+    }
+
+    private static CompiledCondition[][] compile(List<ConditionDto> conditionDtoList) {
+
+        if (conditionDtoList == null) {
+            return new CompiledCondition[0][];
+        }
+        CompiledCondition[][] alternatives = new CompiledCondition[conditionDtoList.size()][];
+        for (int i = 0; i < alternatives.length; i++) {
+            alternatives[i] = CompiledCondition.compile(conditionDtoList.get(i)).toArray(new CompiledCondition[0]);
+        }
+        return alternatives;
+    }
+
+    public int size() {
+
+        return conditionKeys.length + (defaultConditions != null ? 1 : 0);
+    }
+
+    /**
+     * @return key of the first condition the request falls into, "default" if it falls into none of them but the
+     * default condition does not hold either, or null otherwise
+     */
+    String getThrottledInCondition(ConditionRequestAttributes attributes) {
+
+        for (int i = 0; i < conditionKeys.length; i++) {
+            if (anyMatch(conditions[i], attributes)) {
+                return conditionKeys[i];
+            }
+        }
+        if (defaultConditions != null && (defaultConditions.length == 0 || !anyMatch(defaultConditions, attributes))) {
+            return DEFAULT_CONDITION;
+        }
+        return null;
+    }
+
+    /**
+     * An empty list of alternatives holds, as a key published without conditions applies to every request.
+     */
+    private static boolean anyMatch(CompiledCondition[][] alternatives, ConditionRequestAttributes attributes) {
+
+        if (alternatives.length == 0) {
+            return true;
+        }
+        for (CompiledCondition[] alternative : alternatives) {
+            if (ConditionGroupPlan.allMatch(alternative, attributes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -40,6 +40,7 @@ import org.wso2.carbon.apimgt.gateway.listeners.GatewayStartupListener;
 import org.wso2.carbon.apimgt.gateway.service.APIThrottleDataServiceImpl;
 import org.wso2.carbon.apimgt.gateway.service.CacheInvalidationServiceImpl;
 import org.wso2.carbon.apimgt.gateway.service.RevokedTokenDataImpl;
+import org.wso2.carbon.apimgt.gateway.throttling.LocalRateLimiter;
 import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDataHolder;
 import org.wso2.carbon.apimgt.gateway.throttling.publisher.ThrottleDataPublisher;
 import org.wso2.carbon.apimgt.gateway.throttling.util.BlockingConditionRetriever;
@@ -50,6 +51,7 @@ import org.wso2.carbon.apimgt.impl.APIManagerConfigurationService;
 import org.wso2.carbon.apimgt.impl.caching.CacheInvalidationService;
 import org.wso2.carbon.apimgt.impl.caching.CacheProvider;
 import org.wso2.carbon.apimgt.impl.dto.GatewayArtifactSynchronizerProperties;
+import org.wso2.carbon.apimgt.impl.dto.ThrottleProperties;
 import org.wso2.carbon.apimgt.impl.gatewayartifactsynchronizer.ArtifactRetriever;
 import org.wso2.carbon.apimgt.impl.jwt.JWTValidationService;
 import org.wso2.carbon.apimgt.impl.keymgt.KeyManagerDataService;
@@ -110,6 +112,11 @@ public class APIHandlerServiceComponent {
                 if (apiManagerConfiguration.getThrottleProperties().isEnabled()) {
                     ServiceReferenceHolder.getInstance().setThrottleDataPublisher(new ThrottleDataPublisher());
                     ThrottleDataHolder throttleDataHolder = new ThrottleDataHolder();
+                    ThrottleProperties.LocalThrottling localThrottling =
+                            apiManagerConfiguration.getThrottleProperties().getLocalThrottling();
+                    if (localThrottling.isEnabled()) {
+                        throttleDataHolder.setLocalRateLimiter(new LocalRateLimiter(localThrottling));
+                    }
                     APIThrottleDataServiceImpl throttleDataServiceImpl =
                             new APIThrottleDataServiceImpl(throttleDataHolder);
                     CacheInvalidationService cacheInvalidationService = new CacheInvalidationServiceImpl();
@@ -179,6 +186,9 @@ public class APIHandlerServiceComponent {
             log.debug("Unregistering ThrottleDataService...");
             registration.unregister();
         }
+        if (ServiceReferenceHolder.getInstance().getThrottleDataPublisher() != null) {
+            ServiceReferenceHolder.getInstance().getThrottleDataPublisher().shutdown();
+        }
     }
 
     @Reference(
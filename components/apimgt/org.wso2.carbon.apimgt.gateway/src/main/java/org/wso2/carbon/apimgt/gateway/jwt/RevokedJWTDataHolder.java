@@ -20,27 +20,24 @@ package org.wso2.carbon.apimgt.gateway.jwt;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 /**
- *  Singleton which stores the revoked JWT map
+ *  Singleton which stores the signatures of the revoked JWTs
  */
 public class RevokedJWTDataHolder {
 
     private static final Log log = LogFactory.getLog(RevokedJWTDataHolder.class);
-    private static Map<String, Long> revokedJWTMap = new ConcurrentHashMap<>();
+    private static RevokedJWTIndex revokedJWTIndex = new RevokedJWTIndex();
     private static RevokedJWTDataHolder instance = new RevokedJWTDataHolder();
 
     /**
      * Adds a given key,value pair to the revoke map.
      * @param key key to be added.
-     * @param value value to be added.
+     * @param value expiry time of the token in seconds.
      */
     public void addRevokedJWTToMap(String key, Long value) {
         if (key != null && value != null) {
             log.debug("Adding revoked JWT key, value pair to the revoked map :" + key + " , " + value);
-            revokedJWTMap.put(key, value);
+            revokedJWTIndex.add(key, value);
         }
     }
 
@@ -50,7 +47,7 @@ public class RevokedJWTDataHolder {
      * @return true if it exists and false otherwise.
      */
     public static boolean isJWTTokenSignatureExistsInRevokedMap(String jwtSignature) {
-        return revokedJWTMap.containsKey(jwtSignature);
+        return jwtSignature != null && revokedJWTIndex.contains(jwtSignature);
     }
 
     private RevokedJWTDataHolder() {
@@ -58,11 +55,12 @@ public class RevokedJWTDataHolder {
     }
 
     /**
-     * Fetches the revoke map.
-     * @return
+     * Removes the signatures of the tokens which are expired.
+     * @param currentTimestamp current time in milliseconds.
+     * @return number of removed signatures.
      */
-    Map<String, Long> getRevokedJWTMap() {
-        return revokedJWTMap;
+    int removeExpiredJWTs(long currentTimestamp) {
+        return revokedJWTIndex.removeExpired(currentTimestamp);
     }
 
     /**
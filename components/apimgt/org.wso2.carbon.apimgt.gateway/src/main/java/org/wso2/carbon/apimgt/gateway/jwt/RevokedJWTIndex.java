@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compact index of the signatures of the revoked JWTs. The signatures are partitioned by the hour in which the tokens
+ * expire, hence a partition is dropped as a whole once all of its tokens are expired. Each partition keeps the 128 bit
+ * hashes of its signatures, instead of the signatures, fronted by Bloom filters. The signatures of all the partitions
+ * are also added to a front filter, hence a signature which is not revoked is ruled out by a single filter, without
+ * going through the partitions. The front filter is built again once expired partitions are removed.
+ *
+ * Signatures are added one at a time, and the Bloom filters are set before the hashes are added, hence a signature
+ * which is found in the hashes is never ruled out by the filters. Lookups do not lock.
+ */
+class RevokedJWTIndex {
+
+    static final long PARTITION_SECONDS = 3600;
+    private static final int FILTER_CAPACITY = 8192;
+    private static final int FILTER_GROWTH = 4;
+    private static final int HASH_FUNCTIONS = 7;
+    // Bits per signature for a false positive rate of about 1% with 7 hash functions
+    private static final int BITS_PER_SIGNATURE = 10;
+
+    private final ConcurrentNavigableMap<Long, Partition> partitions = new ConcurrentSkipListMap<>();
+    private volatile FilterChain frontFilter = new FilterChain();
+
+    /**
+     * Adds the signature of a revoked token
+     *
+     * @param signature  signature of the token
+     * @param expiryTime expiry time of the token in seconds
+     */
+    synchronized void add(String signature, long expiryTime) {
+
+        SignatureHash hash = SignatureHash.of(signature);
+        Partition partition = partitions.computeIfAbsent(Math.floorDiv(expiryTime, PARTITION_SECONDS),
+                key -> new Partition());
+        if (!partition.signatures.containsKey(hash)) {
+            frontFilter.add(hash);
+        }
+        partition.add(hash, expiryTime);
+    }
+
+    /**
+     * Checks whether the given signature is of a revoked token
+     *
+     * @param signature signature of the token
+     * @return true if the token is revoked
+     */
+    boolean contains(String signature) {
+
+        if (partitions.isEmpty()) {
+            return false;
+        }
+        SignatureHash hash = SignatureHash.of(signature);
+        if (!frontFilter.mightContain(hash)) {
+            return false;
+        }
+        for (Partition partition : partitions.values()) {
+            if (partition.contains(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the partitions in which all the tokens are expired
+     *
+     * @param currentTime current time in milliseconds
+     * @return number of removed signatures
+     */
+    int removeExpired(long currentTime) {
+
+        // A partition is expired once its last second is passed
+        long lastExpiredPartition = Math.floorDiv(currentTime / 1000, PARTITION_SECONDS) - 1;
+        int count = 0;
+        Iterator<Partition> iterator = partitions.headMap(lastExpiredPartition, true).values().iterator();
+        while (iterator.hasNext()) {
+            count += iterator.next().size();
+            iterator.remove();
+        }
+        if (count > 0) {
+            rebuildFrontFilter();
+        }
+        return count;
+    }
+
+    /**
+     * Builds the front filter again from the partitions which are left, so that the signatures of the removed
+     * partitions no longer pass it. Signatures are not added while it is built.
+     */
+    private synchronized void rebuildFrontFilter() {
+
+        FilterChain filter = new FilterChain();
+        for (Partition partition : partitions.values()) {
+            for (SignatureHash hash : partition.signatures.keySet()) {
+                filter.add(hash);
+            }
+        }
+        frontFilter = filter;
+    }
+
+    /**
+     * @return number of revoked signatures in the index
+     */
+    int size() {
+
+        int size = 0;
+        for (Partition partition : partitions.values()) {
+            size += partition.size();
+        }
+        return size;
+    }
+
+    /**
+     * Signatures of the tokens which expire within the same hour
+     */
+    private static class Partition {
+
+        private final Map<SignatureHash, Long> signatures = new ConcurrentHashMap<>();
+        private final FilterChain filter = new FilterChain();
+
+        private void add(SignatureHash hash, long expiryTime) {
+
+            if (!signatures.containsKey(hash)) {
+                // Set before the hash is added, so that a lookup which finds the hash also passes the filter
+                filter.add(hash);
+            }
+            signatures.put(hash, expiryTime);
+        }
+
+        private boolean contains(SignatureHash hash) {
+
+            return filter.mightContain(hash) && signatures.containsKey(hash);
+        }
+
+        private int size() {
+
+            return signatures.size();
+        }
+    }
+
+    /**
+     * Bloom filters which are added as the signatures grow, to keep the false positive rate
+     */
+    private static class FilterChain {
+
+        private final List<BloomFilter> filters = new CopyOnWriteArrayList<>();
+
+        private FilterChain() {
+
+            filters.add(new BloomFilter(FILTER_CAPACITY));
+        }
+
+        private void add(SignatureHash hash) {
+
+            BloomFilter filter = filters.get(filters.size() - 1);
+            if (!filter.add(hash)) {
+                // The filter is full, hence signatures go to a larger filter to keep the false positive rate
+                synchronized (this) {
+                    filter = filters.get(filters.size() - 1);
+                    if (filter.isFull()) {
+                        filter = new BloomFilter(filter.capacity * FILTER_GROWTH);
+                        filters.add(filter);
+                    }
+                }
+                filter.add(hash);
+            }
+        }
+
+        private boolean mightContain(SignatureHash hash) {
+
+            for (BloomFilter filter : filters) {
+                if (filter.mightContain(hash)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class BloomFilter {
+
+        private final int capacity;
+        private final long bitCount;
+        private final AtomicLongArray bits;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private BloomFilter(int capacity) {
+
+            this.capacity = capacity;
+            this.bits = new AtomicLongArray((capacity * BITS_PER_SIGNATURE + 63) / 64);
+            this.bitCount = bits.length() * 64L;
+        }
+
+        private boolean isFull() {
+
+            return count.get() >= capacity;
+        }
+
+        /**
+         * Adds the hash to the filter, unless the filter is full
+         *
+         * @param hash hash of the signature
+         * @return false if the filter is full
+         */
+        private boolean add(SignatureHash hash) {
+
+            if (count.get() >= capacity || count.getAndIncrement() >= capacity) {
+                return false;
+            }
+            // Double hashing over the two halves of the hash, to derive the bit of each hash function
+            long combined = hash.high;
+            for (int i = 0; i < HASH_FUNCTIONS; i++) {
+                long bit = (combined & Long.MAX_VALUE) % bitCount;
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word;
+                do {
+                    word = bits.get(index);
+                } while ((word & mask) == 0 && !bits.compareAndSet(index, word, word | mask));
+                combined += hash.low;
+            }
+            return true;
+        }
+
+        private boolean mightContain(SignatureHash hash) {
+
+            long combined = hash.high;
+            for (int i = 0; i < HASH_FUNCTIONS; i++) {
+                long bit = (combined & Long.MAX_VALUE) % bitCount;
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+                combined += hash.low;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 128 bit MurmurHash3 of a signature
+     */
+    static final class SignatureHash {
+
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final long high;
+        private final long low;
+
+        private SignatureHash(long high, long low) {
+
+            this.high = high;
+            this.low = low;
+        }
+
+        static SignatureHash of(String signature) {
+
+            byte[] data = signature.getBytes(StandardCharsets.UTF_8);
+            int blocks = data.length / 16;
+            long h1 = 0;
+            long h2 = 0;
+            for (int i = 0; i < blocks; i++) {
+                long k1 = getLong(data, i * 16);
+                long k2 = getLong(data, i * 16 + 8);
+                h1 ^= mixK1(k1);
+                h1 = Long.rotateLeft(h1, 27) + h2;
+                h1 = h1 * 5 + 0x52dce729;
+                h2 ^= mixK2(k2);
+                h2 = Long.rotateLeft(h2, 31) + h1;
+                h2 = h2 * 5 + 0x38495ab5;
+            }
+            long k1 = 0;
+            long k2 = 0;
+            int tail = blocks * 16;
+            for (int i = data.length - 1; i >= tail; i--) {
+                int shift = (i - tail) * 8;
+                if (shift >= 64) {
+                    k2 |= (data[i] & 0xffL) << (shift - 64);
+                } else {
+                    k1 |= (data[i] & 0xffL) << shift;
+                }
+            }
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(k2);
+            h1 ^= data.length;
+            h2 ^= data.length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix(h1);
+            h2 = fmix(h2);
+            h1 += h2;
+            h2 += h1;
+            return new SignatureHash(h1, h2);
+        }
+
+        private static long getLong(byte[] data, int offset) {
+
+            long value = 0;
+            for (int i = 7; i >= 0; i--) {
+                value = (value << 8) | (data[offset + i] & 0xffL);
+            }
+            return value;
+        }
+
+        private static long mixK1(long k1) {
+
+            return Long.rotateLeft(k1 * C1, 31) * C2;
+        }
+
+        private static long mixK2(long k2) {
+
+            return Long.rotateLeft(k2 * C2, 33) * C1;
+        }
+
+        private static long fmix(long k) {
+
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SignatureHash)) {
+                return false;
+            }
+            SignatureHash that = (SignatureHash) o;
+            return high == that.high && low == that.low;
+        }
+
+        @Override
+        public int hashCode() {
+
+            return (int) (high ^ (high >>> 32));
+        }
+    }
+}
@@ -20,8 +20,6 @@ package org.wso2.carbon.apimgt.gateway.jwt;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import java.util.Iterator;
-import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -41,21 +39,8 @@ public class RevokedJWTMapCleaner extends TimerTask {
 
     private void cleanJWTRevokedMap() {
 
-        long currentTimestamp = System.currentTimeMillis();
-        Map<String, Long> revokedMap = RevokedJWTDataHolder.getInstance().getRevokedJWTMap();
-        Iterator it = revokedMap.entrySet().iterator();
-        int count = 0;
-        while (it.hasNext()) {
-            Map.Entry entry = (Map.Entry) it.next();
-            long expiryTime = (long) (entry.getValue()) * 1000;
-            if (currentTimestamp > expiryTime) { // if token is expired, remove from the revoked map
-                it.remove();
-                if (log.isDebugEnabled()) {
-                    log.debug("Removed entry : " + entry.getKey());
-                }
-                count++;
-            }
-        }
+        // Signatures are removed by the hour in which the tokens expire, hence without going through each of them
+        int count = RevokedJWTDataHolder.getInstance().removeExpiredJWTs(System.currentTimeMillis());
         if (log.isDebugEnabled()) {
             log.debug("Number of removed JWT tokens from the map : " + count);
         }
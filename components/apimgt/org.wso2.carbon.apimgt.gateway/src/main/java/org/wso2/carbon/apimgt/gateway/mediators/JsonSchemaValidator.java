@@ -26,10 +26,9 @@ import org.apache.synapse.mediators.AbstractMediator;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
 import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.threatprotection.APIMThreatAnalyzerException;
-import org.wso2.carbon.apimgt.gateway.threatprotection.AnalyzerHolder;
-import org.wso2.carbon.apimgt.gateway.threatprotection.analyzer.APIMThreatAnalyzer;
-import org.wso2.carbon.apimgt.gateway.threatprotection.configuration.ConfigurationHolder;
 import org.wso2.carbon.apimgt.gateway.threatprotection.configuration.JSONConfig;
+import org.wso2.carbon.apimgt.gateway.threatprotection.inspector.InspectionReport;
+import org.wso2.carbon.apimgt.gateway.threatprotection.inspector.JSONPayloadInspector;
 import org.wso2.carbon.apimgt.gateway.threatprotection.utils.ThreatExceptionHandler;
 import org.wso2.carbon.apimgt.gateway.threatprotection.utils.ThreatProtectorConstants;
 import org.wso2.carbon.apimgt.gateway.utils.GatewayUtils;
@@ -80,14 +79,17 @@ public class JsonSchemaValidator extends AbstractMediator {
                 (ThreatProtectorConstants.APPLICATION_JSON.equals(contentType) ||
                         ThreatProtectorConstants.TEXT_JSON.equals(contentType))) {
             JSONConfig jsonConfig = configureSchemaProperties(messageContext);
-            ConfigurationHolder.addJsonConfig(jsonConfig);
-            APIMThreatAnalyzer apimThreatAnalyzer = AnalyzerHolder.getAnalyzer(contentType);
             try {
                 inputStreams = GatewayUtils.cloneRequestMessage(messageContext);
                 if (inputStreams != null) {
                     InputStream inputStreamJson = inputStreams.get(ThreatProtectorConstants.JSON);
                     BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStreamJson);
-                    apimThreatAnalyzer.analyze(bufferedInputStream, apiContext);
+                    JSONPayloadInspector inspector = new JSONPayloadInspector(
+                            JSONPayloadInspector.createChecks(jsonConfig, apiContext));
+                    InspectionReport report = inspector.inspect(bufferedInputStream);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("JSON schema validation of " + apiContext + " completed: " + report);
+                    }
                 }
             } catch (APIMThreatAnalyzerException e) {
                 validRequest = false;
@@ -100,9 +102,6 @@ public class JsonSchemaValidator extends AbstractMediator {
                 logger.error(message, e);
                 GatewayUtils.handleThreat(messageContext, ThreatProtectorConstants.HTTP_SC_CODE,
                         message + e.getMessage());
-            } finally {
-                // return analyzer to the pool
-                AnalyzerHolder.returnObject(apimThreatAnalyzer);
             }
         } else {
             if (log.isDebugEnabled()) {
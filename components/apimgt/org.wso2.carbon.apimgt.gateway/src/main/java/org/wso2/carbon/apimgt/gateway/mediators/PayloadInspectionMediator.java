@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.apimgt.gateway.mediators;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.transport.passthru.util.RelayUtils;
+import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
+import org.wso2.carbon.apimgt.gateway.threatprotection.APIMThreatAnalyzerException;
+import org.wso2.carbon.apimgt.gateway.threatprotection.configuration.XMLConfig;
+import org.wso2.carbon.apimgt.gateway.threatprotection.inspector.InspectionReport;
+import org.wso2.carbon.apimgt.gateway.threatprotection.inspector.JSONPayloadCheck;
+import org.wso2.carbon.apimgt.gateway.threatprotection.inspector.JSONPayloadInspector;
+import org.wso2.carbon.apimgt.gateway.threatprotection.inspector.RegexCheck;
+import org.wso2.carbon.apimgt.gateway.threatprotection.inspector.XMLPayloadCheck;
+import org.wso2.carbon.apimgt.gateway.threatprotection.inspector.XMLPayloadInspector;
+import org.wso2.carbon.apimgt.gateway.threatprotection.regex.MultiPatternMatcher;
+import org.wso2.carbon.apimgt.gateway.threatprotection.utils.ThreatProtectorConstants;
+import org.wso2.carbon.apimgt.gateway.utils.GatewayUtils;
+import org.wso2.carbon.apimgt.impl.APIConstants;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.validation.Schema;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This mediator runs the JSON and XML threat protection limits, the regular expression check of the body and the
+ * XML schema validation over the request payload in one pass, instead of each of them reading the payload again.
+ * The checks are configured with the same properties as the {@link JsonSchemaValidator},
+ * {@link XMLSchemaValidator} and {@link RegularExpressionProtector} mediators, and a check is run only if its
+ * properties are set. The time spent on each check is set to the message context as
+ * {@link ThreatProtectorConstants#INSPECTION_REPORT}.
+ *
+ * The regular expression check follows the tenant restriction and the payload size limit of the
+ * {@link RegularExpressionProtector}, but it matches the names and the text values of the payload as they are read,
+ * instead of the serialized payload. See {@link RegexCheck}.
+ */
+public class PayloadInspectionMediator extends AbstractMediator {
+
+    private static final Log logger = LogFactory.getLog(PayloadInspectionMediator.class);
+
+    private final JsonSchemaValidator jsonSchemaValidator = new JsonSchemaValidator();
+    private final XMLSchemaValidator xmlSchemaValidator = new XMLSchemaValidator();
+
+    /**
+     * This mediate method inspects the request payload.
+     *
+     * @param messageContext This message context contains the request message properties of the relevant
+     *                       API which was enabled the payload inspection message mediation in flow.
+     * @return a boolean true, as a failed check is handled as a threat.
+     */
+    public boolean mediate(MessageContext messageContext) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Payload inspection mediator is activated...");
+        }
+        Map<String, InputStream> inputStreams = null;
+        boolean validRequest = true;
+        org.apache.axis2.context.MessageContext axis2MC = ((Axis2MessageContext) messageContext)
+                .getAxis2MessageContext();
+        Object contentTypeObject = axis2MC.getProperty(ThreatProtectorConstants.CONTENT_TYPE);
+        String contentType;
+        if (contentTypeObject != null) {
+            contentType = contentTypeObject.toString();
+        } else {
+            contentType = axis2MC.getProperty(ThreatProtectorConstants.SOAP_CONTENT_TYPE).toString();
+        }
+        String apiContext = messageContext.getProperty(ThreatProtectorConstants.API_CONTEXT).toString();
+        String requestMethod = axis2MC.getProperty(ThreatProtectorConstants.HTTP_REQUEST_METHOD).toString();
+        boolean json = ThreatProtectorConstants.APPLICATION_JSON.equals(contentType)
+                || ThreatProtectorConstants.TEXT_JSON.equals(contentType);
+        boolean xml = ThreatProtectorConstants.APPLICATION_XML.equals(contentType)
+                || ThreatProtectorConstants.TEXT_XML.equals(contentType);
+        if (APIConstants.SupportedHTTPVerbs.GET.name().equalsIgnoreCase(requestMethod) || !(json || xml)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Payload Inspection Mediator: " + APIMgtGatewayConstants.REQUEST_TYPE_FAIL_MSG);
+            }
+            return true;
+        }
+        try {
+            inputStreams = GatewayUtils.cloneRequestMessage(messageContext);
+            InputStream payload = inputStreams.get(json ? ThreatProtectorConstants.JSON : ThreatProtectorConstants.XML);
+            if (payload != null && !isRegexCheckAllowed(messageContext, payload)) {
+                validRequest = false;
+            } else if (payload != null) {
+                InspectionReport report = json ? inspectJson(messageContext, apiContext, payload)
+                        : inspectXml(messageContext, payload);
+                messageContext.setProperty(ThreatProtectorConstants.INSPECTION_REPORT, report);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Payload inspection of " + apiContext + " completed: " + report);
+                }
+            }
+        } catch (APIMThreatAnalyzerException e) {
+            validRequest = false;
+            logger.error(APIMgtGatewayConstants.BAD_REQUEST, e);
+            GatewayUtils.handleThreat(messageContext, ThreatProtectorConstants.HTTP_SC_CODE, e.getMessage());
+        } catch (IOException e) {
+            String message = "Error occurred while building the request: ";
+            logger.error(message, e);
+            GatewayUtils.handleThreat(messageContext, ThreatProtectorConstants.HTTP_SC_CODE,
+                    message + e.getMessage());
+        }
+        GatewayUtils.setOriginalInputStream(inputStreams, axis2MC);
+        if (validRequest) {
+            try {
+                RelayUtils.buildMessage(axis2MC);
+            } catch (IOException | XMLStreamException e) {
+                logger.error("Error occurred while parsing the payload.", e);
+                GatewayUtils.handleThreat(messageContext, APIMgtGatewayConstants.HTTP_SC_CODE, e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private InspectionReport inspectJson(MessageContext messageContext, String apiContext, InputStream payload)
+            throws APIMThreatAnalyzerException {
+        List<JSONPayloadCheck> checks = new ArrayList<>();
+        if (messageContext.getProperty(ThreatProtectorConstants.MAX_JSON_DEPTH) != null) {
+            checks.addAll(JSONPayloadInspector.createChecks(
+                    jsonSchemaValidator.configureSchemaProperties(messageContext), apiContext));
+        }
+        RegexCheck regexCheck = getRegexCheck(messageContext);
+        if (regexCheck != null) {
+            checks.add(regexCheck);
+        }
+        return new JSONPayloadInspector(checks).inspect(new BufferedInputStream(payload));
+    }
+
+    private InspectionReport inspectXml(MessageContext messageContext, InputStream payload)
+            throws APIMThreatAnalyzerException {
+        XMLConfig xmlConfig = null;
+        Object messageProperty = messageContext.getProperty(APIMgtGatewayConstants.XML_VALIDATION);
+        if (messageProperty != null && Boolean.valueOf(messageProperty.toString())) {
+            xmlConfig = xmlSchemaValidator.configureSchemaProperties(messageContext);
+        }
+        Schema schema = null;
+        messageProperty = messageContext.getProperty(APIMgtGatewayConstants.SCHEMA_VALIDATION);
+        if (messageProperty != null && Boolean.valueOf(messageProperty.toString())) {
+            schema = xmlSchemaValidator.getSchema(messageContext);
+        }
+        List<XMLPayloadCheck> checks = new ArrayList<>();
+        RegexCheck regexCheck = getRegexCheck(messageContext);
+        if (regexCheck != null) {
+            checks.add(regexCheck);
+        }
+        XMLPayloadInspector inspector = xmlConfig != null ? new XMLPayloadInspector(xmlConfig, checks, schema)
+                : new XMLPayloadInspector(xmlSchemaValidator.isDtdEnabled(messageContext), checks, schema);
+        return inspector.inspect(new BufferedInputStream(payload));
+    }
+
+    /**
+     * This method applies the tenant restriction and the payload size limit of the {@link RegularExpressionProtector}
+     * if the regular expression check of the body is configured. The threat is handled here if either fails.
+     *
+     * @return true if the payload can be inspected.
+     */
+    private boolean isRegexCheckAllowed(MessageContext messageContext, InputStream payload) throws IOException {
+        if (getRegexCheck(messageContext) == null) {
+            return true;
+        }
+        if (!RegularExpressionProtector.isTenantAllowed(messageContext)) {
+            return false;
+        }
+        // payloadSizeLimit is in KB. The payload is measured on its copy, which is held in memory.
+        Integer payloadSizeLimit = Integer.getInteger(
+                APIMgtGatewayConstants.PAYLOAD_SIZE_LIMIT_FOR_REGEX_TREAT_PROTECTOR);
+        if (payloadSizeLimit != null && payload.available() > payloadSizeLimit * 1024L) {
+            GatewayUtils.handleThreat(messageContext, APIMgtGatewayConstants.HTTP_SC_CODE, "Exceeded Request Payload " +
+                    "size limit allowed to be used with the enabledCheckBody option of Regular Expression Threat " +
+                    "Protector mediator");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * This method returns the check of the request body against the threat detection key words, or null if the
+     * key words are not given or the body check is disabled.
+     */
+    private RegexCheck getRegexCheck(MessageContext messageContext) {
+        Object messageProperty = messageContext.getProperty(APIMgtGatewayConstants.ENABLED_CHECK_BODY);
+        if (messageProperty != null && !Boolean.valueOf(messageProperty.toString())) {
+            return null;
+        }
+        messageProperty = messageContext.getProperty(APIMgtGatewayConstants.REGEX_PATTERN);
+        if (messageProperty == null) {
+            return null;
+        }
+        Object threatType = messageContext.getProperty(APIMgtGatewayConstants.THREAT_TYPE);
+        return new RegexCheck(MultiPatternMatcher.getInstance(messageProperty.toString()),
+                threatType + " " + APIMgtGatewayConstants.PAYLOAD_THREAT_MSG);
+    }
+
+    /**
+     * If the isContentAware method returns false, The request message payload wont be build.
+     *
+     * @return isContentAware method always returns false to avoid build the message.
+     */
+    @Override
+    public boolean isContentAware() {
+        return false;
+    }
+}
@@ -18,7 +18,6 @@
 
 package org.wso2.carbon.apimgt.gateway.mediators;
 
-import com.google.re2j.Pattern;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.soap.SOAPBody;
 import org.apache.axiom.soap.SOAPEnvelope;
@@ -32,6 +31,7 @@ import org.apache.synapse.mediators.AbstractMediator;
 import org.apache.synapse.rest.RESTUtils;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
 import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
+import org.wso2.carbon.apimgt.gateway.threatprotection.regex.MultiPatternMatcher;
 import org.wso2.carbon.apimgt.gateway.threatprotection.utils.ThreatProtectorConstants;
 import org.wso2.carbon.apimgt.gateway.utils.GatewayUtils;
 import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
@@ -43,6 +43,7 @@ import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import javax.xml.stream.XMLStreamException;
 
 /**
  * This mediator would protect the backend resources from the threat vulnerabilities by matching the
@@ -53,7 +54,7 @@ public class RegularExpressionProtector extends AbstractMediator {
     private static final Log logger = LogFactory.getLog(RegularExpressionProtector.class);
     private Boolean enabledCheckBody = true;
     private String threatType = null;
-    private Pattern pattern = null;
+    private MultiPatternMatcher matcher = null;
     private Boolean enabledCheckHeaders;
     private Boolean enabledCheckPathParam;
 
@@ -82,8 +83,8 @@ public class RegularExpressionProtector extends AbstractMediator {
 
         messageProperty = messageContext.getProperty(APIMgtGatewayConstants.REGEX_PATTERN);
         if (messageProperty != null) {
-            if (pattern == null) {
-                pattern = Pattern.compile(messageProperty.toString(), Pattern.CASE_INSENSITIVE);
+            if (matcher == null) {
+                matcher = MultiPatternMatcher.getInstance(messageProperty.toString());
             }
         } else {
             GatewayUtils.handleThreat(messageContext, APIMgtGatewayConstants.HTTP_SC_CODE,
@@ -121,7 +122,7 @@ public class RegularExpressionProtector extends AbstractMediator {
      *                       enabled the regexValidator message mediation in flow.
      * @return true if the tenant is allowed to use this Mediator
      */
-    private boolean isTenantAllowed(MessageContext messageContext) {
+    static boolean isTenantAllowed(MessageContext messageContext) {
         String allowedTenants = System.getProperty(APIMgtGatewayConstants.REGEX_THREAT_PROTECTOR_ENABLED_TENANTS);
         if (allowedTenants == null) {
             return true;
@@ -206,11 +207,25 @@ public class RegularExpressionProtector extends AbstractMediator {
             if (omElement == null) {
                 return false;
             }
-            String payload = omElement.toString();
-            if (pattern != null && payload != null && pattern.matcher(payload).find()) {
+            if (matcher == null) {
+                return false;
+            }
+            // The literals of the rules are searched for as the payload is serialized.
+            MultiPatternMatcher.Scanner scanner = matcher.newScanner();
+            try {
+                omElement.serialize(scanner);
+            } catch (XMLStreamException e) {
+                String message = "Error occurred while reading the request payload: ";
+                logger.error(message, e);
+                GatewayUtils.handleThreat(messageContext, ThreatProtectorConstants.HTTP_SC_CODE,
+                        message + e.getMessage());
+                return true;
+            }
+            MultiPatternMatcher.Rule rule = scanner.finish();
+            if (rule != null) {
                 if (logger.isDebugEnabled()) {
                     logger.debug(String.format("Threat detected in request payload [ %s ] by regex [ %s ]))",
-                            payload, pattern));
+                            scanner.getText(), rule));
                 }
                 GatewayUtils.handleThreat(messageContext, APIMgtGatewayConstants.HTTP_SC_CODE,
                         threatType + " " + APIMgtGatewayConstants.PAYLOAD_THREAT_MSG);
@@ -242,10 +257,11 @@ public class RegularExpressionProtector extends AbstractMediator {
                         message + e.getMessage());
                 return true;
             }
-            if (pattern != null && parameter != null && pattern.matcher(parameter).find()) {
+            MultiPatternMatcher.Rule rule = matcher != null ? matcher.match(parameter) : null;
+            if (rule != null) {
                 if (logger.isDebugEnabled()) {
                     logger.debug(String.format("Threat detected in query parameters [ %s ] by regex [ %s ]",
-                            queryParams, pattern));
+                            queryParams, rule));
                 }
                 GatewayUtils.handleThreat(messageContext, APIMgtGatewayConstants.HTTP_SC_CODE,
                         threatType + " " + APIMgtGatewayConstants.QPARAM_THREAT_MSG);
@@ -267,10 +283,12 @@ public class RegularExpressionProtector extends AbstractMediator {
                 messageContext).getAxis2MessageContext();
         if (enabledCheckHeaders) {
             Map transportHeaders = (Map) axis2MC.getProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS);
-            if (pattern != null && transportHeaders != null && pattern.matcher(transportHeaders.toString()).find()) {
+            MultiPatternMatcher.Rule rule = matcher != null && transportHeaders != null
+                    ? matcher.match(transportHeaders.toString()) : null;
+            if (rule != null) {
                 if (logger.isDebugEnabled()) {
                     logger.debug(String.format("Threat detected in Transport headers [ %s ] by regex [ %s ]",
-                            transportHeaders, pattern));
+                            transportHeaders, rule));
                 }
                 GatewayUtils.handleThreat(messageContext, APIMgtGatewayConstants.HTTP_SC_CODE,
                         threatType + " " + APIMgtGatewayConstants.HTTP_HEADER_THREAT_MSG);
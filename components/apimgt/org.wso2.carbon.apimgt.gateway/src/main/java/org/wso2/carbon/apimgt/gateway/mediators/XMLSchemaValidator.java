@@ -26,28 +26,24 @@ import org.apache.synapse.mediators.AbstractMediator;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
 import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
 import org.wso2.carbon.apimgt.gateway.threatprotection.APIMThreatAnalyzerException;
-import org.wso2.carbon.apimgt.gateway.threatprotection.AnalyzerHolder;
-import org.wso2.carbon.apimgt.gateway.threatprotection.analyzer.APIMThreatAnalyzer;
-import org.wso2.carbon.apimgt.gateway.threatprotection.configuration.ConfigurationHolder;
 import org.wso2.carbon.apimgt.gateway.threatprotection.configuration.XMLConfig;
+import org.wso2.carbon.apimgt.gateway.threatprotection.inspector.InspectionReport;
+import org.wso2.carbon.apimgt.gateway.threatprotection.inspector.XMLPayloadCheck;
+import org.wso2.carbon.apimgt.gateway.threatprotection.inspector.XMLPayloadInspector;
 import org.wso2.carbon.apimgt.gateway.threatprotection.utils.ThreatExceptionHandler;
 import org.wso2.carbon.apimgt.gateway.threatprotection.utils.ThreatProtectorConstants;
 import org.wso2.carbon.apimgt.gateway.utils.GatewayUtils;
 import org.wso2.carbon.apimgt.impl.APIConstants;
-import org.xml.sax.SAXException;
 
-import javax.xml.XMLConstants;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
-import javax.xml.validation.Validator;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This mediator would protect the backend resources from the XML threat vulnerabilities by validating the
@@ -55,6 +51,12 @@ import java.util.Map;
  */
 public class XMLSchemaValidator extends AbstractMediator {
     private static final Log logger = LogFactory.getLog(XMLSchemaValidator.class);
+    private static final long SCHEMA_REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+    // Compiled schemas by URL. They are held by the mediator, so that they are compiled again when the policy is
+    // deployed again, and are dropped periodically, so that a change of a schema at its URL is picked up.
+    private final Map<String, Schema> schemas = new ConcurrentHashMap<>();
+    private volatile long schemasClearedTime = System.currentTimeMillis();
 
     /**
      * This mediate method validates the xml request message.
@@ -67,12 +69,7 @@ public class XMLSchemaValidator extends AbstractMediator {
         if (logger.isDebugEnabled()) {
             logger.debug("XML validation mediator is activated...");
         }
-        InputStream inputStreamSchema;
-        InputStream inputStreamXml;
         Map<String, InputStream> inputStreams = null;
-        Boolean xmlValidationStatus;
-        Boolean schemaValidationStatus;
-        APIMThreatAnalyzer apimThreatAnalyzer = null;
         String apiContext;
         String requestMethod;
         String contentType;
@@ -93,24 +90,26 @@ public class XMLSchemaValidator extends AbstractMediator {
             try {
                 inputStreams = GatewayUtils.cloneRequestMessage(messageContext);
                 if (inputStreams != null) {
+                    XMLConfig xmlConfig = null;
                     Object messageProperty = messageContext.getProperty(APIMgtGatewayConstants.XML_VALIDATION);
-                    if (messageProperty != null) {
-                        xmlValidationStatus = Boolean.valueOf(messageProperty.toString());
-                        if (xmlValidationStatus.equals(true)) {
-                            XMLConfig xmlConfig = configureSchemaProperties(messageContext);
-                            ConfigurationHolder.addXmlConfig(xmlConfig);
-                            apimThreatAnalyzer = AnalyzerHolder.getAnalyzer(contentType);
-                            inputStreamXml = inputStreams.get(ThreatProtectorConstants.XML);
-                            apimThreatAnalyzer.analyze(inputStreamXml, apiContext);
-                        }
+                    if (messageProperty != null && Boolean.valueOf(messageProperty.toString())) {
+                        xmlConfig = configureSchemaProperties(messageContext);
                     }
+                    Schema schema = null;
                     messageProperty = messageContext.getProperty(APIMgtGatewayConstants.SCHEMA_VALIDATION);
-                    if (messageProperty != null) {
-                        schemaValidationStatus = Boolean.valueOf(messageProperty.toString());
-                        if (schemaValidationStatus.equals(true)) {
-                            inputStreamSchema = inputStreams.get(ThreatProtectorConstants.SCHEMA);
-                            BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStreamSchema);
-                            validateSchema(messageContext, bufferedInputStream);
+                    if (messageProperty != null && Boolean.valueOf(messageProperty.toString())) {
+                        schema = getSchema(messageContext);
+                    }
+                    // The limits are enforced and the schema is validated while the payload is parsed once.
+                    InputStream inputStreamXml = inputStreams.get(ThreatProtectorConstants.XML);
+                    if (inputStreamXml != null && (xmlConfig != null || schema != null)) {
+                        XMLPayloadInspector inspector = xmlConfig != null
+                                ? new XMLPayloadInspector(xmlConfig, Collections.<XMLPayloadCheck>emptyList(), schema)
+                                : new XMLPayloadInspector(isDtdEnabled(messageContext),
+                                Collections.<XMLPayloadCheck>emptyList(), schema);
+                        InspectionReport report = inspector.inspect(new BufferedInputStream(inputStreamXml));
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("XML validation of " + apiContext + " completed: " + report);
                         }
                     }
                 }
@@ -123,8 +122,6 @@ public class XMLSchemaValidator extends AbstractMediator {
                 logger.error(APIMgtGatewayConstants.BAD_REQUEST, e);
                 GatewayUtils.handleThreat(messageContext, ThreatProtectorConstants.HTTP_SC_CODE, e.getMessage());
             }
-            //return analyzer to the pool
-            AnalyzerHolder.returnObject(apimThreatAnalyzer);
         } else {
             if (log.isDebugEnabled()) {
                 log.debug("XML Schema Validator: " + APIMgtGatewayConstants.REQUEST_TYPE_FAIL_MSG);
@@ -254,37 +251,44 @@ public class XMLSchemaValidator extends AbstractMediator {
     }
 
     /**
-     * This method validates the request payload xml with the relevant xsd.
+     * This method returns the compiled xsd against which the request payload xml is validated. The xsd is compiled
+     * when it is first used, and again once the refresh interval has passed.
      *
-     * @param messageContext      This message context contains the request message properties of the relevant
-     *                            API which was enabled the XML_Validator message mediation in flow.
-     * @param bufferedInputStream Buffered input stream to be validated.
-     * @throws APIMThreatAnalyzerException Exception might be occurred while parsing the xml payload.
+     * @param messageContext This message context contains the request message properties of the relevant
+     *                       API which was enabled the XML_Validator message mediation in flow.
+     * @return compiled xsd, or null if the xsd url is not given.
+     * @throws APIMThreatAnalyzerException Exception might be occurred while compiling the xsd.
      */
-    private boolean validateSchema(MessageContext messageContext, BufferedInputStream bufferedInputStream)
-            throws APIMThreatAnalyzerException {
-        String xsdURL;
-        Schema schema;
-        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        try {
-            Object messageProperty = messageContext.getProperty(APIMgtGatewayConstants.XSD_URL);
-            if (messageProperty == null) {
-                return true;
-            } else {
-                if (String.valueOf(messageProperty).isEmpty()) {
-                    return true;
-                } else {
-                    xsdURL = String.valueOf(messageProperty);
-                    URL schemaFile = new URL(xsdURL);
-                    schema = schemaFactory.newSchema(schemaFile);
-                    Source xmlFile = new StreamSource(bufferedInputStream);
-                    Validator validator = schema.newValidator();
-                    validator.validate(xmlFile);
-                }
-            }
-        } catch (SAXException | IOException e) {
-            throw new APIMThreatAnalyzerException("Error occurred while parsing XML payload : " + e);
+    Schema getSchema(MessageContext messageContext) throws APIMThreatAnalyzerException {
+        Object messageProperty = messageContext.getProperty(APIMgtGatewayConstants.XSD_URL);
+        if (messageProperty == null || String.valueOf(messageProperty).isEmpty()) {
+            return null;
         }
-        return true;
+        long currentTime = System.currentTimeMillis();
+        if (currentTime - schemasClearedTime > SCHEMA_REFRESH_INTERVAL) {
+            schemasClearedTime = currentTime;
+            schemas.clear();
+        }
+        String xsdUrl = String.valueOf(messageProperty);
+        Schema schema = schemas.get(xsdUrl);
+        if (schema == null) {
+            schema = XMLPayloadInspector.compileSchema(xsdUrl);
+            schemas.put(xsdUrl, schema);
+        }
+        return schema;
+    }
+
+    /**
+     * This method returns whether a payload with a DTD is accepted when only the schema is validated. It follows the
+     * dtdEnabled property of the XML limits if it is set, and otherwise accepts DTDs as the schema validation did
+     * before the limits and the schema shared a parse.
+     *
+     * @param messageContext This message context contains the request message properties of the relevant
+     *                       API which was enabled the XML_Validator message mediation in flow.
+     * @return true if a payload with a DTD is accepted.
+     */
+    boolean isDtdEnabled(MessageContext messageContext) {
+        Object messageProperty = messageContext.getProperty(ThreatProtectorConstants.DTD_ENABLED);
+        return messageProperty == null || Boolean.valueOf(messageProperty.toString());
     }
 }
@@ -51,6 +51,19 @@ import javax.xml.stream.XMLStreamException;
 public class APIGatewayAdmin extends org.wso2.carbon.core.AbstractAdmin {
 
     private static Log log = LogFactory.getLog(APIGatewayAdmin.class);
+    private static final int ARTIFACT_LOCK_COUNT = 64;
+    // APIs are deployed concurrently at gateway startup, and artifacts such as the GA config local entry are shared
+    // by APIs, hence an artifact is checked and added under the lock of its name
+    private static final Object[] artifactLocks = new Object[ARTIFACT_LOCK_COUNT];
+    // Certificates of all the APIs are kept in the same trust stores, which are rewritten on each change, hence
+    // certificates are added and removed one at a time
+    private static final Object certificateLock = new Object();
+
+    static {
+        for (int i = 0; i < ARTIFACT_LOCK_COUNT; i++) {
+            artifactLocks[i] = new Object();
+        }
+    }
 
     /**
      * Add the API to the gateway
@@ -610,7 +623,9 @@ public class APIGatewayAdmin extends org.wso2.carbon.core.AbstractAdmin {
     public boolean addCertificate(String certificate, String alias) {
 
         CertificateManager certificateManager = CertificateManagerImpl.getInstance();
-        return certificateManager.addCertificateToGateway(certificate, alias);
+        synchronized (certificateLock) {
+            return certificateManager.addCertificateToGateway(certificate, alias);
+        }
     }
 
     /**
@@ -622,7 +637,9 @@ public class APIGatewayAdmin extends org.wso2.carbon.core.AbstractAdmin {
     public boolean addClientCertificate(String certificate, String alias) {
 
         CertificateManager certificateManager = CertificateManagerImpl.getInstance();
-        return certificateManager.addClientCertificateToGateway(certificate, alias);
+        synchronized (certificateLock) {
+            return certificateManager.addClientCertificateToGateway(certificate, alias);
+        }
     }
 
     /**
@@ -633,7 +650,9 @@ public class APIGatewayAdmin extends org.wso2.carbon.core.AbstractAdmin {
     public boolean deleteCertificate(String alias) {
 
         CertificateManager certificateManager = CertificateManagerImpl.getInstance();
-        return certificateManager.deleteCertificateFromGateway(alias);
+        synchronized (certificateLock) {
+            return certificateManager.deleteCertificateFromGateway(alias);
+        }
     }
 
     /**
@@ -644,7 +663,9 @@ public class APIGatewayAdmin extends org.wso2.carbon.core.AbstractAdmin {
     public boolean deleteClientCertificate(String alias) {
 
         CertificateManager certificateManager = CertificateManagerImpl.getInstance();
-        return certificateManager.deleteClientCertificateFromGateway(alias);
+        synchronized (certificateLock) {
+            return certificateManager.deleteClientCertificateFromGateway(alias);
+        }
     }
 
     public boolean deployAPI(GatewayAPIDTO gatewayAPIDTO) throws AxisFault {
@@ -670,13 +691,15 @@ public class APIGatewayAdmin extends org.wso2.carbon.core.AbstractAdmin {
         // Add Local Entries
         if (gatewayAPIDTO.getLocalEntriesToBeAdd() != null) {
             for (GatewayContentDTO localEntry : gatewayAPIDTO.getLocalEntriesToBeAdd()) {
-                if (localEntryServiceProxy.isEntryExists(localEntry.getName())) {
-                    if (!APIConstants.GA_CONF_KEY.equals(localEntry.getName()) && gatewayAPIDTO.isOverride()) {
-                        localEntryServiceProxy.deleteEntry(localEntry.getName());
+                synchronized (getArtifactLock(localEntry.getName())) {
+                    if (localEntryServiceProxy.isEntryExists(localEntry.getName())) {
+                        if (!APIConstants.GA_CONF_KEY.equals(localEntry.getName()) && gatewayAPIDTO.isOverride()) {
+                            localEntryServiceProxy.deleteEntry(localEntry.getName());
+                            localEntryServiceProxy.addLocalEntry(localEntry.getContent());
+                        }
+                    } else {
                         localEntryServiceProxy.addLocalEntry(localEntry.getContent());
                     }
-                } else {
-                    localEntryServiceProxy.addLocalEntry(localEntry.getContent());
                 }
             }
         }
@@ -688,13 +711,15 @@ public class APIGatewayAdmin extends org.wso2.carbon.core.AbstractAdmin {
         // Add Endpoints
         if (gatewayAPIDTO.getEndpointEntriesToBeAdd() != null) {
             for (GatewayContentDTO endpointEntry : gatewayAPIDTO.getEndpointEntriesToBeAdd()) {
-                if (endpointAdminServiceProxy.isEndpointExist(endpointEntry.getName())) {
-                    if (gatewayAPIDTO.isOverride()) {
-                        endpointAdminServiceProxy.deleteEndpoint(endpointEntry.getName());
+                synchronized (getArtifactLock(endpointEntry.getName())) {
+                    if (endpointAdminServiceProxy.isEndpointExist(endpointEntry.getName())) {
+                        if (gatewayAPIDTO.isOverride()) {
+                            endpointAdminServiceProxy.deleteEndpoint(endpointEntry.getName());
+                            endpointAdminServiceProxy.addEndpoint(endpointEntry.getContent());
+                        }
+                    } else {
                         endpointAdminServiceProxy.addEndpoint(endpointEntry.getContent());
                     }
-                } else {
-                    endpointAdminServiceProxy.addEndpoint(endpointEntry.getContent());
                 }
             }
         }
@@ -705,8 +730,10 @@ public class APIGatewayAdmin extends org.wso2.carbon.core.AbstractAdmin {
 
         // Add Client Certificates
         if (gatewayAPIDTO.getClientCertificatesToBeAdd() != null) {
-            for (GatewayContentDTO certificate : gatewayAPIDTO.getClientCertificatesToBeAdd()) {
-                certificateManager.addClientCertificateToGateway(certificate.getContent(), certificate.getName());
+            synchronized (certificateLock) {
+                for (GatewayContentDTO certificate : gatewayAPIDTO.getClientCertificatesToBeAdd()) {
+                    certificateManager.addClientCertificateToGateway(certificate.getContent(), certificate.getName());
+                }
             }
         }
         if (log.isDebugEnabled()) {
@@ -749,13 +776,15 @@ public class APIGatewayAdmin extends org.wso2.carbon.core.AbstractAdmin {
                     log.error("Exception occurred while converting String to an OM.", e);
                     throw new AxisFault(e.getMessage());
                 }
-                if (sequenceAdminServiceProxy.isExistingSequence(sequence.getName())) {
-                    if (gatewayAPIDTO.isOverride()) {
-                        sequenceAdminServiceProxy.deleteSequence(sequence.getName());
+                synchronized (getArtifactLock(sequence.getName())) {
+                    if (sequenceAdminServiceProxy.isExistingSequence(sequence.getName())) {
+                        if (gatewayAPIDTO.isOverride()) {
+                            sequenceAdminServiceProxy.deleteSequence(sequence.getName());
+                            sequenceAdminServiceProxy.addSequence(element);
+                        }
+                    } else {
                         sequenceAdminServiceProxy.addSequence(element);
                     }
-                } else {
-                    sequenceAdminServiceProxy.addSequence(element);
                 }
             }
         }
@@ -785,6 +814,12 @@ public class APIGatewayAdmin extends org.wso2.carbon.core.AbstractAdmin {
         return true;
     }
 
+    private static Object getArtifactLock(String artifactName) {
+
+        int hash = artifactName != null ? artifactName.hashCode() : 0;
+        return artifactLocks[(hash & Integer.MAX_VALUE) % ARTIFACT_LOCK_COUNT];
+    }
+
     private void unDeployAPI(CertificateManager certificateManager,
                              SequenceAdminServiceProxy sequenceAdminServiceProxy,
                              RESTAPIAdminServiceProxy restapiAdminServiceProxy,
@@ -849,8 +884,10 @@ public class APIGatewayAdmin extends org.wso2.carbon.core.AbstractAdmin {
 
         // Remove clientCertificates
         if (gatewayAPIDTO.getClientCertificatesToBeRemove() != null) {
-            for (String alias : gatewayAPIDTO.getClientCertificatesToBeRemove()) {
-                certificateManager.deleteClientCertificateFromGateway(alias);
+            synchronized (certificateLock) {
+                for (String alias : gatewayAPIDTO.getClientCertificatesToBeRemove()) {
+                    certificateManager.deleteClientCertificateFromGateway(alias);
+                }
             }
         }
         if (log.isDebugEnabled()) {
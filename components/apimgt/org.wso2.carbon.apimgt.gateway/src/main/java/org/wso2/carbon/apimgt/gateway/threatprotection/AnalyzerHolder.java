@@ -34,7 +34,11 @@ import org.wso2.carbon.apimgt.gateway.threatprotection.utils.ThreatProtectorCons
 
 /**
  * Holds the object pools for XML and JSON Analyzers
+ *
+ * @deprecated the payloads are inspected by {@link org.wso2.carbon.apimgt.gateway.threatprotection.inspector.JSONPayloadInspector}
+ * and {@link org.wso2.carbon.apimgt.gateway.threatprotection.inspector.XMLPayloadInspector}, which are not pooled
  */
+@Deprecated
 public class AnalyzerHolder {
 
     private static Logger log = LoggerFactory.getLogger(AnalyzerHolder.class);
@@ -27,7 +27,11 @@ import java.io.InputStream;
 
 /**
  * Interface for json/xml analyzers
+ *
+ * @deprecated use {@link org.wso2.carbon.apimgt.gateway.threatprotection.inspector.JSONPayloadInspector}
+ * or {@link org.wso2.carbon.apimgt.gateway.threatprotection.inspector.XMLPayloadInspector}
  */
+@Deprecated
 public interface APIMThreatAnalyzer {
 
     /**
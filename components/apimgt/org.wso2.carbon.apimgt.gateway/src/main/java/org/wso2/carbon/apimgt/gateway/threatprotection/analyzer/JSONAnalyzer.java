@@ -32,7 +32,10 @@ import java.io.InputStreamReader;
 
 /**
  * Implementation of APIMThreatAnalyzer for JSON Payloads
+ *
+ * @deprecated use {@link org.wso2.carbon.apimgt.gateway.threatprotection.inspector.JSONPayloadInspector}
  */
+@Deprecated
 public class JSONAnalyzer implements APIMThreatAnalyzer {
 
     private static final String JSON_THREAT_PROTECTION_MSG_PREFIX = "Threat Protection-JSON: ";
@@ -37,7 +37,10 @@ import java.io.Reader;
 
 /**
  * Implementation of APIMThreatAnalyzer for XML Payloads
+ *
+ * @deprecated use {@link org.wso2.carbon.apimgt.gateway.threatprotection.inspector.XMLPayloadInspector}
  */
+@Deprecated
 public class XMLAnalyzer implements APIMThreatAnalyzer {
 
     private Logger log = LoggerFactory.getLogger(XMLAnalyzer.class);
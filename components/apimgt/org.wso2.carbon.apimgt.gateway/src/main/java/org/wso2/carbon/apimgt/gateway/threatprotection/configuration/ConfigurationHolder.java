@@ -20,7 +20,11 @@ package org.wso2.carbon.apimgt.gateway.threatprotection.configuration;
 
 /**
  * Holds the threat protection configuration objects for apis
+ *
+ * @deprecated the configuration is passed to the inspectors, as a configuration held here is shared
+ * by all the apis
  */
+@Deprecated
 public class ConfigurationHolder {
 
     private static JSONConfig jsonConfig;
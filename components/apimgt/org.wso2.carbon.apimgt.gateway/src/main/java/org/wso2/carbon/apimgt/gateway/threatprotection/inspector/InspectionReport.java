@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.inspector;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent on each check while a payload was inspected. The time of a check is estimated from a sample of the
+ * tokens, so that the clock is not read around every check of every token.
+ */
+public class InspectionReport {
+
+    private final Map<String, Long> checkTimes = new LinkedHashMap<>();
+    private long tokenCount;
+    private long totalTime;
+
+    void addCheckTime(String name, long nanos) {
+
+        checkTimes.merge(name, nanos, Long::sum);
+    }
+
+    void setTokenCount(long tokenCount) {
+
+        this.tokenCount = tokenCount;
+    }
+
+    void setTotalTime(long totalTime) {
+
+        this.totalTime = totalTime;
+    }
+
+    /**
+     * @return time spent on each check in nanoseconds, by the name of the check
+     */
+    public Map<String, Long> getCheckTimes() {
+
+        return Collections.unmodifiableMap(checkTimes);
+    }
+
+    /**
+     * @return number of tokens or events read from the payload
+     */
+    public long getTokenCount() {
+
+        return tokenCount;
+    }
+
+    /**
+     * @return time spent on inspecting the payload in nanoseconds
+     */
+    public long getTotalTime() {
+
+        return totalTime;
+    }
+
+    /**
+     * @return time spent on reading the payload in nanoseconds, which is the time not spent on any check
+     */
+    public long getReadTime() {
+
+        long checkTime = 0;
+        for (long time : checkTimes.values()) {
+            checkTime += time;
+        }
+        return Math.max(0, totalTime - checkTime);
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("tokens=").append(tokenCount)
+                .append(", total=").append(TimeUnit.NANOSECONDS.toMicros(totalTime)).append("us")
+                .append(", read=").append(TimeUnit.NANOSECONDS.toMicros(getReadTime())).append("us");
+        for (Map.Entry<String, Long> entry : checkTimes.entrySet()) {
+            builder.append(", ").append(entry.getKey()).append('=')
+                    .append(TimeUnit.NANOSECONDS.toMicros(entry.getValue())).append("us");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.inspector;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.wso2.carbon.apimgt.gateway.threatprotection.APIMThreatAnalyzerException;
+
+/**
+ * Checks the number of elements in each array of a JSON payload. The element count of each open array is kept on a
+ * stack, so that the elements of nested arrays and objects are counted against the array they are in.
+ */
+public class JSONArrayElementCheck implements JSONPayloadCheck {
+
+    private static final int NOT_AN_ARRAY = -1;
+
+    private final int maxArrayElementCount;
+    private int[] elementCounts = new int[16];
+    private int openContainers;
+
+    public JSONArrayElementCheck(int maxArrayElementCount) {
+
+        this.maxArrayElementCount = maxArrayElementCount;
+    }
+
+    @Override
+    public String getName() {
+
+        return "arrayElementCount";
+    }
+
+    @Override
+    public void check(JsonToken token, JsonParser parser) throws APIMThreatAnalyzerException {
+
+        switch (token) {
+            case FIELD_NAME:
+                return;
+            case END_ARRAY:
+            case END_OBJECT:
+                openContainers--;
+                return;
+            default:
+                if (openContainers > 0 && elementCounts[openContainers - 1] != NOT_AN_ARRAY
+                        && ++elementCounts[openContainers - 1] > maxArrayElementCount) {
+                    throw new APIMThreatAnalyzerException(" Max Array Length [" + maxArrayElementCount + "] Reached");
+                }
+                if (token == JsonToken.START_ARRAY) {
+                    push(0);
+                } else if (token == JsonToken.START_OBJECT) {
+                    push(NOT_AN_ARRAY);
+                }
+        }
+    }
+
+    private void push(int elementCount) {
+
+        if (openContainers == elementCounts.length) {
+            int[] grown = new int[elementCounts.length * 2];
+            System.arraycopy(elementCounts, 0, grown, 0, elementCounts.length);
+            elementCounts = grown;
+        }
+        elementCounts[openContainers++] = elementCount;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.inspector;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.wso2.carbon.apimgt.gateway.threatprotection.APIMThreatAnalyzerException;
+
+/**
+ * Checks that objects in a JSON payload are not nested deeper than the maximum depth.
+ */
+public class JSONDepthCheck implements JSONPayloadCheck {
+
+    private static final String JSON_THREAT_PROTECTION_MSG_PREFIX = "Threat Protection-JSON: ";
+
+    private final int maxDepth;
+    private final String apiContext;
+    private int currentDepth;
+
+    public JSONDepthCheck(int maxDepth, String apiContext) {
+
+        this.maxDepth = maxDepth;
+        this.apiContext = apiContext;
+    }
+
+    @Override
+    public String getName() {
+
+        return "depth";
+    }
+
+    @Override
+    public void check(JsonToken token, JsonParser parser) throws APIMThreatAnalyzerException {
+
+        if (token == JsonToken.START_OBJECT) {
+            if (++currentDepth > maxDepth) {
+                throw new APIMThreatAnalyzerException(JSON_THREAT_PROTECTION_MSG_PREFIX
+                        + apiContext + " - Depth Limit [" + maxDepth + "] Reached");
+            }
+        } else if (token == JsonToken.END_OBJECT) {
+            currentDepth--;
+        }
+    }
+}
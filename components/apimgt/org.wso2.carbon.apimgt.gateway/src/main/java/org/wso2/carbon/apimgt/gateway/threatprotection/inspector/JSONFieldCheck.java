@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.inspector;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.wso2.carbon.apimgt.gateway.threatprotection.APIMThreatAnalyzerException;
+
+import java.io.IOException;
+
+/**
+ * Checks the number of fields in a JSON payload, and the length of each field name.
+ */
+public class JSONFieldCheck implements JSONPayloadCheck {
+
+    private final int maxFieldCount;
+    private final int maxFieldLength;
+    private int currentFieldCount;
+
+    public JSONFieldCheck(int maxFieldCount, int maxFieldLength) {
+
+        this.maxFieldCount = maxFieldCount;
+        this.maxFieldLength = maxFieldLength;
+    }
+
+    @Override
+    public String getName() {
+
+        return "fieldCount";
+    }
+
+    @Override
+    public void check(JsonToken token, JsonParser parser) throws APIMThreatAnalyzerException, IOException {
+
+        if (token == JsonToken.FIELD_NAME) {
+            currentFieldCount++;
+            if (parser.getCurrentName().length() > maxFieldLength) {
+                throw new APIMThreatAnalyzerException(" Max Key Length [" + maxFieldLength + "] Reached");
+            }
+            if (currentFieldCount > maxFieldCount) {
+                throw new APIMThreatAnalyzerException("Max Property Count [" + maxFieldCount + "] Reached");
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.inspector;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.wso2.carbon.apimgt.gateway.threatprotection.APIMThreatAnalyzerException;
+
+import java.io.IOException;
+
+/**
+ * Check which is run over each token of a JSON payload, as the payload is read by {@link JSONPayloadInspector}.
+ * A check is created for one payload, hence it may keep the state of the tokens it has seen.
+ */
+public interface JSONPayloadCheck {
+
+    /**
+     * @return name of the check, under which its time is reported
+     */
+    String getName();
+
+    /**
+     * Checks the current token of the payload.
+     *
+     * @param token  current token
+     * @param parser parser positioned at the token
+     * @throws APIMThreatAnalyzerException if the payload fails the check
+     * @throws IOException                 if the text of the token could not be read
+     */
+    void check(JsonToken token, JsonParser parser) throws APIMThreatAnalyzerException, IOException;
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.inspector;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.wso2.carbon.apimgt.gateway.threatprotection.APIMThreatAnalyzerException;
+import org.wso2.carbon.apimgt.gateway.threatprotection.configuration.JSONConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a JSON payload once, and runs each of the checks over every token as it is read, so that the payload is
+ * tokenized once for all of them.
+ */
+public class JSONPayloadInspector {
+
+    /**
+     * Checks are timed on one in this many tokens.
+     */
+    static final int TIMING_SAMPLE_INTERVAL = 32;
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private final JSONPayloadCheck[] checks;
+
+    /**
+     * @param checks checks to be run over the payload, which are used for one payload only
+     */
+    public JSONPayloadInspector(List<JSONPayloadCheck> checks) {
+
+        this.checks = checks.toArray(new JSONPayloadCheck[0]);
+    }
+
+    /**
+     * Creates the checks for the limits of a JSON threat protection policy.
+     *
+     * @param config     limits of the policy
+     * @param apiContext context of the API, which is given in the message of the depth check
+     * @return depth, field, string length and array element checks
+     */
+    public static List<JSONPayloadCheck> createChecks(JSONConfig config, String apiContext) {
+
+        List<JSONPayloadCheck> checks = new ArrayList<>();
+        checks.add(new JSONDepthCheck(config.getMaxJsonDepth(), apiContext));
+        checks.add(new JSONFieldCheck(config.getMaxPropertyCount(), config.getMaxKeyLength()));
+        checks.add(new JSONStringLengthCheck(config.getMaxStringLength()));
+        checks.add(new JSONArrayElementCheck(config.getMaxArrayElementCount()));
+        return checks;
+    }
+
+    /**
+     * Inspects the payload, failing on the first check which fails.
+     *
+     * @param in input stream of the payload
+     * @return time spent on each check
+     * @throws APIMThreatAnalyzerException if the payload fails a check, or could not be parsed
+     */
+    public InspectionReport inspect(InputStream in) throws APIMThreatAnalyzerException {
+
+        long startTime = System.nanoTime();
+        long[] sampledTimes = new long[checks.length];
+        long tokenCount = 0;
+        long sampledCount = 0;
+        try (JsonParser parser = factory.createParser(in)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (tokenCount++ % TIMING_SAMPLE_INTERVAL == 0) {
+                    sampledCount++;
+                    for (int i = 0; i < checks.length; i++) {
+                        long checkStartTime = System.nanoTime();
+                        checks[i].check(token, parser);
+                        sampledTimes[i] += System.nanoTime() - checkStartTime;
+                    }
+                } else {
+                    for (JSONPayloadCheck check : checks) {
+                        check.check(token, parser);
+                    }
+                }
+            }
+        } catch (JsonParseException e) {
+            throw new APIMThreatAnalyzerException("Error occurred while parsing the JSON payload", e);
+        } catch (IOException e) {
+            throw new APIMThreatAnalyzerException("Error occurred while reading the JSON payload.", e);
+        }
+        InspectionReport report = new InspectionReport();
+        for (int i = 0; i < checks.length; i++) {
+            report.addCheckTime(checks[i].getName(), sampledCount == 0 ? 0 : sampledTimes[i] * tokenCount
+                    / sampledCount);
+        }
+        report.setTokenCount(tokenCount);
+        report.setTotalTime(System.nanoTime() - startTime);
+        return report;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.inspector;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.wso2.carbon.apimgt.gateway.threatprotection.APIMThreatAnalyzerException;
+
+import java.io.IOException;
+
+/**
+ * Checks the length of the string values in a JSON payload. The length is read from the parser, so that the value
+ * is not copied into a string.
+ */
+public class JSONStringLengthCheck implements JSONPayloadCheck {
+
+    private final int maxStringLength;
+
+    public JSONStringLengthCheck(int maxStringLength) {
+
+        this.maxStringLength = maxStringLength;
+    }
+
+    @Override
+    public String getName() {
+
+        return "stringLength";
+    }
+
+    @Override
+    public void check(JsonToken token, JsonParser parser) throws APIMThreatAnalyzerException, IOException {
+
+        if (token == JsonToken.VALUE_STRING && parser.getTextLength() > maxStringLength) {
+            throw new APIMThreatAnalyzerException("Max String Length [" + maxStringLength + "] Reached");
+        }
+    }
+}
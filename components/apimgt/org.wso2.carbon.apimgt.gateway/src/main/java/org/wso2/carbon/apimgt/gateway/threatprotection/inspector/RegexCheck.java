@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.inspector;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.wso2.carbon.apimgt.gateway.threatprotection.APIMThreatAnalyzerException;
+import org.wso2.carbon.apimgt.gateway.threatprotection.regex.MultiPatternMatcher;
+
+import java.io.IOException;
+import java.util.Iterator;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * Matches threat detection key words against the names and the text values of a payload, as they are read, instead
+ * of against the serialized payload. In a JSON payload these are the field names and the string values, and in a XML
+ * payload the element names, the attribute values and the character data.
+ */
+public class RegexCheck implements JSONPayloadCheck, XMLPayloadCheck {
+
+    private final MultiPatternMatcher matcher;
+    private final String threatMessage;
+
+    /**
+     * @param matcher       matcher of the threat detection key words
+     * @param threatMessage message of the error thrown when the key words match
+     */
+    public RegexCheck(MultiPatternMatcher matcher, String threatMessage) {
+
+        this.matcher = matcher;
+        this.threatMessage = threatMessage;
+    }
+
+    @Override
+    public String getName() {
+
+        return "regex";
+    }
+
+    @Override
+    public void check(JsonToken token, JsonParser parser) throws APIMThreatAnalyzerException, IOException {
+
+        if (token == JsonToken.FIELD_NAME || token == JsonToken.VALUE_STRING) {
+            match(parser.getText());
+        }
+    }
+
+    @Override
+    public void check(XMLEvent event) throws APIMThreatAnalyzerException {
+
+        if (event.isStartElement()) {
+            StartElement element = event.asStartElement();
+            match(element.getName().getLocalPart());
+            Iterator attributes = element.getAttributes();
+            while (attributes.hasNext()) {
+                Attribute attribute = (Attribute) attributes.next();
+                match(attribute.getName().getLocalPart());
+                match(attribute.getValue());
+            }
+        } else if (event.isCharacters() && !event.asCharacters().isWhiteSpace()) {
+            match(event.asCharacters().getData());
+        }
+    }
+
+    private void match(String text) throws APIMThreatAnalyzerException {
+
+        if (text != null && matcher.match(text) != null) {
+            throw new APIMThreatAnalyzerException(threatMessage);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.inspector;
+
+import org.wso2.carbon.apimgt.gateway.threatprotection.APIMThreatAnalyzerException;
+
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * Check which is run over each event of a XML payload, as the payload is read by {@link XMLPayloadInspector}.
+ * A check is created for one payload, hence it may keep the state of the events it has seen.
+ */
+public interface XMLPayloadCheck {
+
+    /**
+     * @return name of the check, under which its time is reported
+     */
+    String getName();
+
+    /**
+     * Checks the current event of the payload.
+     *
+     * @param event current event
+     * @throws APIMThreatAnalyzerException if the payload fails the check
+     */
+    void check(XMLEvent event) throws APIMThreatAnalyzerException;
+}
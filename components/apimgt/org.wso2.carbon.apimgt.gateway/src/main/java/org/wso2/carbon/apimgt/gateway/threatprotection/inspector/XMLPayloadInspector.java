@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.inspector;
+
+import com.ctc.wstx.stax.WstxInputFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.apimgt.gateway.threatprotection.APIMThreatAnalyzerException;
+import org.wso2.carbon.apimgt.gateway.threatprotection.configuration.XMLConfig;
+import org.wso2.carbon.apimgt.gateway.threatprotection.utils.ThreatProtectorConstants;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.util.EventReaderDelegate;
+import javax.xml.transform.stax.StAXSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+/**
+ * Reads a XML payload once, and runs each of the checks over every event as it is read. When a schema is given, the
+ * payload is validated against it as it is read for the checks, so that the payload is parsed once for all of them.
+ *
+ * The structural limits of {@link XMLConfig} are enforced by the parser. Parser factories are kept for each
+ * configuration, since they are safe to share between threads. Compiled schemas are not kept here, as they have to be
+ * compiled again when the schema or the policy which refers to it changes.
+ */
+public class XMLPayloadInspector {
+
+    private static final Log log = LogFactory.getLog(XMLPayloadInspector.class);
+
+    private static final String DEFAULT_FACTORY_KEY = "default:";
+    private static final Map<String, XMLInputFactory> factories = new ConcurrentHashMap<>();
+
+    private final XMLInputFactory factory;
+    private final XMLPayloadCheck[] checks;
+    private final Schema schema;
+
+    /**
+     * @param config limits enforced by the parser, or null to parse without limits, as
+     *               {@link #XMLPayloadInspector(boolean, List, Schema)} does with DTDs enabled
+     * @param checks checks to be run over the payload, which are used for one payload only
+     * @param schema schema against which the payload is validated, or null to not validate the payload
+     */
+    public XMLPayloadInspector(XMLConfig config, List<XMLPayloadCheck> checks, Schema schema) {
+
+        this.factory = config == null ? getDefaultFactory(true) : getFactory(config);
+        this.checks = checks.toArray(new XMLPayloadCheck[0]);
+        this.schema = schema;
+    }
+
+    /**
+     * Creates an inspector which parses without the limits of {@link XMLConfig}. External entities are not resolved.
+     *
+     * @param dtdEnabled whether a payload with a DTD is accepted
+     * @param checks     checks to be run over the payload, which are used for one payload only
+     * @param schema     schema against which the payload is validated, or null to not validate the payload
+     */
+    public XMLPayloadInspector(boolean dtdEnabled, List<XMLPayloadCheck> checks, Schema schema) {
+
+        this.factory = getDefaultFactory(dtdEnabled);
+        this.checks = checks.toArray(new XMLPayloadCheck[0]);
+        this.schema = schema;
+    }
+
+    /**
+     * Compiles the schema at the given URL.
+     *
+     * @param xsdUrl URL of the schema
+     * @return compiled schema, which is safe to share between threads
+     * @throws APIMThreatAnalyzerException if the schema could not be read or compiled
+     */
+    public static Schema compileSchema(String xsdUrl) throws APIMThreatAnalyzerException {
+
+        try {
+            SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            return schemaFactory.newSchema(new URL(xsdUrl));
+        } catch (SAXException | IOException e) {
+            throw new APIMThreatAnalyzerException("Error occurred while compiling the XSD schema " + xsdUrl, e);
+        }
+    }
+
+    private static XMLInputFactory getDefaultFactory(boolean dtdEnabled) {
+
+        return factories.computeIfAbsent(DEFAULT_FACTORY_KEY + dtdEnabled, key -> {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, dtdEnabled);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            return factory;
+        });
+    }
+
+    private static XMLInputFactory getFactory(XMLConfig config) {
+
+        String key = config.isDtdEnabled() + ":" + config.isExternalEntitiesEnabled() + ":" + config.getMaxDepth()
+                + ":" + config.getMaxElementCount() + ":" + config.getMaxAttributeCount() + ":"
+                + config.getMaxAttributeLength() + ":" + config.getMaxChildrenPerElement();
+        return factories.computeIfAbsent(key, k -> {
+            XMLInputFactory factory = WstxInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, config.isDtdEnabled());
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, config.isExternalEntitiesEnabled());
+            factory.setProperty(ThreatProtectorConstants.P_MAX_ATTRIBUTE_SIZE, config.getMaxAttributeLength());
+            factory.setProperty(ThreatProtectorConstants.P_MAX_ATTRIBUTES_PER_ELEMENT, config.getMaxAttributeCount());
+            factory.setProperty(ThreatProtectorConstants.P_MAX_ELEMENT_DEPTH, config.getMaxDepth());
+            factory.setProperty(ThreatProtectorConstants.P_MAX_CHILDREN_PER_ELEMENT, config.getMaxChildrenPerElement());
+            factory.setProperty(ThreatProtectorConstants.P_MAX_ELEMENT_COUNT, config.getMaxElementCount());
+            return factory;
+        });
+    }
+
+    /**
+     * Inspects the payload, failing on the first check which fails.
+     *
+     * @param in input stream of the payload
+     * @return time spent on each check. The time of the schema validation includes reading the payload, since the
+     * validator drives the reading.
+     * @throws APIMThreatAnalyzerException if the payload fails a check, a limit or the schema, or could not be parsed
+     */
+    public InspectionReport inspect(InputStream in) throws APIMThreatAnalyzerException {
+
+        long startTime = System.nanoTime();
+        CheckingEventReader reader = null;
+        try {
+            reader = new CheckingEventReader(factory.createXMLEventReader(in));
+            if (schema != null) {
+                schema.newValidator().validate(new StAXSource(reader));
+            } else {
+                while (reader.hasNext()) {
+                    reader.nextEvent();
+                }
+            }
+        } catch (CheckFailedException e) {
+            throw e.getFailure();
+        } catch (XMLStreamException e) {
+            throw new APIMThreatAnalyzerException("XML Validation Failed: due to " + e.getMessage());
+        } catch (SAXException | IOException e) {
+            throw new APIMThreatAnalyzerException("Error occurred while parsing XML payload : " + e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    log.warn("Failed to close XMLEventReader", e);
+                }
+            }
+        }
+        long totalTime = System.nanoTime() - startTime;
+        InspectionReport report = new InspectionReport();
+        long checkTime = 0;
+        for (int i = 0; i < checks.length; i++) {
+            long time = reader.sampledCount == 0 ? 0 : reader.sampledTimes[i] * reader.eventCount
+                    / reader.sampledCount;
+            report.addCheckTime(checks[i].getName(), time);
+            checkTime += time;
+        }
+        if (schema != null) {
+            report.addCheckTime("schema", Math.max(0, totalTime - checkTime));
+        }
+        report.setTokenCount(reader.eventCount);
+        report.setTotalTime(totalTime);
+        return report;
+    }
+
+    /**
+     * Event reader which runs the checks over each event it returns. A failed check is thrown as a
+     * {@link CheckFailedException}, as the reader is called by the validator through methods which only throw
+     * {@link XMLStreamException}.
+     */
+    private class CheckingEventReader extends EventReaderDelegate {
+
+        private final long[] sampledTimes = new long[checks.length];
+        private long eventCount;
+        private long sampledCount;
+
+        CheckingEventReader(XMLEventReader reader) {
+
+            super(reader);
+        }
+
+        @Override
+        public XMLEvent nextEvent() throws XMLStreamException {
+
+            XMLEvent event = super.nextEvent();
+            try {
+                if (eventCount++ % JSONPayloadInspector.TIMING_SAMPLE_INTERVAL == 0) {
+                    sampledCount++;
+                    for (int i = 0; i < checks.length; i++) {
+                        long checkStartTime = System.nanoTime();
+                        checks[i].check(event);
+                        sampledTimes[i] += System.nanoTime() - checkStartTime;
+                    }
+                } else {
+                    for (XMLPayloadCheck check : checks) {
+                        check.check(event);
+                    }
+                }
+            } catch (APIMThreatAnalyzerException e) {
+                throw new CheckFailedException(e);
+            }
+            return event;
+        }
+
+        @Override
+        public Object next() {
+
+            try {
+                return nextEvent();
+            } catch (XMLStreamException e) {
+                NoSuchElementException exception = new NoSuchElementException(e.getMessage());
+                exception.initCause(e);
+                throw exception;
+            }
+        }
+    }
+
+    private static class CheckFailedException extends RuntimeException {
+
+        CheckFailedException(APIMThreatAnalyzerException failure) {
+
+            super(failure);
+        }
+
+        APIMThreatAnalyzerException getFailure() {
+
+            return (APIMThreatAnalyzerException) getCause();
+        }
+    }
+}
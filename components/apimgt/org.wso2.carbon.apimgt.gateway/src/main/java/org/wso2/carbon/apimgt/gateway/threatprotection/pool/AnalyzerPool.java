@@ -26,7 +26,9 @@ import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
  * Pool class for threat analyzer objects
  *
  * @param <T> Type of the pooled object
+ * @deprecated the inspectors which replace the analyzers are not pooled
  */
+@Deprecated
 public class AnalyzerPool<T> extends GenericObjectPool<T> {
 
     public AnalyzerPool(PooledObjectFactory<T> factory) {
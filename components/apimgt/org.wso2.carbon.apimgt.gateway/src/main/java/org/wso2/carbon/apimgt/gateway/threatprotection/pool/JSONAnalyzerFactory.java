@@ -25,7 +25,10 @@ import org.wso2.carbon.apimgt.gateway.threatprotection.analyzer.JSONAnalyzer;
 
 /**
  * JSONThreatAnalyzer Factory Class for used in {@link AnalyzerPool}
+ *
+ * @deprecated the inspectors which replace the analyzers are not pooled
  */
+@Deprecated
 public class JSONAnalyzerFactory extends BasePooledObjectFactory<JSONAnalyzer> {
 
     public JSONAnalyzer create() throws Exception {
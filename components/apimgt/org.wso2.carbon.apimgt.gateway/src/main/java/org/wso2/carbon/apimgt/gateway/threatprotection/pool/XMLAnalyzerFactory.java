@@ -25,7 +25,10 @@ import org.wso2.carbon.apimgt.gateway.threatprotection.analyzer.XMLAnalyzer;
 
 /**
  * XMLThreatAnalyzer factory class for used in {@link AnalyzerPool}
+ *
+ * @deprecated the inspectors which replace the analyzers are not pooled
  */
+@Deprecated
 public class XMLAnalyzerFactory extends BasePooledObjectFactory<XMLAnalyzer> {
 
     public XMLAnalyzer create() throws Exception {
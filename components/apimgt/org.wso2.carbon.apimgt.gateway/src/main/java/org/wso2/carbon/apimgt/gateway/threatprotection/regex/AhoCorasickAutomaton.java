@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Automaton which finds all of a set of ASCII literals in a text in one pass, matching them case insensitively.
+ *
+ * The transitions are kept as a table of states by character class, where the characters which are in none of the
+ * literals share one class which leads back to the start. Each step is hence one lookup, whatever the number of
+ * literals is.
+ */
+final class AhoCorasickAutomaton {
+
+    static final int START = 0;
+
+    private final byte[] charClasses = new byte[128];
+    private final int classCount;
+    private final int[] transitions;
+    private final int[][] outputs;
+
+    /**
+     * @param literals lower case ASCII literals, which are identified by their index
+     */
+    AhoCorasickAutomaton(List<String> literals) {
+
+        int classes = 1;
+        for (String literal : literals) {
+            for (int i = 0; i < literal.length(); i++) {
+                char c = literal.charAt(i);
+                if (charClasses[c] == 0) {
+                    // There are fewer than 128 classes, as upper and lower case letters share them.
+                    charClasses[c] = (byte) classes;
+                    charClasses[Character.toUpperCase(c)] = (byte) classes;
+                    classes++;
+                }
+            }
+        }
+        this.classCount = classes;
+
+        List<int[]> gotoTable = new ArrayList<>();
+        List<int[]> nodeOutputs = new ArrayList<>();
+        gotoTable.add(newRow());
+        nodeOutputs.add(null);
+        for (int index = 0; index < literals.size(); index++) {
+            String literal = literals.get(index);
+            int state = START;
+            for (int i = 0; i < literal.length(); i++) {
+                int charClass = charClasses[literal.charAt(i)];
+                int next = gotoTable.get(state)[charClass];
+                if (next < 0) {
+                    next = gotoTable.size();
+                    gotoTable.get(state)[charClass] = next;
+                    gotoTable.add(newRow());
+                    nodeOutputs.add(null);
+                }
+                state = next;
+            }
+            nodeOutputs.set(state, append(nodeOutputs.get(state), new int[]{index}));
+        }
+
+        // Completes the transitions with those of the failure states, breadth first, so that matching never has to
+        // follow failure links, and adds the outputs of the failure state to each state.
+        int[] failures = new int[gotoTable.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        int[] startRow = gotoTable.get(START);
+        for (int charClass = 0; charClass < classCount; charClass++) {
+            if (startRow[charClass] < 0) {
+                startRow[charClass] = START;
+            } else {
+                queue.add(startRow[charClass]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] row = gotoTable.get(state);
+            int[] failureRow = gotoTable.get(failures[state]);
+            for (int charClass = 1; charClass < classCount; charClass++) {
+                int next = row[charClass];
+                if (next < 0) {
+                    row[charClass] = failureRow[charClass];
+                } else {
+                    failures[next] = failureRow[charClass];
+                    nodeOutputs.set(next, append(nodeOutputs.get(next), nodeOutputs.get(failures[next])));
+                    queue.add(next);
+                }
+            }
+            row[0] = START;
+        }
+
+        this.transitions = new int[gotoTable.size() * classCount];
+        for (int state = 0; state < gotoTable.size(); state++) {
+            System.arraycopy(gotoTable.get(state), 0, transitions, state * classCount, classCount);
+        }
+        this.outputs = nodeOutputs.toArray(new int[0][]);
+    }
+
+    private int[] newRow() {
+
+        int[] row = new int[classCount];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static int[] append(int[] first, int[] second) {
+
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        int[] merged = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, merged, first.length, second.length);
+        return merged;
+    }
+
+    /**
+     * @param state current state
+     * @param c     next character of the text
+     * @return the state after the character
+     */
+    int next(int state, char c) {
+
+        int charClass;
+        if (c < 128) {
+            charClass = charClasses[c];
+        } else {
+            // Characters such as the Kelvin sign match ASCII letters when the case is ignored.
+            char folded = Character.toLowerCase(Character.toUpperCase(c));
+            charClass = folded < 128 ? charClasses[folded] : 0;
+        }
+        return transitions[state * classCount + charClass];
+    }
+
+    /**
+     * @param state current state
+     * @return indexes of the literals which end at the state, or null if there are none
+     */
+    int[] outputs(int state) {
+
+        return outputs[state];
+    }
+
+    int getStateCount() {
+
+        return outputs.length;
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.regex;
+
+import com.google.re2j.Pattern;
+import com.google.re2j.PatternSyntaxException;
+import org.wso2.carbon.apimgt.impl.utils.TinyLFUCache;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Matches a text against a regular expression of threat detection key words, such as a large alternation of SQL
+ * injection rules, case insensitively.
+ *
+ * The expression is split into one rule for each alternative at its top level. The literal which a rule requires in
+ * any match is found in the rule, and all of the literals are searched for in one pass over the text with an
+ * Aho-Corasick automaton. Only the rules whose literal was found, and the rules without a literal, are then matched
+ * with their regular expressions. A text matches when any of the rules matches it, as it would match the whole
+ * expression.
+ *
+ * Matchers are compiled once for each expression and shared, and count the matches of each rule.
+ */
+public final class MultiPatternMatcher {
+
+    private static final int MAX_CACHED_MATCHERS = 100;
+    private static final Map<String, MultiPatternMatcher> matchers = new TinyLFUCache<>(MAX_CACHED_MATCHERS);
+
+    private final String regex;
+    private final Rule[] rules;
+    private final int[] filteredRules;
+    private final int[] unfilteredRules;
+    private final Pattern unfilteredPattern;
+    private final AhoCorasickAutomaton automaton;
+
+    MultiPatternMatcher(String regex) {
+
+        this.regex = regex;
+        Rule[] compiledRules;
+        try {
+            List<String> alternatives = RegexRuleParser.split(regex);
+            compiledRules = new Rule[alternatives.size()];
+            for (int i = 0; i < compiledRules.length; i++) {
+                compiledRules[i] = new Rule(alternatives.get(i));
+            }
+        } catch (PatternSyntaxException e) {
+            // An alternative which is not valid by itself, such as one with a group split by the parser, falls back
+            // to the whole expression, which fails the same way as it did before if it is not valid either.
+            compiledRules = new Rule[]{new Rule(regex)};
+        }
+        this.rules = compiledRules;
+
+        List<String> literals = new ArrayList<>();
+        List<Integer> filtered = new ArrayList<>();
+        List<Integer> unfiltered = new ArrayList<>();
+        StringBuilder unfilteredRegex = new StringBuilder();
+        for (int i = 0; i < rules.length; i++) {
+            String literal = RegexRuleParser.requiredLiteral(rules[i].expression);
+            if (literal != null) {
+                literals.add(literal);
+                filtered.add(i);
+            } else {
+                if (unfilteredRegex.length() > 0) {
+                    unfilteredRegex.append('|');
+                }
+                unfilteredRegex.append("(?:").append(rules[i].expression).append(')');
+                unfiltered.add(i);
+            }
+        }
+        this.filteredRules = toArray(filtered);
+        this.unfilteredRules = toArray(unfiltered);
+        this.automaton = new AhoCorasickAutomaton(literals);
+        this.unfilteredPattern = unfiltered.isEmpty() ? null
+                : Pattern.compile(unfilteredRegex.toString(), Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * Returns the matcher of the expression, which is compiled when the expression is first used.
+     *
+     * @param regex regular expression of the threat detection key words
+     * @return shared matcher of the expression
+     * @throws PatternSyntaxException if the expression is not valid
+     */
+    public static MultiPatternMatcher getInstance(String regex) {
+
+        MultiPatternMatcher matcher = matchers.get(regex);
+        if (matcher == null) {
+            matcher = new MultiPatternMatcher(regex);
+            matchers.put(regex, matcher);
+        }
+        return matcher;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Matches the text against the rules.
+     *
+     * @param text text to be matched
+     * @return a rule which matched the text, or null if none of them matched
+     */
+    public Rule match(CharSequence text) {
+
+        if (text == null) {
+            return null;
+        }
+        boolean[] candidates = new boolean[filteredRules.length];
+        int state = AhoCorasickAutomaton.START;
+        for (int i = 0; i < text.length(); i++) {
+            state = automaton.next(state, text.charAt(i));
+            markCandidates(state, candidates);
+        }
+        return confirm(candidates, text);
+    }
+
+    /**
+     * Creates a scanner to which a text can be written in parts, such as a payload as it is serialized. The literals
+     * are searched for as the text is written.
+     *
+     * @return new scanner, which is used for one text only
+     */
+    public Scanner newScanner() {
+
+        return new Scanner();
+    }
+
+    private void markCandidates(int state, boolean[] candidates) {
+
+        int[] literals = automaton.outputs(state);
+        if (literals != null) {
+            for (int literal : literals) {
+                candidates[literal] = true;
+            }
+        }
+    }
+
+    private Rule confirm(boolean[] candidates, CharSequence text) {
+
+        for (int i = 0; i < candidates.length; i++) {
+            if (candidates[i]) {
+                Rule rule = rules[filteredRules[i]];
+                if (rule.pattern.matcher(text).find()) {
+                    rule.hits.increment();
+                    return rule;
+                }
+            }
+        }
+        if (unfilteredPattern != null && unfilteredPattern.matcher(text).find()) {
+            for (int index : unfilteredRules) {
+                Rule rule = rules[index];
+                if (rule.pattern.matcher(text).find()) {
+                    rule.hits.increment();
+                    return rule;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the expression the matcher was compiled from
+     */
+    public String getRegex() {
+
+        return regex;
+    }
+
+    /**
+     * @return rules of the expression, in the order they appear in it
+     */
+    public List<Rule> getRules() {
+
+        List<Rule> ruleList = new ArrayList<>(rules.length);
+        Collections.addAll(ruleList, rules);
+        return ruleList;
+    }
+
+    /**
+     * @return number of matches of each rule, by the expression of the rule
+     */
+    public Map<String, Long> getHitCounts() {
+
+        Map<String, Long> hitCounts = new LinkedHashMap<>();
+        for (Rule rule : rules) {
+            hitCounts.merge(rule.expression, rule.hits.sum(), Long::sum);
+        }
+        return hitCounts;
+    }
+
+    /**
+     * @return number of rules which are matched only when their literal is found in the text
+     */
+    public int getFilteredRuleCount() {
+
+        return filteredRules.length;
+    }
+
+    /**
+     * One alternative of the expression.
+     */
+    public static final class Rule {
+
+        private final String expression;
+        private final Pattern pattern;
+        private final LongAdder hits = new LongAdder();
+
+        private Rule(String expression) {
+
+            this.expression = expression;
+            this.pattern = Pattern.compile(expression, Pattern.CASE_INSENSITIVE);
+        }
+
+        public String getExpression() {
+
+            return expression;
+        }
+
+        /**
+         * @return number of texts matched by the rule. A text is counted against the one rule it was reported for.
+         */
+        public long getHitCount() {
+
+            return hits.sum();
+        }
+
+        @Override
+        public String toString() {
+
+            return expression;
+        }
+    }
+
+    /**
+     * Writer which searches for the literals of the rules in the text written to it, and keeps the text for the rules
+     * to be matched against once the whole text is written.
+     */
+    public final class Scanner extends Writer {
+
+        private final StringBuilder text = new StringBuilder();
+        private final boolean[] candidates = new boolean[filteredRules.length];
+        private int state = AhoCorasickAutomaton.START;
+
+        private Scanner() {
+
+        }
+
+        @Override
+        public void write(int c) {
+
+            text.append((char) c);
+            state = automaton.next(state, (char) c);
+            markCandidates(state, candidates);
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+
+            text.append(buffer, offset, length);
+            for (int i = offset; i < offset + length; i++) {
+                state = automaton.next(state, buffer[i]);
+                markCandidates(state, candidates);
+            }
+        }
+
+        @Override
+        public void write(String string) {
+
+            write(string, 0, string.length());
+        }
+
+        @Override
+        public void write(String string, int offset, int length) {
+
+            text.append(string, offset, offset + length);
+            for (int i = offset; i < offset + length; i++) {
+                state = automaton.next(state, string.charAt(i));
+                markCandidates(state, candidates);
+            }
+        }
+
+        /**
+         * Matches the text written so far against the rules.
+         *
+         * @return a rule which matched the text, or null if none of them matched
+         */
+        public Rule finish() {
+
+            return confirm(candidates, text);
+        }
+
+        /**
+         * @return the text written so far
+         */
+        public String getText() {
+
+            return text.toString();
+        }
+
+        @Override
+        public void flush() {
+
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
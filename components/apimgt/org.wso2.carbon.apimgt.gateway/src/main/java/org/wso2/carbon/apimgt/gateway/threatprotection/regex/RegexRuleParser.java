@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.regex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits a regular expression into the alternatives at its top level, and finds the literal which each alternative
+ * requires in any text it matches. The parser understands the RE2 syntax well enough to be conservative: when it
+ * cannot tell what a part of the expression matches, it does not split the expression, or does not give a literal.
+ */
+final class RegexRuleParser {
+
+    private static final String SINGLE_CHARACTER_ESCAPES = "dDsSwWbBAznrtfvaC";
+
+    private RegexRuleParser() {
+
+    }
+
+    /**
+     * Splits the expression at the alternations which are not in a group or a character class.
+     *
+     * @param regex regular expression
+     * @return the alternatives, or the expression alone if it sets flags which apply to all of the alternatives
+     */
+    static List<String> split(String regex) {
+
+        List<String> alternatives = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+                    return Collections.singletonList(regex);
+                }
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                i = skipCharacterClass(regex, i);
+                continue;
+            }
+            if (c == '(') {
+                if (depth == 0 && i + 2 < regex.length() && regex.charAt(i + 1) == '?'
+                        && regex.charAt(i + 2) != ':' && regex.charAt(i + 2) != 'P') {
+                    // Flags set at the top level apply to the alternatives which follow, hence cannot be split.
+                    return Collections.singletonList(regex);
+                }
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                alternatives.add(regex.substring(start, i));
+                start = i + 1;
+            }
+            i++;
+        }
+        alternatives.add(regex.substring(start));
+        return alternatives;
+    }
+
+    /**
+     * Finds the longest run of characters which must appear, in the given order, in any text matched by the
+     * expression. Only ASCII characters are taken into the literal, in lower case, since the expressions are matched
+     * case insensitively.
+     *
+     * @param regex regular expression without alternations at its top level
+     * @return the literal, or null if there is no such literal
+     */
+    static String requiredLiteral(String regex) {
+
+        String longest = "";
+        StringBuilder run = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            char literal = 0;
+            int next;
+            if (c == '\\') {
+                if (i + 1 >= regex.length()) {
+                    return null;
+                }
+                char escaped = regex.charAt(i + 1);
+                if (!Character.isLetterOrDigit(escaped)) {
+                    literal = escaped;
+                    next = i + 2;
+                } else if (SINGLE_CHARACTER_ESCAPES.indexOf(escaped) >= 0) {
+                    next = i + 2;
+                } else if (escaped == 'x' || escaped == 'p' || escaped == 'P') {
+                    next = skipEscapeArgument(regex, i + 2, escaped == 'x' ? 2 : 1);
+                } else if (escaped >= '0' && escaped <= '7') {
+                    next = i + 2;
+                    while (next < regex.length() && next < i + 4 && regex.charAt(next) >= '0'
+                            && regex.charAt(next) <= '7') {
+                        next++;
+                    }
+                } else {
+                    return null;
+                }
+            } else if (c == '[') {
+                next = skipCharacterClass(regex, i);
+            } else if (c == '(') {
+                next = skipGroup(regex, i);
+            } else if (c == '.' || c == '^' || c == '$') {
+                next = i + 1;
+            } else if (c == '*' || c == '+' || c == '?' || c == ')' || c == '|') {
+                return null;
+            } else {
+                literal = c;
+                next = i + 1;
+            }
+            if (next < 0 || next > regex.length()) {
+                return null;
+            }
+            int minRepeat = 1;
+            int quantifierEnd = next;
+            if (next < regex.length()) {
+                char q = regex.charAt(next);
+                if (q == '*' || q == '?') {
+                    minRepeat = 0;
+                    quantifierEnd = next + 1;
+                } else if (q == '+') {
+                    minRepeat = 2;
+                    quantifierEnd = next + 1;
+                } else if (q == '{') {
+                    int[] repeat = parseRepeat(regex, next);
+                    if (repeat != null) {
+                        minRepeat = repeat[0] == 0 ? 0 : 2;
+                        quantifierEnd = repeat[1];
+                    }
+                }
+                if (quantifierEnd > next && quantifierEnd < regex.length() && regex.charAt(quantifierEnd) == '?') {
+                    quantifierEnd++;
+                }
+            }
+            if (literal != 0 && literal < 128 && minRepeat > 0) {
+                run.append(Character.toLowerCase(literal));
+            }
+            if (literal == 0 || literal >= 128 || minRepeat != 1) {
+                // The run ends at anything other than a single literal character.
+                if (run.length() > longest.length()) {
+                    longest = run.toString();
+                }
+                run.setLength(0);
+            }
+            i = quantifierEnd;
+        }
+        if (run.length() > longest.length()) {
+            longest = run.toString();
+        }
+        return longest.isEmpty() ? null : longest.toLowerCase(Locale.ENGLISH);
+    }
+
+    private static int skipCharacterClass(String regex, int start) {
+
+        int i = start + 1;
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            i++;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            i++;
+        }
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '[' && i + 1 < regex.length() && regex.charAt(i + 1) == ':') {
+                int end = regex.indexOf(":]", i + 2);
+                i = end < 0 ? regex.length() : end + 2;
+            } else if (c == ']') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipGroup(String regex, int start) {
+
+        int depth = 0;
+        int i = start;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                i = skipCharacterClass(regex, i);
+                if (i < 0) {
+                    return -1;
+                }
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static int skipEscapeArgument(String regex, int start, int length) {
+
+        if (start < regex.length() && regex.charAt(start) == '{') {
+            int end = regex.indexOf('}', start);
+            return end < 0 ? -1 : end + 1;
+        }
+        return start + length;
+    }
+
+    /**
+     * @return the minimum count and the end of a repeat such as {2,5}, or null if the brace is a literal
+     */
+    private static int[] parseRepeat(String regex, int start) {
+
+        int i = start + 1;
+        int digitsStart = i;
+        while (i < regex.length() && Character.isDigit(regex.charAt(i))) {
+            i++;
+        }
+        if (i == digitsStart || i >= regex.length()) {
+            return null;
+        }
+        int min = Integer.parseInt(regex.substring(digitsStart, Math.min(i, digitsStart + 4)));
+        if (regex.charAt(i) == ',') {
+            i++;
+            while (i < regex.length() && Character.isDigit(regex.charAt(i))) {
+                i++;
+            }
+        }
+        if (i >= regex.length() || regex.charAt(i) != '}') {
+            return null;
+        }
+        return new int[]{min, i + 1};
+    }
+}
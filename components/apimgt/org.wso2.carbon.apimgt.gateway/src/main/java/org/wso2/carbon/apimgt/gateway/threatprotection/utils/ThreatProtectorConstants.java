@@ -52,6 +52,7 @@ public class ThreatProtectorConstants {
     public static final String ORIGINAL = "Original";
     public static final String SCHEMA = "Schema";
     public static final String JSON = "JSON";
+    public static final String INSPECTION_REPORT = "PAYLOAD_INSPECTION_REPORT";
 
     /**
      * Constants for JSON protector
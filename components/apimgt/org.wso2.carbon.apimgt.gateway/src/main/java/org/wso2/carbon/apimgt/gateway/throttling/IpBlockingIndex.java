@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.apimgt.gateway.dto.IPRange;
+import org.wso2.carbon.apimgt.impl.APIConstants;
+import org.wso2.carbon.apimgt.impl.utils.APIUtil;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable index of the IP blocking conditions of a tenant. A new index is built whenever the conditions of the
+ * tenant change, so that requests are checked against it without locking.
+ *
+ * IPv4 and IPv6 addresses are held as unsigned 128 bit values in pairs of longs, IPv4 addresses having the same
+ * value as their BigInteger form. As with the conditions themselves, the bounds of an IP range are exclusive.
+ * Plain IP ranges are merged into a sorted array of disjoint ranges which is binary searched. An inverted IP range
+ * blocks every IP outside of it, hence an IP passes the inverted ranges only if it is within their intersection.
+ */
+final class IpBlockingIndex {
+
+    private static final Log log = LogFactory.getLog(IpBlockingIndex.class);
+
+    static final IpBlockingIndex EMPTY = build(new ArrayList<IPRange>());
+
+    private final Set<String> blockedIps;
+    // Whether an inverted condition of a fixed IP blocks all the IPs, as there are conditions of different IPs.
+    private final boolean blockAllByInvertedIps;
+    // The IP of the inverted fixed IP conditions, which blocks all the other IPs, or null if there is none.
+    private final String allowedIp;
+    // Sorted, disjoint bounds of the plain IP ranges.
+    private final long[] rangeStartHigh;
+    private final long[] rangeStartLow;
+    private final long[] rangeEndHigh;
+    private final long[] rangeEndLow;
+    // Intersection of the inverted IP ranges, if there are any.
+    private final boolean hasInvertedRanges;
+    private final long allowedStartHigh;
+    private final long allowedStartLow;
+    private final long allowedEndHigh;
+    private final long allowedEndLow;
+
+    private IpBlockingIndex(Set<String> blockedIps, boolean blockAllByInvertedIps, String allowedIp,
+                            List<long[]> ranges, long[] invertedRange) {
+
+        this.blockedIps = blockedIps;
+        this.blockAllByInvertedIps = blockAllByInvertedIps;
+        this.allowedIp = allowedIp;
+        int size = ranges.size();
+        this.rangeStartHigh = new long[size];
+        this.rangeStartLow = new long[size];
+        this.rangeEndHigh = new long[size];
+        this.rangeEndLow = new long[size];
+        for (int i = 0; i < size; i++) {
+            long[] range = ranges.get(i);
+            rangeStartHigh[i] = range[0];
+            rangeStartLow[i] = range[1];
+            rangeEndHigh[i] = range[2];
+            rangeEndLow[i] = range[3];
+        }
+        this.hasInvertedRanges = invertedRange != null;
+        this.allowedStartHigh = hasInvertedRanges ? invertedRange[0] : 0;
+        this.allowedStartLow = hasInvertedRanges ? invertedRange[1] : 0;
+        this.allowedEndHigh = hasInvertedRanges ? invertedRange[2] : 0;
+        this.allowedEndLow = hasInvertedRanges ? invertedRange[3] : 0;
+    }
+
+    /**
+     * Builds the index of the given IP blocking conditions. IP range conditions without both bounds are ignored.
+     *
+     * @param ipRanges IP blocking conditions of a tenant
+     * @return index of the conditions
+     */
+    static IpBlockingIndex build(Collection<IPRange> ipRanges) {
+
+        Set<String> blockedIps = new HashSet<>();
+        Set<String> invertedIps = new HashSet<>();
+        List<long[]> ranges = new ArrayList<>();
+        long[] invertedRange = null;
+        for (IPRange ipRange : ipRanges) {
+            if (APIConstants.BLOCKING_CONDITIONS_IP.equals(ipRange.getType())) {
+                if (ipRange.isInvert()) {
+                    invertedIps.add(ipRange.getFixedIp());
+                } else if (ipRange.getFixedIp() != null) {
+                    blockedIps.add(ipRange.getFixedIp());
+                }
+            } else if (APIConstants.BLOCK_CONDITION_IP_RANGE.equals(ipRange.getType())) {
+                BigInteger start = ipRange.getStartingIpBigIntValue();
+                BigInteger end = ipRange.getEndingIpBigIntValue();
+                if (start == null || end == null) {
+                    log.warn("Ignoring IP range blocking condition " + ipRange.getId() + " without both bounds");
+                    continue;
+                }
+                long[] range = {high(start), start.longValue(), high(end), end.longValue()};
+                if (!ipRange.isInvert()) {
+                    ranges.add(range);
+                } else if (invertedRange == null) {
+                    invertedRange = range;
+                } else {
+                    if (compare(range[0], range[1], invertedRange[0], invertedRange[1]) > 0) {
+                        invertedRange[0] = range[0];
+                        invertedRange[1] = range[1];
+                    }
+                    if (compare(range[2], range[3], invertedRange[2], invertedRange[3]) < 0) {
+                        invertedRange[2] = range[2];
+                        invertedRange[3] = range[3];
+                    }
+                }
+            }
+        }
+        // An inverted fixed IP condition blocks every other IP, hence no IP passes conditions of two different IPs.
+        boolean blockAllByInvertedIps = invertedIps.size() > 1 || invertedIps.contains(null);
+        String allowedIp = invertedIps.size() == 1 ? invertedIps.iterator().next() : null;
+        return new IpBlockingIndex(blockedIps, blockAllByInvertedIps, allowedIp, merge(ranges), invertedRange);
+    }
+
+    /**
+     * Sorts the ranges by their start and merges the ranges which overlap or adjoin. As the bounds are exclusive,
+     * a range adjoins the previous one if it starts before the previous one ends.
+     */
+    private static List<long[]> merge(List<long[]> ranges) {
+
+        ranges.sort((a, b) -> compare(a[0], a[1], b[0], b[1]));
+        List<long[]> merged = new ArrayList<>();
+        long[] current = null;
+        for (long[] range : ranges) {
+            if (current != null && compare(range[0], range[1], current[2], current[3]) < 0) {
+                if (compare(range[2], range[3], current[2], current[3]) > 0) {
+                    current[2] = range[2];
+                    current[3] = range[3];
+                }
+            } else {
+                current = Arrays.copyOf(range, range.length);
+                merged.add(current);
+            }
+        }
+        return merged;
+    }
+
+    boolean isEmpty() {
+
+        return blockedIps.isEmpty() && !blockAllByInvertedIps && allowedIp == null && rangeStartHigh.length == 0
+                && !hasInvertedRanges;
+    }
+
+    /**
+     * @param ip client IP of the request
+     * @return whether any of the conditions blocks the IP
+     */
+    boolean isBlocked(String ip) {
+
+        if (blockAllByInvertedIps || (allowedIp != null && !allowedIp.equals(ip))
+                || (ip != null && blockedIps.contains(ip))) {
+            return true;
+        }
+        if (rangeStartHigh.length == 0 && !hasInvertedRanges) {
+            return false;
+        }
+        long high;
+        long low;
+        long ipv4Value = parseIpv4(ip);
+        if (ipv4Value >= 0) {
+            high = 0;
+            low = ipv4Value;
+        } else {
+            BigInteger value = APIUtil.ipToBigInteger(ip);
+            high = high(value);
+            low = value.longValue();
+        }
+        if (hasInvertedRanges && !(compare(high, low, allowedStartHigh, allowedStartLow) > 0
+                && compare(high, low, allowedEndHigh, allowedEndLow) < 0)) {
+            return true;
+        }
+        // Last range starting before the IP, which is the only range that may contain it.
+        int lowIndex = 0;
+        int highIndex = rangeStartHigh.length - 1;
+        int candidate = -1;
+        while (lowIndex <= highIndex) {
+            int middle = (lowIndex + highIndex) >>> 1;
+            if (compare(rangeStartHigh[middle], rangeStartLow[middle], high, low) < 0) {
+                candidate = middle;
+                lowIndex = middle + 1;
+            } else {
+                highIndex = middle - 1;
+            }
+        }
+        return candidate >= 0 && compare(high, low, rangeEndHigh[candidate], rangeEndLow[candidate]) < 0;
+    }
+
+    private static long high(BigInteger value) {
+
+        return value.shiftRight(Long.SIZE).longValue();
+    }
+
+    private static int compare(long highA, long lowA, long highB, long lowB) {
+
+        int result = Long.compareUnsigned(highA, highB);
+        return result != 0 ? result : Long.compareUnsigned(lowA, lowB);
+    }
+
+    /**
+     * Parses a dotted decimal IPv4 address without going through {@link java.net.InetAddress}.
+     *
+     * @return value of the address, or -1 if the string is not a dotted decimal IPv4 address
+     */
+    static long parseIpv4(String ip) {
+
+        if (ip == null) {
+            return -1;
+        }
+        long value = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && digits > 0 && ++dots <= 3) {
+                value = (value << 8) | octet;
+                octet = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return -1;
+        }
+        return (value << 8) | octet;
+    }
+}
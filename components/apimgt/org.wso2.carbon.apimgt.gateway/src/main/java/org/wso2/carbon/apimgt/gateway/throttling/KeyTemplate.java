@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Key template of a custom throttling policy, parsed into literal text and the variables of the request which are
+ * substituted into it, such as $userId and $apiContext. Templates are parsed once, when they are received, and
+ * rendered into the throttle key of each request in a single pass.
+ */
+public final class KeyTemplate {
+
+    /**
+     * Variables of key templates, in the order of the values passed to {@link #render(String[])}.
+     */
+    public enum Variable {
+        RESOURCE_KEY("$resourceKey"),
+        USER_ID("$userId"),
+        API_CONTEXT("$apiContext"),
+        API_VERSION("$apiVersion"),
+        APP_TENANT("$appTenant"),
+        API_TENANT("$apiTenant"),
+        APP_ID("$appId"),
+        CLIENT_IP("$clientIp");
+
+        private final String token;
+
+        Variable(String token) {
+
+            this.token = token;
+        }
+
+        public String getToken() {
+
+            return token;
+        }
+    }
+
+    private static final Variable[] VARIABLES = Variable.values();
+
+    private final String template;
+    // Literal text, followed by the variable substituted after it, or null for the text at the end of the template.
+    private final String[] literals;
+    private final Variable[] variables;
+    private final boolean usesClientIp;
+
+    private KeyTemplate(String template, List<String> literals, List<Variable> variables) {
+
+        this.template = template;
+        this.literals = literals.toArray(new String[0]);
+        this.variables = variables.toArray(new Variable[0]);
+        this.usesClientIp = variables.contains(Variable.CLIENT_IP);
+    }
+
+    /**
+     * Parses a key template. A $ which does not start a variable is kept as literal text.
+     *
+     * @param template key template
+     * @return parsed key template
+     */
+    public static KeyTemplate parse(String template) {
+
+        List<String> literals = new ArrayList<>();
+        List<Variable> variables = new ArrayList<>();
+        int literalStart = 0;
+        int index = template.indexOf('$');
+        while (index >= 0) {
+            Variable variable = variableAt(template, index);
+            if (variable != null) {
+                literals.add(template.substring(literalStart, index));
+                variables.add(variable);
+                literalStart = index + variable.token.length();
+                index = template.indexOf('$', literalStart);
+            } else {
+                index = template.indexOf('$', index + 1);
+            }
+        }
+        literals.add(template.substring(literalStart));
+        variables.add(null);
+        return new KeyTemplate(template, literals, variables);
+    }
+
+    private static Variable variableAt(String template, int index) {
+
+        for (Variable variable : VARIABLES) {
+            if (template.startsWith(variable.token, index)) {
+                return variable;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Renders the throttle key of a request.
+     *
+     * @param values values of the variables, indexed by their ordinal. A variable without a value is kept as is.
+     * @return throttle key
+     */
+    public String render(String[] values) {
+
+        if (literals.length == 1) {
+            return template;
+        }
+        StringBuilder key = new StringBuilder(template.length() + 64);
+        for (int i = 0; i < literals.length; i++) {
+            key.append(literals[i]);
+            Variable variable = variables[i];
+            if (variable != null) {
+                String value = values[variable.ordinal()];
+                key.append(value != null ? value : variable.token);
+            }
+        }
+        return key.toString();
+    }
+
+    public String getTemplate() {
+
+        return template;
+    }
+
+    /**
+     * @return whether the template refers to the client IP, which is costly to resolve
+     */
+    public boolean usesClientIp() {
+
+        return usesClientIp;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.wso2.carbon.apimgt.impl.dto.ThrottleProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Node local rate limiter, which rejects the requests of a throttle key once this gateway's share of the limit of
+ * the tier is used up, without waiting for the traffic manager to throttle the key.
+ *
+ * Each throttle key has a token bucket, which holds the share of the tier limit of the gateway and is refilled
+ * evenly over a minute. A bucket is a single atomic theoretical arrival time, as in the generic cell rate
+ * algorithm, so that requests are admitted without locking. Buckets which have refilled completely are equivalent
+ * to new buckets, hence they are evicted when the number of buckets grows.
+ *
+ * The gateway does not know the request counts of the deployed policies, hence only the tiers which are configured
+ * with the limits of their policies are throttled locally.
+ */
+public class LocalRateLimiter {
+
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int INITIAL_SWEEP_SIZE = 10000;
+
+    private final Map<String, Long> tierLimits;
+    private final int gatewayCount;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private volatile int sweepSize = INITIAL_SWEEP_SIZE;
+
+    /**
+     * @param localThrottling local throttling configuration
+     */
+    public LocalRateLimiter(ThrottleProperties.LocalThrottling localThrottling) {
+
+        this(new HashMap<>(localThrottling.getTierLimits()), localThrottling.getGatewayCount(), System::nanoTime);
+    }
+
+    LocalRateLimiter(Map<String, Long> tierLimits, int gatewayCount, LongSupplier clock) {
+
+        this.tierLimits = tierLimits;
+        this.gatewayCount = Math.max(gatewayCount, 1);
+        this.clock = clock;
+    }
+
+    /**
+     * Takes a token from the bucket of a throttle key.
+     *
+     * @param throttleKey throttle key of the request
+     * @param tier        tier applied to the throttle key
+     * @return false if the share of the tier limit of this gateway is used up, true if the request is admitted or
+     * the tier has no known limit
+     */
+    public boolean tryAcquire(String throttleKey, String tier) {
+
+        if (tier == null) {
+            return true;
+        }
+        Long limit = tierLimits.get(tier);
+        if (limit == null || limit <= 0) {
+            return true;
+        }
+        Bucket bucket = buckets.get(throttleKey);
+        if (bucket == null || !bucket.tier.equals(tier)) {
+            bucket = newBucket(throttleKey, tier, limit);
+        }
+        return bucket.tryAcquire(clock.getAsLong());
+    }
+
+    /**
+     * Returns a token taken from the bucket of a throttle key, for a request which is rejected at another level
+     * after the token was taken.
+     *
+     * @param throttleKey throttle key of the request
+     * @param tier        tier applied to the throttle key
+     */
+    public void release(String throttleKey, String tier) {
+
+        if (tier == null) {
+            return;
+        }
+        Bucket bucket = buckets.get(throttleKey);
+        if (bucket != null && bucket.tier.equals(tier)) {
+            bucket.release();
+        }
+    }
+
+    private Bucket newBucket(String throttleKey, String tier, long limit) {
+
+        long share = Math.max(limit / gatewayCount, 1);
+        Bucket bucket = new Bucket(tier, WINDOW_NANOS / share);
+        Bucket existing = buckets.get(throttleKey);
+        if (existing != null && existing.tier.equals(tier)) {
+            return existing;
+        }
+        if (existing == null) {
+            existing = buckets.putIfAbsent(throttleKey, bucket);
+            if (existing != null) {
+                return existing;
+            }
+        } else {
+            buckets.put(throttleKey, bucket);
+        }
+        if (buckets.size() >= sweepSize) {
+            sweep();
+        }
+        return bucket;
+    }
+
+    /**
+     * Evicts the buckets which have refilled completely, and grows the size at which buckets are next evicted if
+     * most of the buckets are in use.
+     */
+    private synchronized void sweep() {
+
+        if (buckets.size() < sweepSize) {
+            return;
+        }
+        long now = clock.getAsLong();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+        sweepSize = Math.max(INITIAL_SWEEP_SIZE, buckets.size() * 2);
+    }
+
+    int size() {
+
+        return buckets.size();
+    }
+
+    private static final class Bucket {
+
+        private final String tier;
+        // Time between tokens, and the time by which the theoretical arrival may run ahead, which is the capacity.
+        private final long interval;
+        private final long tolerance;
+        private final AtomicLong theoreticalArrival;
+
+        private Bucket(String tier, long interval) {
+
+            this.tier = tier;
+            this.interval = interval;
+            this.tolerance = WINDOW_NANOS - interval;
+            this.theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+        }
+
+        private boolean tryAcquire(long now) {
+
+            while (true) {
+                long current = theoreticalArrival.get();
+                long arrival = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+                if (arrival - now > tolerance) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(current, arrival + interval)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release() {
+
+            while (true) {
+                long current = theoreticalArrival.get();
+                if (current == Long.MIN_VALUE || theoreticalArrival.compareAndSet(current, current - interval)) {
+                    return;
+                }
+            }
+        }
+
+        private boolean isFull(long now) {
+
+            long current = theoreticalArrival.get();
+            return current == Long.MIN_VALUE || current - now <= 0;
+        }
+    }
+}
@@ -25,11 +25,12 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.apimgt.gateway.dto.IPRange;
+import org.wso2.carbon.apimgt.gateway.handlers.throttling.ThrottledConditionPlan;
 import org.wso2.carbon.apimgt.impl.APIConstants;
 import org.wso2.carbon.apimgt.impl.dto.ConditionDto;
 import org.wso2.carbon.apimgt.impl.utils.APIUtil;
 
-import java.math.BigInteger;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -49,13 +50,22 @@ public class ThrottleDataHolder {
     private Map<String, String> blockedAPIConditionsMap = new ConcurrentHashMap<String, String>();
     private Map<String, String> blockedApplicationConditionsMap = new ConcurrentHashMap<String, String>();
     private Map<String, String> blockedUserConditionsMap = new ConcurrentHashMap<String, String>();
+    // The sets of IP blocking conditions are copied on write, as they are read by the requests being checked.
     private Map<String, Set<IPRange>> blockedIpConditionsMap = new ConcurrentHashMap<>();
+    // Index of blockedIpConditionsMap, rebuilt whenever the IP blocking conditions of a tenant change.
+    private Map<String, IpBlockingIndex> ipBlockingIndexMap = new ConcurrentHashMap<>();
     private Map<String, String> keyTemplateMap = new ConcurrentHashMap<String, String>();
+    // Parsed form of the keys of keyTemplateMap, updated along with it.
+    private Map<String, KeyTemplate> parsedKeyTemplateMap = new ConcurrentHashMap<>();
     private boolean isBlockingConditionsPresent = true;
     private boolean isKeyTemplatesPresent = false;
     private Map<String, Long> throttleDataMap = new ConcurrentHashMap<String, Long>();
     private Map<String,Long> throttledAPIKeysMap = new ConcurrentHashMap<String, Long>();
     private Map<String, Map<String, List<ConditionDto>>> conditionDtoMap = new ConcurrentHashMap<>();
+    // Compiled form of conditionDtoMap, rebuilt whenever the conditions of a key change.
+    private Map<String, ThrottledConditionPlan> conditionPlanMap = new ConcurrentHashMap<>();
+    // Node local rate limiter applied ahead of the throttle decisions, or null if local throttling is disabled.
+    private LocalRateLimiter localRateLimiter;
     public void addThrottleData(String key, Long value) {
         throttleDataMap.put(key, value);
     }
@@ -69,7 +79,8 @@ public class ThrottleDataHolder {
         throttledAPIKeysMap.put(key,value);
     }
 
-    public void addThrottledApiConditions(String key, String conditionKey, List<ConditionDto> conditionValue) {
+    public synchronized void addThrottledApiConditions(String key, String conditionKey,
+                                                       List<ConditionDto> conditionValue) {
 
         Map<String, List<ConditionDto>> conditionMap;
         if (conditionDtoMap.containsKey(key)) {
@@ -80,15 +91,19 @@ public class ThrottleDataHolder {
         }
         if (!conditionMap.containsKey(conditionKey)) {
             conditionMap.put(conditionKey, conditionValue);
+            conditionPlanMap.put(key, ThrottledConditionPlan.compile(conditionMap));
         }
     }
 
-    public void removeThrottledApiConditions(String key, String conditionKey) {
+    public synchronized void removeThrottledApiConditions(String key, String conditionKey) {
         if (conditionDtoMap.containsKey(key)) {
             Map<String, List<ConditionDto>> conditionMap = conditionDtoMap.get(key);
             conditionMap.remove(conditionKey);
             if (conditionMap.isEmpty()) {
                 conditionDtoMap.remove(key);
+                conditionPlanMap.remove(key);
+            } else {
+                conditionPlanMap.put(key, ThrottledConditionPlan.compile(conditionMap));
             }
         }
     }
@@ -121,6 +136,7 @@ public class ThrottleDataHolder {
             } else {
                 this.throttledAPIKeysMap.remove(apiKey);
                 this.conditionDtoMap.remove(apiKey);
+                this.conditionPlanMap.remove(apiKey);
                 return false;
             }
         } else {
@@ -136,6 +152,10 @@ public class ThrottleDataHolder {
         return conditionDtoMap.get(key);
     }
 
+    public ThrottledConditionPlan getConditionPlan(String key) {
+        return conditionPlanMap.get(key);
+    }
+
     public void removeThrottleData(String key) {
         throttleDataMap.remove(key);
     }
@@ -153,15 +173,24 @@ public class ThrottleDataHolder {
         blockedUserConditionsMap.put(name, value);
     }
 
-    public void addIpBlockingCondition(String tenantDomain, int conditionId, String value, String type) {
+    public synchronized void addIpBlockingCondition(String tenantDomain, int conditionId, String value,
+                                                    String type) {
 
         Set<IPRange> ipRanges = blockedIpConditionsMap.get(tenantDomain);
-        if (ipRanges == null){
-            ipRanges = new HashSet<>();
-        }
-
+        ipRanges = ipRanges == null ? new HashSet<>() : new HashSet<>(ipRanges);
         ipRanges.add(convertValueToIPRange(tenantDomain, conditionId, value, type));
+        putIpBlockingConditions(tenantDomain, ipRanges);
+    }
+
+    private void putIpBlockingConditions(String tenantDomain, Set<IPRange> ipRanges) {
+
         blockedIpConditionsMap.put(tenantDomain, ipRanges);
+        IpBlockingIndex index = IpBlockingIndex.build(ipRanges);
+        if (index.isEmpty()) {
+            ipBlockingIndexMap.remove(tenantDomain);
+        } else {
+            ipBlockingIndexMap.put(tenantDomain, index);
+        }
     }
 
     private IPRange convertValueToIPRange(String tenantDomain, int conditionId, String value, String type) {
@@ -200,9 +229,9 @@ public class ThrottleDataHolder {
         }
     }
 
-    public void addIplockingConditionsFromMap(Map<String, Set<IPRange>> data) {
-        if(data.size() > 0) {
-            blockedIpConditionsMap.putAll(data);
+    public synchronized void addIplockingConditionsFromMap(Map<String, Set<IPRange>> data) {
+        for (Map.Entry<String, Set<IPRange>> entry : data.entrySet()) {
+            putIpBlockingConditions(entry.getKey(), new HashSet<>(entry.getValue()));
         }
     }
 
@@ -231,15 +260,17 @@ public class ThrottleDataHolder {
         blockedUserConditionsMap.remove(name);
     }
 
-    public void removeIpBlockingCondition(String tenantDomain, int conditionId) {
+    public synchronized void removeIpBlockingCondition(String tenantDomain, int conditionId) {
 
         Set<IPRange> ipRanges = blockedIpConditionsMap.get(tenantDomain);
         if (ipRanges != null) {
+            ipRanges = new HashSet<>(ipRanges);
             Iterator<IPRange> iterator = ipRanges.iterator();
             while (iterator.hasNext()) {
                 IPRange ipRange = iterator.next();
                 if (ipRange.getId() == conditionId) {
                     iterator.remove();
+                    putIpBlockingConditions(tenantDomain, ipRanges);
                     break;
                 }
             }
@@ -248,18 +279,23 @@ public class ThrottleDataHolder {
 
     public void addKeyTemplate(String key, String value) {
         keyTemplateMap.put(key, value);
+        parsedKeyTemplateMap.put(key, KeyTemplate.parse(key));
         isKeyTemplatesPresent = true;
     }
 
     public void addKeyTemplateFromMap(Map<String, String> data) {
         if(data.size() > 0) {
             keyTemplateMap.putAll(data);
+            for (String key : data.keySet()) {
+                parsedKeyTemplateMap.put(key, KeyTemplate.parse(key));
+            }
             isKeyTemplatesPresent = true;
         }
     }
 
     public void removeKeyTemplate(String name) {
         keyTemplateMap.remove(name);
+        parsedKeyTemplateMap.remove(name);
         if(keyTemplateMap.size() > 0) {
             isKeyTemplatesPresent = true;
         } else {
@@ -267,10 +303,25 @@ public class ThrottleDataHolder {
         }
     }
 
+    public LocalRateLimiter getLocalRateLimiter() {
+        return localRateLimiter;
+    }
+
+    public void setLocalRateLimiter(LocalRateLimiter localRateLimiter) {
+        this.localRateLimiter = localRateLimiter;
+    }
+
     public Map<String, String> getKeyTemplateMap() {
         return keyTemplateMap;
     }
 
+    /**
+     * @return key templates of custom throttling policies, parsed when they were added
+     */
+    public Collection<KeyTemplate> getKeyTemplates() {
+        return parsedKeyTemplateMap.values();
+    }
+
     public boolean isRequestBlocked(String apiBlockingKey, String applicationBlockingKey, String userBlockingKey,
                                     String ipBlockingKey, String apiTenantDomain, String subscriptionBlockingKey) {
         return (blockedAPIConditionsMap.containsKey(apiBlockingKey) ||
@@ -282,39 +333,12 @@ public class ThrottleDataHolder {
 
     private boolean isIpLevelBlocked(String apiTenantDomain, String ip) {
 
-        Set<IPRange> ipRanges = blockedIpConditionsMap.get(apiTenantDomain);
-        if (ipRanges != null && ipRanges.size() > 0) {
-            log.debug("Tenant " + apiTenantDomain + " contains block conditions");
-            for (IPRange ipRange : ipRanges) {
-                if (APIConstants.BLOCKING_CONDITIONS_IP.equals(ipRange.getType())) {
-                    if (ip.equals(ipRange.getFixedIp())) {
-                        if (!ipRange.isInvert()) {
-                            log.debug("Block IP selected for Blocked");
-                            return true;
-                        }
-                    } else {
-                        if (ipRange.isInvert()) {
-                            log.debug("Block IP selected for Blocked");
-                            return true;
-                        }
-                    }
-                } else if (APIConstants.BLOCK_CONDITION_IP_RANGE.equals(ipRange.getType())) {
-                    BigInteger ipBigIntegerValue = APIUtil.ipToBigInteger(ip);
-
-                    if (((ipBigIntegerValue.compareTo(ipRange.getStartingIpBigIntValue()) > 0) &&
-                            (ipBigIntegerValue.compareTo(ipRange.getEndingIpBigIntValue()) < 0))) {
-                        if (!ipRange.isInvert()) {
-                            log.debug("Block IPRange selected for Blocked");
-                            return true;
-                        }
-                    } else {
-                        if (ipRange.isInvert()) {
-                            log.debug("Block IPRange selected for Blocked");
-                            return true;
-                        }
-                    }
-                }
+        IpBlockingIndex index = ipBlockingIndexMap.get(apiTenantDomain);
+        if (index != null && index.isBlocked(ip)) {
+            if (log.isDebugEnabled()) {
+                log.debug("IP " + ip + " is blocked by the block conditions of tenant " + apiTenantDomain);
             }
+            return true;
         }
         return false;
     }
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.publisher;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Publisher which hands events over to worker threads through a bounded, lock-free ring buffer, and passes them on
+ * in batches of up to the batch size. A worker publishes a partial batch once the linger time has passed since its
+ * first event was taken, so that events are not held back when the traffic is low.
+ *
+ * The ring buffer is a bounded multi-producer, multi-consumer queue in which each slot has a sequence number telling
+ * whether it is free to be written or ready to be read, hence neither the request threads nor the workers lock
+ * while there are events to publish. Idle workers wait on a condition, which is signalled only while a worker is
+ * waiting. When the buffer is full, events are handled according to the {@link OverflowPolicy}.
+ *
+ * @param <E> type of the events
+ */
+public class BatchingEventPublisher<E> {
+
+    private static final Log log = LogFactory.getLog(BatchingEventPublisher.class);
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * Handling of events which are offered while the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drops the oldest event in the buffer to make space for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Admits fewer events as the buffer fills beyond half of its capacity, down to none when it is full.
+         */
+        SAMPLE,
+        /**
+         * Makes the thread offering the event wait until there is space in the buffer.
+         */
+        BLOCK;
+
+        /**
+         * @param name name of the policy as configured, such as DropOldest
+         * @return the policy, or DROP_OLDEST if the name is not known
+         */
+        public static OverflowPolicy fromName(String name) {
+
+            if (name != null) {
+                String normalized = name.trim().replace("_", "");
+                for (OverflowPolicy policy : values()) {
+                    if (policy.name().replace("_", "").equalsIgnoreCase(normalized)) {
+                        return policy;
+                    }
+                }
+                log.warn("Unknown throttle event overflow policy " + name + ". Dropping the oldest events instead.");
+            }
+            return DROP_OLDEST;
+        }
+    }
+
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder droppedCount = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final AtomicInteger waitingWorkers = new AtomicInteger();
+
+    private final int batchSize;
+    private final long lingerNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final Consumer<List<E>> batchConsumer;
+    private final Thread[] workers;
+    private volatile boolean running = true;
+
+    /**
+     * @param name           prefix of the names of the worker threads
+     * @param bufferSize     capacity of the buffer, rounded up to a power of two
+     * @param batchSize      maximum number of events passed on at once
+     * @param lingerMillis   time for which a partial batch waits for more events
+     * @param workerCount    number of worker threads
+     * @param overflowPolicy handling of events offered while the buffer is full
+     * @param batchConsumer  consumer of the batches, which is called from the worker threads. The list is reused once
+     *                       the consumer returns.
+     */
+    public BatchingEventPublisher(String name, int bufferSize, int batchSize, long lingerMillis, int workerCount,
+                                  OverflowPolicy overflowPolicy, Consumer<List<E>> batchConsumer) {
+
+        int capacity = Integer.highestOneBit(Math.max(bufferSize, 2) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = capacity - 1;
+        this.batchSize = Math.max(batchSize, 1);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(lingerMillis, 0));
+        this.overflowPolicy = overflowPolicy;
+        this.batchConsumer = batchConsumer;
+        this.workers = new Thread[Math.max(workerCount, 1)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::drain, name + "-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Offers an event to be published.
+     *
+     * @param event event to be published
+     * @return false if the event, or an older event in its place, was dropped
+     */
+    public boolean offer(E event) {
+
+        if (!running) {
+            droppedCount.increment();
+            return false;
+        }
+        switch (overflowPolicy) {
+            case SAMPLE:
+                int capacity = mask + 1;
+                int free = capacity - size();
+                if ((free < capacity / 2 && ThreadLocalRandom.current().nextInt(capacity / 2) >= free)
+                        || !tryOffer(event)) {
+                    droppedCount.increment();
+                    return false;
+                }
+                return true;
+            case BLOCK:
+                while (!tryOffer(event)) {
+                    if (!running) {
+                        droppedCount.increment();
+                        return false;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+                return true;
+            default:
+                boolean dropped = false;
+                while (!tryOffer(event)) {
+                    if (poll() != null) {
+                        droppedCount.increment();
+                        dropped = true;
+                    }
+                }
+                return !dropped;
+        }
+    }
+
+    private boolean tryOffer(E event) {
+
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, event);
+                    sequences.lazySet(index, position + 1);
+                    if (waitingWorkers.get() > 0) {
+                        signalWorkers(false);
+                    }
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    E poll() {
+
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E event = slots.get(index);
+                    slots.lazySet(index, null);
+                    sequences.lazySet(index, position + mask + 1);
+                    return event;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    private void drain() {
+
+        List<E> batch = new ArrayList<>(batchSize);
+        long lingerDeadline = 0;
+        while (true) {
+            E event = poll();
+            if (event != null) {
+                if (batch.isEmpty()) {
+                    lingerDeadline = System.nanoTime() + lingerNanos;
+                }
+                batch.add(event);
+                if (batch.size() >= batchSize) {
+                    publish(batch);
+                }
+                continue;
+            }
+            if (batch.isEmpty()) {
+                if (!running) {
+                    return;
+                }
+                awaitEvents(Long.MAX_VALUE);
+                continue;
+            }
+            long remaining = lingerDeadline - System.nanoTime();
+            if (remaining <= 0 || !running) {
+                publish(batch);
+            } else {
+                awaitEvents(remaining);
+            }
+        }
+    }
+
+    /**
+     * Waits until there is an event in the buffer, the publisher is shut down or the timeout passes. The count of
+     * waiting workers is raised before the buffer is checked, so that an event offered after the check signals the
+     * worker.
+     */
+    private void awaitEvents(long timeoutNanos) {
+
+        waitingWorkers.incrementAndGet();
+        lock.lock();
+        try {
+            long remaining = timeoutNanos;
+            while (running && size() == 0 && remaining > 0) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+            waitingWorkers.decrementAndGet();
+        }
+    }
+
+    private void signalWorkers(boolean all) {
+
+        lock.lock();
+        try {
+            if (all) {
+                notEmpty.signalAll();
+            } else {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void publish(List<E> batch) {
+
+        try {
+            batchConsumer.accept(batch);
+        } catch (Exception e) {
+            log.error("Error while publishing a batch of " + batch.size() + " throttle events", e);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * @return number of events waiting in the buffer
+     */
+    public int size() {
+
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    public int getCapacity() {
+
+        return mask + 1;
+    }
+
+    /**
+     * @return number of events dropped since the publisher was created
+     */
+    public long getDroppedCount() {
+
+        return droppedCount.sum();
+    }
+
+    /**
+     * Stops accepting events, and waits for the workers to publish the events in the buffer.
+     *
+     * @param timeoutMillis maximum time to wait for each worker
+     */
+    public void shutdown(long timeoutMillis) {
+
+        running = false;
+        signalWorkers(true);
+        for (Thread worker : workers) {
+            try {
+                worker.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
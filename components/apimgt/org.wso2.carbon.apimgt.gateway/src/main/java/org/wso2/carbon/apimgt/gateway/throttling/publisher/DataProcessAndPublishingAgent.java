@@ -185,6 +185,16 @@ public class DataProcessAndPublishingAgent implements Runnable {
 
     public void run() {
 
+        dataPublisher.tryPublish(createEvent());
+    }
+
+    /**
+     * Extracts the data of the request referred to by this agent into a throttle event.
+     *
+     * @return throttle event of the request
+     */
+    org.wso2.carbon.databridge.commons.Event createEvent() {
+
         JSONObject jsonObMap = new JSONObject();
 
         org.apache.axis2.context.MessageContext axis2MessageContext = ((Axis2MessageContext) messageContext)
@@ -274,9 +284,8 @@ public class DataProcessAndPublishingAgent implements Runnable {
                                         this.resourceLevelThrottleKey, this.resourceLevelTier,
                                         this.authorizedUser, this.apiContext, this.apiVersion,
                                         this.appTenant, this.apiTenant, this.appId, this.apiName, jsonObMap.toString()};
-        org.wso2.carbon.databridge.commons.Event event = new org.wso2.carbon.databridge.commons.Event(streamID,
-                                                                                                      System.currentTimeMillis(), null, null, objects);
-        dataPublisher.tryPublish(event);
+        return new org.wso2.carbon.databridge.commons.Event(streamID, System.currentTimeMillis(), null, null,
+                objects);
     }
 
     protected void buildMessage(org.apache.axis2.context.MessageContext axis2MessageContext) throws IOException,
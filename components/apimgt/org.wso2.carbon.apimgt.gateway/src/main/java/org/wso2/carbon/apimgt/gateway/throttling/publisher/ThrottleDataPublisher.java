@@ -24,6 +24,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
 import org.wso2.carbon.apimgt.gateway.handlers.security.AuthenticationContext;
 import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.impl.APIConstants;
 import org.wso2.carbon.apimgt.impl.dto.ThrottleProperties;
 import org.wso2.carbon.databridge.agent.DataPublisher;
 import org.wso2.carbon.databridge.agent.exception.DataEndpointAgentConfigurationException;
@@ -31,9 +32,12 @@ import org.wso2.carbon.databridge.agent.exception.DataEndpointAuthenticationExce
 import org.wso2.carbon.databridge.agent.exception.DataEndpointConfigurationException;
 import org.wso2.carbon.databridge.agent.exception.DataEndpointException;
 import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -57,6 +61,10 @@ public class ThrottleDataPublisher {
 
     Executor executor;
 
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    private BatchingEventPublisher<DataProcessAndPublishingAgent> batchingPublisher;
+
     /**
      * This method will initialize throttle data publisher. Inside this we will start executor and initialize data
      * publisher which we used to publish throttle data.
@@ -83,6 +91,11 @@ public class ThrottleDataPublisher {
                             .getReceiverUrlGroup(), dataPublisherConfiguration.getAuthUrlGroup(), dataPublisherConfiguration
                             .getUsername(),
                             dataPublisherConfiguration.getPassword());
+                    ThrottleProperties.DataPublisherBatching batchingConfiguration = throttleProperties
+                            .getDataPublisherBatching();
+                    if (batchingConfiguration != null && batchingConfiguration.isEnabled()) {
+                        initBatchingPublisher(batchingConfiguration);
+                    }
 
                 } catch (DataEndpointAgentConfigurationException e) {
                     log.error("Error in initializing binary data-publisher to send requests to global throttling engine " +
@@ -104,6 +117,46 @@ public class ThrottleDataPublisher {
         }
     }
 
+    /**
+     * Publishes the throttle events in batches from a ring buffer, instead of submitting a task per event to the
+     * executor. Agents are not taken from the pool in this mode, as they are held in the buffer. The queue depth and
+     * the number of dropped events are reported by gauges, which read them from the buffer when they are reported.
+     */
+    private void initBatchingPublisher(ThrottleProperties.DataPublisherBatching batchingConfiguration) {
+
+        BatchingEventPublisher<DataProcessAndPublishingAgent> publisher = new BatchingEventPublisher<>(
+                "ThrottleDataPublisher", batchingConfiguration.getBufferSize(), batchingConfiguration.getBatchSize(),
+                batchingConfiguration.getLingerTime(), batchingConfiguration.getWorkerCount(),
+                BatchingEventPublisher.OverflowPolicy.fromName(batchingConfiguration.getOverflowPolicy()),
+                this::publishBatch);
+        MetricManager.gauge(Level.INFO, MetricManager.name(APIConstants.METRICS_PREFIX,
+                getClass().getSimpleName(), "DROPPED_EVENTS"), publisher::getDroppedCount);
+        MetricManager.gauge(Level.INFO, MetricManager.name(APIConstants.METRICS_PREFIX,
+                getClass().getSimpleName(), "QUEUE_DEPTH"), publisher::size);
+        batchingPublisher = publisher;
+    }
+
+    private void publishBatch(List<DataProcessAndPublishingAgent> agents) {
+
+        for (DataProcessAndPublishingAgent agent : agents) {
+            try {
+                dataPublisher.tryPublish(agent.createEvent());
+            } catch (Exception e) {
+                log.error("Error while publishing throttling event to global policy server", e);
+            }
+        }
+    }
+
+    /**
+     * Stops the batching publisher, if batching is enabled, after the events in its buffer are published.
+     */
+    public void shutdown() {
+
+        if (batchingPublisher != null) {
+            batchingPublisher.shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+        }
+    }
+
     /**
      * This method used to pass message context and let it run within separate thread.
      *
@@ -118,7 +171,19 @@ public class ThrottleDataPublisher {
             String appId, MessageContext messageContext,
             AuthenticationContext authenticationContext) {
         try {
-            if (dataPublisherPool != null) {
+            if (batchingPublisher != null) {
+                DataProcessAndPublishingAgent agent = new DataProcessAndPublishingAgent();
+                agent.setDataReference(applicationLevelThrottleKey, applicationLevelTier,
+                        apiLevelThrottleKey, apiLevelTier,
+                        subscriptionLevelThrottleKey, subscriptionLevelTier,
+                        resourceLevelThrottleKey, resourceLevelTier,
+                        authorizedUser, apiContext, apiVersion, appTenant, apiTenant, appId, messageContext,
+                        authenticationContext);
+                if (!batchingPublisher.offer(agent) && log.isDebugEnabled()) {
+                    log.debug("Throttle event buffer is full. Dropped a throttle event while publishing: "
+                            + apiContext + " with ID: " + messageContext.getMessageID());
+                }
+            } else if (dataPublisherPool != null) {
                 DataProcessAndPublishingAgent agent = dataPublisherPool.get();
                 agent.setDataReference(applicationLevelThrottleKey, applicationLevelTier,
                         apiLevelThrottleKey, apiLevelTier,
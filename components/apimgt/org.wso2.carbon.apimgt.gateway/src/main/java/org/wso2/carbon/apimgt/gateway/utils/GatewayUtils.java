@@ -437,10 +437,12 @@ public class GatewayUtils {
                     byteArrayOutputStream.write(buffer, 0, length);
                 }
                 byteArrayOutputStream.flush();
-                inputStreamSchema = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
-                inputStreamXml = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
-                inputStreamOriginal = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
-                inputStreamJSON = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
+                // The streams share the one copy of the payload, as none of them modifies it.
+                byte[] payload = byteArrayOutputStream.toByteArray();
+                inputStreamSchema = new ByteArrayInputStream(payload);
+                inputStreamXml = new ByteArrayInputStream(payload);
+                inputStreamOriginal = new ByteArrayInputStream(payload);
+                inputStreamJSON = new ByteArrayInputStream(payload);
             } else {
                 String payload;
                 if (ThreatProtectorConstants.APPLICATION_JSON.equals(contentType)){
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.utils;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.swagger.parser.OpenAPIParser;
+import io.swagger.v3.oas.models.OpenAPI;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.ref.SoftReference;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A revision of the OpenAPI definition of an API, shared by all the handlers of the API through the
+ * {@link OpenAPIModelCache}. The definition is parsed once, when it is first needed. The parsed models are softly
+ * referenced, hence they are released under memory pressure and parsed again when they are needed next.
+ */
+public class OpenAPIModel {
+
+    private static final Log log = LogFactory.getLog(OpenAPIModel.class);
+    private static final AtomicLong revisions = new AtomicLong();
+
+    private final long revision;
+    private volatile String definition;
+    private volatile SoftReference<OpenAPI> openAPI = new SoftReference<>(null);
+    private volatile SoftReference<JsonObject> jsonObject = new SoftReference<>(null);
+
+    OpenAPIModel(String definition) {
+
+        this.definition = definition;
+        this.revision = revisions.incrementAndGet();
+    }
+
+    /**
+     * @return OpenAPI definition of the API, as in the local entry of the API
+     */
+    public String getDefinition() {
+
+        return definition;
+    }
+
+    /**
+     * @return revision of the definition, which changes whenever the definition of the API changes
+     */
+    public long getRevision() {
+
+        return revision;
+    }
+
+    /**
+     * Returns the parsed OpenAPI definition, parsing it if it was not parsed yet or was released
+     *
+     * @return parsed OpenAPI definition, or null if the definition cannot be parsed
+     */
+    public OpenAPI getOpenAPI() {
+
+        OpenAPI model = openAPI.get();
+        if (model == null) {
+            synchronized (this) {
+                model = openAPI.get();
+                if (model == null) {
+                    long startTime = System.currentTimeMillis();
+                    model = new OpenAPIParser().readContents(definition, null, null).getOpenAPI();
+                    if (model != null) {
+                        openAPI = new SoftReference<>(model);
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug("Time to parse the swagger(ms) : " + (System.currentTimeMillis() - startTime));
+                    }
+                }
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Returns the definition as a JSON object, parsing it if it was not parsed yet or was released
+     *
+     * @return definition as a JSON object
+     */
+    public JsonObject getJsonObject() {
+
+        JsonObject model = jsonObject.get();
+        if (model == null) {
+            synchronized (this) {
+                model = jsonObject.get();
+                if (model == null) {
+                    model = new JsonParser().parse(definition).getAsJsonObject();
+                    jsonObject = new SoftReference<>(model);
+                }
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Checks whether this is the revision of the given definition
+     *
+     * @param definition definition read from the local entry of the API
+     * @return true if the definitions are the same
+     */
+    boolean isRevisionOf(String definition) {
+
+        String current = this.definition;
+        if (current == definition) {
+            return true;
+        }
+        if (current.equals(definition)) {
+            // Keep the instance of the local entry, hence the next checks only compare the references
+            this.definition = definition;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.utils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.apimgt.impl.utils.TinyLFUCache;
+
+import java.util.Map;
+
+/**
+ * Gateway wide cache of the OpenAPI definitions of the deployed APIs, keyed by the UUID of the API. The definitions
+ * are loaded when the APIs are deployed, and are shared by all the handlers of an API instead of each handler parsing
+ * its own copy. A new revision of the definition replaces the cached one as soon as it is seen in the local entry of
+ * the API. The cache is bounded, and the parsed definitions are released under memory pressure.
+ */
+public class OpenAPIModelCache {
+
+    private static final Log log = LogFactory.getLog(OpenAPIModelCache.class);
+    private static final int MAX_ENTRIES = 10000;
+    private static final OpenAPIModelCache instance = new OpenAPIModelCache(MAX_ENTRIES);
+
+    private final Map<String, OpenAPIModel> models;
+
+    OpenAPIModelCache(int maxEntries) {
+
+        models = new TinyLFUCache<>(maxEntries);
+    }
+
+    public static OpenAPIModelCache getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Returns the model of the given definition of an API, replacing the cached model if the definition changed
+     *
+     * @param apiUUID    UUID of the API
+     * @param definition OpenAPI definition in the local entry of the API
+     * @return model of the definition
+     */
+    public OpenAPIModel getModel(String apiUUID, String definition) {
+
+        OpenAPIModel model = models.get(apiUUID);
+        if (model == null || !model.isRevisionOf(definition)) {
+            model = new OpenAPIModel(definition);
+            models.put(apiUUID, model);
+        }
+        return model;
+    }
+
+    /**
+     * Loads the definition of a deployed API, parsing it ahead of the first request to the API
+     *
+     * @param apiUUID    UUID of the API
+     * @param definition OpenAPI definition of the API
+     * @return model of the definition
+     */
+    public OpenAPIModel load(String apiUUID, String definition) {
+
+        OpenAPIModel model = getModel(apiUUID, definition);
+        if (model.getOpenAPI() == null) {
+            log.warn("Unable to parse the OpenAPI definition of API " + apiUUID);
+        }
+        return model;
+    }
+
+    /**
+     * Removes the definition of an API which is undeployed
+     *
+     * @param apiUUID UUID of the API
+     */
+    public void invalidate(String apiUUID) {
+
+        models.remove(apiUUID);
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.utils;
+
+import org.apache.synapse.rest.API;
+import org.apache.synapse.rest.Resource;
+import org.apache.synapse.rest.dispatch.DispatcherHelper;
+import org.apache.synapse.rest.dispatch.URITemplateHelper;
+import org.apache.synapse.rest.dispatch.URLMappingHelper;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Routing trie of the resources of a deployed API. The URI templates and URL mappings of the resources are compiled
+ * into a trie of static segments, path parameters and wildcards, with the resources of each HTTP method at the leaves.
+ * A request path is then matched segment by segment, instead of matching the templates of all the resources.
+ *
+ * The router only narrows down the resources which can match a request. The candidates are still dispatched with the
+ * Synapse dispatchers, hence the selected resource and the URI variables are the same as without the router. The
+ * candidates are a superset of the resources the dispatchers would match, and the resources which cannot be compiled
+ * are always candidates.
+ */
+public class ResourceRouter {
+
+    /**
+     * Matches the resources of all HTTP methods
+     */
+    public static final String ANY_METHOD = "*";
+
+    private static final Pattern PATH_PARAMETER = Pattern.compile("\\{[A-Za-z0-9_.]+}");
+
+    private final API api;
+    private final Resource[] resources;
+    private final Node root = new Node();
+    private final List<Integer> uncompiledResources = new ArrayList<>();
+
+    ResourceRouter(API api) {
+
+        this.api = api;
+        this.resources = api.getResources();
+        for (int i = 0; i < resources.length; i++) {
+            if (!compileResource(i)) {
+                uncompiledResources.add(i);
+            }
+        }
+    }
+
+    /**
+     * Returns the resources of the given HTTP methods which can match the request path, in the order the resources are
+     * defined in the API
+     *
+     * @param requestPath path of the request relative to the context and version of the API
+     * @param httpMethods HTTP methods of the resources, or {@link #ANY_METHOD} for the resources of all methods
+     * @return candidate resources to be dispatched
+     */
+    public Set<Resource> findCandidates(String requestPath, String... httpMethods) {
+
+        BitSet matches = new BitSet(resources.length);
+        String path = requestPath;
+        if (path != null) {
+            int queryIndex = indexOfQuery(path);
+            if (queryIndex >= 0) {
+                path = path.substring(0, queryIndex);
+            }
+        }
+        if (path == null || path.indexOf('%') >= 0) {
+            // Encoded paths may be decoded by the dispatchers, hence all the resources are candidates
+            for (int i = 0; i < resources.length; i++) {
+                if (hasMethod(resources[i], httpMethods)) {
+                    matches.set(i);
+                }
+            }
+        } else {
+            match(root, toSegments(path), 0, httpMethods, matches);
+            for (int i : uncompiledResources) {
+                if (hasMethod(resources[i], httpMethods)) {
+                    matches.set(i);
+                }
+            }
+        }
+
+        Set<Resource> candidates = new LinkedHashSet<>();
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            candidates.add(resources[i]);
+        }
+        return candidates;
+    }
+
+    /**
+     * Checks whether this router was compiled from the given deployment of an API
+     *
+     * @param api deployed API
+     * @return true if the router belongs to the API
+     */
+    boolean isRouterOf(API api) {
+
+        return this.api == api;
+    }
+
+    private boolean compileResource(int index) {
+
+        Resource resource = resources[index];
+        DispatcherHelper helper = resource.getDispatcherHelper();
+        String[] methods = resource.getMethods();
+        if (helper == null || methods == null || methods.length == 0 || helper.getString() == null) {
+            return false;
+        }
+        String pattern = helper.getString();
+        if (!pattern.startsWith("/") || pattern.contains("//") || pattern.indexOf('#') >= 0) {
+            return false;
+        }
+        if (helper.getClass() == URITemplateHelper.class) {
+            int queryIndex = pattern.indexOf('?');
+            if (queryIndex >= 0) {
+                // The query of the template only narrows down the requests matched by its path
+                pattern = pattern.substring(0, queryIndex);
+            }
+            addLeaf(index, methods, pattern);
+            return true;
+        }
+        if (helper.getClass() == URLMappingHelper.class && pattern.indexOf('?') < 0) {
+            if (pattern.endsWith("/*")) {
+                addPrefix(index, methods, pattern.substring(0, pattern.length() - 2));
+                return true;
+            } else if (pattern.indexOf('*') < 0) {
+                addLeaf(index, methods, pattern);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addLeaf(int index, String[] methods, String pattern) {
+
+        Node node = compile(index, methods, pattern);
+        if (node != null) {
+            Node.add(node.leaves, index, methods);
+        }
+    }
+
+    private void addPrefix(int index, String[] methods, String prefix) {
+
+        // A prefix mapping matches the requests which start with its prefix, hence its last segment is matched as a
+        // prefix of the segment of the request
+        int lastSegmentIndex = prefix.lastIndexOf('/') + 1;
+        String lastSegment = prefix.substring(lastSegmentIndex);
+        Node node = compile(index, methods, prefix.substring(0, lastSegmentIndex));
+        if (node == null) {
+            return;
+        }
+        if (isStaticSegment(lastSegment)) {
+            Node.add(node.segmentPrefixes.computeIfAbsent(lastSegment.toLowerCase(Locale.ENGLISH),
+                    key -> new HashMap<>()), index, methods);
+        } else {
+            Node.add(node.wildcards, index, methods);
+        }
+    }
+
+    /**
+     * Adds the nodes of the segments of a pattern to the trie
+     *
+     * @return node of the last segment, or null if the resource was added as a wildcard of a segment in between
+     */
+    private Node compile(int index, String[] methods, String pattern) {
+
+        Node node = root;
+        for (String segment : toSegments(pattern)) {
+            if (isStaticSegment(segment)) {
+                node = node.staticChildren.computeIfAbsent(segment.toLowerCase(Locale.ENGLISH), key -> new Node());
+            } else if (PATH_PARAMETER.matcher(segment).matches()) {
+                if (node.parameterChild == null) {
+                    node.parameterChild = new Node();
+                }
+                node = node.parameterChild;
+            } else {
+                // Segments with expressions, wildcards or encoded characters match the rest of the request path
+                Node.add(node.wildcards, index, methods);
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private static void match(Node node, String[] segments, int position, String[] httpMethods, BitSet matches) {
+
+        collect(node.wildcards, httpMethods, matches);
+        if (position == segments.length) {
+            collect(node.leaves, httpMethods, matches);
+            Node parameterChild = node.parameterChild;
+            if (parameterChild != null) {
+                // A path parameter may be empty at the end of the request path
+                collect(parameterChild.leaves, httpMethods, matches);
+                collect(parameterChild.wildcards, httpMethods, matches);
+            }
+            return;
+        }
+        String segment = segments[position].toLowerCase(Locale.ENGLISH);
+        if (!node.segmentPrefixes.isEmpty()) {
+            for (Map.Entry<String, Map<String, BitSet>> segmentPrefix : node.segmentPrefixes.entrySet()) {
+                if (segment.startsWith(segmentPrefix.getKey())) {
+                    collect(segmentPrefix.getValue(), httpMethods, matches);
+                }
+            }
+        }
+        if (!segment.isEmpty()) {
+            Node staticChild = node.staticChildren.get(segment);
+            if (staticChild != null) {
+                match(staticChild, segments, position + 1, httpMethods, matches);
+            }
+        }
+        if (node.parameterChild != null) {
+            match(node.parameterChild, segments, position + 1, httpMethods, matches);
+        }
+    }
+
+    private static void collect(Map<String, BitSet> resourcesByMethod, String[] httpMethods, BitSet matches) {
+
+        if (resourcesByMethod.isEmpty()) {
+            return;
+        }
+        for (String httpMethod : httpMethods) {
+            if (httpMethod != null) {
+                BitSet resourcesOfMethod = resourcesByMethod.get(httpMethod);
+                if (resourcesOfMethod != null) {
+                    matches.or(resourcesOfMethod);
+                }
+            }
+        }
+    }
+
+    private static String[] toSegments(String path) {
+
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.endsWith("/") ? path.length() - 1 : path.length();
+        if (start >= end) {
+            return new String[0];
+        }
+        return path.substring(start, end).split("/", -1);
+    }
+
+    private static int indexOfQuery(String path) {
+
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isStaticSegment(String segment) {
+
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '{' || c == '}' || c == '*' || c == '%') {
+                return false;
+            }
+        }
+        return !segment.isEmpty();
+    }
+
+    private static boolean hasMethod(Resource resource, String[] httpMethods) {
+
+        String[] methods = resource.getMethods();
+        for (String httpMethod : httpMethods) {
+            if (ANY_METHOD.equals(httpMethod)) {
+                return true;
+            }
+            if (methods != null && httpMethod != null) {
+                for (String method : methods) {
+                    if (httpMethod.equals(method)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> staticChildren = new HashMap<>();
+        private final Map<String, BitSet> leaves = new HashMap<>();
+        private final Map<String, BitSet> wildcards = new HashMap<>();
+        private final Map<String, Map<String, BitSet>> segmentPrefixes = new HashMap<>();
+        private Node parameterChild;
+
+        private static void add(Map<String, BitSet> resourcesByMethod, int index, String[] methods) {
+
+            resourcesByMethod.computeIfAbsent(ANY_METHOD, key -> new BitSet()).set(index);
+            for (String method : methods) {
+                resourcesByMethod.computeIfAbsent(method, key -> new BitSet()).set(index);
+            }
+        }
+    }
+}
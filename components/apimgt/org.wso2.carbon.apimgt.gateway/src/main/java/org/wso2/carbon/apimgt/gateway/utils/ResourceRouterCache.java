@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.utils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.rest.API;
+import org.wso2.carbon.apimgt.impl.utils.TinyLFUCache;
+
+import java.util.Map;
+
+/**
+ * Gateway wide cache of the {@link ResourceRouter} of each deployed API, keyed by the name of the API in the Synapse
+ * configuration. A router is compiled once per deployment of an API, and is shared by all the handlers of the API. A
+ * redeployed API is a new instance in the Synapse configuration, hence its router is compiled again.
+ */
+public class ResourceRouterCache {
+
+    private static final Log log = LogFactory.getLog(ResourceRouterCache.class);
+    private static final int MAX_ENTRIES = 10000;
+    private static final ResourceRouterCache instance = new ResourceRouterCache(MAX_ENTRIES);
+
+    private final Map<String, ResourceRouter> routers;
+
+    ResourceRouterCache(int maxEntries) {
+
+        routers = new TinyLFUCache<>(maxEntries);
+    }
+
+    public static ResourceRouterCache getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Returns the router of the given deployment of an API, compiling it if it was not compiled yet
+     *
+     * @param api API in the Synapse configuration
+     * @return router of the resources of the API
+     */
+    public ResourceRouter getRouter(API api) {
+
+        String apiName = api.getName();
+        if (apiName == null) {
+            return new ResourceRouter(api);
+        }
+        ResourceRouter router = routers.get(apiName);
+        if (router == null || !router.isRouterOf(api)) {
+            long startTime = System.nanoTime();
+            router = new ResourceRouter(api);
+            routers.put(apiName, router);
+            if (log.isDebugEnabled()) {
+                log.debug("Compiled the resources of API " + apiName + " in " +
+                        (System.nanoTime() - startTime) / 1000 + " micro seconds");
+            }
+        }
+        return router;
+    }
+
+    /**
+     * Removes the router of an API which is undeployed
+     *
+     * @param apiName name of the API in the Synapse configuration
+     */
+    public void invalidate(String apiName) {
+
+        routers.remove(apiName);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.handlers.common;
+
+import org.apache.axis2.Constants;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.rest.RESTConstants;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wso2.carbon.apimgt.gateway.APIMgtGatewayConstants;
+import org.wso2.carbon.apimgt.gateway.utils.GatewayUtils;
+import org.wso2.carbon.apimgt.impl.APIConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * GatewayRequestContext Test Class
+ */
+public class GatewayRequestContextTest {
+
+    @Test
+    public void testContextIsSharedWithinRequest() {
+
+        MessageContext synCtx = getMessageContext();
+        Map<String, String> headers = new TreeMap<>();
+        headers.put(APIMgtGatewayConstants.X_FORWARDED_FOR, "127.0.0.1,1.10.0.4");
+        headers.put(APIConstants.USER_AGENT, "curl/7.58.0");
+        getAxis2MessageContext(synCtx).setProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS, headers);
+        getAxis2MessageContext(synCtx).setProperty(Constants.Configuration.HTTP_METHOD, "GET");
+
+        GatewayRequestContext requestContext = GatewayRequestContext.get(synCtx);
+        Assert.assertSame(requestContext, GatewayRequestContext.get(synCtx));
+        Assert.assertEquals("127.0.0.1", requestContext.getClientIp());
+        Assert.assertEquals("curl/7.58.0", requestContext.getUserAgent());
+        Assert.assertEquals("GET", requestContext.getHttpMethod());
+
+        // Attributes are resolved once per request
+        headers.put(APIMgtGatewayConstants.X_FORWARDED_FOR, "10.100.0.1");
+        Assert.assertEquals("127.0.0.1", GatewayRequestContext.get(synCtx).getClientIp());
+        Assert.assertNotSame(requestContext, GatewayRequestContext.get(getMessageContext()));
+    }
+
+    @Test
+    public void testClientIp() {
+
+        MessageContext synCtx = getMessageContext();
+        getAxis2MessageContext(synCtx).setProperty(org.apache.axis2.context.MessageContext.REMOTE_ADDR, "10.100.0.1");
+        Assert.assertEquals("10.100.0.1", GatewayRequestContext.get(synCtx).getClientIp());
+
+        // Header names are matched regardless of their case
+        synCtx = getMessageContext();
+        Map<String, String> headers = new TreeMap<>();
+        headers.put("X-FORWARDED-FOR", "127.0.0.1");
+        getAxis2MessageContext(synCtx).setProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS, headers);
+        getAxis2MessageContext(synCtx).setProperty(org.apache.axis2.context.MessageContext.REMOTE_ADDR, "10.100.0.1");
+        Assert.assertEquals("127.0.0.1", GatewayRequestContext.get(synCtx).getClientIp());
+    }
+
+    @Test
+    public void testApiIdentifiers() {
+
+        MessageContext synCtx = getMessageContext();
+        synCtx.setProperty(RESTConstants.SYNAPSE_REST_API, "admin-AT-wso2.com--PizzaShackAPI:v1.0.0");
+        GatewayRequestContext requestContext = GatewayRequestContext.get(synCtx);
+        Assert.assertEquals("admin-AT-wso2.com--PizzaShackAPI:v1.0.0", requestContext.getQualifiedApiName());
+        Assert.assertEquals("admin@wso2.com", requestContext.getApiPublisher());
+        Assert.assertEquals("PizzaShackAPI:v1.0.0", requestContext.getApiNameWithVersion());
+        Assert.assertEquals("PizzaShackAPI", requestContext.getApiName());
+
+        synCtx = getMessageContext();
+        synCtx.setProperty(RESTConstants.SYNAPSE_REST_API, "admin--PizzaShackAPI:v1.0.0");
+        synCtx.setProperty(APIMgtGatewayConstants.API_PUBLISHER, "publisher");
+        Assert.assertEquals("publisher", GatewayRequestContext.get(synCtx).getApiPublisher());
+    }
+
+    @Test
+    public void testTenantDomain() {
+
+        System.setProperty("carbon.home", "");
+        MessageContext synCtx = getMessageContext();
+        try {
+            PrivilegedCarbonContext.startTenantFlow();
+            PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain("abc.com");
+            Assert.assertEquals("abc.com", GatewayRequestContext.get(synCtx).getTenantDomain());
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    @Test
+    public void testAccessTokenCacheKey() {
+
+        MessageContext synCtx = getMessageContext();
+        synCtx.setProperty(RESTConstants.REST_API_CONTEXT, "/pizzashack/1.0.0");
+        synCtx.setProperty(RESTConstants.SYNAPSE_REST_API_VERSION, "1.0.0");
+        synCtx.setProperty(APIConstants.API_ELECTED_RESOURCE, "/menu");
+        getAxis2MessageContext(synCtx).setProperty(Constants.Configuration.HTTP_METHOD, "GET");
+        GatewayRequestContext requestContext = GatewayRequestContext.get(synCtx);
+        Assert.assertEquals(GatewayUtils.getAccessTokenCacheKey("token", "/pizzashack/1.0.0", "1.0.0", "/menu",
+                "GET"), requestContext.getAccessTokenCacheKey("token"));
+        Assert.assertEquals(GatewayUtils.getAccessTokenCacheKey("otherToken", "/pizzashack/1.0.0", "1.0.0", "/menu",
+                "GET"), requestContext.getAccessTokenCacheKey("otherToken"));
+
+        // The key follows the HTTP method set by a handler, such as the operation type of a GraphQL query
+        requestContext.setHttpMethod("QUERY");
+        Assert.assertEquals(GatewayUtils.getAccessTokenCacheKey("otherToken", "/pizzashack/1.0.0", "1.0.0", "/menu",
+                "QUERY"), requestContext.getAccessTokenCacheKey("otherToken"));
+    }
+
+    private static MessageContext getMessageContext() {
+
+        SynapseConfiguration synCfg = new SynapseConfiguration();
+        org.apache.axis2.context.MessageContext axisMsgCtx = new org.apache.axis2.context.MessageContext();
+        AxisConfiguration axisConfig = new AxisConfiguration();
+        ConfigurationContext cfgCtx = new ConfigurationContext(axisConfig);
+        return new Axis2MessageContext(axisMsgCtx, synCfg, new Axis2SynapseEnvironment(cfgCtx, synCfg));
+    }
+
+    private static org.apache.axis2.context.MessageContext getAxis2MessageContext(MessageContext synCtx) {
+
+        return ((Axis2MessageContext) synCtx).getAxis2MessageContext();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.handlers.graphQL;
+
+import graphql.GraphQL;
+import graphql.analysis.MaxQueryDepthInstrumentation;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.UnExecutableSchemaGenerator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class GraphQLQueryAnalysisHandlerTest {
+
+    private static final String SCHEMA = "type Query { hero: Character }\n"
+            + "type Character { name: String friends: [Character] }";
+    private static final String SHALLOW_QUERY = "{ hero { name } }";
+    private static final String DEEP_QUERY = "{ hero { friends { friends { name } } } }";
+
+    private GraphQL runtime;
+
+    @Before
+    public void setUp() {
+
+        GraphQLSchema schema = UnExecutableSchemaGenerator.makeUnExecutableSchema(new SchemaParser().parse(SCHEMA));
+        runtime = GraphQL.newGraphQL(schema).instrumentation(new MaxQueryDepthInstrumentation(3)).build();
+    }
+
+    @Test
+    public void testRepeatedQueryIsNotAnalysedAgain() {
+
+        GraphQLQueryAnalysisHandler.QueryAnalyser analyser = new GraphQLQueryAnalysisHandler.QueryAnalyser(runtime);
+        List<String> errors = analyser.analyse(SHALLOW_QUERY);
+        Assert.assertTrue(errors.isEmpty());
+        // The errors kept for the query are returned, instead of the errors of another execution
+        Assert.assertSame(errors, analyser.analyse(SHALLOW_QUERY));
+        Assert.assertEquals(1, analyser.getAnalysedQueryCount());
+    }
+
+    @Test
+    public void testErrorsOfQueryAreKept() {
+
+        GraphQLQueryAnalysisHandler.QueryAnalyser analyser = new GraphQLQueryAnalysisHandler.QueryAnalyser(runtime);
+        List<String> errors = analyser.analyse(DEEP_QUERY);
+        Assert.assertEquals(1, errors.size());
+        Assert.assertTrue(errors.get(0).contains("maximum query depth exceeded"));
+        Assert.assertSame(errors, analyser.analyse(DEEP_QUERY));
+        try {
+            errors.clear();
+            Assert.fail("Errors kept for a query must not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            Assert.assertEquals(1, analyser.analyse(DEEP_QUERY).size());
+        }
+        // A query within the limitation is not blocked by the errors of another query
+        Assert.assertTrue(analyser.analyse(SHALLOW_QUERY).isEmpty());
+    }
+
+    @Test
+    public void testAnalysedQueriesAreBounded() {
+
+        GraphQLQueryAnalysisHandler.QueryAnalyser analyser = new GraphQLQueryAnalysisHandler.QueryAnalyser(runtime,
+                10);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(analyser.analyse("{ hero" + i + ": hero { name } }").isEmpty());
+            Assert.assertTrue(analyser.getAnalysedQueryCount() <= 10);
+        }
+        // A query which is no longer kept is analysed again
+        Assert.assertTrue(analyser.analyse("{ hero0: hero { name } }").isEmpty());
+        Assert.assertTrue(analyser.getAnalysedQueryCount() <= 10);
+    }
+}
@@ -56,7 +56,13 @@ import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.cache.Cache;
@@ -512,6 +518,159 @@ public class APIKeyValidatorTestCase {
 
     }
 
+    @Test
+    public void testGetVerbInfoDTOFromAPIDataReusesResources() throws Exception {
+
+        APIKeyValidator apiKeyValidator = createAPIKeyValidator(true,
+                getDefaultURITemplates("/menu/*", "GET"), getDefaultVerbInfoDTO());
+        apiKeyValidator.setGatewayAPIResourceValidationEnabled(true);
+        PowerMockito.mockStatic(CacheProvider.class);
+        Cache resourceCache = getResourceCache();
+        Mockito.when(CacheProvider.getResourceCache()).thenReturn(resourceCache);
+        MessageContext messageContext = Mockito.mock(MessageContext.class);
+        VerbInfoDTO verbInfoDTO = apiKeyValidator.getVerbInfoDTOFromAPIData(messageContext, "/", "1.0",
+                "/menu/pizza/", "GET");
+        Assert.assertEquals("GET", verbInfoDTO.getHttpVerb());
+        // The request key is the section of the request path which matched the resource
+        Assert.assertEquals("//1.0/menu:GET", verbInfoDTO.getRequestKey());
+        Assert.assertSame(verbInfoDTO, apiKeyValidator.getVerbInfoDTOFromAPIData(messageContext, "/", "1.0",
+                "/menu", "GET"));
+        Assert.assertNull(apiKeyValidator.getVerbInfoDTOFromAPIData(messageContext, "/", "1.0", "/menu", "POST"));
+
+        // Resources are compiled again once the resource cache is cleared
+        resourceCache.removeAll();
+        Assert.assertNotSame(verbInfoDTO, apiKeyValidator.getVerbInfoDTOFromAPIData(messageContext, "/", "1.0",
+                "/menu", "GET"));
+    }
+
+    @Test
+    public void testGetVerbInfoDTOFromAPIDataMatchesPreviousLoop() throws Exception {
+
+        PowerMockito.mockStatic(CacheProvider.class);
+        Mockito.when(CacheProvider.getResourceCache()).thenReturn(getResourceCache());
+        MessageContext messageContext = Mockito.mock(MessageContext.class);
+        Random random = new Random(1);
+        String[] sections = {"a", "b", "ab", "menu", "x"};
+        String[] httpMethods = {"GET", "POST"};
+        for (int api = 0; api < 500; api++) {
+            String context = "/api" + api;
+            ArrayList<URITemplate> uriTemplates = new ArrayList<>();
+            Set<String> urlPatterns = new LinkedHashSet<>();
+            for (int i = random.nextInt(4); i >= 0; i--) {
+                StringBuilder urlPattern = new StringBuilder();
+                for (int j = random.nextInt(3); j > 0; j--) {
+                    urlPattern.append('/').append(sections[random.nextInt(sections.length)]);
+                }
+                int ending = random.nextInt(3);
+                urlPattern.append(ending == 0 ? "/*" : ending == 1 ? "/" : "");
+                urlPatterns.add(urlPattern.length() == 0 ? "/*" : urlPattern.toString());
+            }
+            for (String urlPattern : urlPatterns) {
+                for (String httpMethod : httpMethods) {
+                    if (random.nextBoolean()) {
+                        URITemplate uriTemplate = new URITemplate();
+                        uriTemplate.setUriTemplate(urlPattern);
+                        uriTemplate.setHTTPVerb(httpMethod);
+                        // The tier identifies the resource which was matched
+                        uriTemplate.setThrottlingTier(urlPattern + ':' + httpMethod);
+                        uriTemplates.add(uriTemplate);
+                    }
+                }
+            }
+            APIKeyValidator apiKeyValidator = createAPIKeyValidator(true, uriTemplates, getDefaultVerbInfoDTO());
+            apiKeyValidator.setGatewayAPIResourceValidationEnabled(true);
+            for (int request = 0; request < 20; request++) {
+                StringBuilder requestPath = new StringBuilder();
+                for (int j = random.nextInt(4); j > 0; j--) {
+                    requestPath.append('/').append(sections[random.nextInt(sections.length)]);
+                }
+                if (random.nextBoolean()) {
+                    requestPath.append('/');
+                }
+                String path = requestPath.length() == 0 ? "/" : requestPath.toString();
+                String httpMethod = httpMethods[random.nextInt(httpMethods.length)];
+                String[] expected = getMatchingResourceByPreviousLoop(uriTemplates, context, "1.0", path,
+                        httpMethod);
+                VerbInfoDTO verbInfoDTO = apiKeyValidator.getVerbInfoDTOFromAPIData(messageContext, context, "1.0",
+                        path, httpMethod);
+                String message = uriTemplates.size() + " resources " + urlPatterns + ", " + httpMethod + ' ' + path;
+                if (expected == null) {
+                    Assert.assertNull(message, verbInfoDTO);
+                } else {
+                    Assert.assertNotNull(message, verbInfoDTO);
+                    Assert.assertEquals(message, expected[0], verbInfoDTO.getThrottling());
+                    Assert.assertEquals(message, expected[1], verbInfoDTO.getRequestKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * The loop which getVerbInfoDTOFromAPIData used to match the resources with, without the resource cache
+     *
+     * @return throttling tier of the matching resource and the request key, or null if no resource matches
+     */
+    private String[] getMatchingResourceByPreviousLoop(List<URITemplate> uriTemplates, String context,
+                                                       String apiVersion, String requestPath, String httpMethod) {
+
+        // Resources in the order they are declared, and the templates of each resource in the order of the verbs
+        Map<String, List<URITemplate>> resources = new LinkedHashMap<>();
+        for (URITemplate uriTemplate : uriTemplates) {
+            resources.computeIfAbsent(uriTemplate.getUriTemplate(), k -> new ArrayList<>()).add(uriTemplate);
+        }
+        if ("/".equals(requestPath)) {
+            String requestCacheKey = context + '/' + apiVersion + requestPath + ':' + httpMethod;
+            for (Map.Entry<String, List<URITemplate>> resource : resources.entrySet()) {
+                if ("/*".equals(resource.getKey())) {
+                    for (URITemplate uriTemplate : resource.getValue()) {
+                        if (uriTemplate.getHTTPVerb().equals(httpMethod)) {
+                            return new String[]{uriTemplate.getThrottlingTier(), requestCacheKey};
+                        }
+                    }
+                }
+            }
+        }
+        requestPath = RESTUtils.trimTrailingSlashes(requestPath);
+        while (requestPath.length() > 1) {
+            String requestCacheKey = context + '/' + apiVersion + requestPath + ':' + httpMethod;
+            for (Map.Entry<String, List<URITemplate>> resource : resources.entrySet()) {
+                String urlPattern = resource.getKey();
+                if (urlPattern.endsWith("/*")) {
+                    urlPattern = urlPattern.substring(0, urlPattern.length() - 2);
+                }
+                urlPattern = RESTUtils.trimTrailingSlashes(urlPattern);
+                if (requestPath.endsWith(urlPattern)) {
+                    for (URITemplate uriTemplate : resource.getValue()) {
+                        if (uriTemplate.getHTTPVerb().equals(httpMethod)) {
+                            return new String[]{uriTemplate.getThrottlingTier(), requestCacheKey};
+                        }
+                    }
+                }
+            }
+            int index = requestPath.lastIndexOf('/');
+            requestPath = requestPath.substring(0, index <= 0 ? 0 : index);
+        }
+        return null;
+    }
+
+    /**
+     * @return resource cache which keeps the entries in a map
+     */
+    private Cache getResourceCache() {
+
+        Map<Object, Object> entries = new HashMap<>();
+        Cache resourceCache = Mockito.mock(Cache.class);
+        Mockito.when(resourceCache.get(Mockito.any())).thenAnswer(invocation ->
+                entries.get(invocation.getArguments()[0]));
+        Mockito.doAnswer(invocation -> entries.put(invocation.getArguments()[0], invocation.getArguments()[1]))
+                .when(resourceCache).put(Mockito.any(), Mockito.any());
+        Mockito.doAnswer(invocation -> {
+            entries.clear();
+            return null;
+        }).when(resourceCache).removeAll();
+        return resourceCache;
+    }
+
     @Test
     public void testGetResourceAuthenticationScheme() {
 
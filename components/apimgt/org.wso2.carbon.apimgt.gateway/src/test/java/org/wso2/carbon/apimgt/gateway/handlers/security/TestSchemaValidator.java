@@ -188,6 +188,23 @@ public class TestSchemaValidator {
         assertBadRequest();
     }
 
+    @Test
+    public void testSchemaIsReusedAcrossRequests() throws IOException, XMLStreamException {
+        // The second request of the resource is validated against the schema compiled for the first one
+        setMockedRequest("POST", "/pet", "<jsonObject>" +
+                "<id>123</id><name>Doggie</name>" +
+                "<photoUrls>https://mydog_1.jpg</photoUrls><photoUrls>https://mydog_2.jpg</photoUrls>" +
+                "<status>available</status>" +
+                "</jsonObject>");
+        assertValidRequest();
+        setMockedRequest("POST", "/pet", "<jsonObject>" +
+                "<id>123</id><name>Doggie</name>" +
+                "<photoUrls>https://mydog_1.jpg</photoUrls>" +
+                "<status>INVALID-ENUM</status>" +
+                "</jsonObject>");
+        assertBadRequest();
+    }
+
     private void assertValidRequest() {
         Assert.assertTrue(schemaValidator.handleRequest(messageContext));
         Mockito.verify(messageContext, Mockito.times(0))
@@ -28,6 +28,7 @@ import org.wso2.carbon.apimgt.api.dto.ConditionGroupDTO;
 import org.wso2.carbon.apimgt.gateway.TestUtils;
 import org.wso2.carbon.apimgt.gateway.handlers.security.AuthenticationContext;
 import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDataHolder;
 import org.wso2.carbon.apimgt.impl.dto.ConditionDto;
 import org.wso2.carbon.apimgt.impl.dto.ThrottleProperties;
 import org.wso2.carbon.apimgt.impl.utils.APIUtil;
@@ -835,6 +836,32 @@ public class ThrottleConditionEvaluatorTest {
         Assert.assertEquals(condition, "condition1");
     }
 
+    @Test
+    public void testGetThrottledInConditionWithConditionPlanOfThrottleDataHolder() {
+
+        ThrottleDataHolder throttleDataHolder = new ThrottleDataHolder();
+        throttleDataHolder.addThrottledApiConditions("resource1", "condition1",
+                Arrays.asList(new ConditionDto[]{getIPCondition(false)}));
+        throttleDataHolder.addThrottledApiConditions("resource1", "default",
+                Arrays.asList(new ConditionDto[]{getIPCondition(false)}));
+        MessageContext messageContext = TestUtils.getMessageContext(apiContext, apiVersion);
+        Map map = new TreeMap();
+        map.put("X-Forwarded-For", "127.0.0.1");
+        ((Axis2MessageContext) messageContext).getAxis2MessageContext()
+                .setProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS, map);
+        Assert.assertEquals(throttleDataHolder.getConditionPlan("resource1").size(), 2);
+        Assert.assertEquals(throttleConditionEvaluator.getThrottledInCondition(messageContext, null,
+                throttleDataHolder.getConditionPlan("resource1")), "condition1");
+
+        throttleDataHolder.removeThrottledApiConditions("resource1", "condition1");
+        Assert.assertEquals(throttleDataHolder.getConditionPlan("resource1").size(), 1);
+        Assert.assertNull(throttleConditionEvaluator.getThrottledInCondition(messageContext, null,
+                throttleDataHolder.getConditionPlan("resource1")));
+
+        throttleDataHolder.removeThrottledApiConditions("resource1", "default");
+        Assert.assertNull(throttleDataHolder.getConditionPlan("resource1"));
+    }
+
     private ConditionDto getIPCondition(boolean invert) {
 
         ConditionDto conditionDto = new ConditionDto();
@@ -220,8 +220,9 @@ public class ThrottleHandlerTest {
         String combinedResourceLevelThrottleKey = apiLevelThrottleKey + conditionGroupDTO.getConditionGroupId();
         throttleDataHolder.addThrottledAPIKey(apiLevelThrottleKey, System.currentTimeMillis() + 10000);
         throttleDataHolder.addThrottleData(combinedResourceLevelThrottleKey, System.currentTimeMillis() + 10000);
-        Mockito.when(throttleEvaluator.getApplicableConditions(messageContext, authenticationContext,
-                conditionGroupDTOs)).thenReturn(matchingConditions);
+        Mockito.when(throttleEvaluator.getApplicableConditions(Mockito.eq(messageContext),
+                Mockito.eq(authenticationContext), Mockito.any(ConditionGroupPlan.class)))
+                .thenReturn(matchingConditions);
 
         //Should throttle out and discontinue message flow, when api level is throttled out
         Assert.assertFalse(throttleHandler.handleRequest(messageContext));
@@ -247,8 +248,9 @@ public class ThrottleHandlerTest {
         throttleDataHolder.addThrottledAPIKey(resourceLevelThrottleKey, System.currentTimeMillis() + 10000);
         throttleDataHolder.addThrottleData(combinedResourceLevelThrottleKey, System.currentTimeMillis() + 10000);
 
-        Mockito.when(throttleEvaluator.getApplicableConditions(messageContext, authenticationContext,
-                conditionGroupDTOs)).thenReturn(matchingConditions);
+        Mockito.when(throttleEvaluator.getApplicableConditions(Mockito.eq(messageContext),
+                Mockito.eq(authenticationContext), Mockito.any(ConditionGroupPlan.class)))
+                .thenReturn(matchingConditions);
 
         //Should throttle out and discontinue message flow, when resource level is throttled out
         Assert.assertFalse(throttleHandler.handleRequest(messageContext));
@@ -55,7 +55,7 @@ public class ThrottlingHandlerWrapper extends ThrottleHandler {
     }
 
     @Override
-    protected String getTenantDomain() {
+    protected String getTenantDomain(MessageContext synCtx) {
         return "carbon.super";
     }
 
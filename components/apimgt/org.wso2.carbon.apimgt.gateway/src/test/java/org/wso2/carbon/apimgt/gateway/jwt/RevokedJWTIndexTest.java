@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.jwt;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * RevokedJWTIndex Test Class
+ */
+public class RevokedJWTIndexTest {
+
+    private static final String SIGNATURE = "GusR6QCyGhPzC0VTuHoIx2dGqgn4Wkf2N2EXbT3IzV8BjHiJZfj3xLmRB0DN3uq9";
+
+    @Test
+    public void testRevokedSignaturesAreFound() {
+
+        RevokedJWTIndex index = new RevokedJWTIndex();
+        long expiryTime = System.currentTimeMillis() / 1000 + 3600;
+        // More signatures than a single Bloom filter of a partition holds
+        for (int i = 0; i < 20000; i++) {
+            index.add(SIGNATURE + i, expiryTime);
+        }
+        for (int i = 0; i < 20000; i++) {
+            Assert.assertTrue(index.contains(SIGNATURE + i));
+        }
+        for (int i = 20000; i < 40000; i++) {
+            Assert.assertFalse(index.contains(SIGNATURE + i));
+        }
+        Assert.assertEquals(20000, index.size());
+    }
+
+    @Test
+    public void testSignaturesAreRemovedOnceExpired() {
+
+        RevokedJWTIndex index = new RevokedJWTIndex();
+        long currentTime = System.currentTimeMillis();
+        index.add(SIGNATURE + "expired", currentTime / 1000 - 2 * RevokedJWTIndex.PARTITION_SECONDS);
+        index.add(SIGNATURE + "active", currentTime / 1000 + 60);
+
+        Assert.assertEquals(1, index.removeExpired(currentTime));
+        Assert.assertFalse(index.contains(SIGNATURE + "expired"));
+        Assert.assertTrue(index.contains(SIGNATURE + "active"));
+        // Signatures added after the front filter is built again are found
+        index.add(SIGNATURE + "added", currentTime / 1000 + 2 * RevokedJWTIndex.PARTITION_SECONDS);
+        Assert.assertTrue(index.contains(SIGNATURE + "added"));
+        Assert.assertTrue(index.contains(SIGNATURE + "active"));
+    }
+
+    @Test
+    public void testSignaturesOfAllPartitionsAreFound() {
+
+        RevokedJWTIndex index = new RevokedJWTIndex();
+        long expiryTime = System.currentTimeMillis() / 1000;
+        for (int i = 0; i < 100; i++) {
+            index.add(SIGNATURE + i, expiryTime + i * RevokedJWTIndex.PARTITION_SECONDS);
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(index.contains(SIGNATURE + i));
+        }
+        Assert.assertFalse(index.contains(SIGNATURE + "unknown"));
+    }
+
+    @Test
+    public void testSignaturesOfTheSameTokenAreCountedOnce() {
+
+        RevokedJWTIndex index = new RevokedJWTIndex();
+        long expiryTime = System.currentTimeMillis() / 1000 + 3600;
+        index.add(SIGNATURE, expiryTime);
+        index.add(SIGNATURE, expiryTime);
+
+        Assert.assertEquals(1, index.size());
+    }
+}
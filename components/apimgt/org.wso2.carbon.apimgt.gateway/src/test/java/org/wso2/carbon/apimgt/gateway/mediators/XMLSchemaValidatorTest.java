@@ -25,12 +25,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
-import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
-import org.wso2.carbon.apimgt.gateway.threatprotection.analyzer.APIMThreatAnalyzer;
-import org.wso2.carbon.apimgt.gateway.threatprotection.analyzer.XMLAnalyzer;
-import org.wso2.carbon.apimgt.gateway.threatprotection.configuration.ConfigurationHolder;
 import org.wso2.carbon.apimgt.gateway.threatprotection.configuration.XMLConfig;
 import org.wso2.carbon.apimgt.gateway.threatprotection.utils.ThreatProtectorConstants;
 
@@ -41,7 +37,7 @@ import static org.junit.Assert.assertEquals;
  */
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({ThreatProtectorConstants.class,XMLAnalyzer.class, ConfigurationHolder.class})
+@PrepareForTest({ThreatProtectorConstants.class})
 public class XMLSchemaValidatorTest {
 
     private static final Log log = LogFactory.getLog(XMLSchemaValidatorTest.class);
@@ -51,8 +47,6 @@ public class XMLSchemaValidatorTest {
     private XMLConfig xmlConfig;
     @Before
     public void init() {
-        PowerMockito.mock(ConfigurationHolder.class);
-        PowerMockito.mock(APIMThreatAnalyzer.class);
         Mockito.mock(ThreatProtectorConstants.class);
         xmlConfig = new XMLConfig();
         xmlConfig.setMaxAttributeCount(1);
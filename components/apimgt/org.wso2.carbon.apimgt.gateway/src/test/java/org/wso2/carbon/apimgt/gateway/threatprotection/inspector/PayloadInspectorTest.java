@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.inspector;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wso2.carbon.apimgt.gateway.threatprotection.APIMThreatAnalyzerException;
+import org.wso2.carbon.apimgt.gateway.threatprotection.configuration.JSONConfig;
+import org.wso2.carbon.apimgt.gateway.threatprotection.regex.MultiPatternMatcher;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.xml.validation.Schema;
+
+public class PayloadInspectorTest {
+
+    private static final String THREAT_MESSAGE = "SQL-Injection Threat detected in Payload";
+
+    @Test
+    public void testValidJsonPayloadIsReported() throws Exception {
+
+        InspectionReport report = inspectJson(config(5, 10, 10, 10, 10), true,
+                "{\"name\":\"pizza\",\"toppings\":[\"cheese\",\"olive\"],\"size\":{\"inches\":12}}");
+        Assert.assertEquals(Arrays.asList("depth", "fieldCount", "stringLength", "arrayElementCount", "regex"),
+                new ArrayList<>(report.getCheckTimes().keySet()));
+        Assert.assertEquals(14, report.getTokenCount());
+        Assert.assertTrue(report.getTotalTime() > 0);
+        Assert.assertTrue(report.toString().startsWith("tokens=14, total="));
+    }
+
+    @Test
+    public void testJsonLimits() throws Exception {
+
+        assertJsonThreat(config(2, 10, 10, 10, 5), "{\"a\":{\"b\":{\"c\":1}}}", "Depth Limit [2] Reached");
+        assertJsonThreat(config(5, 2, 10, 10, 5), "{\"a\":1,\"b\":{\"c\":2}}", "Max Property Count [2] Reached");
+        assertJsonThreat(config(5, 10, 3, 10, 5), "{\"a\":\"long value\"}", "Max String Length [3] Reached");
+        assertJsonThreat(config(5, 10, 10, 10, 2), "{\"long key\":1}", "Max Key Length [2] Reached");
+        assertJsonThreat(config(5, 10, 10, 2, 5), "[1,2,3]", "Max Array Length [2] Reached");
+    }
+
+    @Test
+    public void testArrayElementsAreCountedPerArray() throws Exception {
+
+        JSONConfig config = config(5, 10, 10, 2, 5);
+        inspectJson(config, false, "{\"a\":[{\"x\":1,\"y\":2,\"z\":3},[1,2]],\"b\":[[[]]]}");
+        assertJsonThreat(config, "{\"a\":[[1],[2,3,4]]}", "Max Array Length [2] Reached");
+        assertJsonThreat(config, "{\"a\":[{\"x\":[1]},{\"y\":1},{}]}", "Max Array Length [2] Reached");
+    }
+
+    @Test
+    public void testRegexMatchesJsonNamesAndValues() throws Exception {
+
+        JSONConfig config = config(5, 10, 100, 10, 50);
+        inspectJson(config, true, "{\"query\":\"select a pizza\",\"count\":5}");
+        assertJsonThreat(config, "{\"query\":\"1; DROP TABLE users\"}", THREAT_MESSAGE);
+        assertJsonThreat(config, "{\"drop table users\":1}", THREAT_MESSAGE);
+    }
+
+    @Test
+    public void testInvalidJsonPayload() {
+
+        assertJsonThreat(config(5, 10, 10, 10, 5), "{\"a\":", "Error occurred while parsing the JSON payload");
+    }
+
+    @Test
+    public void testRegexMatchesXmlContent() throws Exception {
+
+        inspectXml(null, "<order id=\"1\"><item>pizza</item></order>");
+        assertXmlThreat(null, "<order><item>1; drop table users</item></order>", THREAT_MESSAGE);
+        assertXmlThreat(null, "<order note=\"drop table users\"/>", THREAT_MESSAGE);
+        assertXmlThreat(null, "<order><item>pizza</order>", "XML Validation Failed");
+    }
+
+    @Test
+    public void testXmlIsValidatedAgainstSchemaInTheSamePass() throws Exception {
+
+        File xsd = File.createTempFile("order", ".xsd");
+        xsd.deleteOnExit();
+        Files.write(xsd.toPath(), ("<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">"
+                + "<xs:element name=\"order\"><xs:complexType><xs:sequence>"
+                + "<xs:element name=\"item\" type=\"xs:string\" maxOccurs=\"2\"/>"
+                + "</xs:sequence></xs:complexType></xs:element></xs:schema>").getBytes(StandardCharsets.UTF_8));
+        String xsdUrl = xsd.toURI().toURL().toString();
+        Schema schema = XMLPayloadInspector.compileSchema(xsdUrl);
+
+        InspectionReport report = inspectXml(schema, "<order><item>pizza</item><item>pasta</item></order>");
+        Assert.assertTrue(report.getCheckTimes().containsKey("regex"));
+        Assert.assertTrue(report.getCheckTimes().containsKey("schema"));
+        assertXmlThreat(schema, "<order><item>a</item><item>b</item><item>c</item></order>",
+                "Error occurred while parsing XML payload");
+        // The regex check fails the payload while it is being validated against the schema.
+        assertXmlThreat(schema, "<order><item>drop table users</item></order>", THREAT_MESSAGE);
+    }
+
+    @Test
+    public void testDtdIsAcceptedUnlessDisabled() throws Exception {
+
+        String payload = "<!DOCTYPE order [<!ENTITY item \"pizza\">]><order><item>&item;</item></order>";
+        InspectionReport report = new XMLPayloadInspector(true, Collections.<XMLPayloadCheck>emptyList(), null)
+                .inspect(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+        Assert.assertTrue(report.getTokenCount() > 0);
+        try {
+            new XMLPayloadInspector(false, Collections.<XMLPayloadCheck>emptyList(), null)
+                    .inspect(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+            Assert.fail("Payload " + payload + " was accepted with DTDs disabled");
+        } catch (APIMThreatAnalyzerException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("XML Validation Failed"));
+        }
+    }
+
+    @Test(expected = APIMThreatAnalyzerException.class)
+    public void testMissingSchema() throws Exception {
+
+        XMLPayloadInspector.compileSchema(new File("missing.xsd").toURI().toURL().toString());
+    }
+
+    private static JSONConfig config(int depth, int propertyCount, int stringLength, int arrayElementCount,
+                                     int keyLength) {
+
+        JSONConfig config = new JSONConfig();
+        config.setMaxJsonDepth(depth);
+        config.setMaxPropertyCount(propertyCount);
+        config.setMaxStringLength(stringLength);
+        config.setMaxArrayElementCount(arrayElementCount);
+        config.setMaxKeyLength(keyLength);
+        return config;
+    }
+
+    private static RegexCheck regexCheck() {
+
+        return new RegexCheck(MultiPatternMatcher.getInstance(".*drop\\s+table.*|.*'.*--"), THREAT_MESSAGE);
+    }
+
+    private static InspectionReport inspectJson(JSONConfig config, boolean withRegex, String payload)
+            throws APIMThreatAnalyzerException {
+
+        List<JSONPayloadCheck> checks = JSONPayloadInspector.createChecks(config, "/pizzashack/1.0.0");
+        if (withRegex) {
+            checks.add(regexCheck());
+        }
+        return new JSONPayloadInspector(checks).inspect(
+                new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static InspectionReport inspectXml(Schema schema, String payload) throws APIMThreatAnalyzerException {
+
+        return new XMLPayloadInspector(null, Collections.<XMLPayloadCheck>singletonList(regexCheck()), schema)
+                .inspect(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void assertJsonThreat(JSONConfig config, String payload, String message) {
+
+        try {
+            inspectJson(config, true, payload);
+            Assert.fail("Payload " + payload + " was not detected as a threat");
+        } catch (APIMThreatAnalyzerException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    private static void assertXmlThreat(Schema schema, String payload, String message) {
+
+        try {
+            inspectXml(schema, payload);
+            Assert.fail("Payload " + payload + " was not detected as a threat");
+        } catch (APIMThreatAnalyzerException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+}
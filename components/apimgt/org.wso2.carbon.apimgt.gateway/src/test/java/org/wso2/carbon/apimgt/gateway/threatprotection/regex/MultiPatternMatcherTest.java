@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.apimgt.gateway.threatprotection.regex;
+
+import com.google.re2j.Pattern;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+public class MultiPatternMatcherTest {
+
+    private static final String SQL_INJECTION_REGEX = ".*'.*|.*ALTER.*|.*ALTER TABLE.*|.*ALTER VIEW.*|"
+            + ".*CREATE DATABASE.*|.*CREATE PROCEDURE.*|.*CREATE SCHEMA.*|.*create table.*|.*CREATE VIEW.*|"
+            + ".*DELETE.*|.*DROP DATABASE.*|.*DROP PROCEDURE.*|.*DROP.*|.*SELECT.*";
+
+    private static final String XSS_REGEX = "<\\s*script\\b[^>]*>[^<]+<\\s*/\\s*script\\s*>|"
+            + "(?:on(?:load|error|click))\\s*=|javascript:|<\\s*img[^>]+src\\s*=|[\\[\\]]{2,}|\\bunion\\s+all\\b|"
+            + "\\x3cscript|ab+c|x?yz|(a|b)+d";
+
+    @Test
+    public void testSplit() {
+
+        Assert.assertEquals(Arrays.asList("a", "b(c|d)", "[|]", "e\\|f", ""),
+                RegexRuleParser.split("a|b(c|d)|[|]|e\\|f|"));
+        Assert.assertEquals(Collections.singletonList("(?s)a.b|c.d"), RegexRuleParser.split("(?s)a.b|c.d"));
+        Assert.assertEquals(Collections.singletonList("\\Qa|b\\E"), RegexRuleParser.split("\\Qa|b\\E"));
+    }
+
+    @Test
+    public void testRequiredLiteral() {
+
+        Assert.assertEquals("alter table", RegexRuleParser.requiredLiteral(".*ALTER TABLE.*"));
+        Assert.assertEquals("'", RegexRuleParser.requiredLiteral(".*'.*"));
+        Assert.assertEquals("script", RegexRuleParser.requiredLiteral("<\\s*script\\b[^>]*>"));
+        Assert.assertEquals("javascript:", RegexRuleParser.requiredLiteral("javascript:"));
+        Assert.assertEquals("ab", RegexRuleParser.requiredLiteral("ab+c"));
+        Assert.assertEquals("yz", RegexRuleParser.requiredLiteral("x?yz"));
+        Assert.assertEquals("script", RegexRuleParser.requiredLiteral("\\x3cscript"));
+        Assert.assertEquals("a.", RegexRuleParser.requiredLiteral("a\\.b{0,2}"));
+        Assert.assertEquals("a.b", RegexRuleParser.requiredLiteral("a\\.b{1,2}x"));
+        Assert.assertEquals("{x}", RegexRuleParser.requiredLiteral("{x}"));
+        Assert.assertNull(RegexRuleParser.requiredLiteral("(a|b)+d?"));
+        Assert.assertNull(RegexRuleParser.requiredLiteral("[\\[\\]]{2,}"));
+        Assert.assertNull(RegexRuleParser.requiredLiteral("\\Qab\\E"));
+    }
+
+    @Test
+    public void testMatchesAsTheWholeExpression() {
+
+        String[] texts = {
+                "select * from users", "O'Reilly", "plain text", "drop", "DrOp DaTaBaSe", "alter", "",
+                "<script >alert(1)</script>", "<img src=x onerror = alert(1)>", "javascript:void(0)", "[[x]]",
+                "1 UNION  ALL select", "abbbc", "yz", "xyz", "aabd", "d", "\u212Aelvin", "<sc\u0130ript>"
+        };
+        for (String regex : new String[]{SQL_INJECTION_REGEX, XSS_REGEX}) {
+            MultiPatternMatcher matcher = new MultiPatternMatcher(regex);
+            Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+            for (String text : texts) {
+                Assert.assertEquals(regex + " on " + text, pattern.matcher(text).find(),
+                        matcher.match(text) != null);
+            }
+            Random random = new Random(11);
+            String alphabet = "abcdeflorstxyzADEPSTW '<>[]=:/\\()\u212A";
+            for (int i = 0; i < 5000; i++) {
+                StringBuilder text = new StringBuilder();
+                int length = random.nextInt(30);
+                for (int j = 0; j < length; j++) {
+                    text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+                Assert.assertEquals(regex + " on " + text, pattern.matcher(text).find(),
+                        matcher.match(text) != null);
+            }
+        }
+    }
+
+    @Test
+    public void testRulesAreFilteredByLiterals() {
+
+        MultiPatternMatcher matcher = new MultiPatternMatcher(SQL_INJECTION_REGEX);
+        Assert.assertEquals(14, matcher.getRules().size());
+        Assert.assertEquals(14, matcher.getFilteredRuleCount());
+        Assert.assertNull(matcher.match("a request without key words"));
+        Assert.assertEquals(".*DROP DATABASE.*", matcher.match("drop database test").getExpression());
+        Assert.assertEquals(".*DROP.*", matcher.match("drop it").getExpression());
+        Assert.assertEquals(".*DROP.*", matcher.match("DROP it").getExpression());
+        Map<String, Long> hitCounts = matcher.getHitCounts();
+        Assert.assertEquals(Long.valueOf(2), hitCounts.get(".*DROP.*"));
+        Assert.assertEquals(Long.valueOf(1), hitCounts.get(".*DROP DATABASE.*"));
+        Assert.assertEquals(Long.valueOf(0), hitCounts.get(".*SELECT.*"));
+    }
+
+    @Test
+    public void testScanner() {
+
+        MultiPatternMatcher matcher = new MultiPatternMatcher(SQL_INJECTION_REGEX);
+        MultiPatternMatcher.Scanner scanner = matcher.newScanner();
+        scanner.write("<query>dr");
+        scanner.write(new char[]{'o', 'p', ' '}, 0, 3);
+        scanner.write('t');
+        scanner.write("able</query>", 0, 12);
+        Assert.assertEquals("<query>drop table</query>", scanner.getText());
+        Assert.assertEquals(".*DROP.*", scanner.finish().getExpression());
+
+        scanner = matcher.newScanner();
+        scanner.write("<query>pizza</query>");
+        Assert.assertNull(scanner.finish());
+    }
+
+    @Test
+    public void testMatchersAreShared() {
+
+        Assert.assertSame(MultiPatternMatcher.getInstance(XSS_REGEX), MultiPatternMatcher.getInstance(XSS_REGEX));
+    }
+
+    @Test
+    public void testLargeRuleSet() {
+
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            if (i > 0) {
+                regex.append('|');
+            }
+            regex.append("\\bkeyword").append(i).append("\\b");
+        }
+        MultiPatternMatcher matcher = new MultiPatternMatcher(regex.toString());
+        Assert.assertEquals(2000, matcher.getFilteredRuleCount());
+        Assert.assertNull(matcher.match("a text with keyword2000 and keyword12x"));
+        Assert.assertEquals("\\bkeyword1234\\b", matcher.match("a text with KEYWORD1234.").getExpression());
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wso2.carbon.apimgt.gateway.dto.IPRange;
+import org.wso2.carbon.apimgt.impl.APIConstants;
+import org.wso2.carbon.apimgt.impl.utils.APIUtil;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class IpBlockingIndexTest {
+
+    @Test
+    public void testParseIpv4() {
+
+        Assert.assertEquals(0xC0A80001L, IpBlockingIndex.parseIpv4("192.168.0.1"));
+        Assert.assertEquals(0xFFFFFFFFL, IpBlockingIndex.parseIpv4("255.255.255.255"));
+        Assert.assertEquals(0, IpBlockingIndex.parseIpv4("0.0.0.0"));
+        Assert.assertEquals(-1, IpBlockingIndex.parseIpv4("256.0.0.1"));
+        Assert.assertEquals(-1, IpBlockingIndex.parseIpv4("1.2.3"));
+        Assert.assertEquals(-1, IpBlockingIndex.parseIpv4("1.2.3.4."));
+        Assert.assertEquals(-1, IpBlockingIndex.parseIpv4("1..3.4"));
+        Assert.assertEquals(-1, IpBlockingIndex.parseIpv4("::1"));
+        Assert.assertEquals(-1, IpBlockingIndex.parseIpv4(null));
+    }
+
+    @Test
+    public void testRangeBoundsAreExclusive() {
+
+        IpBlockingIndex index = IpBlockingIndex.build(Arrays.asList(range(1, "10.0.0.1", "10.0.0.5", false),
+                range(2, "10.0.0.5", "10.0.0.9", false)));
+        Assert.assertFalse(index.isBlocked("10.0.0.1"));
+        Assert.assertTrue(index.isBlocked("10.0.0.2"));
+        Assert.assertTrue(index.isBlocked("10.0.0.4"));
+        Assert.assertFalse(index.isBlocked("10.0.0.5"));
+        Assert.assertTrue(index.isBlocked("10.0.0.6"));
+        Assert.assertFalse(index.isBlocked("10.0.0.9"));
+    }
+
+    @Test
+    public void testIpv6Ranges() {
+
+        IpBlockingIndex index = IpBlockingIndex.build(Arrays.asList(range(1, "2001:db8::", "2001:db8::ffff", false),
+                range(2, "fe80::", "fe80::1:0", false)));
+        Assert.assertTrue(index.isBlocked("2001:db8::1"));
+        Assert.assertTrue(index.isBlocked("fe80::ff"));
+        Assert.assertFalse(index.isBlocked("2001:db8::1:0"));
+        Assert.assertFalse(index.isBlocked("10.0.0.1"));
+    }
+
+    @Test
+    public void testInvertedConditions() {
+
+        IpBlockingIndex index = IpBlockingIndex.build(Arrays.asList(range(1, "10.0.0.0", "10.0.1.0", true),
+                range(2, "10.0.0.128", "10.0.2.0", true)));
+        Assert.assertFalse(index.isBlocked("10.0.0.200"));
+        Assert.assertTrue(index.isBlocked("10.0.0.100"));
+        Assert.assertTrue(index.isBlocked("10.0.1.100"));
+
+        index = IpBlockingIndex.build(Arrays.asList(fixedIp(1, "10.0.0.1", true), fixedIp(2, "10.0.0.1", true)));
+        Assert.assertFalse(index.isBlocked("10.0.0.1"));
+        Assert.assertTrue(index.isBlocked("10.0.0.2"));
+
+        index = IpBlockingIndex.build(Arrays.asList(fixedIp(1, "10.0.0.1", true), fixedIp(2, "10.0.0.2", true)));
+        Assert.assertTrue(index.isBlocked("10.0.0.1"));
+        Assert.assertTrue(index.isBlocked("10.0.0.2"));
+    }
+
+    @Test
+    public void testMatchesLinearEvaluation() {
+
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<IPRange> ipRanges = new ArrayList<>();
+            int conditions = 1 + random.nextInt(8);
+            for (int i = 0; i < conditions; i++) {
+                boolean invert = random.nextInt(4) == 0;
+                if (random.nextBoolean()) {
+                    ipRanges.add(fixedIp(i, randomIp(random), invert));
+                } else {
+                    String start = randomIp(random);
+                    String end = randomIp(random);
+                    ipRanges.add(range(i, start, end, invert));
+                }
+            }
+            IpBlockingIndex index = IpBlockingIndex.build(ipRanges);
+            for (int i = 0; i < 200; i++) {
+                String ip = randomIp(random);
+                Assert.assertEquals(ipRanges + " " + ip, isBlockedLinearly(ipRanges, ip), index.isBlocked(ip));
+            }
+        }
+    }
+
+    /**
+     * Evaluation of the conditions one by one, as done before the conditions were indexed.
+     */
+    private static boolean isBlockedLinearly(List<IPRange> ipRanges, String ip) {
+
+        for (IPRange ipRange : ipRanges) {
+            if (APIConstants.BLOCKING_CONDITIONS_IP.equals(ipRange.getType())) {
+                if (ip.equals(ipRange.getFixedIp()) != ipRange.isInvert()) {
+                    return true;
+                }
+            } else {
+                BigInteger value = APIUtil.ipToBigInteger(ip);
+                boolean inRange = value.compareTo(ipRange.getStartingIpBigIntValue()) > 0
+                        && value.compareTo(ipRange.getEndingIpBigIntValue()) < 0;
+                if (inRange != ipRange.isInvert()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String randomIp(Random random) {
+
+        // A small address space, so that the random IPs fall on and within the bounds of the ranges.
+        if (random.nextInt(3) == 0) {
+            return "2001:db8::" + Integer.toHexString(random.nextInt(32));
+        }
+        return "10.0." + random.nextInt(2) + "." + random.nextInt(16);
+    }
+
+    private static IPRange fixedIp(int id, String ip, boolean invert) {
+
+        IPRange ipRange = new IPRange();
+        ipRange.setId(id);
+        ipRange.setType(APIConstants.BLOCKING_CONDITIONS_IP);
+        ipRange.setFixedIp(ip);
+        ipRange.setInvert(invert);
+        return ipRange;
+    }
+
+    private static IPRange range(int id, String startIp, String endIp, boolean invert) {
+
+        IPRange ipRange = new IPRange();
+        ipRange.setId(id);
+        ipRange.setType(APIConstants.BLOCK_CONDITION_IP_RANGE);
+        ipRange.setStartingIP(startIp);
+        ipRange.setStartingIpBigIntValue(APIUtil.ipToBigInteger(startIp));
+        ipRange.setEndingIp(endIp);
+        ipRange.setEndingIpBigIntValue(APIUtil.ipToBigInteger(endIp));
+        ipRange.setInvert(invert);
+        return ipRange;
+    }
+}
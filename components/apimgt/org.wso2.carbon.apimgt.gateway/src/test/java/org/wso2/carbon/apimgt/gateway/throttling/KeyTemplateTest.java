@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeyTemplateTest {
+
+    private static String[] values() {
+
+        String[] values = new String[KeyTemplate.Variable.values().length];
+        values[KeyTemplate.Variable.RESOURCE_KEY.ordinal()] = "/pizzashack/1.0.0/menu:GET";
+        values[KeyTemplate.Variable.USER_ID.ordinal()] = "admin";
+        values[KeyTemplate.Variable.API_CONTEXT.ordinal()] = "/pizzashack/1.0.0";
+        values[KeyTemplate.Variable.API_VERSION.ordinal()] = "1.0.0";
+        values[KeyTemplate.Variable.APP_TENANT.ordinal()] = "carbon.super";
+        values[KeyTemplate.Variable.API_TENANT.ordinal()] = "abc.com";
+        values[KeyTemplate.Variable.APP_ID.ordinal()] = "1";
+        return values;
+    }
+
+    @Test
+    public void testRender() {
+
+        KeyTemplate keyTemplate = KeyTemplate.parse("$userId:$apiContext:$apiVersion:$appTenant:$apiTenant:$appId");
+        Assert.assertEquals("admin:/pizzashack/1.0.0:1.0.0:carbon.super:abc.com:1", keyTemplate.render(values()));
+        Assert.assertFalse(keyTemplate.usesClientIp());
+    }
+
+    @Test
+    public void testRenderKeepsUnknownAndMissingVariables() {
+
+        KeyTemplate keyTemplate = KeyTemplate.parse("$$user-$resourceKey$clientIp$");
+        Assert.assertTrue(keyTemplate.usesClientIp());
+        Assert.assertEquals("$$user-/pizzashack/1.0.0/menu:GET$clientIp$", keyTemplate.render(values()));
+        String[] values = values();
+        values[KeyTemplate.Variable.CLIENT_IP.ordinal()] = "167772161";
+        Assert.assertEquals("$$user-/pizzashack/1.0.0/menu:GET167772161$", keyTemplate.render(values));
+    }
+
+    @Test
+    public void testRenderValuesLiterally() {
+
+        String[] values = values();
+        values[KeyTemplate.Variable.USER_ID.ordinal()] = "$apiContext\\$1";
+        Assert.assertEquals("$apiContext\\$1@abc.com", KeyTemplate.parse("$userId@$apiTenant").render(values));
+        Assert.assertEquals("static", KeyTemplate.parse("static").render(values));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wso2.carbon.apimgt.impl.dto.ThrottleProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LocalRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private LocalRateLimiter createRateLimiter(int gatewayCount) {
+
+        Map<String, Long> tierLimits = new HashMap<>();
+        tierLimits.put("Gold", 10L);
+        return new LocalRateLimiter(tierLimits, gatewayCount, clock::get);
+    }
+
+    @Test
+    public void testShareOfTierLimit() {
+
+        LocalRateLimiter rateLimiter = createRateLimiter(2);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(rateLimiter.tryAcquire("1:/pizzashack/1.0.0", "Gold"));
+        }
+        Assert.assertFalse(rateLimiter.tryAcquire("1:/pizzashack/1.0.0", "Gold"));
+        Assert.assertTrue(rateLimiter.tryAcquire("2:/pizzashack/1.0.0", "Gold"));
+    }
+
+    @Test
+    public void testRefill() {
+
+        LocalRateLimiter rateLimiter = createRateLimiter(1);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(rateLimiter.tryAcquire("key", "Gold"));
+        }
+        Assert.assertFalse(rateLimiter.tryAcquire("key", "Gold"));
+        // A token is added every 6 seconds.
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        Assert.assertTrue(rateLimiter.tryAcquire("key", "Gold"));
+        Assert.assertFalse(rateLimiter.tryAcquire("key", "Gold"));
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(rateLimiter.tryAcquire("key", "Gold"));
+        }
+        Assert.assertFalse(rateLimiter.tryAcquire("key", "Gold"));
+    }
+
+    @Test
+    public void testTiersWithoutLimit() {
+
+        LocalRateLimiter rateLimiter = createRateLimiter(1);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(rateLimiter.tryAcquire("key", "Unlimited"));
+            Assert.assertTrue(rateLimiter.tryAcquire("key", null));
+        }
+        Assert.assertEquals(0, rateLimiter.size());
+    }
+
+    @Test
+    public void testTierChange() {
+
+        Map<String, Long> tierLimits = new HashMap<>();
+        tierLimits.put("Gold", 10L);
+        tierLimits.put("Bronze", 1L);
+        LocalRateLimiter rateLimiter = new LocalRateLimiter(tierLimits, 1, clock::get);
+        Assert.assertTrue(rateLimiter.tryAcquire("key", "Bronze"));
+        Assert.assertFalse(rateLimiter.tryAcquire("key", "Bronze"));
+        Assert.assertTrue(rateLimiter.tryAcquire("key", "Gold"));
+    }
+
+    @Test
+    public void testOnlyConfiguredTiersAreLimited() {
+
+        ThrottleProperties.LocalThrottling localThrottling = new ThrottleProperties.LocalThrottling();
+        localThrottling.setEnabled(true);
+        localThrottling.getTierLimits().put("Gold", 1L);
+        LocalRateLimiter rateLimiter = new LocalRateLimiter(localThrottling);
+        Assert.assertTrue(rateLimiter.tryAcquire("key", "Gold"));
+        Assert.assertFalse(rateLimiter.tryAcquire("key", "Gold"));
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(rateLimiter.tryAcquire("key", "Silver"));
+        }
+    }
+
+    @Test
+    public void testRelease() {
+
+        LocalRateLimiter rateLimiter = createRateLimiter(1);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(rateLimiter.tryAcquire("key", "Gold"));
+        }
+        rateLimiter.release("key", "Gold");
+        Assert.assertTrue(rateLimiter.tryAcquire("key", "Gold"));
+        Assert.assertFalse(rateLimiter.tryAcquire("key", "Gold"));
+        // Tokens of a key with another tier or without a bucket are not returned.
+        rateLimiter.release("key", "Bronze");
+        rateLimiter.release("other", "Gold");
+        Assert.assertFalse(rateLimiter.tryAcquire("key", "Gold"));
+    }
+}
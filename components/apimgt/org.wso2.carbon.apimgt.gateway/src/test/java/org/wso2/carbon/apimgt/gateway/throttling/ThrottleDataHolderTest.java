@@ -18,10 +18,16 @@
 
 package org.wso2.carbon.apimgt.gateway.throttling;
 
+import org.junit.Assert;
 import org.junit.Test;
+import org.wso2.carbon.apimgt.gateway.dto.IPRange;
+import org.wso2.carbon.apimgt.impl.APIConstants;
+import org.wso2.carbon.apimgt.impl.utils.APIUtil;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 
 public class ThrottleDataHolderTest {
@@ -66,6 +72,17 @@ public class ThrottleDataHolderTest {
 
     @Test
     public void addIplockingCondition() throws Exception {
+        ThrottleDataHolder throttleDataHolder = new ThrottleDataHolder();
+        throttleDataHolder.addIpBlockingCondition("carbon.super", 1, "{\"fixedIp\":\"10.0.0.1\",\"invert\":false}",
+                APIConstants.BLOCKING_CONDITIONS_IP);
+        throttleDataHolder.addIpBlockingCondition("carbon.super", 2,
+                "{\"startingIp\":\"192.168.0.1\",\"endingIp\":\"192.168.0.10\",\"invert\":false}",
+                APIConstants.BLOCK_CONDITION_IP_RANGE);
+        Assert.assertTrue(isIpBlocked(throttleDataHolder, "carbon.super", "10.0.0.1"));
+        Assert.assertTrue(isIpBlocked(throttleDataHolder, "carbon.super", "192.168.0.5"));
+        Assert.assertFalse(isIpBlocked(throttleDataHolder, "carbon.super", "192.168.0.10"));
+        Assert.assertFalse(isIpBlocked(throttleDataHolder, "carbon.super", "10.0.0.2"));
+        Assert.assertFalse(isIpBlocked(throttleDataHolder, "abc.com", "10.0.0.1"));
     }
 
     @Test
@@ -74,6 +91,20 @@ public class ThrottleDataHolderTest {
 
     @Test
     public void addIplockingConditionsFromMap() throws Exception {
+        ThrottleDataHolder throttleDataHolder = new ThrottleDataHolder();
+        IPRange ipRange = new IPRange();
+        ipRange.setId(1);
+        ipRange.setTenantDomain("abc.com");
+        ipRange.setType(APIConstants.BLOCK_CONDITION_IP_RANGE);
+        ipRange.setStartingIpBigIntValue(APIUtil.ipToBigInteger("2001:db8::"));
+        ipRange.setEndingIpBigIntValue(APIUtil.ipToBigInteger("2001:db8::ffff"));
+        ipRange.setInvert(true);
+        Map<String, Set<IPRange>> map = new HashMap<>();
+        map.put("abc.com", Collections.singleton(ipRange));
+        throttleDataHolder.addIplockingConditionsFromMap(map);
+        Assert.assertFalse(isIpBlocked(throttleDataHolder, "abc.com", "2001:db8::1"));
+        Assert.assertTrue(isIpBlocked(throttleDataHolder, "abc.com", "2001:db9::1"));
+        Assert.assertTrue(isIpBlocked(throttleDataHolder, "abc.com", "10.0.0.1"));
     }
 
     @Test
@@ -98,6 +129,13 @@ public class ThrottleDataHolderTest {
 
     @Test
     public void removeIpBlockingCondition() throws Exception {
+        ThrottleDataHolder throttleDataHolder = new ThrottleDataHolder();
+        throttleDataHolder.addIpBlockingCondition("carbon.super", 1, "{\"fixedIp\":\"10.0.0.1\",\"invert\":true}",
+                APIConstants.BLOCKING_CONDITIONS_IP);
+        Assert.assertTrue(isIpBlocked(throttleDataHolder, "carbon.super", "10.0.0.2"));
+        Assert.assertFalse(isIpBlocked(throttleDataHolder, "carbon.super", "10.0.0.1"));
+        throttleDataHolder.removeIpBlockingCondition("carbon.super", 1);
+        Assert.assertFalse(isIpBlocked(throttleDataHolder, "carbon.super", "10.0.0.2"));
     }
 
     @Test
@@ -106,10 +144,23 @@ public class ThrottleDataHolderTest {
 
     @Test
     public void addKeyTemplateFromMap() throws Exception {
+        ThrottleDataHolder throttleDataHolder = new ThrottleDataHolder();
+        Map<String, String> map = new HashMap<>();
+        map.put("$userId:$apiContext", "$userId:$apiContext");
+        throttleDataHolder.addKeyTemplateFromMap(map);
+        Assert.assertTrue(throttleDataHolder.isKeyTemplatesPresent());
+        Assert.assertEquals(1, throttleDataHolder.getKeyTemplates().size());
+        Assert.assertEquals("$userId:$apiContext",
+                throttleDataHolder.getKeyTemplates().iterator().next().getTemplate());
     }
 
     @Test
     public void removeKeyTemplate() throws Exception {
+        ThrottleDataHolder throttleDataHolder = new ThrottleDataHolder();
+        throttleDataHolder.addKeyTemplate("$userId", "$userId");
+        throttleDataHolder.removeKeyTemplate("$userId");
+        Assert.assertFalse(throttleDataHolder.isKeyTemplatesPresent());
+        Assert.assertTrue(throttleDataHolder.getKeyTemplates().isEmpty());
     }
 
     @Test
@@ -140,4 +191,8 @@ public class ThrottleDataHolderTest {
     public void setKeyTemplatesPresent() throws Exception {
     }
 
+    private boolean isIpBlocked(ThrottleDataHolder throttleDataHolder, String tenantDomain, String ip) {
+        return throttleDataHolder.isRequestBlocked("api", "app", "user", ip, tenantDomain, "subscription");
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.publisher;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class BatchingEventPublisherTest {
+
+    @Test
+    public void testEventsArePublishedInBatches() throws Exception {
+
+        List<Integer> published = Collections.synchronizedList(new ArrayList<Integer>());
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        BatchingEventPublisher<Integer> publisher = new BatchingEventPublisher<>("test", 1024, 10, 10000, 1,
+                BatchingEventPublisher.OverflowPolicy.DROP_OLDEST, batch -> {
+                    batchSizes.add(batch.size());
+                    published.addAll(batch);
+                });
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(publisher.offer(i));
+        }
+        publisher.shutdown(5000);
+        Assert.assertEquals(100, published.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(Integer.valueOf(i), published.get(i));
+        }
+        for (int batchSize : batchSizes) {
+            Assert.assertTrue(batchSize <= 10);
+        }
+        Assert.assertEquals(0, publisher.getDroppedCount());
+    }
+
+    @Test
+    public void testPartialBatchIsPublishedAfterLinger() throws Exception {
+
+        CountDownLatch latch = new CountDownLatch(3);
+        BatchingEventPublisher<Integer> publisher = new BatchingEventPublisher<>("test", 1024, 100, 10, 1,
+                BatchingEventPublisher.OverflowPolicy.DROP_OLDEST, batch -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        latch.countDown();
+                    }
+                });
+        publisher.offer(1);
+        publisher.offer(2);
+        publisher.offer(3);
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        publisher.shutdown(5000);
+    }
+
+    @Test
+    public void testIdleWorkerIsWokenByEvent() throws Exception {
+
+        CountDownLatch latch = new CountDownLatch(1);
+        BatchingEventPublisher<Integer> publisher = new BatchingEventPublisher<>("test", 1024, 1, 0, 1,
+                BatchingEventPublisher.OverflowPolicy.DROP_OLDEST, batch -> latch.countDown());
+        // Lets the worker find the buffer empty and wait.
+        Thread.sleep(100);
+        publisher.offer(1);
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        long shutdownStart = System.nanoTime();
+        publisher.shutdown(5000);
+        // Shutting down wakes the idle worker, instead of waiting for the timeout.
+        Assert.assertTrue(System.nanoTime() - shutdownStart < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testDropOldestWhenFull() throws Exception {
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> published = Collections.synchronizedList(new ArrayList<Integer>());
+        BatchingEventPublisher<Integer> publisher = new BatchingEventPublisher<>("test", 4, 1, 0, 1,
+                BatchingEventPublisher.OverflowPolicy.DROP_OLDEST, batch -> {
+                    blocked.countDown();
+                    await(release);
+                    published.addAll(batch);
+                });
+        publisher.offer(0);
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        // The worker holds event 0, hence events 1 to 4 fill the buffer and the next events replace the oldest.
+        for (int i = 1; i <= 4; i++) {
+            Assert.assertTrue(publisher.offer(i));
+        }
+        Assert.assertEquals(4, publisher.size());
+        Assert.assertFalse(publisher.offer(5));
+        Assert.assertFalse(publisher.offer(6));
+        Assert.assertEquals(2, publisher.getDroppedCount());
+        release.countDown();
+        publisher.shutdown(5000);
+        Assert.assertEquals(Arrays.asList(0, 3, 4, 5, 6), published);
+    }
+
+    @Test
+    public void testSampleAdmitsNoEventsWhenFull() throws Exception {
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BatchingEventPublisher<Integer> publisher = new BatchingEventPublisher<>("test", 64, 1, 0, 1,
+                BatchingEventPublisher.OverflowPolicy.SAMPLE, batch -> {
+                    blocked.countDown();
+                    await(release);
+                });
+        publisher.offer(0);
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        int admitted = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (publisher.offer(i)) {
+                admitted++;
+            }
+        }
+        // Every event is admitted up to half of the capacity, and fewer of the events are admitted after that.
+        Assert.assertTrue(admitted >= 32);
+        Assert.assertTrue(admitted <= 64);
+        Assert.assertEquals(admitted, publisher.size());
+        Assert.assertEquals(1000 - admitted, publisher.getDroppedCount());
+        release.countDown();
+        publisher.shutdown(5000);
+    }
+
+    @Test
+    public void testBlockWaitsForSpace() throws Exception {
+
+        List<Integer> published = Collections.synchronizedList(new ArrayList<Integer>());
+        BatchingEventPublisher<Integer> publisher = new BatchingEventPublisher<>("test", 2, 1, 0, 1,
+                BatchingEventPublisher.OverflowPolicy.BLOCK, batch -> {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    published.addAll(batch);
+                });
+        for (int i = 0; i < 50; i++) {
+            Assert.assertTrue(publisher.offer(i));
+        }
+        publisher.shutdown(5000);
+        Assert.assertEquals(50, published.size());
+        Assert.assertEquals(0, publisher.getDroppedCount());
+    }
+
+    @Test
+    public void testConcurrentProducersAndWorkers() throws Exception {
+
+        List<Integer> published = Collections.synchronizedList(new ArrayList<Integer>());
+        BatchingEventPublisher<Integer> publisher = new BatchingEventPublisher<>("test", 128, 16, 1, 3,
+                BatchingEventPublisher.OverflowPolicy.BLOCK, published::addAll);
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            int offset = p * 10000;
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    publisher.offer(offset + i);
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        publisher.shutdown(5000);
+        Assert.assertEquals(40000, published.size());
+        Assert.assertEquals(40000, new HashSet<>(published).size());
+    }
+
+    @Test
+    public void testOverflowPolicyFromName() {
+
+        Assert.assertEquals(BatchingEventPublisher.OverflowPolicy.DROP_OLDEST,
+                BatchingEventPublisher.OverflowPolicy.fromName("DropOldest"));
+        Assert.assertEquals(BatchingEventPublisher.OverflowPolicy.SAMPLE,
+                BatchingEventPublisher.OverflowPolicy.fromName("sample"));
+        Assert.assertEquals(BatchingEventPublisher.OverflowPolicy.BLOCK,
+                BatchingEventPublisher.OverflowPolicy.fromName("BLOCK"));
+        Assert.assertEquals(BatchingEventPublisher.OverflowPolicy.DROP_OLDEST,
+                BatchingEventPublisher.OverflowPolicy.fromName("unknown"));
+    }
+
+    private static void await(CountDownLatch latch) {
+
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * OpenAPIModelCache Test Class
+ */
+public class OpenAPIModelCacheTest {
+
+    private static final String API_UUID = "c32a2dee-3f1a-4d5b-9a55-d1d2b7e3f3c1";
+    private static final String DEFINITION = "{\"openapi\":\"3.0.1\",\"info\":{\"title\":\"PizzaShackAPI\","
+            + "\"version\":\"1.0.0\"},\"paths\":{}}";
+
+    @Test
+    public void testModelIsSharedForTheSameDefinition() {
+
+        OpenAPIModelCache cache = new OpenAPIModelCache(10);
+        OpenAPIModel model = cache.load(API_UUID, DEFINITION);
+        Assert.assertNotNull(model.getOpenAPI());
+        Assert.assertEquals("PizzaShackAPI", model.getJsonObject().getAsJsonObject("info").get("title").getAsString());
+
+        // A definition read again from the local entry is a different instance with the same content
+        OpenAPIModel sameModel = cache.getModel(API_UUID, new String(DEFINITION));
+        Assert.assertSame(model, sameModel);
+        Assert.assertSame(model.getOpenAPI(), sameModel.getOpenAPI());
+    }
+
+    @Test
+    public void testModelIsReplacedWhenTheDefinitionChanges() {
+
+        OpenAPIModelCache cache = new OpenAPIModelCache(10);
+        OpenAPIModel model = cache.load(API_UUID, DEFINITION);
+        String newDefinition = DEFINITION.replace("1.0.0", "2.0.0");
+
+        OpenAPIModel newModel = cache.getModel(API_UUID, newDefinition);
+        Assert.assertNotSame(model, newModel);
+        Assert.assertTrue(newModel.getRevision() > model.getRevision());
+        Assert.assertEquals("2.0.0", newModel.getOpenAPI().getInfo().getVersion());
+    }
+
+    @Test
+    public void testModelIsRemovedWhenInvalidated() {
+
+        OpenAPIModelCache cache = new OpenAPIModelCache(10);
+        OpenAPIModel model = cache.load(API_UUID, DEFINITION);
+        cache.invalidate(API_UUID);
+
+        Assert.assertNotSame(model, cache.getModel(API_UUID, DEFINITION));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.utils;
+
+import org.apache.synapse.rest.API;
+import org.apache.synapse.rest.Resource;
+import org.apache.synapse.rest.dispatch.DispatcherHelper;
+import org.apache.synapse.rest.dispatch.URITemplateHelper;
+import org.apache.synapse.rest.dispatch.URLMappingHelper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * ResourceRouter Test Class
+ */
+public class ResourceRouterTest {
+
+    private API api;
+    private Resource getPets;
+    private Resource postPets;
+    private Resource getPet;
+    private Resource getOwnerOfPet;
+    private Resource getFile;
+    private Resource getStore;
+    private Resource getDefault;
+
+    @Before
+    public void setUp() throws Exception {
+
+        api = new API("admin--PetStore:v1.0.0", "/petstore");
+        getPets = addResource("GET", new URITemplateHelper("/pets"));
+        postPets = addResource("POST", new URITemplateHelper("/pets"));
+        getPet = addResource("GET", new URITemplateHelper("/pets/{petId}"));
+        getOwnerOfPet = addResource("GET", new URITemplateHelper("/pets/{petId}/owner?fields={fields}"));
+        getFile = addResource("GET", new URITemplateHelper("/files/{+path}"));
+        getStore = addResource("GET", new URLMappingHelper("/store/*"));
+        getDefault = addResource("DELETE", new URLMappingHelper("/*"));
+    }
+
+    @Test
+    public void testStaticSegmentsAndPathParameters() {
+
+        ResourceRouter router = new ResourceRouter(api);
+        // A path parameter may be empty at the end of the request path
+        assertCandidates(router.findCandidates("/pets", "GET"), getPets, getPet);
+        assertCandidates(router.findCandidates("/pets/", "POST"), postPets);
+        assertCandidates(router.findCandidates("/pets/1", "GET"), getPet);
+        assertCandidates(router.findCandidates("/Pets/1/owner?fields=name", "GET"), getOwnerOfPet);
+        assertCandidates(router.findCandidates("/owners/1", "GET"));
+    }
+
+    @Test
+    public void testWildcards() {
+
+        ResourceRouter router = new ResourceRouter(api);
+        assertCandidates(router.findCandidates("/files/images/pet.png", "GET"), getFile);
+        assertCandidates(router.findCandidates("/store/orders/1", "GET"), getStore);
+        assertCandidates(router.findCandidates("/store", "GET"), getStore);
+        assertCandidates(router.findCandidates("/pets/1", "DELETE"), getDefault);
+        assertCandidates(router.findCandidates("/", "DELETE"), getDefault);
+    }
+
+    @Test
+    public void testCandidatesOfMultipleMethods() {
+
+        ResourceRouter router = new ResourceRouter(api);
+        assertCandidates(router.findCandidates("/pets/", "POST", "GET"), getPets, postPets, getPet);
+        assertCandidates(router.findCandidates("/pets", null, "POST"), postPets);
+        assertCandidates(router.findCandidates("/pets/1", ResourceRouter.ANY_METHOD), getPet, getDefault);
+    }
+
+    @Test
+    public void testResourcesWhichCannotBeCompiledAreAlwaysCandidates() {
+
+        Resource getPetByExtension = addResource("GET", new URLMappingHelper("*.json"));
+        Resource resourceWithoutMethods = new Resource();
+        resourceWithoutMethods.setDispatcherHelper(new URITemplateHelper("/pets"));
+        api.addResource(resourceWithoutMethods);
+
+        ResourceRouter router = new ResourceRouter(api);
+        assertCandidates(router.findCandidates("/owners/1.json", "GET"), getPetByExtension);
+        assertCandidates(router.findCandidates("/owners", ResourceRouter.ANY_METHOD), getDefault,
+                getPetByExtension, resourceWithoutMethods);
+        // Encoded paths are matched with all the resources of the method
+        Assert.assertEquals(6, router.findCandidates("/pets/a%2Fb", "GET").size());
+    }
+
+    @Test
+    public void testRouterIsCompiledOncePerDeployment() {
+
+        ResourceRouterCache cache = new ResourceRouterCache(10);
+        ResourceRouter router = cache.getRouter(api);
+        Assert.assertSame(router, cache.getRouter(api));
+
+        API redeployedApi = new API(api.getName(), "/petstore");
+        ResourceRouter newRouter = cache.getRouter(redeployedApi);
+        Assert.assertNotSame(router, newRouter);
+        Assert.assertSame(newRouter, cache.getRouter(redeployedApi));
+
+        cache.invalidate(api.getName());
+        Assert.assertNotSame(newRouter, cache.getRouter(redeployedApi));
+    }
+
+    private Resource addResource(String method, DispatcherHelper dispatcherHelper) {
+
+        Resource resource = new Resource();
+        resource.addMethod(method);
+        resource.setDispatcherHelper(dispatcherHelper);
+        api.addResource(resource);
+        return resource;
+    }
+
+    private static void assertCandidates(Set<Resource> candidates, Resource... expected) {
+
+        Assert.assertEquals(expected.length == 0 ? Collections.emptyList() : Arrays.asList(expected),
+                Arrays.asList(candidates.toArray()));
+    }
+}
@@ -153,6 +153,54 @@ public class ConfigDTO {
 
     private int usage_upload_max_usage_file_size;
 
+    private String usage_upload_file_flush_policy;
+
+    private String usage_upload_file_fsync_policy;
+
+    private int usage_upload_file_commit_max_events;
+
+    private String usage_upload_file_format;
+
+    public String getUsage_upload_file_format() {
+
+        return usage_upload_file_format;
+    }
+
+    public void setUsage_upload_file_format(String usage_upload_file_format) {
+
+        this.usage_upload_file_format = usage_upload_file_format;
+    }
+
+    public String getUsage_upload_file_flush_policy() {
+
+        return usage_upload_file_flush_policy;
+    }
+
+    public void setUsage_upload_file_flush_policy(String usage_upload_file_flush_policy) {
+
+        this.usage_upload_file_flush_policy = usage_upload_file_flush_policy;
+    }
+
+    public String getUsage_upload_file_fsync_policy() {
+
+        return usage_upload_file_fsync_policy;
+    }
+
+    public void setUsage_upload_file_fsync_policy(String usage_upload_file_fsync_policy) {
+
+        this.usage_upload_file_fsync_policy = usage_upload_file_fsync_policy;
+    }
+
+    public int getUsage_upload_file_commit_max_events() {
+
+        return usage_upload_file_commit_max_events;
+    }
+
+    public void setUsage_upload_file_commit_max_events(int usage_upload_file_commit_max_events) {
+
+        this.usage_upload_file_commit_max_events = usage_upload_file_commit_max_events;
+    }
+
     public boolean isAdvanced_throttling_query_param_conditions_enabled() {
 
         return advanced_throttling_query_param_conditions_enabled;
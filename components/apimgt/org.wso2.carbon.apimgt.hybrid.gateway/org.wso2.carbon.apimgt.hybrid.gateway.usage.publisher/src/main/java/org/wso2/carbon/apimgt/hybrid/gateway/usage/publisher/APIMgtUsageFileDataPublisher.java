@@ -67,6 +67,30 @@ public class APIMgtUsageFileDataPublisher implements APIMgtUsageDataPublisher {
         return dataPublisher;
     }
 
+    /**
+     * Shuts down the file data publisher, if it was created, after the events in its queue are written to the usage
+     * file. Events published after the shutdown are dropped.
+     */
+    public static void shutdown() {
+        synchronized (APIMgtUsageFileDataPublisher.class) {
+            if (dataPublisher != null) {
+                dataPublisher.shutdown();
+                dataPublisher = null;
+            }
+        }
+    }
+
+    private void tryPublish(String streamID, Object[] metaDataArray, Object[] payloadDataArray) {
+        FileDataPublisher publisher = dataPublisher;
+        if (publisher == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("Usage file data publisher is shut down. Dropped event of stream : " + streamID);
+            }
+            return;
+        }
+        publisher.tryPublish(streamID, System.currentTimeMillis(), metaDataArray, null, payloadDataArray);
+    }
+
     @Override
     public void publishEvent(FaultPublisherDTO faultPublisherDTO) {
         DataBridgeFaultPublisherDTO dataBridgeFaultPublisherDTO = new DataBridgeFaultPublisherDTO(faultPublisherDTO);
@@ -75,8 +99,7 @@ public class APIMgtUsageFileDataPublisher implements APIMgtUsageDataPublisher {
             String streamID = DataPublisherUtil.getApiManagerAnalyticsConfiguration().getFaultStreamName() + ":"
                     + DataPublisherUtil.getApiManagerAnalyticsConfiguration().getFaultStreamVersion();
             //Publish Fault Data
-            dataPublisher.tryPublish(streamID, System.currentTimeMillis(),
-                    (Object[]) dataBridgeFaultPublisherDTO.createMetaData(), null,
+            tryPublish(streamID, (Object[]) dataBridgeFaultPublisherDTO.createMetaData(),
                     (Object[]) dataBridgeFaultPublisherDTO.createPayload());
 
         } catch (Exception e) {
@@ -93,8 +116,7 @@ public class APIMgtUsageFileDataPublisher implements APIMgtUsageDataPublisher {
             String streamID = DataPublisherUtil.getApiManagerAnalyticsConfiguration().getThrottleStreamName() + ":" +
                     DataPublisherUtil.getApiManagerAnalyticsConfiguration().getThrottleStreamVersion();
             //Publish Throttle data
-            dataPublisher.tryPublish(streamID, System.currentTimeMillis(),
-                    (Object[]) dataBridgeThrottlePublisherDTO.createMetaData(), null,
+            tryPublish(streamID, (Object[]) dataBridgeThrottlePublisherDTO.createMetaData(),
                     (Object[]) dataBridgeThrottlePublisherDTO.createPayload());
 
         } catch (Exception e) {
@@ -110,8 +132,7 @@ public class APIMgtUsageFileDataPublisher implements APIMgtUsageDataPublisher {
             String streamID = DataPublisherUtil.getApiManagerAnalyticsConfiguration().getAlertTypeStreamName() + ":" +
                     DataPublisherUtil.getApiManagerAnalyticsConfiguration().getAlertTypeStreamVersion();
 
-            dataPublisher.tryPublish(streamID, System.currentTimeMillis(), null, null,
-                    (Object[]) dataBridgeAlertTypesPublisherDTO.createPayload());
+            tryPublish(streamID, null, (Object[]) dataBridgeAlertTypesPublisherDTO.createPayload());
         } catch (Exception e) {
             log.error("Error while publishing alert types events.", e);
             throw new APIManagementException("Error while publishing alert types events");
@@ -125,8 +146,7 @@ public class APIMgtUsageFileDataPublisher implements APIMgtUsageDataPublisher {
             String streamID = DataPublisherUtil.getApiManagerAnalyticsConfiguration().getRequestStreamName() + ":"
                     + DataPublisherUtil.getApiManagerAnalyticsConfiguration().getRequestStreamVersion();
             //Publish Request Data
-            dataPublisher.tryPublish(streamID, System.currentTimeMillis(),
-                    (Object[]) dataBridgeRequestStreamPublisherDTO.createMetaData(), null,
+            tryPublish(streamID, (Object[]) dataBridgeRequestStreamPublisherDTO.createMetaData(),
                     (Object[]) dataBridgeRequestStreamPublisherDTO.createPayload());
         } catch (Exception e) {
             log.error("Error while publishing Request event", e);
@@ -22,6 +22,7 @@ import com.lmax.disruptor.BlockingWaitStrategy;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.TimeoutException;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import org.apache.commons.lang3.StringUtils;
@@ -40,6 +41,7 @@ import org.wso2.carbon.databridge.commons.utils.DataBridgeThreadFactory;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -53,6 +55,8 @@ public class FileDataPublisher {
 
     private static final int FAILED_EVENT_LOG_INTERVAL = 10000;
 
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
     /**
      * The last failed event time kept, use to determine when to log an warning
      * message, without continuously doing so.
@@ -108,11 +112,14 @@ public class FileDataPublisher {
         }
     }
 
-    public void shutdown() throws UsagePublisherException {
+    /**
+     * Writes the events in the queue to the usage file, and closes the file
+     */
+    public void shutdown() {
         if (eventQueue != null) {
             eventQueue.shutdown();
         }
-        UsageFileWriter.getInstance().closeFileResources();
+        UsageFileWriter.closeInstance();
     }
 
     static class EventQueue {
@@ -142,18 +149,49 @@ public class FileDataPublisher {
             }
         }
 
+        /**
+         * Waits for the events in the queue to be written to the file, and stops the worker
+         */
         private void shutdown() {
+            try {
+                eventQueueDisruptor.shutdown(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                log.warn("Event queue was not drained within " + SHUTDOWN_TIMEOUT_SECONDS + " seconds. The remaining "
+                        + "events will not be written to the usage file.");
+                eventQueueDisruptor.halt();
+            }
             eventQueuePool.shutdown();
-            eventQueueDisruptor.shutdown();
         }
     }
 
+    /**
+     * Writes the events to the usage file from the single event queue thread. The file is committed at the end of
+     * each batch of events taken from the queue, rather than after every event.
+     */
     static class EventQueueWorker implements EventHandler<WrappedEventFactory.WrappedEvent> {
 
+        private final StringBuilder builder = new StringBuilder();
+
         @Override
         public void onEvent(WrappedEventFactory.WrappedEvent wrappedEvent, long sequence, boolean endOfBatch) {
             Event event = wrappedEvent.getEvent();
-            StringBuilder builder = new StringBuilder();
+            try {
+                UsageFileWriter usageFileWriter = UsageFileWriter.getInstance();
+                if (usageFileWriter.isBinaryFormat()) {
+                    usageFileWriter.writeToFile(event);
+                } else {
+                    usageFileWriter.writeToFile(toLine(event));
+                }
+                if (endOfBatch) {
+                    usageFileWriter.commit();
+                }
+            } catch (UsagePublisherException e) {
+                log.warn("Error occurred while getting the Usage File Writer.", e);
+            }
+        }
+
+        private String toLine(Event event) {
+            builder.setLength(0);
             builder.append(MicroGatewayAPIUsageConstants.STREAM_ID)
                     .append(MicroGatewayAPIUsageConstants.KEY_VALUE_SEPARATOR)
                     .append(event.getStreamId())
@@ -176,11 +214,7 @@ public class FileDataPublisher {
                     .append(MicroGatewayAPIUsageConstants.KEY_VALUE_SEPARATOR)
                     .append((event.getPayloadData() == null ? null :
                             StringUtils.join(event.getPayloadData(), MicroGatewayAPIUsageConstants.OBJECT_SEPARATOR)));
-            try {
-                UsageFileWriter.getInstance().writeToFile(builder.toString());
-            } catch (UsagePublisherException e) {
-                log.warn("Error occurred while getting the Usage File Writer.", e);
-            }
+            return builder.toString();
         }
     }
 }
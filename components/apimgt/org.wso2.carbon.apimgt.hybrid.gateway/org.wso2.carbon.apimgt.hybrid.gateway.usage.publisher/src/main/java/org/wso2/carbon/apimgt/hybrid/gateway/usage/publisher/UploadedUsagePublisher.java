@@ -19,6 +19,7 @@
 package org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.dao.UploadedUsageFileInfoDAO;
@@ -26,20 +27,29 @@ import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.dto.UploadedFileInf
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.MicroGatewayAPIUsageConstants;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.UsagePublisherException;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.UsagePublisherUtils;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.binary.BinaryUsageFileReader;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.binary.BinaryUsageFormat;
 
 import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.commons.Event;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 /**
- * This class sends events to DAS which are read from the uploaded usage file
+ * This class sends events to DAS which are read from the uploaded usage file. When it is run by an
+ * {@link UploadedUsagePublishingPipeline}, the events are handed over to the pipeline in batches, and the file is
+ * marked as completed once the pipeline has published all of them.
  */
 public class UploadedUsagePublisher implements Runnable {
 
@@ -47,21 +57,81 @@ public class UploadedUsagePublisher implements Runnable {
 
     private DataPublisher dataPublisher;
     private UploadedFileInfoDTO infoDTO;
+    private UploadedUsagePublishingPipeline pipeline;
+    private List<Event> batch;
+    private long eventCount;
+    private long byteCount;
+    private volatile boolean readCompleted;
+    private volatile boolean allPublished = true;
+    //Batches handed over to the pipeline and not published yet, plus one until the whole file is read
+    private final AtomicInteger pendingBatches = new AtomicInteger(1);
 
     public UploadedUsagePublisher(UploadedFileInfoDTO infoDTO) throws UsagePublisherException {
         this.infoDTO = infoDTO;
         dataPublisher = UsagePublisherUtils.getDataPublisher();
     }
 
+    UploadedUsagePublisher(UploadedFileInfoDTO infoDTO, UploadedUsagePublishingPipeline pipeline) {
+        this.infoDTO = infoDTO;
+        this.pipeline = pipeline;
+        this.batch = new ArrayList<>(pipeline.getBatchSize());
+    }
+
     @Override
     public void run() {
         log.info("Started publishing API usage in file : " + infoDTO.toString());
-        publishEvents();
+        if (pipeline != null) {
+            long startTime = System.nanoTime();
+            readCompleted = readEvents();
+            pipeline.getMetrics().fileRead(byteCount, eventCount, System.nanoTime() - startTime);
+            onBatchPublished(true);
+            return;
+        }
+        if (!readEvents()) {
+            return;
+        }
+        if (eventCount > 0) {
+            try {
+                //There is no way to check the current size of the queue, hence wait 30 seconds in order to get the
+                //data publisher queue cleaned up
+                Thread.sleep(30000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        complete();
+    }
+
+    /**
+     * Called once a batch handed over to the pipeline is published, and once the whole file is read. The file is
+     * marked as completed after the last of them.
+     *
+     * @param published false if the pipeline was stopped before all the events of the batch were published
+     */
+    void onBatchPublished(boolean published) {
+        if (!published) {
+            allPublished = false;
+        }
+        if (pendingBatches.decrementAndGet() == 0) {
+            boolean completed = false;
+            if (readCompleted && allPublished) {
+                completed = complete();
+            } else if (readCompleted) {
+                log.warn("Publishing API usage in file : " + infoDTO.toString()
+                        + " was stopped before all the events were published.");
+            }
+            pipeline.onFileDone(completed);
+        }
     }
 
-    private void publishEvents() {
+    /**
+     * Reads the events of the file and publishes them, or hands them over to the pipeline
+     *
+     * @return true if the whole file was read
+     */
+    private boolean readEvents() {
 
-        FileInputStream fileInputStream = null;
         InputStreamReader inputStreamReader = null;
         BufferedReader bufferedReader = null;
         InputStream fileContentStream = null;
@@ -72,13 +142,18 @@ public class UploadedUsagePublisher implements Runnable {
             if (fileContentStream == null) {
                 log.warn("No content available in the file : " + infoDTO.toString()
                         + ". Therefore, not publishing the record.");
-                UploadedUsageFileInfoDAO.updateCompletion(infoDTO);
-                return;
+                return true;
             }
             zipInputStream = new ZipInputStream(fileContentStream);
             for (ZipEntry zipEntry; (zipEntry = zipInputStream.getNextEntry()) != null; ) {
                 if (zipEntry.getName().equals(MicroGatewayAPIUsageConstants.API_USAGE_OUTPUT_FILE_NAME)) {
-                    InputStream inputStream = zipInputStream;
+                    CountingInputStream countingInputStream = new CountingInputStream(zipInputStream);
+                    InputStream inputStream = new BufferedInputStream(countingInputStream);
+                    if (isBinary(inputStream)) {
+                        publishBinaryEvents(inputStream);
+                        byteCount += countingInputStream.getByteCount();
+                        continue;
+                    }
                     inputStreamReader = new InputStreamReader(inputStream);
                     bufferedReader  = new BufferedReader(inputStreamReader);
                     String readLine;
@@ -95,36 +170,104 @@ public class UploadedUsagePublisher implements Runnable {
                         String correlationData = elements[3].split(MicroGatewayAPIUsageConstants.KEY_VALUE_SEPARATOR)[1];
                         //PayloadData
                         String payloadData = elements[4].split(MicroGatewayAPIUsageConstants.KEY_VALUE_SEPARATOR)[1];
+                        Event event;
                         try {
-                            dataPublisher.tryPublish(streamId, Long.parseLong(timeStamp),
+                            event = new Event(streamId, Long.parseLong(timeStamp),
                                     (Object[]) UsagePublisherUtils.createMetaData(metaData),
                                     (Object[]) UsagePublisherUtils.createMetaData(correlationData),
                                     UsagePublisherUtils.createPayload(streamId, payloadData));
                         } catch (Exception e) {
                             log.warn("Error occurred while publishing event : " + Arrays.toString(elements), e);
+                            continue;
                         }
+                        publish(event);
                     }
+                    byteCount += countingInputStream.getByteCount();
                 }
             }
-            //There is no way to check the current size of the queue, hence wait 30 seconds in order to get the
-            //data publisher queue cleaned up
-            Thread.sleep(30000);
-            //Update the database
-            UploadedUsageFileInfoDAO.updateCompletion(infoDTO);
-            log.info("Completed publishing API Usage from file : " + infoDTO.toString());
+            if (pipeline != null) {
+                flushBatch();
+            }
+            return true;
         } catch (IOException e) {
             log.error("Error occurred while reading the API Usage file.", e);
         } catch (UsagePublisherException e) {
-            log.error("Error occurred while updating the completion for the processed file.", e);
+            log.error("Error occurred while retrieving the content of the API Usage file : " + infoDTO.toString(), e);
         } catch (InterruptedException e) {
-            //Ignore
+            log.warn("Interrupted while publishing API Usage file : " + infoDTO.toString());
+            Thread.currentThread().interrupt();
         } finally {
-            IOUtils.closeQuietly(fileInputStream);
             IOUtils.closeQuietly(inputStreamReader);
             IOUtils.closeQuietly(bufferedReader);
             IOUtils.closeQuietly(fileContentStream);
             IOUtils.closeQuietly(zipInputStream);
         }
+        return false;
+    }
+
+    private boolean complete() {
+        try {
+            //Update the database
+            UploadedUsageFileInfoDAO.updateCompletion(infoDTO);
+            log.info("Completed publishing API Usage from file : " + infoDTO.toString());
+            return true;
+        } catch (UsagePublisherException e) {
+            log.error("Error occurred while updating the completion for the processed file.", e);
+            return false;
+        }
+    }
+
+    private void publish(Event event) throws InterruptedException {
+        eventCount++;
+        if (pipeline != null) {
+            batch.add(event);
+            if (batch.size() >= pipeline.getBatchSize()) {
+                flushBatch();
+            }
+            return;
+        }
+        try {
+            dataPublisher.tryPublish(event.getStreamId(), event.getTimeStamp(), event.getMetaData(),
+                    event.getCorrelationData(), event.getPayloadData());
+        } catch (Exception e) {
+            log.warn("Error occurred while publishing event : " + event, e);
+        }
+    }
+
+    private void flushBatch() throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        pendingBatches.incrementAndGet();
+        try {
+            pipeline.enqueue(this, batch);
+        } catch (InterruptedException e) {
+            pendingBatches.decrementAndGet();
+            throw e;
+        }
+        batch = new ArrayList<>(pipeline.getBatchSize());
+    }
+
+    private static boolean isBinary(InputStream inputStream) throws IOException {
+        byte[] header = BinaryUsageFormat.getHeader();
+        inputStream.mark(header.length);
+        int length = IOUtils.read(inputStream, header);
+        inputStream.reset();
+        return BinaryUsageFormat.isBinary(header, length);
+    }
+
+    private void publishBinaryEvents(InputStream inputStream) throws IOException, InterruptedException {
+        //Usage files are rotated at a few megabytes, hence the whole file is decoded from memory
+        ByteBuffer content = ByteBuffer.wrap(IOUtils.toByteArray(inputStream));
+        try {
+            BinaryUsageFileReader reader = new BinaryUsageFileReader(content);
+            for (Event event; (event = reader.next()) != null; ) {
+                publish(event);
+            }
+        } catch (UsagePublisherException e) {
+            log.error("Error occurred while reading the API Usage file : " + infoDTO.toString()
+                    + ". The remaining events in the file will not be published.", e);
+        }
     }
 
 }
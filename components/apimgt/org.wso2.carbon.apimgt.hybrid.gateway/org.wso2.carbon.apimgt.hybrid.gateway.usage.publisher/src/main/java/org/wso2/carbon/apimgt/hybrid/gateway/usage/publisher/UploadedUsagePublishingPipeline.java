@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.dto.UploadedFileInfoDTO;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.UsagePublisherThreadFactory;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.UsagePublishingMetrics;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes the uploaded usage files in stages. Reader threads stream each claimed file from the database, decompress
+ * and parse it, and hand over its events in batches to publisher threads, which send them to the data publisher.
+ *
+ * The stages are connected through bounded queues. When the data publisher cannot keep up, the publisher threads wait
+ * for it, the readers wait for the publish queue, and no more files are claimed until a reader is free, hence files
+ * are not claimed from the database faster than their events can be published.
+ */
+public class UploadedUsagePublishingPipeline {
+
+    private static final Log log = LogFactory.getLog(UploadedUsagePublishingPipeline.class);
+
+    private static final long PUBLISH_TIMEOUT_MILLIS = 1000;
+    private static final long POLL_TIMEOUT_MILLIS = 1000;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final DataPublisher dataPublisher;
+    private final int publisherThreadCount;
+    private final int batchSize;
+    private final Semaphore fileSlots;
+    private final ExecutorService readerPool;
+    private final ExecutorService publisherPool;
+    private final BlockingQueue<EventBatch> publishQueue;
+    private final UsagePublishingMetrics metrics = new UsagePublishingMetrics();
+    private final AtomicBoolean publishersStarted = new AtomicBoolean();
+    private volatile boolean running = true;
+
+    /**
+     * @param dataPublisher        data publisher to send the events to
+     * @param readerThreadCount    number of files which are read concurrently
+     * @param publisherThreadCount number of threads which send events to the data publisher
+     * @param batchSize            number of events handed over from a reader to a publisher at a time
+     * @param queueCapacity        number of batches which can wait for a publisher
+     */
+    public UploadedUsagePublishingPipeline(DataPublisher dataPublisher, int readerThreadCount,
+                                           int publisherThreadCount, int batchSize, int queueCapacity) {
+
+        this.dataPublisher = dataPublisher;
+        this.publisherThreadCount = publisherThreadCount;
+        this.batchSize = batchSize;
+        // One claimed file waits for each reader, so that readers do not go idle until the next claim
+        this.fileSlots = new Semaphore(readerThreadCount * 2);
+        this.readerPool = Executors.newFixedThreadPool(readerThreadCount, new UsagePublisherThreadFactory());
+        this.publisherPool = Executors.newFixedThreadPool(publisherThreadCount, new UsagePublisherThreadFactory());
+        this.publishQueue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Returns the number of files which can be claimed without waiting for the files in progress
+     *
+     * @return number of files which can be submitted
+     */
+    public int getAvailableCapacity() {
+
+        return running ? fileSlots.availablePermits() : 0;
+    }
+
+    /**
+     * Submits a claimed file to be published. Files should only be claimed up to the {@link #getAvailableCapacity()},
+     * otherwise this waits for a file in progress to complete.
+     *
+     * @param infoDTO claimed file
+     */
+    public void submit(UploadedFileInfoDTO infoDTO) {
+
+        fileSlots.acquireUninterruptibly();
+        startPublishers();
+        metrics.fileClaimed();
+        readerPool.execute(new UploadedUsagePublisher(infoDTO, this));
+    }
+
+    /**
+     * Logs the counters of each stage since the last call
+     */
+    public void logMetrics() {
+
+        String report = metrics.report();
+        if (report != null) {
+            log.info("Uploaded usage publishing : " + report);
+        } else if (log.isDebugEnabled()) {
+            log.debug("No uploaded usage was published since the last run.");
+        }
+    }
+
+    /**
+     * Stops the pipeline. Files which are not fully published by then are left as in progress.
+     */
+    public void shutdown() {
+
+        running = false;
+        readerPool.shutdownNow();
+        publisherPool.shutdown();
+        try {
+            if (!publisherPool.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Uploaded usage publishers did not stop within " + SHUTDOWN_TIMEOUT_SECONDS + " seconds.");
+                publisherPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            publisherPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int getBatchSize() {
+
+        return batchSize;
+    }
+
+    UsagePublishingMetrics getMetrics() {
+
+        return metrics;
+    }
+
+    /**
+     * Hands over a batch of events read from a file to the publishers, waiting while the publish queue is full
+     *
+     * @param publisher reader of the file, which is notified once the batch is published
+     * @param events    events of the batch
+     * @throws InterruptedException if interrupted while waiting for the publish queue
+     */
+    void enqueue(UploadedUsagePublisher publisher, List<Event> events) throws InterruptedException {
+
+        EventBatch batch = new EventBatch(publisher, events);
+        if (!publishQueue.offer(batch)) {
+            long startTime = System.nanoTime();
+            publishQueue.put(batch);
+            metrics.readerWaited(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Releases the slot of a file once all of its events are handed over to the data publisher
+     *
+     * @param completed whether the file was marked as completed
+     */
+    void onFileDone(boolean completed) {
+
+        metrics.fileDone(completed);
+        fileSlots.release();
+    }
+
+    private void startPublishers() {
+
+        // Started with the first file, hence no threads are created while there is nothing to publish
+        if (publishersStarted.compareAndSet(false, true)) {
+            for (int i = 0; i < publisherThreadCount; i++) {
+                publisherPool.execute(this::publishBatches);
+            }
+        }
+    }
+
+    private void publishBatches() {
+
+        while (running) {
+            EventBatch batch;
+            try {
+                batch = publishQueue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (batch != null) {
+                publish(batch);
+            }
+        }
+    }
+
+    private void publish(EventBatch batch) {
+
+        long startTime = System.nanoTime();
+        int published = 0;
+        int failed = 0;
+        boolean stopped = false;
+        for (Event event : batch.events) {
+            try {
+                while (!dataPublisher.tryPublish(event, PUBLISH_TIMEOUT_MILLIS)) {
+                    // The queue of the data publisher is full, hence wait for it rather than dropping the event
+                    metrics.publisherRetried();
+                    if (!running) {
+                        stopped = true;
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Error occurred while publishing event : " + event, e);
+                failed++;
+                continue;
+            }
+            if (stopped) {
+                break;
+            }
+            published++;
+        }
+        metrics.batchPublished(published, failed, System.nanoTime() - startTime);
+        batch.publisher.onBatchPublished(!stopped);
+    }
+
+    private static class EventBatch {
+
+        private final UploadedUsagePublisher publisher;
+        private final List<Event> events;
+
+        private EventBatch(UploadedUsagePublisher publisher, List<Event> events) {
+
+            this.publisher = publisher;
+            this.events = events;
+        }
+    }
+}
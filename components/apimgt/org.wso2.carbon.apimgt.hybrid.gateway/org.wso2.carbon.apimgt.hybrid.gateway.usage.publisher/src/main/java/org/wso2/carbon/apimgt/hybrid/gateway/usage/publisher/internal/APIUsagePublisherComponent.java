@@ -24,13 +24,13 @@ import org.wso2.carbon.apimgt.hybrid.gateway.common.dto.ConfigDTO;
 import org.wso2.carbon.apimgt.impl.APIManagerConfigurationService;
 import org.wso2.carbon.apimgt.hybrid.gateway.common.config.ConfigManager;
 import org.wso2.carbon.apimgt.hybrid.gateway.common.exception.OnPremiseGatewayException;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.APIMgtUsageFileDataPublisher;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.tasks.UploadedUsagePublisherExecutorTask;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.MicroGatewayAPIUsageConstants;
 import org.wso2.carbon.ntask.core.service.TaskService;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.user.core.service.RealmService;
 import java.util.Timer;
-import java.util.TimerTask;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -45,6 +45,9 @@ public class APIUsagePublisherComponent {
 
     private static final Log log = LogFactory.getLog(APIUsagePublisherComponent.class);
 
+    private Timer timer;
+    private UploadedUsagePublisherExecutorTask usagePublisherTask;
+
     @Activate
     protected void activate(ComponentContext ctx) {
         // usage data publishing is enabled thorough a property.
@@ -64,8 +67,8 @@ public class APIUsagePublisherComponent {
                                 + MicroGatewayAPIUsageConstants.DEFAULT_UPLOADED_USAGE_PUBLISH_FREQUENCY, e);
                     }
                 }
-                TimerTask usagePublisherTask = new UploadedUsagePublisherExecutorTask();
-                Timer timer = new Timer();
+                usagePublisherTask = new UploadedUsagePublisherExecutorTask();
+                timer = new Timer();
                 timer.schedule(usagePublisherTask, 0, usagePublishFrequency);
             } else {
                 if (log.isDebugEnabled()) {
@@ -82,6 +85,12 @@ public class APIUsagePublisherComponent {
 
     @Deactivate
     protected void deactivate(ComponentContext ctx) {
+        if (timer != null) {
+            timer.cancel();
+            usagePublisherTask.shutdown();
+        }
+        // Writes the queued usage events to the usage file before the bundle goes down
+        APIMgtUsageFileDataPublisher.shutdown();
         if (log.isDebugEnabled()) {
             log.debug("Micro gateway API Usage Publisher bundle is de-activated ");
         }
@@ -23,37 +23,43 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.UsagePublisherException;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.UsagePublisherUtils;
-import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.UploadedUsagePublisher;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.UploadedUsagePublishingPipeline;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.dao.UploadedUsageFileInfoDAO;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.dto.UploadedFileInfoDTO;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.MicroGatewayAPIUsageConstants;
-import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.UsagePublisherThreadFactory;
+import org.wso2.carbon.databridge.agent.DataPublisher;
 
 import java.util.List;
 import java.util.TimerTask;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
- * Task for scheduling the usage publishing threads
+ * Task for scheduling the usage publishing threads. Each run claims as many uploaded files as the
+ * {@link UploadedUsagePublishingPipeline} can take without waiting, hence files are not claimed faster than they are
+ * published.
  */
 public class UploadedUsagePublisherExecutorTask extends TimerTask {
 
     private static final Log log = LogFactory.getLog(UploadedUsagePublisherExecutorTask.class);
 
     private boolean initialized = false;
-    private static int workerThreadCount = getWorkerThreadCount();
-    private static Executor usagePublisherPool = Executors
-            .newFixedThreadPool(workerThreadCount, new UsagePublisherThreadFactory());
+    private UploadedUsagePublishingPipeline pipeline;
 
     public UploadedUsagePublisherExecutorTask() {
         if (log.isDebugEnabled()) {
             log.debug("Initializing Uploaded Usage Publisher Executor Task.");
         }
         try {
-            UsagePublisherUtils.getDataPublisher();
+            DataPublisher dataPublisher = UsagePublisherUtils.getDataPublisher();
             UsagePublisherUtils.getStreamDefinitions();
-            getWorkerThreadCount();
+            pipeline = new UploadedUsagePublishingPipeline(dataPublisher,
+                    getIntProperty(MicroGatewayAPIUsageConstants.WORKER_THREAD_COUNT_PROPERTY,
+                            MicroGatewayAPIUsageConstants.DEFAULT_WORKER_THREAD_COUNT),
+                    getIntProperty(MicroGatewayAPIUsageConstants.PUBLISHER_THREAD_COUNT_PROPERTY,
+                            MicroGatewayAPIUsageConstants.DEFAULT_PUBLISHER_THREAD_COUNT),
+                    getIntProperty(MicroGatewayAPIUsageConstants.PUBLISH_BATCH_SIZE_PROPERTY,
+                            MicroGatewayAPIUsageConstants.DEFAULT_PUBLISH_BATCH_SIZE),
+                    getIntProperty(MicroGatewayAPIUsageConstants.PUBLISH_QUEUE_CAPACITY_PROPERTY,
+                            MicroGatewayAPIUsageConstants.DEFAULT_PUBLISH_QUEUE_CAPACITY));
             initialized = true;
         } catch (UsagePublisherException e) {
             log.error("Error while initializing the UploadedUsagePublisherExecutorTask.", e);
@@ -61,47 +67,65 @@ public class UploadedUsagePublisherExecutorTask extends TimerTask {
     }
 
     /**
-     * Returns the number of workers allowed for the server.
+     * Returns the value of a positive integer system property.
      *
-     * @return int number of worker threads
+     * @param property     name of the system property
+     * @param defaultValue value used when the property is not set or invalid
+     * @return int value of the property
      */
-    private static int getWorkerThreadCount() {
+    private static int getIntProperty(String property, int defaultValue) {
 
-        int threadCount = MicroGatewayAPIUsageConstants.DEFAULT_WORKER_THREAD_COUNT;
-        String workerThreadCountSystemPropertyValue = System
-                .getProperty(MicroGatewayAPIUsageConstants.WORKER_THREAD_COUNT_PROPERTY);
-        if (StringUtils.isNotBlank(workerThreadCountSystemPropertyValue)) {
+        String systemPropertyValue = System.getProperty(property);
+        if (StringUtils.isNotBlank(systemPropertyValue)) {
             try {
-                threadCount = Integer.parseInt(workerThreadCountSystemPropertyValue);
+                int value = Integer.parseInt(systemPropertyValue.trim());
+                if (value > 0) {
+                    return value;
+                }
+                log.error("The system property: " + property + " should be a positive integer. Using default value: "
+                        + defaultValue);
             } catch (NumberFormatException e) {
-                log.error("Error while parsing the system property: "
-                        + MicroGatewayAPIUsageConstants.WORKER_THREAD_COUNT_PROPERTY
-                        + " to integer. Using default usage publish worker thread count: "
-                        + MicroGatewayAPIUsageConstants.DEFAULT_WORKER_THREAD_COUNT, e);
+                log.error("Error while parsing the system property: " + property + " to integer. Using default value: "
+                        + defaultValue, e);
             }
         }
-        return threadCount;
+        return defaultValue;
     }
 
     @Override
     public void run() {
         if (initialized) {
-            try {
-                List<UploadedFileInfoDTO> uploadedFileList = UploadedUsageFileInfoDAO
-                        .getNextFilesToProcess(workerThreadCount);
-                for (UploadedFileInfoDTO dto : uploadedFileList) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Scheduled publishing On-Premise API Usage data for : " + dto.getKey());
+            int capacity = pipeline.getAvailableCapacity();
+            if (capacity > 0) {
+                try {
+                    List<UploadedFileInfoDTO> uploadedFileList = UploadedUsageFileInfoDAO
+                            .getNextFilesToProcess(capacity);
+                    for (UploadedFileInfoDTO dto : uploadedFileList) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("Scheduled publishing On-Premise API Usage data for : " + dto.getKey());
+                        }
+                        pipeline.submit(dto);
                     }
-                    Runnable worker = new UploadedUsagePublisher(dto);
-                    usagePublisherPool.execute(worker);
+                } catch (UsagePublisherException e) {
+                    log.error("Error occurred while publishing On-Premise API Usage data.", e);
                 }
-            } catch (UsagePublisherException e) {
-                log.error("Error occurred while publishing On-Premise API Usage data.", e);
+            } else if (log.isDebugEnabled()) {
+                log.debug("All usage publishing workers are busy. Not claiming more uploaded usage files.");
             }
+            pipeline.logMetrics();
         } else {
             log.warn("Uploaded Usage Publishing is disabled.");
         }
     }
 
+    /**
+     * Cancels the task and stops publishing the uploaded files
+     */
+    public void shutdown() {
+        cancel();
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
 }
@@ -31,6 +31,8 @@ public class MicroGatewayAPIUsageConstants {
 
     public static final String API_USAGE_OUTPUT_FILE_NAME = "api-usage-data.dat";
 
+    public static final String BINARY_FILE_FORMAT = "binary";
+
     public static final String FILE_NAME_HEADER = "FileName";
 
     public static final String AUTHORIZATION_HEADER = "Authorization";
@@ -43,6 +45,12 @@ public class MicroGatewayAPIUsageConstants {
 
     public static final String WORKER_THREAD_COUNT_PROPERTY = "microGatewayUsagePublishers";
 
+    public static final String PUBLISHER_THREAD_COUNT_PROPERTY = "usage.publishing.publisher.threads";
+
+    public static final String PUBLISH_BATCH_SIZE_PROPERTY = "usage.publishing.batch.size";
+
+    public static final String PUBLISH_QUEUE_CAPACITY_PROPERTY = "usage.publishing.queue.capacity";
+
     public static final int DEFAULT_UPLOADED_USAGE_PUBLISH_FREQUENCY = 300000;
 
     public static final String UPLOADED_FILE_SUFFIX = ".uploaded";
@@ -84,6 +92,12 @@ public class MicroGatewayAPIUsageConstants {
 
     public static final int DEFAULT_WORKER_THREAD_COUNT = 3;
 
+    public static final int DEFAULT_PUBLISHER_THREAD_COUNT = 2;
+
+    public static final int DEFAULT_PUBLISH_BATCH_SIZE = 500;
+
+    public static final int DEFAULT_PUBLISH_QUEUE_CAPACITY = 20;
+
     public static final int MAX_RETRY_COUNT = 3;
 
     // Separators used for persisting events
@@ -19,14 +19,20 @@
 package org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.apimgt.hybrid.gateway.common.config.ConfigManager;
+import org.wso2.carbon.apimgt.hybrid.gateway.common.dto.ConfigDTO;
 import org.wso2.carbon.apimgt.hybrid.gateway.common.exception.OnPremiseGatewayException;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.binary.BinaryUsageEventEncoder;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.binary.BinaryUsageFormat;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.zip.ZIPException;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.zip.ZIPUtils;
+import org.wso2.carbon.databridge.commons.Event;
 import org.wso2.carbon.utils.CarbonUtils;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -36,10 +42,17 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Locale;
 import java.util.UUID;
 
 /**
- * This class writes the events to a file
+ * This class writes the events to a file. Events are written by a single thread, which calls {@link #commit()} at the
+ * end of each batch of events instead of flushing the file after every event. The size of the file is tracked in
+ * memory to decide when the file should be rotated.
+ *
+ * Events are written as lines of text, or in the {@link BinaryUsageFormat} if the binary file format is configured.
+ * A usage file always holds events in one format, and a binary usage file is only written by one writer, hence an
+ * existing binary file, or an existing text file when the binary format is configured, is rotated first.
  */
 public class UsageFileWriter {
 
@@ -47,29 +60,128 @@ public class UsageFileWriter {
 
     private static volatile UsageFileWriter usageFileWriter = null;
 
+    private static final int DEFAULT_MAX_FILE_SIZE_IN_MB = 12;
+    private static final int DEFAULT_COMMIT_MAX_EVENTS = 1000;
+    private static final int LINE_SEPARATOR_LENGTH = System.lineSeparator().length();
+
+    /**
+     * When the written events are flushed from the buffer to the file.
+     */
+    public enum FlushPolicy {
+        /**
+         * Flush after each event, as the events were written before.
+         */
+        EVENT,
+        /**
+         * Flush when a batch of events is committed.
+         */
+        BATCH;
+
+        static FlushPolicy fromName(String name) {
+            return EVENT.name().equalsIgnoreCase(StringUtils.trim(name)) ? EVENT : BATCH;
+        }
+    }
+
+    /**
+     * When the usage file is synced to the storage device.
+     */
+    public enum FsyncPolicy {
+        /**
+         * Leave it to the operating system.
+         */
+        NONE,
+        /**
+         * Sync when a batch of events is committed, and before the file is rotated or closed.
+         */
+        BATCH,
+        /**
+         * Sync before the file is rotated or closed.
+         */
+        ROTATION;
+
+        static FsyncPolicy fromName(String name) {
+            String trimmed = StringUtils.trim(name);
+            if (StringUtils.isEmpty(trimmed)) {
+                return NONE;
+            }
+            try {
+                return valueOf(trimmed.toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                log.warn("Unknown usage file fsync policy " + name + ". The file will not be synced explicitly.");
+                return NONE;
+            }
+        }
+    }
+
     private Path filePath = null;
     private FileOutputStream fileOutputStream = null;
+    private BufferedOutputStream bufferedOutputStream = null;
     private OutputStreamWriter outputStreamWriter = null;
     private BufferedWriter bufferedWriter = null;
 
+    private final long maxFileSize;
+    private final FlushPolicy flushPolicy;
+    private final FsyncPolicy fsyncPolicy;
+    private final int commitMaxEvents;
+    private final boolean binaryFormat;
+    private final BinaryUsageEventEncoder encoder = new BinaryUsageEventEncoder();
+    private long fileSize;
+    private int uncommittedEvents;
+
     private UsageFileWriter() throws UsagePublisherException {
-        initialize();
+        int sizeInMb = 0;
+        String flushPolicyName = null;
+        String fsyncPolicyName = null;
+        int maxEvents = 0;
+        String fileFormat = null;
+        try {
+            ConfigDTO configDTO = ConfigManager.getConfigurationDTO();
+            sizeInMb = configDTO.getUsage_upload_max_usage_file_size();
+            flushPolicyName = configDTO.getUsage_upload_file_flush_policy();
+            fsyncPolicyName = configDTO.getUsage_upload_file_fsync_policy();
+            maxEvents = configDTO.getUsage_upload_file_commit_max_events();
+            fileFormat = configDTO.getUsage_upload_file_format();
+        } catch (OnPremiseGatewayException e) {
+            log.error("Error occurred while reading the usage file configuration. Default values will be used.", e);
+        }
+        //12mb can contain roughly 10000 requests or 30000 events
+        this.maxFileSize = (long) (sizeInMb > 0 ? sizeInMb : DEFAULT_MAX_FILE_SIZE_IN_MB) * 1024 * 1024;
+        this.flushPolicy = FlushPolicy.fromName(flushPolicyName);
+        this.fsyncPolicy = FsyncPolicy.fromName(fsyncPolicyName);
+        this.commitMaxEvents = maxEvents > 0 ? maxEvents : DEFAULT_COMMIT_MAX_EVENTS;
+        this.binaryFormat = MicroGatewayAPIUsageConstants.BINARY_FILE_FORMAT.equalsIgnoreCase(
+                StringUtils.trim(fileFormat));
+        initialize(Paths.get(CarbonUtils.getCarbonHome(), MicroGatewayAPIUsageConstants.API_USAGE_OUTPUT_DIRECTORY));
+    }
+
+    UsageFileWriter(Path directoryPath, long maxFileSize, FlushPolicy flushPolicy, FsyncPolicy fsyncPolicy,
+                    int commitMaxEvents) throws UsagePublisherException {
+        this(directoryPath, maxFileSize, flushPolicy, fsyncPolicy, commitMaxEvents, false);
+    }
+
+    UsageFileWriter(Path directoryPath, long maxFileSize, FlushPolicy flushPolicy, FsyncPolicy fsyncPolicy,
+                    int commitMaxEvents, boolean binaryFormat) throws UsagePublisherException {
+        this.maxFileSize = maxFileSize;
+        this.flushPolicy = flushPolicy;
+        this.fsyncPolicy = fsyncPolicy;
+        this.commitMaxEvents = commitMaxEvents;
+        this.binaryFormat = binaryFormat;
+        initialize(directoryPath);
     }
 
     /**
      * Initializes the Usage File Writer. Creates the directory which is used to keep the usage file and creates the
      * necessary output streams
      *
+     * @param directoryPath directory in which the usage file is kept
      * @throws UsagePublisherException if there is an error while creating the usage directory or initializing the
      * output streams
      */
-    private void initialize() throws UsagePublisherException {
+    private void initialize(Path directoryPath) throws UsagePublisherException {
         if (log.isDebugEnabled()) {
             log.debug("Initializing Usage File Writer");
         }
         //Create Directory in Carbon-Home to keep the files
-        Path directoryPath = Paths.get(CarbonUtils.getCarbonHome(),
-                MicroGatewayAPIUsageConstants.API_USAGE_OUTPUT_DIRECTORY);
         if (!Files.exists(directoryPath)) {
             try {
                 Files.createDirectories(directoryPath);
@@ -80,13 +192,33 @@ public class UsageFileWriter {
         }
 
         filePath = Paths.get(directoryPath.toString(), MicroGatewayAPIUsageConstants.API_USAGE_OUTPUT_FILE_NAME);
+        try {
+            if (Files.exists(filePath) && Files.size(filePath) > 0
+                    && (binaryFormat || BinaryUsageFormat.isBinary(filePath))) {
+                log.info("Rotating the existing API Usage File : " + filePath.toString());
+                archiveFile(filePath);
+            }
+        } catch (IOException | ZIPException e) {
+            throw new UsagePublisherException("Error occurred while rotating the file : " + filePath.toString(), e);
+        }
+        openFileResources();
+    }
+
+    private void openFileResources() throws UsagePublisherException {
         try {
             fileOutputStream = new FileOutputStream(filePath.toFile(), true);
-            outputStreamWriter = new OutputStreamWriter(fileOutputStream, StandardCharsets.UTF_8);
+            fileSize = fileOutputStream.getChannel().size();
+            bufferedOutputStream = new BufferedOutputStream(fileOutputStream);
+            outputStreamWriter = new OutputStreamWriter(bufferedOutputStream, StandardCharsets.UTF_8);
             bufferedWriter = new BufferedWriter(outputStreamWriter);
+            uncommittedEvents = 0;
         } catch (FileNotFoundException e) {
             throw new UsagePublisherException("Error occurred while opening the file to write: " +
                     filePath.toString(), e);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(fileOutputStream);
+            throw new UsagePublisherException("Error occurred while reading the size of the file : " +
+                    filePath.toString(), e);
         }
     }
 
@@ -108,34 +240,125 @@ public class UsageFileWriter {
     }
 
     /**
-     * Writes the given content to the usage file
+     * Commits the pending events and closes the {@link UsageFileWriter} instance, if it was created. A new instance
+     * is created by the next call to {@link #getInstance()}.
+     */
+    public static void closeInstance() {
+        synchronized (UsageFileWriter.class) {
+            if (usageFileWriter != null) {
+                usageFileWriter.closeFileResources();
+                usageFileWriter = null;
+            }
+        }
+    }
+
+    /**
+     * Writes the given content to the usage file. The content is only guaranteed to reach the file once
+     * {@link #commit()} is called, unless the flush policy is {@link FlushPolicy#EVENT}.
      *
      * @param content String content to be written
      */
     public synchronized void writeToFile(String content) {
-        //Check if the file size exceeds the max limit (12mb can contain roughly 10000 requests or 30000 events)
+        rotateIfRequired();
         try {
-            int sizeInMb = ConfigManager.getConfigurationDTO().getUsage_upload_max_usage_file_size();
-            int maxFileSize = (sizeInMb != 0 ? sizeInMb : 12) * 1024 * 1024;
-            if (Files.size(filePath) > maxFileSize) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Rotating API Usage File. File Size is > MaxFileSize (" + maxFileSize + " Mb)");
-                }
+            bufferedWriter.write(content);
+            bufferedWriter.newLine();
+            fileSize += getEncodedLength(content) + LINE_SEPARATOR_LENGTH;
+            onEventWritten();
+        } catch (IOException e) {
+            log.warn("Error occurred while writing event [" + content + "] to the file : " + filePath.toString(), e);
+        }
+        if (uncommittedEvents >= commitMaxEvents) {
+            commit();
+        }
+    }
+
+    /**
+     * Writes the given event to the usage file in the binary format. The event is only guaranteed to reach the file
+     * once {@link #commit()} is called, unless the flush policy is {@link FlushPolicy#EVENT}.
+     *
+     * @param event event to be written
+     */
+    public synchronized void writeToFile(Event event) {
+        rotateIfRequired();
+        try {
+            if (fileSize == 0) {
+                //The header is only written with the first event, so that files without events stay empty
+                byte[] header = BinaryUsageFormat.getHeader();
+                bufferedOutputStream.write(header);
+                fileSize = header.length;
+                encoder.reset();
+            }
+            fileSize += encoder.encode(event);
+            encoder.writeTo(bufferedOutputStream);
+            onEventWritten();
+        } catch (IOException e) {
+            log.warn("Error occurred while writing event [" + event + "] to the file : " + filePath.toString(), e);
+        }
+        if (uncommittedEvents >= commitMaxEvents) {
+            commit();
+        }
+    }
+
+    /**
+     * Returns whether the events are written in the binary format
+     *
+     * @return true if the events should be written with {@link #writeToFile(Event)}
+     */
+    public boolean isBinaryFormat() {
+        return binaryFormat;
+    }
+
+    private void rotateIfRequired() {
+        //Check if the file size exceeds the max limit
+        if (fileSize > maxFileSize) {
+            if (log.isDebugEnabled()) {
+                log.debug("Rotating API Usage File. File Size is > MaxFileSize (" + maxFileSize + " bytes)");
+            }
+            try {
                 rotateFile(filePath.toString());
+            } catch (UsagePublisherException e) {
+                log.error("Error occurred while rotating the file : " + filePath.toString(), e);
             }
-        } catch (IOException | OnPremiseGatewayException | UsagePublisherException e) {
-            log.error("Error occurred while rotating the file : " + filePath.toString(), e);
         }
+    }
+
+    private void onEventWritten() throws IOException {
+        uncommittedEvents++;
+        if (flushPolicy == FlushPolicy.EVENT) {
+            bufferedWriter.flush();
+        }
+    }
 
+    /**
+     * Flushes the events written since the last commit to the file, and syncs the file if the fsync policy is
+     * {@link FsyncPolicy#BATCH}.
+     */
+    public synchronized void commit() {
+        if (uncommittedEvents == 0) {
+            return;
+        }
         try {
-            bufferedWriter.write(content);
-            bufferedWriter.newLine();
             bufferedWriter.flush();
+            if (fsyncPolicy == FsyncPolicy.BATCH) {
+                fileOutputStream.getFD().sync();
+            }
+            uncommittedEvents = 0;
         } catch (IOException e) {
-            log.warn("Error occurred while writing event [" + content + "] to the file : " + filePath.toString(), e);
+            log.warn("Error occurred while committing " + uncommittedEvents + " events to the file : "
+                    + filePath.toString(), e);
         }
     }
 
+    /**
+     * Returns the size of the usage file, including the events which are not committed yet
+     *
+     * @return size of the usage file in bytes
+     */
+    public synchronized long getFileSize() {
+        return fileSize;
+    }
+
     /**
      * Rotates the given file. This will compress the file into ZIP format and add a timestamp to file name
      *
@@ -146,28 +369,54 @@ public class UsageFileWriter {
     public synchronized void rotateFile(String fileToRotate) throws UsagePublisherException {
         try {
             closeFileResources();
-            Path currentPath = Paths.get(fileToRotate);
-            //api-usage-data.dat.1511772769858.046b6c7f-0b8a-43b9-b35d-6489e6daee91.zip
-            Path rotatedPath = Paths.get(fileToRotate + "." + System.currentTimeMillis() + "." + UUID.randomUUID().toString()
-                    + MicroGatewayAPIUsageConstants.ZIP_EXTENSION);
-            ZIPUtils.compressFile(currentPath.toString(), rotatedPath.toString());
-            Files.delete(currentPath);
+            archiveFile(Paths.get(fileToRotate));
 
             //ReCreate the streams
-            fileOutputStream = new FileOutputStream(filePath.toFile(), true);
-            outputStreamWriter = new OutputStreamWriter(fileOutputStream, StandardCharsets.UTF_8);
-            bufferedWriter = new BufferedWriter(outputStreamWriter);
+            openFileResources();
         } catch (ZIPException | IOException e) {
             throw new UsagePublisherException("Error occurred while rotating the file : " + fileToRotate, e);
         }
     }
 
+    private static void archiveFile(Path currentPath) throws ZIPException, IOException {
+        //api-usage-data.dat.1511772769858.046b6c7f-0b8a-43b9-b35d-6489e6daee91.zip
+        Path rotatedPath = Paths.get(currentPath.toString() + "." + System.currentTimeMillis() + "."
+                + UUID.randomUUID().toString() + MicroGatewayAPIUsageConstants.ZIP_EXTENSION);
+        ZIPUtils.compressFile(currentPath.toString(), rotatedPath.toString());
+        Files.delete(currentPath);
+    }
+
     /**
-     * Closes the output streams
+     * Commits the pending events and closes the output streams
      */
     public synchronized void closeFileResources() {
-        IOUtils.closeQuietly(fileOutputStream);
+        try {
+            bufferedWriter.flush();
+            if (fsyncPolicy != FsyncPolicy.NONE) {
+                fileOutputStream.getFD().sync();
+            }
+        } catch (IOException e) {
+            log.warn("Error occurred while committing the events to the file : " + filePath.toString(), e);
+        }
+        uncommittedEvents = 0;
+        //Close the writers first, so that they do not write to a closed stream
         IOUtils.closeQuietly(bufferedWriter);
         IOUtils.closeQuietly(outputStreamWriter);
+        IOUtils.closeQuietly(bufferedOutputStream);
+        IOUtils.closeQuietly(fileOutputStream);
+    }
+
+    private static long getEncodedLength(String content) {
+        long length = content.length();
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c >= 0x800) {
+                //Surrogate pairs are 4 bytes in UTF-8, which is 2 bytes for each of the chars
+                length += Character.isSurrogate(c) ? 1 : 2;
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
     }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the stages which publish the uploaded usage files. The counters are updated by the reader and publisher
+ * threads, and are reset each time a report is taken. The throughput of a stage is reported over the time since the
+ * last report, while the busy time of a stage is summed over its threads.
+ */
+public class UsagePublishingMetrics {
+
+    private final LongAdder filesClaimed = new LongAdder();
+    private final LongAdder filesRead = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder eventsRead = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder readerWaitNanos = new LongAdder();
+    private final LongAdder batchesPublished = new LongAdder();
+    private final LongAdder eventsPublished = new LongAdder();
+    private final LongAdder eventsFailed = new LongAdder();
+    private final LongAdder publishNanos = new LongAdder();
+    private final LongAdder publisherRetries = new LongAdder();
+    private final LongAdder filesCompleted = new LongAdder();
+    private final LongAdder filesFailed = new LongAdder();
+    private long lastReportTime = System.nanoTime();
+
+    public void fileClaimed() {
+
+        filesClaimed.increment();
+    }
+
+    /**
+     * Records a file which was decompressed and parsed by a reader
+     *
+     * @param bytes  number of decompressed bytes
+     * @param events number of events parsed from the file
+     * @param nanos  time taken to read the file, including the time waited for the publish queue
+     */
+    public void fileRead(long bytes, long events, long nanos) {
+
+        filesRead.increment();
+        bytesRead.add(bytes);
+        eventsRead.add(events);
+        readNanos.add(nanos);
+    }
+
+    /**
+     * Records the time a reader waited since the publish queue was full
+     *
+     * @param nanos time waited
+     */
+    public void readerWaited(long nanos) {
+
+        readerWaitNanos.add(nanos);
+    }
+
+    /**
+     * Records a batch handed over to the data publisher
+     *
+     * @param published number of events accepted by the data publisher
+     * @param failed    number of events which could not be published
+     * @param nanos     time taken to publish the batch, including the time waited for the data publisher
+     */
+    public void batchPublished(int published, int failed, long nanos) {
+
+        batchesPublished.increment();
+        eventsPublished.add(published);
+        eventsFailed.add(failed);
+        publishNanos.add(nanos);
+    }
+
+    /**
+     * Records an attempt to publish an event which timed out since the queue of the data publisher was full
+     */
+    public void publisherRetried() {
+
+        publisherRetries.increment();
+    }
+
+    /**
+     * Records a file for which all the events were handed over to the data publisher
+     *
+     * @param completed whether the file was marked as completed
+     */
+    public void fileDone(boolean completed) {
+
+        if (completed) {
+            filesCompleted.increment();
+        } else {
+            filesFailed.increment();
+        }
+    }
+
+    /**
+     * Returns the counters collected since the last report, and resets them
+     *
+     * @return report of the counters and the throughput of each stage, or null if nothing was published
+     */
+    public synchronized String report() {
+
+        long now = System.nanoTime();
+        double seconds = Math.max(now - lastReportTime, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        lastReportTime = now;
+        long claimed = filesClaimed.sumThenReset();
+        long read = filesRead.sumThenReset();
+        long bytes = bytesRead.sumThenReset();
+        long parsed = eventsRead.sumThenReset();
+        long reading = readNanos.sumThenReset();
+        long readerWait = readerWaitNanos.sumThenReset();
+        long batches = batchesPublished.sumThenReset();
+        long published = eventsPublished.sumThenReset();
+        long failed = eventsFailed.sumThenReset();
+        long publishing = publishNanos.sumThenReset();
+        long retries = publisherRetries.sumThenReset();
+        long completed = filesCompleted.sumThenReset();
+        long incomplete = filesFailed.sumThenReset();
+        if (claimed == 0 && read == 0 && batches == 0 && completed == 0 && incomplete == 0) {
+            return null;
+        }
+        return String.format("claimed %d files; read %d files, %d KB, %d events in %.1f thread s "
+                        + "(%.0f events/s, %.1f thread s waiting for the publish queue); published %d events "
+                        + "in %d batches in %.1f thread s (%.0f events/s, %d retries on a full data publisher queue, "
+                        + "%d failed events); "
+                        + "completed %d files, %d files not completed, in the last %.0f s",
+                claimed, read, bytes / 1024, parsed, toSeconds(reading), parsed / seconds,
+                toSeconds(readerWait), published, batches, toSeconds(publishing), published / seconds,
+                retries, failed, completed, incomplete, seconds);
+    }
+
+    private static double toSeconds(long nanos) {
+
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.binary;
+
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes events into records of the {@link BinaryUsageFormat}. The encoder reuses its buffer between events, hence
+ * it must only be used by one thread at a time. It keeps the stream ids declared in the current file, hence
+ * {@link #reset()} must be called before writing the records of a new file.
+ */
+public class BinaryUsageEventEncoder {
+
+    private static final int MAX_VARINT_LENGTH = 5;
+
+    private byte[] buffer = new byte[512];
+    private int length;
+    private final byte[] lengthPrefix = new byte[MAX_VARINT_LENGTH];
+    private int lengthPrefixLength;
+    private final Map<String, Integer> streamIndexes = new HashMap<>();
+
+    /**
+     * Forgets the stream ids declared so far, so that the next records can be written to a new file
+     */
+    public void reset() {
+
+        streamIndexes.clear();
+    }
+
+    /**
+     * Encodes the given event, replacing the previously encoded event
+     *
+     * @param event event to be encoded
+     * @return number of bytes of the record, including the length prefix
+     */
+    public int encode(Event event) {
+
+        length = 0;
+        Integer streamIndex = streamIndexes.get(event.getStreamId());
+        if (streamIndex != null) {
+            writeVarLong((long) streamIndex << 1);
+        } else {
+            streamIndexes.put(event.getStreamId(), streamIndexes.size());
+            byte[] bytes = event.getStreamId().getBytes(StandardCharsets.UTF_8);
+            writeVarLong(((long) bytes.length << 1) | 1);
+            writeBytes(bytes);
+        }
+        writeVarLong(zigZag(event.getTimeStamp()));
+        writeArray(event.getMetaData());
+        writeArray(event.getCorrelationData());
+        writeArray(event.getPayloadData());
+
+        lengthPrefixLength = 0;
+        int value = length;
+        while ((value & ~0x7F) != 0) {
+            lengthPrefix[lengthPrefixLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        lengthPrefix[lengthPrefixLength++] = (byte) value;
+        return lengthPrefixLength + length;
+    }
+
+    /**
+     * Writes the record of the last encoded event to the given stream
+     *
+     * @param outputStream stream to write the record to
+     * @throws IOException if the record cannot be written
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+
+        outputStream.write(lengthPrefix, 0, lengthPrefixLength);
+        outputStream.write(buffer, 0, length);
+    }
+
+    private void writeArray(Object[] values) {
+
+        if (values == null) {
+            writeVarLong(0);
+            return;
+        }
+        writeVarLong(values.length + 1L);
+        for (Object value : values) {
+            writeValue(value);
+        }
+    }
+
+    private void writeValue(Object value) {
+
+        if (value == null) {
+            writeByte(BinaryUsageFormat.TYPE_NULL);
+        } else if (value instanceof String) {
+            writeByte(BinaryUsageFormat.TYPE_STRING);
+            writeString((String) value);
+        } else if (value instanceof Integer) {
+            writeByte(BinaryUsageFormat.TYPE_INT);
+            writeVarLong(zigZag((Integer) value));
+        } else if (value instanceof Long) {
+            writeByte(BinaryUsageFormat.TYPE_LONG);
+            writeVarLong(zigZag((Long) value));
+        } else if (value instanceof Boolean) {
+            writeByte((Boolean) value ? BinaryUsageFormat.TYPE_TRUE : BinaryUsageFormat.TYPE_FALSE);
+        } else if (value instanceof Double) {
+            writeByte(BinaryUsageFormat.TYPE_DOUBLE);
+            writeFixedLong(Double.doubleToLongBits((Double) value), 8);
+        } else if (value instanceof Float) {
+            writeByte(BinaryUsageFormat.TYPE_FLOAT);
+            writeFixedLong(Float.floatToIntBits((Float) value), 4);
+        } else {
+            writeByte(BinaryUsageFormat.TYPE_STRING);
+            writeString(value.toString());
+        }
+    }
+
+    private void writeString(String value) {
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        writeBytes(bytes);
+    }
+
+    private void writeBytes(byte[] bytes) {
+
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void writeVarLong(long value) {
+
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeFixedLong(long value, int bytes) {
+
+        ensureCapacity(bytes);
+        for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+            buffer[length++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeByte(byte value) {
+
+        ensureCapacity(1);
+        buffer[length++] = value;
+    }
+
+    private void ensureCapacity(int required) {
+
+        if (length + required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + required));
+        }
+    }
+
+    private static long zigZag(long value) {
+
+        return (value << 1) ^ (value >> 63);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.binary;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.UsagePublisherException;
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads events from a buffer holding a file in the {@link BinaryUsageFormat}. Values are decoded directly from the
+ * buffer, which may be a memory mapped file, and each stream id is only decoded once.
+ */
+public class BinaryUsageFileReader {
+
+    private static final Log log = LogFactory.getLog(BinaryUsageFileReader.class);
+
+    private final ByteBuffer buffer;
+    private final List<String> streamIds = new ArrayList<>();
+
+    /**
+     * @param buffer buffer holding the content of a binary usage file, from its position to its limit
+     * @throws UsagePublisherException if the content does not start with the binary usage file header
+     */
+    public BinaryUsageFileReader(ByteBuffer buffer) throws UsagePublisherException {
+
+        this.buffer = buffer.slice();
+        byte[] header = new byte[BinaryUsageFormat.HEADER.length];
+        int headerLength = Math.min(header.length, this.buffer.remaining());
+        this.buffer.get(header, 0, headerLength);
+        if (!BinaryUsageFormat.isBinary(header, headerLength)) {
+            throw new UsagePublisherException("Content is not in the binary usage file format.");
+        }
+    }
+
+    /**
+     * Creates a reader for the given file, which is mapped into memory
+     *
+     * @param path path of the binary usage file
+     * @return reader for the file
+     * @throws UsagePublisherException if the file cannot be mapped, or is not in the binary usage file format
+     */
+    public static BinaryUsageFileReader open(Path path) throws UsagePublisherException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new BinaryUsageFileReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UsagePublisherException("Error occurred while mapping the usage file : " + path, e);
+        }
+    }
+
+    /**
+     * Reads the next event
+     *
+     * @return the next event, or null if there are no more events
+     * @throws UsagePublisherException if the record of the event is malformed
+     */
+    public Event next() throws UsagePublisherException {
+
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+        int recordStart = buffer.position();
+        long recordLength;
+        try {
+            recordLength = readVarLong();
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            recordLength = -1;
+        }
+        if (recordLength < 0 || recordLength > buffer.remaining()) {
+            // The writer was stopped while writing the last record
+            log.warn("Ignoring the incomplete usage record at position " + recordStart + ".");
+            buffer.position(buffer.limit());
+            return null;
+        }
+        try {
+            int recordEnd = buffer.position() + (int) recordLength;
+            String streamId = readStreamId();
+            long timeStamp = unZigZag(readVarLong());
+            Object[] metaData = readArray();
+            Object[] correlationData = readArray();
+            Object[] payloadData = readArray();
+            if (buffer.position() != recordEnd) {
+                throw new UsagePublisherException("Malformed usage record at position " + recordStart + ".");
+            }
+            return new Event(streamId, timeStamp, metaData, correlationData, payloadData);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new UsagePublisherException("Malformed usage record at position " + recordStart + ".", e);
+        }
+    }
+
+    private String readStreamId() throws UsagePublisherException {
+
+        long reference = readVarLong();
+        if ((reference & 1) != 0) {
+            String streamId = readUtf8((int) (reference >>> 1));
+            streamIds.add(streamId);
+            return streamId;
+        }
+        long index = reference >>> 1;
+        if (index >= streamIds.size()) {
+            throw new UsagePublisherException("Malformed usage record. Stream " + index + " is not declared.");
+        }
+        return streamIds.get((int) index);
+    }
+
+    private Object[] readArray() throws UsagePublisherException {
+
+        long size = readVarLong() - 1;
+        if (size < 0) {
+            return null;
+        }
+        if (size > buffer.remaining()) {
+            throw new UsagePublisherException("Malformed usage record. Array size " + size + " exceeds the record.");
+        }
+        Object[] values = new Object[(int) size];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue();
+        }
+        return values;
+    }
+
+    private Object readValue() throws UsagePublisherException {
+
+        byte type = buffer.get();
+        switch (type) {
+            case BinaryUsageFormat.TYPE_NULL:
+                return null;
+            case BinaryUsageFormat.TYPE_STRING:
+                return readUtf8((int) readVarLong());
+            case BinaryUsageFormat.TYPE_INT:
+                return (int) unZigZag(readVarLong());
+            case BinaryUsageFormat.TYPE_LONG:
+                return unZigZag(readVarLong());
+            case BinaryUsageFormat.TYPE_FALSE:
+                return Boolean.FALSE;
+            case BinaryUsageFormat.TYPE_TRUE:
+                return Boolean.TRUE;
+            case BinaryUsageFormat.TYPE_DOUBLE:
+                return buffer.getDouble();
+            case BinaryUsageFormat.TYPE_FLOAT:
+                return buffer.getFloat();
+            default:
+                throw new UsagePublisherException("Unknown value type " + type + " in usage record.");
+        }
+    }
+
+    private String readUtf8(int length) {
+
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private long readVarLong() {
+
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static long unZigZag(long value) {
+
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
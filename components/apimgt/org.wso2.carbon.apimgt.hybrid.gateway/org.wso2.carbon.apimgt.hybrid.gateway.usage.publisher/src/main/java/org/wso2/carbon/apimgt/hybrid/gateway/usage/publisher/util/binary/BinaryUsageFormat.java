@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.binary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Layout of the binary usage files.
+ *
+ * A binary usage file starts with the {@link #HEADER}, followed by one record per event. Each record is the length
+ * of the record body as a varint, followed by the body:
+ * <pre>
+ * stream id          varint reference, followed by the UTF-8 bytes of a new stream id
+ * timestamp          zigzag varint
+ * meta data          array
+ * correlation data   array
+ * payload data       array
+ * </pre>
+ * The stream id reference is 2n to refer to the n-th stream id declared in the file, or 2n + 1 to declare a new stream
+ * id of n bytes, hence each stream id is only written once in a file.
+ * An array is its size plus one as a varint, or 0 for a null array, followed by the values. Each value is a type tag
+ * byte followed by the value: strings as a varint length and UTF-8 bytes, ints and longs as zigzag varints, and
+ * floats and doubles as their IEEE 754 bits. Booleans and nulls have no bytes after the tag.
+ */
+public final class BinaryUsageFormat {
+
+    /**
+     * Header of binary usage files. The first byte is not valid at the start of UTF-8 text, hence text usage files
+     * never start with the header. The last byte is the version of the format.
+     */
+    static final byte[] HEADER = {(byte) 0xA7, 'U', 'B', 1};
+
+    static final byte TYPE_NULL = 0;
+    static final byte TYPE_STRING = 1;
+    static final byte TYPE_INT = 2;
+    static final byte TYPE_LONG = 3;
+    static final byte TYPE_FALSE = 4;
+    static final byte TYPE_TRUE = 5;
+    static final byte TYPE_DOUBLE = 6;
+    static final byte TYPE_FLOAT = 7;
+
+    private BinaryUsageFormat() {
+    }
+
+    /**
+     * Returns the header which starts binary usage files
+     *
+     * @return a copy of the header
+     */
+    public static byte[] getHeader() {
+        return HEADER.clone();
+    }
+
+    /**
+     * Checks whether the given bytes start with the binary usage file header
+     *
+     * @param bytes  bytes read from the start of the file
+     * @param length number of bytes read
+     * @return true if the bytes start with the header
+     */
+    public static boolean isBinary(byte[] bytes, int length) {
+        if (length < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if (bytes[i] != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the given usage file is in the binary format
+     *
+     * @param path path of the usage file
+     * @return true if the file starts with the binary usage file header
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isBinary(Path path) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            byte[] bytes = new byte[HEADER.length];
+            int length = 0;
+            int read;
+            while (length < bytes.length && (read = inputStream.read(bytes, length, bytes.length - length)) > 0) {
+                length += read;
+            }
+            return isBinary(bytes, length);
+        }
+    }
+}
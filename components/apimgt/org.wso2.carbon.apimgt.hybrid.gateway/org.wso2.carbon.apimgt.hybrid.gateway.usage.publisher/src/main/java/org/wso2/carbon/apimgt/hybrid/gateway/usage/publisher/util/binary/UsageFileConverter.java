@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.binary;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.MicroGatewayAPIUsageConstants;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.UsagePublisherException;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.UsagePublisherUtils;
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Converts usage files in the text format into the {@link BinaryUsageFormat}. The text format does not keep the
+ * types of the payload values, hence they are parsed according to the stream definitions, in the same way as when
+ * text usage files are published.
+ */
+public final class UsageFileConverter {
+
+    private static final Log log = LogFactory.getLog(UsageFileConverter.class);
+
+    private static final String NULL_VALUE = "null";
+
+    private UsageFileConverter() {
+    }
+
+    /**
+     * Converts the given text usage file into a binary usage file
+     *
+     * @param textFile          path of the text usage file
+     * @param binaryFile        path of the binary usage file to be created
+     * @param streamDefinitions payload definitions of the streams, keyed by stream id. Payload values of streams
+     *                          without a definition are kept as strings.
+     * @return number of events converted
+     * @throws UsagePublisherException if the files cannot be read or written
+     */
+    public static int convert(Path textFile, Path binaryFile, Map<String, JSONArray> streamDefinitions)
+            throws UsagePublisherException {
+
+        BinaryUsageEventEncoder encoder = new BinaryUsageEventEncoder();
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(textFile, StandardCharsets.UTF_8);
+             OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(binaryFile))) {
+            outputStream.write(BinaryUsageFormat.HEADER);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Event event;
+                try {
+                    event = parseEvent(line, streamDefinitions);
+                } catch (UsagePublisherException e) {
+                    log.warn("Skipping usage event which cannot be converted : " + line, e);
+                    continue;
+                }
+                encoder.encode(event);
+                encoder.writeTo(outputStream);
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UsagePublisherException("Error occurred while converting the usage file : " + textFile, e);
+        }
+        return count;
+    }
+
+    /**
+     * Parses an event written in the text format
+     *
+     * @param line              line of the text usage file
+     * @param streamDefinitions payload definitions of the streams, keyed by stream id
+     * @return the event
+     * @throws UsagePublisherException if the line is not a valid event
+     */
+    static Event parseEvent(String line, Map<String, JSONArray> streamDefinitions) throws UsagePublisherException {
+
+        String[] elements = line.split(MicroGatewayAPIUsageConstants.EVENT_SEPARATOR);
+        if (elements.length < 5) {
+            throw new UsagePublisherException("Usage event has " + elements.length + " elements instead of 5.");
+        }
+        String streamId = getValue(elements[0]);
+        long timeStamp;
+        try {
+            timeStamp = Long.parseLong(getValue(elements[1]));
+        } catch (NumberFormatException e) {
+            throw new UsagePublisherException("Invalid timestamp in usage event.", e);
+        }
+        JSONArray definition = streamDefinitions != null ? streamDefinitions.get(streamId) : null;
+        return new Event(streamId, timeStamp, toMetaData(getValue(elements[2])), toMetaData(getValue(elements[3])),
+                toPayload(getValue(elements[4]), definition));
+    }
+
+    private static String getValue(String element) throws UsagePublisherException {
+
+        String[] keyValue = element.split(MicroGatewayAPIUsageConstants.KEY_VALUE_SEPARATOR, 2);
+        if (keyValue.length < 2) {
+            throw new UsagePublisherException("Usage event element " + keyValue[0] + " has no value.");
+        }
+        return keyValue[1];
+    }
+
+    private static Object[] toMetaData(String value) {
+
+        // Meta data is published as a single value, as in UsagePublisherUtils.createMetaData
+        if (value.isEmpty() || NULL_VALUE.equals(value)) {
+            return null;
+        }
+        return new Object[]{value};
+    }
+
+    private static Object[] toPayload(String value, JSONArray definition) throws UsagePublisherException {
+
+        if (NULL_VALUE.equals(value)) {
+            return null;
+        }
+        String[] strings = value.split(MicroGatewayAPIUsageConstants.OBJECT_SEPARATOR);
+        if (definition == null) {
+            Object[] objects = new Object[strings.length];
+            for (int i = 0; i < strings.length; i++) {
+                String string = strings[i].trim();
+                objects[i] = string.isEmpty() ? null : string;
+            }
+            return objects;
+        }
+        if (strings.length > definition.size()) {
+            throw new UsagePublisherException("Usage event has " + strings.length + " payload values, while the "
+                    + "stream definition has " + definition.size() + " attributes.");
+        }
+        // Split drops the trailing empty values, which are null values in the payload
+        Object[] objects = new Object[definition.size()];
+        for (int i = 0; i < strings.length; i++) {
+            String type = (String) ((JSONObject) definition.get(i)).get("type");
+            try {
+                objects[i] = UsagePublisherUtils.getPayloadObject(type, strings[i].trim());
+            } catch (Exception e) {
+                throw new UsagePublisherException("Invalid " + type + " value in usage event : " + strings[i], e);
+            }
+        }
+        return objects;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.dao.UploadedUsageFileInfoDAO;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.dto.UploadedFileInfoDTO;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.MicroGatewayAPIUsageConstants;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.UsagePublisherException;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.binary.BinaryUsageEventEncoder;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.binary.BinaryUsageFormat;
+import org.wso2.carbon.databridge.agent.DataPublisher;
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+
+/**
+ * UploadedUsagePublishingPipeline Test Class
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ UploadedUsageFileInfoDAO.class })
+public class UploadedUsagePublishingPipelineTest {
+
+    private static final String STREAM_ID = "org.wso2.apimgt.statistics.request:3.0.0";
+    private static final int EVENT_COUNT = 25;
+
+    private UploadedUsagePublishingPipeline pipeline;
+
+    @After
+    public void tearDown() {
+
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void testEventsArePublishedInBatches() throws Exception {
+
+        PowerMockito.mockStatic(UploadedUsageFileInfoDAO.class);
+        PowerMockito.when(UploadedUsageFileInfoDAO.getFileContent(any(UploadedFileInfoDTO.class)))
+                .thenReturn(new ByteArrayInputStream(createUsageFile()));
+        CountDownLatch completed = new CountDownLatch(1);
+        PowerMockito.doAnswer(invocation -> {
+            completed.countDown();
+            return null;
+        }).when(UploadedUsageFileInfoDAO.class, "updateCompletion", any(UploadedFileInfoDTO.class));
+        DataPublisher dataPublisher = Mockito.mock(DataPublisher.class);
+        // The queue of the data publisher is full for the first attempt
+        Mockito.when(dataPublisher.tryPublish(any(Event.class), anyLong())).thenReturn(false).thenReturn(true);
+
+        pipeline = new UploadedUsagePublishingPipeline(dataPublisher, 1, 2, 10, 1);
+        Assert.assertEquals(2, pipeline.getAvailableCapacity());
+        pipeline.submit(new UploadedFileInfoDTO("carbon.super", "api-usage-data.dat.zip", 1511772769858L));
+
+        Assert.assertTrue(completed.await(10, TimeUnit.SECONDS));
+        Mockito.verify(dataPublisher, Mockito.times(EVENT_COUNT + 1)).tryPublish(any(Event.class), anyLong());
+        waitForCapacity(2);
+    }
+
+    @Test
+    public void testFileIsNotCompletedWhenContentCannotBeRead() throws Exception {
+
+        PowerMockito.mockStatic(UploadedUsageFileInfoDAO.class);
+        PowerMockito.when(UploadedUsageFileInfoDAO.getFileContent(any(UploadedFileInfoDTO.class)))
+                .thenThrow(new UsagePublisherException("Error"));
+        DataPublisher dataPublisher = Mockito.mock(DataPublisher.class);
+
+        pipeline = new UploadedUsagePublishingPipeline(dataPublisher, 1, 1, 10, 1);
+        pipeline.submit(new UploadedFileInfoDTO("carbon.super", "api-usage-data.dat.zip", 1511772769858L));
+
+        waitForCapacity(2);
+        PowerMockito.verifyStatic(UploadedUsageFileInfoDAO.class, Mockito.never());
+        UploadedUsageFileInfoDAO.updateCompletion(any(UploadedFileInfoDTO.class));
+        Mockito.verify(dataPublisher, Mockito.never()).tryPublish(any(Event.class), anyLong());
+    }
+
+    private void waitForCapacity(int capacity) throws InterruptedException {
+
+        // The slot of a file is released after it is marked as completed
+        for (int i = 0; i < 100 && pipeline.getAvailableCapacity() < capacity; i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(capacity, pipeline.getAvailableCapacity());
+    }
+
+    private static byte[] createUsageFile() throws Exception {
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            zipOutputStream.putNextEntry(new ZipEntry(MicroGatewayAPIUsageConstants.API_USAGE_OUTPUT_FILE_NAME));
+            zipOutputStream.write(BinaryUsageFormat.getHeader());
+            BinaryUsageEventEncoder encoder = new BinaryUsageEventEncoder();
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                encoder.encode(new Event(STREAM_ID, i, null, null, new Object[]{"PizzaShackAPI", i}));
+                encoder.writeTo(zipOutputStream);
+            }
+            zipOutputStream.closeEntry();
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.internal;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -26,23 +27,37 @@ import org.osgi.service.component.ComponentContext;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.wso2.carbon.apimgt.impl.APIManagerAnalyticsConfiguration;
 import org.wso2.carbon.apimgt.impl.APIManagerConfiguration;
 import org.wso2.carbon.apimgt.impl.APIManagerConfigurationService;
 import org.wso2.carbon.apimgt.hybrid.gateway.common.internal.ServiceReferenceHolder;
 import org.wso2.carbon.apimgt.hybrid.gateway.common.util.HttpRequestUtil;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.APIMgtUsageFileDataPublisher;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.TestUtil;
 import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.constants.Constants;
+import org.wso2.carbon.apimgt.usage.publisher.DataPublisherUtil;
+import org.wso2.carbon.apimgt.usage.publisher.dto.RequestResponseStreamDTO;
 import org.wso2.carbon.apimgt.usage.publisher.internal.UsageComponent;
+import org.wso2.carbon.databridge.agent.AgentHolder;
+import org.wso2.carbon.databridge.agent.DataEndpointAgent;
+import org.wso2.carbon.databridge.agent.conf.AgentConfiguration;
 import org.wso2.carbon.ntask.core.service.TaskService;
 import org.wso2.carbon.user.core.service.RealmService;
 import org.wso2.carbon.utils.CarbonUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
 /**
  * APIUsagePublisherComponent test class
  */
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({CarbonUtils.class, APIManagerConfiguration.class, ServiceReferenceHolder.class,
-        APIManagerConfigurationService.class, HttpRequestUtil.class, RealmService.class})
+        APIManagerConfigurationService.class, HttpRequestUtil.class, RealmService.class, AgentHolder.class,
+        DataPublisherUtil.class})
 public class APIUsagePublisherComponentTest {
     public static final String CARBON_HOME = "carbon.home";
     public static final String CARBON_CONFIGS_PATH = "/repository/conf";
@@ -74,6 +89,43 @@ public class APIUsagePublisherComponentTest {
         serviceComponent.deactivate(componentContext);
     }
 
+    @Test
+    public void deactivateWritesQueuedUsageEvents() throws Exception {
+        String carbonHome = System.getProperty(Constants.CARBON_HOME);
+        PowerMockito.mockStatic(CarbonUtils.class);
+        PowerMockito.when(CarbonUtils.getCarbonHome()).thenReturn(carbonHome);
+        PowerMockito.mockStatic(AgentHolder.class);
+        AgentHolder agentHolder = Mockito.mock(AgentHolder.class);
+        PowerMockito.when(AgentHolder.getInstance()).thenReturn(agentHolder);
+        DataEndpointAgent dataEndpointAgent = Mockito.mock(DataEndpointAgent.class);
+        Mockito.when(agentHolder.getDefaultDataEndpointAgent()).thenReturn(dataEndpointAgent);
+        AgentConfiguration agentConfig = Mockito.mock(AgentConfiguration.class);
+        Mockito.when(dataEndpointAgent.getAgentConfiguration()).thenReturn(agentConfig);
+        Mockito.when(agentConfig.getQueueSize()).thenReturn(1024);
+        PowerMockito.mockStatic(DataPublisherUtil.class);
+        APIManagerAnalyticsConfiguration analyticsConfig = Mockito.mock(APIManagerAnalyticsConfiguration.class);
+        PowerMockito.when(DataPublisherUtil.getApiManagerAnalyticsConfiguration()).thenReturn(analyticsConfig);
+        Mockito.when(analyticsConfig.getRequestStreamName()).thenReturn("org.wso2.apimgt.statistics.deactivate");
+        Mockito.when(analyticsConfig.getRequestStreamVersion()).thenReturn("1.1.0");
+        APIMgtUsageFileDataPublisher usageDataPublisher = new APIMgtUsageFileDataPublisher();
+        usageDataPublisher.init();
+        for (int i = 0; i < 100; i++) {
+            usageDataPublisher.publishEvent(new RequestResponseStreamDTO());
+        }
+
+        // Deactivating drains the event queue and commits the usage file, before the file resources are closed
+        APIUsagePublisherComponent serviceComponent = new APIUsagePublisherComponent();
+        serviceComponent.deactivate(Mockito.mock(ComponentContext.class));
+        Path usageFile = Paths.get(carbonHome, "api-usage-data", "api-usage-data.dat");
+        List<String> lines = Files.readAllLines(usageFile, StandardCharsets.UTF_8);
+        long writtenEvents = lines.stream()
+                .filter(line -> line.contains("org.wso2.apimgt.statistics.deactivate:1.1.0")).count();
+        Assert.assertEquals(100, writtenEvents);
+        // Events published after the publisher is shut down are dropped
+        usageDataPublisher.publishEvent(new RequestResponseStreamDTO());
+        Files.write(usageFile, new byte[0]);
+    }
+
     @Test
     public void setAPIManagerConfigurationService() throws Exception {
         APIUsagePublisherComponent serviceComponent = new APIUsagePublisherComponent();
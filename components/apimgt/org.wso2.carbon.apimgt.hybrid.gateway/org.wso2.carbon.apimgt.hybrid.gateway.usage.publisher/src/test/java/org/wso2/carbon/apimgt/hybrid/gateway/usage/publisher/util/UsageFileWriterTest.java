@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.binary.BinaryUsageFileReader;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.binary.BinaryUsageFormat;
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class UsageFileWriterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testEventsAreWrittenOnCommit() throws Exception {
+
+        Path directory = temporaryFolder.getRoot().toPath();
+        UsageFileWriter writer = new UsageFileWriter(directory, 1024 * 1024, UsageFileWriter.FlushPolicy.BATCH,
+                UsageFileWriter.FsyncPolicy.BATCH, 1000);
+        Path usageFile = directory.resolve(MicroGatewayAPIUsageConstants.API_USAGE_OUTPUT_FILE_NAME);
+        writer.writeToFile("event-1");
+        writer.writeToFile("event-\u00e9\u20ac\ud83d\ude00");
+        Assert.assertEquals(0, Files.size(usageFile));
+        writer.commit();
+        List<String> lines = Files.readAllLines(usageFile, StandardCharsets.UTF_8);
+        Assert.assertEquals(Arrays.asList("event-1", "event-\u00e9\u20ac\ud83d\ude00"), lines);
+        Assert.assertEquals(Files.size(usageFile), writer.getFileSize());
+        writer.closeFileResources();
+    }
+
+    @Test
+    public void testEventsAreCommittedWhenBatchIsFull() throws Exception {
+
+        Path directory = temporaryFolder.getRoot().toPath();
+        UsageFileWriter writer = new UsageFileWriter(directory, 1024 * 1024, UsageFileWriter.FlushPolicy.BATCH,
+                UsageFileWriter.FsyncPolicy.NONE, 3);
+        Path usageFile = directory.resolve(MicroGatewayAPIUsageConstants.API_USAGE_OUTPUT_FILE_NAME);
+        for (int i = 0; i < 5; i++) {
+            writer.writeToFile("event-" + i);
+        }
+        Assert.assertEquals(3, Files.readAllLines(usageFile, StandardCharsets.UTF_8).size());
+        writer.closeFileResources();
+        Assert.assertEquals(5, Files.readAllLines(usageFile, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void testFileIsRotatedWhenSizeExceedsLimit() throws Exception {
+
+        Path directory = temporaryFolder.getRoot().toPath();
+        Path usageFile = directory.resolve(MicroGatewayAPIUsageConstants.API_USAGE_OUTPUT_FILE_NAME);
+        Files.write(usageFile, "previous-event\n".getBytes(StandardCharsets.UTF_8));
+        UsageFileWriter writer = new UsageFileWriter(directory, 100, UsageFileWriter.FlushPolicy.EVENT,
+                UsageFileWriter.FsyncPolicy.ROTATION, 1000);
+        Assert.assertEquals(Files.size(usageFile), writer.getFileSize());
+        for (int i = 0; i < 20; i++) {
+            writer.writeToFile("event-" + i);
+        }
+        writer.closeFileResources();
+        File[] rotatedFiles = directory.toFile().listFiles((dir, name) ->
+                name.endsWith(MicroGatewayAPIUsageConstants.ZIP_EXTENSION));
+        Assert.assertNotNull(rotatedFiles);
+        Assert.assertEquals(1, rotatedFiles.length);
+        Assert.assertTrue(Files.size(usageFile) <= 100);
+        Assert.assertEquals(Files.size(usageFile), writer.getFileSize());
+    }
+
+    @Test
+    public void testEventsAreWrittenInBinaryFormat() throws Exception {
+
+        Path directory = temporaryFolder.getRoot().toPath();
+        Path usageFile = directory.resolve(MicroGatewayAPIUsageConstants.API_USAGE_OUTPUT_FILE_NAME);
+        Files.write(usageFile, "previous-event\n".getBytes(StandardCharsets.UTF_8));
+        UsageFileWriter writer = new UsageFileWriter(directory, 1024 * 1024, UsageFileWriter.FlushPolicy.BATCH,
+                UsageFileWriter.FsyncPolicy.NONE, 1000, true);
+        // The existing file is rotated, so that the new file only holds binary events
+        Assert.assertEquals(0, writer.getFileSize());
+        Assert.assertEquals(1, directory.toFile().list((dir, name) ->
+                name.endsWith(MicroGatewayAPIUsageConstants.ZIP_EXTENSION)).length);
+        for (int i = 0; i < 3; i++) {
+            writer.writeToFile(new Event("stream:1.0.0", i, null, null, new Object[]{"event-" + i, i}));
+        }
+        writer.closeFileResources();
+        Assert.assertTrue(BinaryUsageFormat.isBinary(usageFile));
+        Assert.assertEquals(Files.size(usageFile), writer.getFileSize());
+        BinaryUsageFileReader reader = BinaryUsageFileReader.open(usageFile);
+        for (int i = 0; i < 3; i++) {
+            Event event = reader.next();
+            Assert.assertEquals(i, event.getTimeStamp());
+            Assert.assertArrayEquals(new Object[]{"event-" + i, i}, event.getPayloadData());
+        }
+        Assert.assertNull(reader.next());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.binary;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wso2.carbon.apimgt.hybrid.gateway.usage.publisher.util.UsagePublisherException;
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BinaryUsageFileReaderTest {
+
+    private static final String STREAM_ID = "org.wso2.apimgt.statistics.request:3.0.0";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testEventsAreReadAsWritten() throws Exception {
+
+        Event[] events = {
+                new Event(STREAM_ID, 1511772769858L, new Object[]{"mozilla"}, null,
+                        new Object[]{"api", "/pizza\u00e9\u20ac\ud83d\ude00", 42, -7L, true, false, 1.5d, 2.5f, null}),
+                new Event(STREAM_ID, -1L, null, new Object[0], null),
+                new Event("org.wso2.apimgt.statistics.response:3.0.0", Long.MAX_VALUE, new Object[]{null},
+                        new Object[]{Integer.MIN_VALUE, Long.MIN_VALUE}, new Object[]{new StringBuilder("other")})
+        };
+        byte[] content = encode(events);
+        BinaryUsageFileReader reader = new BinaryUsageFileReader(ByteBuffer.wrap(content));
+        for (Event expected : events) {
+            assertEvent(expected, reader.next());
+        }
+        Assert.assertNull(reader.next());
+    }
+
+    @Test
+    public void testFileIsMapped() throws Exception {
+
+        Path file = temporaryFolder.getRoot().toPath().resolve("api-usage-data.dat");
+        Files.write(file, encode(new Event(STREAM_ID, 1L, null, null, new Object[]{"a"}),
+                new Event(STREAM_ID, 2L, null, null, new Object[]{"b"})));
+        Assert.assertTrue(BinaryUsageFormat.isBinary(file));
+        BinaryUsageFileReader reader = BinaryUsageFileReader.open(file);
+        Event first = reader.next();
+        Event second = reader.next();
+        Assert.assertArrayEquals(new Object[]{"b"}, second.getPayloadData());
+        // The stream id is only decoded once
+        Assert.assertSame(first.getStreamId(), second.getStreamId());
+        Assert.assertNull(reader.next());
+    }
+
+    @Test
+    public void testIncompleteLastRecordIsIgnored() throws Exception {
+
+        byte[] content = encode(new Event(STREAM_ID, 1L, null, null, new Object[]{"a"}),
+                new Event(STREAM_ID, 2L, null, null, new Object[]{"b"}));
+        BinaryUsageFileReader reader = new BinaryUsageFileReader(ByteBuffer.wrap(content, 0, content.length - 2));
+        Assert.assertEquals(1L, reader.next().getTimeStamp());
+        Assert.assertNull(reader.next());
+    }
+
+    @Test(expected = UsagePublisherException.class)
+    public void testTextContentIsRejected() throws Exception {
+
+        new BinaryUsageFileReader(ByteBuffer.wrap("streamId-KS-a".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testTextFileIsConverted() throws Exception {
+
+        Path textFile = temporaryFolder.getRoot().toPath().resolve("api-usage-data.dat");
+        Path binaryFile = temporaryFolder.getRoot().toPath().resolve("api-usage-data.bin");
+        Files.write(textFile, Arrays.asList(
+                "streamId-KS-" + STREAM_ID + "-ES-timestamp-KS-1511772769858-ES-metadata-KS-mozilla"
+                        + "-ES-correlationData-KS-null-ES-payLoadData-KS-pizza-OS-12-OS-true-OS-",
+                "streamId-KS-" + STREAM_ID + "-ES-timestamp-KS-not-a-number-ES-metadata-KS-null"
+                        + "-ES-correlationData-KS-null-ES-payLoadData-KS-null",
+                "streamId-KS-unknown:1.0.0-ES-timestamp-KS-5-ES-metadata-KS-null"
+                        + "-ES-correlationData-KS-null-ES-payLoadData-KS-x-OS- y "), StandardCharsets.UTF_8);
+        JSONArray definition = new JSONArray();
+        for (String type : new String[]{"STRING", "LONG", "BOOL", "INT"}) {
+            JSONObject attribute = new JSONObject();
+            attribute.put("type", type);
+            definition.add(attribute);
+        }
+        Map<String, JSONArray> streamDefinitions = new HashMap<>();
+        streamDefinitions.put(STREAM_ID, definition);
+
+        Assert.assertEquals(2, UsageFileConverter.convert(textFile, binaryFile, streamDefinitions));
+        BinaryUsageFileReader reader = BinaryUsageFileReader.open(binaryFile);
+        assertEvent(new Event(STREAM_ID, 1511772769858L, new Object[]{"mozilla"}, null,
+                new Object[]{"pizza", 12L, true, null}), reader.next());
+        assertEvent(new Event("unknown:1.0.0", 5L, null, null, new Object[]{"x", "y"}), reader.next());
+        Assert.assertNull(reader.next());
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanText() throws Exception {
+
+        Object[] payload = {"PizzaShackAPI", "1.0.0", "/pizzashack/1.0.0/menu", "GET", 200, 35L, 1511772769858L,
+                "admin@carbon.super", "carbon.super", "localhost", true, false};
+        String line = "streamId-KS-" + STREAM_ID + "-ES-timestamp-KS-1511772769858-ES-metadata-KS-mozilla"
+                + "-ES-correlationData-KS-null-ES-payLoadData-KS-"
+                + String.join("-OS-", Arrays.stream(payload).map(String::valueOf).toArray(String[]::new));
+        byte[] binary = encode(Collections.nCopies(100,
+                new Event(STREAM_ID, 1511772769858L, new Object[]{"mozilla"}, null, payload)).toArray(new Event[0]));
+        Assert.assertTrue(binary.length < 100 * (line.length() + 1) * 2 / 3);
+    }
+
+    private static byte[] encode(Event... events) throws Exception {
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        outputStream.write(BinaryUsageFormat.getHeader());
+        BinaryUsageEventEncoder encoder = new BinaryUsageEventEncoder();
+        for (Event event : events) {
+            int size = encoder.encode(event);
+            int before = outputStream.size();
+            encoder.writeTo(outputStream);
+            Assert.assertEquals(size, outputStream.size() - before);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static void assertEvent(Event expected, Event actual) {
+
+        Assert.assertEquals(expected.getStreamId(), actual.getStreamId());
+        Assert.assertEquals(expected.getTimeStamp(), actual.getTimeStamp());
+        assertValues(expected.getMetaData(), actual.getMetaData());
+        assertValues(expected.getCorrelationData(), actual.getCorrelationData());
+        assertValues(expected.getPayloadData(), actual.getPayloadData());
+    }
+
+    private static void assertValues(Object[] expected, Object[] actual) {
+
+        if (expected == null) {
+            Assert.assertNull(actual);
+            return;
+        }
+        Assert.assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            // Values of other types are written as strings
+            Object value = expected[i] instanceof StringBuilder ? expected[i].toString() : expected[i];
+            Assert.assertEquals(value, actual[i]);
+        }
+    }
+}
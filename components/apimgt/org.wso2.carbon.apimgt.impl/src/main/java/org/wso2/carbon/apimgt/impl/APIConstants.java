@@ -635,6 +635,7 @@ public final class APIConstants {
     public static final String API_GATEWAY_TYPE = "GatewayType";
     public static final String API_GATEWAY_TYPE_SYNAPSE = "Synapse";
     public static final String API_GATEWAY_NONE = "none";
+    public static final String API_GATEWAY_PUBLISHING_TIMEOUT = API_GATEWAY + "PublishingTimeout";
     public static final String GATEWAY_STATS_SERVICE = "GatewayStatsUpdateService";
 
     public static final String CACHE_CONFIGS = "CacheConfigurations.";
@@ -1684,6 +1685,11 @@ public final class APIConstants {
         public static final String SUBSCRIPTION_THROTTLE_LIMITS = "SubscriptionTierLimits";
         public static final String APPLICATION_THROTTLE_LIMITS = "ApplicationTierLimits";
         public static final String RESOURCE_THROTTLE_LIMITS = "ResourceLevelTierLimits";
+        public static final String LOCAL_THROTTLING = "LocalThrottling";
+        public static final String LOCAL_THROTTLING_GATEWAY_COUNT = "GatewayCount";
+        public static final String LOCAL_THROTTLING_TIER_LIMITS = "TierLimits";
+        public static final String LOCAL_THROTTLING_TIER = "Tier";
+        public static final String LOCAL_THROTTLING_TIER_NAME = "name";
         public static final String JMS_TASK_MANAGER = "JMSTaskManager";
         public static final String MIN_THREAD_POOL_SIZE = "MinThreadPoolSize";
         public static final String MAX_THREAD_POOL_SIZE = "MaxThreadPoolSize";
@@ -1696,6 +1702,12 @@ public final class APIConstants {
         public static final String DATA_PUBLISHER_THREAD_POOL_CONFIGURATION_CORE_POOL_SIZE = "CorePoolSize";
         public static final String DATA_PUBLISHER_THREAD_POOL_CONFIGURATION_MAXMIMUM_POOL_SIZE = "MaxmimumPoolSize";
         public static final String DATA_PUBLISHER_THREAD_POOL_CONFIGURATION_KEEP_ALIVE_TIME = "KeepAliveTime";
+        public static final String DATA_PUBLISHER_BATCHING_CONFIGURATION = "DataPublisherBatching";
+        public static final String DATA_PUBLISHER_BATCHING_BUFFER_SIZE = "BufferSize";
+        public static final String DATA_PUBLISHER_BATCHING_BATCH_SIZE = "BatchSize";
+        public static final String DATA_PUBLISHER_BATCHING_LINGER_TIME = "LingerTime";
+        public static final String DATA_PUBLISHER_BATCHING_WORKER_COUNT = "WorkerCount";
+        public static final String DATA_PUBLISHER_BATCHING_OVERFLOW_POLICY = "OverflowPolicy";
         public static final String BLOCK_CONDITION_RETRIEVER_INIT_DELAY = "InitDelay";
         public static final String BLOCK_CONDITION_RETRIEVER_PERIOD = "Period";
         public static final String ENABLE_SUBSCRIPTION_SPIKE_ARREST = "EnableSubscriptionSpikeArrest";
@@ -2161,6 +2173,8 @@ public final class APIConstants {
     public static class KeyManager {
         public static final String SERVICE_URL = "ServiceURL";
         public static final String INIT_DELAY = "InitDelay";
+        public static final String SYNC_INTERVAL = "SyncInterval";
+        public static final String SNAPSHOT_INTERVAL = "SnapshotInterval";
         public static final String INTROSPECTION_ENDPOINT = "introspection_endpoint";
         public static final String CLIENT_REGISTRATION_ENDPOINT = "client_registration_endpoint";
         public static final String TOKEN_ENDPOINT = "token_endpoint";
@@ -2282,6 +2296,7 @@ public final class APIConstants {
         public static final String PUBLISH_DIRECTLY_TO_GW_CONFIG = "PublishDirectlyToGW";
         public static final String GATEWAY_LABELS_CONFIG = "GatewayLabels";
         public static final String LABEL_CONFIG = "Label";
+        public static final String DEPLOYMENT_PARALLELISM_CONFIG = "DeploymentParallelism";
         public static final String DB_SAVER_NAME = "DBSaver";
         public static final String DB_RETRIEVER_NAME = "DBRetriever";
         public static final String GATEWAY_INSTRUCTION_PUBLISH = "Publish";
@@ -34,6 +34,7 @@ import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
 import org.apache.solr.client.solrj.util.ClientUtils;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -5493,7 +5494,9 @@ public class APIConsumerImpl extends AbstractAPIManager implements APIConsumer {
             method.setEntity(requestEntity);
             HttpResponse httpResponse = null;
             httpResponse = httpClient.execute(method);
-            if (HttpStatus.SC_OK != httpResponse.getStatusLine().getStatusCode()) {
+            int statusCode = httpResponse.getStatusLine().getStatusCode();
+            EntityUtils.consumeQuietly(httpResponse.getEntity());
+            if (HttpStatus.SC_OK != statusCode) {
                 log.error("API Key revocation is unsuccessful with token signature " + APIUtil.getMaskedToken(apiKey));
                 throw new APIManagementException("Error while revoking API Key");
             }
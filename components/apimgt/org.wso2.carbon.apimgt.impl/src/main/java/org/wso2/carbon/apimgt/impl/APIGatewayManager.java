@@ -70,6 +70,13 @@ import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class APIGatewayManager {
 
@@ -87,6 +94,15 @@ public class APIGatewayManager {
     private final String ENDPOINT_SANDBOX = "_SANDBOX_";
     private static final String PRODUCT_PREFIX = "prod";
     private static final String PRODUCT_VERSION = "1.0.0";
+    private static final int DEFAULT_PUBLISHING_TIMEOUT_SECONDS = 300;
+    private static final AtomicInteger publishingThreadCount = new AtomicInteger();
+    private static final ExecutorService publishingPool = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable);
+        thread.setName("APIGatewayPublisher-" + publishingThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int publishingTimeout = DEFAULT_PUBLISHING_TIMEOUT_SECONDS;
 
     private APIGatewayManager() {
         APIManagerConfiguration config = ServiceReferenceHolder.getInstance().getAPIManagerConfigurationService()
@@ -98,6 +114,21 @@ public class APIGatewayManager {
         if (artifactSaver != null && config.getGatewayArtifactSynchronizerProperties().isSaveArtifactsEnabled()){
             this.saveArtifactsToStorage = true;
         }
+        String publishingTimeoutProperty = config.getFirstProperty(APIConstants.API_GATEWAY_PUBLISHING_TIMEOUT);
+        if (publishingTimeoutProperty != null) {
+            try {
+                int timeout = Integer.parseInt(publishingTimeoutProperty.trim());
+                if (timeout > 0) {
+                    this.publishingTimeout = timeout;
+                } else {
+                    log.warn("Invalid gateway publishing timeout " + timeout + ". Using the default " +
+                            DEFAULT_PUBLISHING_TIMEOUT_SECONDS + " seconds");
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Invalid gateway publishing timeout " + publishingTimeoutProperty + ". Using the default " +
+                        DEFAULT_PUBLISHING_TIMEOUT_SECONDS + " seconds");
+            }
+        }
     }
 
 	public synchronized static APIGatewayManager getInstance() {
@@ -130,33 +161,133 @@ public class APIGatewayManager {
             }
         }
 
+        if (api.getType() != null && APIConstants.APITransportType.GRAPHQL.toString().equals(api.getType())) {
+            // Set before publishing, since the API is shared by the gateways published at once
+            Set<URITemplate> uriTemplates = new HashSet<>();
+            URITemplate template = new URITemplate();
+            template.setAuthType("Any");
+            template.setHTTPVerb("POST");
+            template.setHttpVerbs("POST");
+            template.setUriTemplate("/*");
+            uriTemplates.add(template);
+            api.setUriTemplates(uriTemplates);
+        }
+        executeInGatewayEnvironments(api, (environment, isGatewayDefinedAsALabel, gateways, failedMap) ->
+                publishAPIToGatewayEnvironment(environment, api, builder, tenantDomain, isGatewayDefinedAsALabel,
+                        gateways, failedMap), publishedGateways, failedGatewaysMap);
+
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        DeployAPIInGatewayEvent
+                deployAPIInGatewayEvent = new DeployAPIInGatewayEvent(UUID.randomUUID().toString(),
+                System.currentTimeMillis(), APIConstants.EventType.DEPLOY_API_IN_GATEWAY.name(), tenantId,api.getUUID(),
+                publishedGateways);
+        APIUtil.sendNotification(deployAPIInGatewayEvent, APIConstants.NotifierType.GATEWAY_PUBLISHED_API.name());
+        return failedGatewaysMap;
+    }
+
+    /**
+     * Runs an operation in each gateway environment and labeled gateway of an API. When there is more than one
+     * gateway, the operation is run in all of them at once, since each of them is a blocking call to a remote gateway.
+     * A gateway which does not complete within the publishing timeout is reported as failed, without waiting for it
+     * any longer, so that an unreachable gateway does not hold up the result of the others. A call which is already
+     * in progress to such a gateway cannot be stopped, hence the gateway may still complete the operation later. If it
+     * does, a warning is logged, and the API has to be published again to bring the gateway in line with the result.
+     * The operation must not modify the API, since it is run in several threads at once.
+     *
+     * @param api               - The API
+     * @param operation         - The operation to be run in each gateway
+     * @param gateways          - This set will be updated with the gateways updated by the operation
+     * @param failedGatewaysMap - This map will be updated with the gateways in which the operation failed
+     */
+    private void executeInGatewayEnvironments(API api, GatewayOperation operation, Set<String> gateways,
+                                              Map<String, String> failedGatewaysMap) {
+
+        List<Environment> gatewayEnvironments = new ArrayList<>();
+        List<Boolean> gatewaysDefinedAsLabels = new ArrayList<>();
         if (api.getEnvironments() != null) {
             for (String environmentName : api.getEnvironments()) {
                 Environment environment = environments.get(environmentName);
-                //If the environment is removed from the configuration, continue without publishing
-                if (environment == null) {
-                    continue;
+                //If the environment is removed from the configuration, continue without it
+                if (environment != null) {
+                    gatewayEnvironments.add(environment);
+                    gatewaysDefinedAsLabels.add(false);
                 }
-                failedGatewaysMap = publishAPIToGatewayEnvironment(environment, api, builder, tenantDomain, false,
-                        publishedGateways, failedGatewaysMap);
             }
         }
-
         if (api.getGatewayLabels() != null) {
             for (Label label : api.getGatewayLabels()) {
-                Environment environment = getEnvironmentFromLabel(label);
-                failedGatewaysMap = publishAPIToGatewayEnvironment(environment, api, builder, tenantDomain, true,
-                        publishedGateways, failedGatewaysMap);
+                gatewayEnvironments.add(getEnvironmentFromLabel(label));
+                gatewaysDefinedAsLabels.add(true);
             }
         }
 
-        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
-        DeployAPIInGatewayEvent
-                deployAPIInGatewayEvent = new DeployAPIInGatewayEvent(UUID.randomUUID().toString(),
-                System.currentTimeMillis(), APIConstants.EventType.DEPLOY_API_IN_GATEWAY.name(), tenantId,api.getUUID(),
-                publishedGateways);
-        APIUtil.sendNotification(deployAPIInGatewayEvent, APIConstants.NotifierType.GATEWAY_PUBLISHED_API.name());
-        return failedGatewaysMap;
+        if (gatewayEnvironments.size() <= 1) {
+            for (int i = 0; i < gatewayEnvironments.size(); i++) {
+                operation.execute(gatewayEnvironments.get(i), gatewaysDefinedAsLabels.get(i), gateways,
+                        failedGatewaysMap);
+            }
+            return;
+        }
+
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        String flowTenantDomain = carbonContext.getTenantDomain();
+        int flowTenantId = carbonContext.getTenantId();
+        String flowUsername = carbonContext.getUsername();
+        List<GatewayOperationResult> operationResults = new ArrayList<>(gatewayEnvironments.size());
+        List<Future<GatewayOperationResult>> results = new ArrayList<>(gatewayEnvironments.size());
+        for (int i = 0; i < gatewayEnvironments.size(); i++) {
+            Environment environment = gatewayEnvironments.get(i);
+            boolean isGatewayDefinedAsALabel = gatewaysDefinedAsLabels.get(i);
+            // Each gateway updates its own result, which is discarded if the gateway does not complete in time
+            GatewayOperationResult result = new GatewayOperationResult();
+            operationResults.add(result);
+            results.add(publishingPool.submit(() -> {
+                try {
+                    PrivilegedCarbonContext.startTenantFlow();
+                    PrivilegedCarbonContext threadCarbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+                    threadCarbonContext.setTenantDomain(flowTenantDomain);
+                    threadCarbonContext.setTenantId(flowTenantId);
+                    threadCarbonContext.setUsername(flowUsername);
+                    operation.execute(environment, isGatewayDefinedAsALabel, result.gateways, result.failedGatewaysMap);
+                } finally {
+                    PrivilegedCarbonContext.endTenantFlow();
+                }
+                if (result.abandoned) {
+                    log.warn("Gateway " + environment.getName() + " completed the operation for API " + api.getId() +
+                            " after it was reported as failed for not responding in time. Failed gateways : " +
+                            result.failedGatewaysMap.keySet());
+                }
+                return result;
+            }));
+        }
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(publishingTimeout);
+        for (int i = 0; i < results.size(); i++) {
+            String environmentName = gatewayEnvironments.get(i).getName();
+            Future<GatewayOperationResult> future = results.get(i);
+            try {
+                GatewayOperationResult result = future.get(Math.max(0, deadline - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS);
+                gateways.addAll(result.gateways);
+                failedGatewaysMap.putAll(result.failedGatewaysMap);
+            } catch (TimeoutException e) {
+                // Only stops the operation if it has not started yet, a call in progress to a gateway cannot be stopped
+                operationResults.get(i).abandoned = true;
+                future.cancel(false);
+                String msg = "Gateway " + environmentName + " did not respond within " + publishingTimeout +
+                        " seconds";
+                log.error(msg + " for API " + api.getId());
+                failedGatewaysMap.put(environmentName, msg);
+            } catch (ExecutionException e) {
+                log.error("Error occurred in gateway " + environmentName + " for API " + api.getId(), e.getCause());
+                failedGatewaysMap.put(environmentName, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                operationResults.get(i).abandoned = true;
+                future.cancel(false);
+                failedGatewaysMap.put(environmentName, "Interrupted while waiting for gateway " + environmentName);
+            }
+        }
     }
 
     /**
@@ -277,14 +408,6 @@ public class APIGatewayManager {
                     definition + "</localEntry>");
             gatewayAPIDTO.setLocalEntriesToBeAdd(addGatewayContentToList(graphqlLocalEntry,
                     gatewayAPIDTO.getLocalEntriesToBeAdd()));
-            Set<URITemplate> uriTemplates = new HashSet<>();
-            URITemplate template = new URITemplate();
-            template.setAuthType("Any");
-            template.setHTTPVerb("POST");
-            template.setHttpVerbs("POST");
-            template.setUriTemplate("/*");
-            uriTemplates.add(template);
-            api.setUriTemplates(uriTemplates);
         } else if (api.getType() != null && (APIConstants.APITransportType.HTTP.toString().equals(api.getType())
                 || APIConstants.API_TYPE_SOAP.equals(api.getType())
                 || APIConstants.API_TYPE_SOAPTOREST.equals(api.getType()))) {
@@ -656,25 +779,9 @@ public class APIGatewayManager {
             }
         }
 
-        if (api.getEnvironments() != null) {
-            for (String environmentName : api.getEnvironments()) {
-                Environment environment = environments.get(environmentName);
-                //If the environment is removed from the configuration, continue without removing
-                if (environment == null) {
-                    continue;
-                }
-                failedEnvironmentsMap = removeAPIFromGatewayEnvironment(api, tenantDomain, environment, false,
-                        removedGateways, failedEnvironmentsMap);
-            }
-        }
-
-        if (api.getGatewayLabels() != null) {
-            for (Label label : api.getGatewayLabels()) {
-                Environment environment = getEnvironmentFromLabel(label);
-                failedEnvironmentsMap = removeAPIFromGatewayEnvironment(api, tenantDomain, environment, true,
-                        removedGateways, failedEnvironmentsMap);
-            }
-        }
+        executeInGatewayEnvironments(api, (environment, isGatewayDefinedAsALabel, gateways, failedMap) ->
+                removeAPIFromGatewayEnvironment(api, tenantDomain, environment, isGatewayDefinedAsALabel, gateways,
+                        failedMap), removedGateways, failedEnvironmentsMap);
 
         int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
         DeployAPIInGatewayEvent
@@ -1555,4 +1662,23 @@ public class APIGatewayManager {
                 , gatewayAPIDTO.getEndpointEntriesToBeRemove()));
     }
 
+    /**
+     * An operation such as publishing or removing an API, in a single gateway environment
+     */
+    private interface GatewayOperation {
+
+        void execute(Environment environment, boolean isGatewayDefinedAsALabel, Set<String> gateways,
+                     Map<String, String> failedGatewaysMap);
+    }
+
+    /**
+     * Gateways updated by an operation in a single gateway environment, and the error if the operation failed
+     */
+    private static class GatewayOperationResult {
+
+        private final Set<String> gateways = new HashSet<>();
+        private final Map<String, String> failedGatewaysMap = new HashMap<>();
+        // Set once the result is no longer awaited
+        private volatile boolean abandoned;
+    }
 }
@@ -954,6 +954,49 @@ public class APIManagerConfiguration {
                         }
                     }
                     throttleProperties.setDataPublisherThreadPool(dataPublisherThreadPool);
+
+                    // Data publisher batching configuration
+
+                    OMElement dataPublisherBatchingElement = dataPublisherConfigurationElement
+                            .getFirstChildWithName(new QName(APIConstants.AdvancedThrottleConstants
+                                    .DATA_PUBLISHER_BATCHING_CONFIGURATION));
+                    ThrottleProperties.DataPublisherBatching dataPublisherBatching = new ThrottleProperties
+                            .DataPublisherBatching();
+                    if (dataPublisherBatchingElement != null) {
+                        OMElement batchingEnabledElement = dataPublisherBatchingElement.getFirstChildWithName(new
+                                QName(APIConstants.AdvancedThrottleConstants.ENABLED));
+                        if (batchingEnabledElement != null) {
+                            dataPublisherBatching.setEnabled(JavaUtils.isTrueExplicitly(batchingEnabledElement
+                                    .getText()));
+                        }
+                        OMElement bufferSizeElement = dataPublisherBatchingElement.getFirstChildWithName(new
+                                QName(APIConstants.AdvancedThrottleConstants.DATA_PUBLISHER_BATCHING_BUFFER_SIZE));
+                        if (bufferSizeElement != null) {
+                            dataPublisherBatching.setBufferSize(Integer.parseInt(bufferSizeElement.getText().trim()));
+                        }
+                        OMElement batchSizeElement = dataPublisherBatchingElement.getFirstChildWithName(new
+                                QName(APIConstants.AdvancedThrottleConstants.DATA_PUBLISHER_BATCHING_BATCH_SIZE));
+                        if (batchSizeElement != null) {
+                            dataPublisherBatching.setBatchSize(Integer.parseInt(batchSizeElement.getText().trim()));
+                        }
+                        OMElement lingerTimeElement = dataPublisherBatchingElement.getFirstChildWithName(new
+                                QName(APIConstants.AdvancedThrottleConstants.DATA_PUBLISHER_BATCHING_LINGER_TIME));
+                        if (lingerTimeElement != null) {
+                            dataPublisherBatching.setLingerTime(Long.parseLong(lingerTimeElement.getText().trim()));
+                        }
+                        OMElement workerCountElement = dataPublisherBatchingElement.getFirstChildWithName(new
+                                QName(APIConstants.AdvancedThrottleConstants.DATA_PUBLISHER_BATCHING_WORKER_COUNT));
+                        if (workerCountElement != null) {
+                            dataPublisherBatching.setWorkerCount(Integer.parseInt(workerCountElement.getText()
+                                    .trim()));
+                        }
+                        OMElement overflowPolicyElement = dataPublisherBatchingElement.getFirstChildWithName(new
+                                QName(APIConstants.AdvancedThrottleConstants.DATA_PUBLISHER_BATCHING_OVERFLOW_POLICY));
+                        if (overflowPolicyElement != null) {
+                            dataPublisherBatching.setOverflowPolicy(overflowPolicyElement.getText().trim());
+                        }
+                    }
+                    throttleProperties.setDataPublisherBatching(dataPublisherBatching);
                 }
 
                 // Configuring JMSConnectionDetails
@@ -1152,6 +1195,37 @@ public class APIManagerConfiguration {
 
                 throttleProperties.setDefaultThrottleTierLimits(defaultThrottleTierLimits);
 
+                //Configuring local throttling
+                OMElement localThrottlingElement = throttleConfigurationElement.getFirstChildWithName(new
+                        QName(APIConstants.AdvancedThrottleConstants.LOCAL_THROTTLING));
+                ThrottleProperties.LocalThrottling localThrottling = new ThrottleProperties.LocalThrottling();
+                if (localThrottlingElement != null) {
+                    OMElement localThrottlingEnabledElement = localThrottlingElement.getFirstChildWithName(new
+                            QName(APIConstants.AdvancedThrottleConstants.ENABLED));
+                    if (localThrottlingEnabledElement != null) {
+                        localThrottling.setEnabled(JavaUtils.isTrueExplicitly(localThrottlingEnabledElement
+                                .getText()));
+                    }
+                    OMElement gatewayCountElement = localThrottlingElement.getFirstChildWithName(new
+                            QName(APIConstants.AdvancedThrottleConstants.LOCAL_THROTTLING_GATEWAY_COUNT));
+                    if (gatewayCountElement != null) {
+                        localThrottling.setGatewayCount(Integer.parseInt(gatewayCountElement.getText().trim()));
+                    }
+                    OMElement tierLimitsElement = localThrottlingElement.getFirstChildWithName(new
+                            QName(APIConstants.AdvancedThrottleConstants.LOCAL_THROTTLING_TIER_LIMITS));
+                    if (tierLimitsElement != null) {
+                        Iterator tierElements = tierLimitsElement.getChildrenWithLocalName(
+                                APIConstants.AdvancedThrottleConstants.LOCAL_THROTTLING_TIER);
+                        while (tierElements.hasNext()) {
+                            OMElement tierElement = (OMElement) tierElements.next();
+                            localThrottling.getTierLimits().put(tierElement.getAttributeValue(new QName(
+                                    APIConstants.AdvancedThrottleConstants.LOCAL_THROTTLING_TIER_NAME)),
+                                    Long.parseLong(tierElement.getText().trim()));
+                        }
+                    }
+                }
+                throttleProperties.setLocalThrottling(localThrottling);
+
                 //Configuring policy deployer
                 OMElement policyDeployerConnectionElement = throttleConfigurationElement.getFirstChildWithName(new
                         QName(APIConstants.AdvancedThrottleConstants.POLICY_DEPLOYER_CONFIGURATION));
@@ -1514,6 +1588,16 @@ public class APIManagerConfiguration {
             if (initDelay != null) {
                 eventHubConfigurationDto.setInitDelay(Integer.parseInt(initDelay.getText()));
             }
+            OMElement syncInterval =
+                    omElement.getFirstChildWithName(new QName(APIConstants.KeyManager.SYNC_INTERVAL));
+            if (syncInterval != null) {
+                eventHubConfigurationDto.setSyncInterval(Integer.parseInt(syncInterval.getText()));
+            }
+            OMElement snapshotInterval =
+                    omElement.getFirstChildWithName(new QName(APIConstants.KeyManager.SNAPSHOT_INTERVAL));
+            if (snapshotInterval != null) {
+                eventHubConfigurationDto.setSnapshotInterval(Integer.parseInt(snapshotInterval.getText()));
+            }
             OMElement usernameElement = omElement.getFirstChildWithName(new QName(APIConstants.KeyManager.USERNAME));
             if (usernameElement != null) {
                 eventHubConfigurationDto.setUsername(usernameElement.getText());
@@ -1642,6 +1726,23 @@ public class APIManagerConfiguration {
                 }
             }
         }
+
+        OMElement deploymentParallelismElement = omElement.getFirstChildWithName(
+                new QName(APIConstants.GatewayArtifactSynchronizer.DEPLOYMENT_PARALLELISM_CONFIG));
+        if (deploymentParallelismElement != null) {
+            try {
+                int deploymentParallelism = Integer.parseInt(deploymentParallelismElement.getText().trim());
+                if (deploymentParallelism > 0) {
+                    gatewayArtifactSynchronizerProperties.setDeploymentParallelism(deploymentParallelism);
+                } else {
+                    log.warn("Invalid deployment parallelism " + deploymentParallelism + ". Using the default "
+                            + gatewayArtifactSynchronizerProperties.getDeploymentParallelism());
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Invalid deployment parallelism " + deploymentParallelismElement.getText() +
+                        ". Using the default " + gatewayArtifactSynchronizerProperties.getDeploymentParallelism());
+            }
+        }
     }
 
     public GatewayArtifactSynchronizerProperties getGatewayArtifactSynchronizerProperties() {
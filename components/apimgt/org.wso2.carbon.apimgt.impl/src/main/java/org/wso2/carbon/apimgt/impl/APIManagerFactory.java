@@ -16,6 +16,7 @@
 
 package org.wso2.carbon.apimgt.impl;
 
+import java.util.ArrayList;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
@@ -24,7 +25,7 @@ import org.wso2.carbon.apimgt.api.APIConsumer;
 import org.wso2.carbon.apimgt.api.APIManagementException;
 import org.wso2.carbon.apimgt.api.APIManager;
 import org.wso2.carbon.apimgt.api.APIProvider;
-import org.wso2.carbon.apimgt.impl.utils.LRUCache;
+import org.wso2.carbon.apimgt.impl.utils.TinyLFUCache;
 
 public class APIManagerFactory {
 
@@ -94,24 +95,12 @@ public class APIManagerFactory {
     }
 
     public void clearAll() {
-        consumers.exclusiveLock();
-        try {
-            for (APIConsumer consumer : consumers.values()) {
-                cleanupSilently(consumer);
-            }
-            consumers.clear();
-        } finally {
-            consumers.release();
+        // Entries are removed one at a time, so that each manager is cleaned up by the thread which removed it.
+        for (String username : new ArrayList<String>(consumers.keySet())) {
+            cleanupSilently(consumers.remove(username));
         }
-
-        providers.exclusiveLock();
-        try {
-            for (APIProvider provider : providers.values()) {
-                cleanupSilently(provider);
-            }
-            providers.clear();
-        } finally {
-            providers.release();
+        for (String username : new ArrayList<String>(providers.keySet())) {
+            cleanupSilently(providers.remove(username));
         }
     }
 
@@ -125,7 +114,7 @@ public class APIManagerFactory {
         }
     }
 
-    private class APIManagerCache<T> extends LRUCache<String,T> {
+    private class APIManagerCache<T> extends TinyLFUCache<String,T> {
 
         public APIManagerCache(int maxEntries) {
             super(maxEntries);
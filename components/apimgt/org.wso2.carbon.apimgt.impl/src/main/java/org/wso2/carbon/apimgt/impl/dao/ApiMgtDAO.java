@@ -145,6 +145,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -971,7 +972,8 @@ public class ApiMgtDAO {
             preparedStForUpdate = conn.prepareStatement(sqlQuery);
             preparedStForUpdate.setString(1, requestedThrottlingTier);
             preparedStForUpdate.setString(2, status);
-            preparedStForUpdate.setString(3, inputSubscriptionUUId);
+            preparedStForUpdate.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            preparedStForUpdate.setString(4, inputSubscriptionUUId);
             preparedStForUpdate.executeUpdate();
 
             // finally commit transaction
@@ -2946,7 +2948,8 @@ public class ApiMgtDAO {
 
             ps = conn.prepareStatement(sqlQuery);
             ps.setString(1, status);
-            ps.setInt(2, subscriptionId);
+            ps.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+            ps.setInt(3, subscriptionId);
             ps.execute();
 
             //Commit transaction
@@ -2980,7 +2983,8 @@ public class ApiMgtDAO {
             ps.setString(1, null);
             ps.setString(2, requestedThrottlingTier);
             ps.setString(3, status);
-            ps.setInt(4, subscriptionId);
+            ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            ps.setInt(5, subscriptionId);
             ps.execute();
 
             //Commit transaction
@@ -4190,7 +4194,8 @@ public class ApiMgtDAO {
 
             ps = conn.prepareStatement(updateSqlQuery);
             ps.setString(1, status);
-            ps.setInt(2, applicationId);
+            ps.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+            ps.setInt(3, applicationId);
 
             ps.executeUpdate();
 
@@ -4616,7 +4621,8 @@ public class ApiMgtDAO {
                 prepStmt = connection.prepareStatement(sqlQuery);
                 prepStmt.setString(1, userName);
                 prepStmt.setInt(2, subscriberId);
-                prepStmt.setString(3, application.getUUID());
+                prepStmt.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+                prepStmt.setString(4, application.getUUID());
                 prepStmt.executeUpdate();
                 connection.commit();
                 isAppUpdated = true;
@@ -15540,7 +15546,11 @@ public class ApiMgtDAO {
             statement.setString(4, tenantDomain);
             statement.executeUpdate();
         } catch (SQLException e) {
-            handleException("Failed to add API details for " + APIName, e);
+            // The details are shared by all the gateways of an API, hence they may have been added concurrently for
+            // another gateway
+            if (!isAPIDetailsExists(APIId)) {
+                handleException("Failed to add API details for " + APIName, e);
+            }
         }
     }
 
@@ -15607,21 +15617,33 @@ public class ApiMgtDAO {
             throws APIManagementException {
 
         List<ByteArrayInputStream> baip = new ArrayList<>();
+        getAllGatewayPublishedAPIArtifacts(label, artifact -> baip.add(new ByteArrayInputStream(artifact)));
+        return baip;
+    }
+
+    /**
+     * Retrieve the blobs of the APIs for a given label one by one, so that each blob can be processed as it is read
+     * instead of holding the blobs of all the APIs at once
+     *
+     * @param label            - Gateway label of the API
+     * @param artifactConsumer - Consumer of the blob of each API
+     * @throws APIManagementException if an error occurs
+     */
+    public void getAllGatewayPublishedAPIArtifacts(String label, Consumer<byte[]> artifactConsumer)
+            throws APIManagementException {
+
         try (Connection connection = APIMgtDBUtil.getConnection();
                 PreparedStatement statement = connection.prepareStatement(SQLConstants.GET_ALL_API_ARTIFACT)) {
             statement.setString(1, label);
             statement.setString(2, APIConstants.GatewayArtifactSynchronizer.GATEWAY_INSTRUCTION_PUBLISH);
-            ResultSet rs = statement.executeQuery();
-            while (rs.next()) {
-                byte[] st = (byte[]) rs.getObject(1);
-                ByteArrayInputStream byteArrayInputStream= new ByteArrayInputStream(st);
-                baip.add(byteArrayInputStream);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    artifactConsumer.accept((byte[]) rs.getObject(1));
+                }
             }
-            return baip;
         } catch (SQLException e) {
             handleException("Failed to get artifacts " , e);
         }
-        return baip;
     }
 
     /**
@@ -45,6 +45,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
@@ -437,6 +438,43 @@ public class SubscriptionValidationDAO {
         return subscriptions;
     }
 
+    /*
+     * This method can be used to retrieve the Subscriptions of a given tenant which were created or updated after
+     * the given time
+     *
+     * @param tenantDomain : tenant domain
+     * @param updatedSince : epoch milliseconds of the last retrieval
+     * @return {@link List<Subscription>}
+     * */
+    public List<Subscription> getAllSubscriptions(String tenantDomain, long updatedSince) {
+
+        List<Subscription> subscriptions = new ArrayList<>();
+        try (Connection conn = APIMgtDBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     SubscriptionValidationSQLConstants.GET_TENANT_SUBSCRIPTIONS_UPDATED_SINCE_SQL);
+        ) {
+            int tenantId = 0;
+            try {
+                tenantId = ServiceReferenceHolder.getInstance().getRealmService().getTenantManager()
+                        .getTenantId(tenantDomain);
+            } catch (UserStoreException e) {
+                log.error("Error in getting tenant id for loading Subscriptions for tenant : " + tenantDomain, e);
+            }
+            Timestamp since = new Timestamp(updatedSince);
+            ps.setInt(1, tenantId);
+            ps.setTimestamp(2, since);
+            ps.setTimestamp(3, since);
+
+            try (ResultSet resultSet = ps.executeQuery();) {
+                populateSubscriptionsList(subscriptions, resultSet);
+            }
+        } catch (SQLException e) {
+            log.error("Error in loading Subscriptions updated since " + updatedSince + " for tenant : "
+                    + tenantDomain, e);
+        }
+        return subscriptions;
+    }
+
     private void populateSubscriptionsList(List<Subscription> subscriptions, ResultSet resultSet) throws SQLException {
 
         if (resultSet != null && subscriptions != null) {
@@ -480,6 +518,42 @@ public class SubscriptionValidationDAO {
         return applications;
     }
 
+    /*
+     * This method can be used to retrieve the Applications of a given tenant which were created or updated after
+     * the given time
+     *
+     * @param tenantDomain : tenant domain
+     * @param updatedSince : epoch milliseconds of the last retrieval
+     * @return {@link List<Application>}
+     * */
+    public List<Application> getAllApplications(String tenantDomain, long updatedSince) {
+
+        ArrayList<Application> applications = new ArrayList<>();
+        try (Connection conn = APIMgtDBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     SubscriptionValidationSQLConstants.GET_TENANT_APPLICATIONS_UPDATED_SINCE_SQL);
+        ) {
+            try {
+                int tenantId = ServiceReferenceHolder.getInstance().getRealmService().getTenantManager()
+                        .getTenantId(tenantDomain);
+                Timestamp since = new Timestamp(updatedSince);
+                ps.setInt(1, tenantId);
+                ps.setTimestamp(2, since);
+                ps.setTimestamp(3, since);
+                ResultSet resultSet = ps.executeQuery();
+                addToApplicationList(applications, resultSet);
+            } catch (UserStoreException e) {
+                log.error("Error in getting tenant id for loading Applications for tenant : " + tenantDomain, e);
+            }
+
+        } catch (SQLException e) {
+            log.error("Error in loading Applications updated since " + updatedSince + " for tenantDomain : "
+                    + tenantDomain, e);
+        }
+
+        return applications;
+    }
+
     /*
      * @param subscriptionId : unique identifier of a subscription
      * @return {@link Subscription}
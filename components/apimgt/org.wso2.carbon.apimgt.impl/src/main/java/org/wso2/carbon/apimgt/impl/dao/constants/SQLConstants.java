@@ -449,6 +449,7 @@ public class SQLConstants {
             " UPDATE AM_SUBSCRIPTION " +
             " SET TIER_ID_PENDING = ? " +
             " , SUB_STATUS = ? " +
+            " , UPDATED_TIME = ? " +
             " WHERE UUID = ?";
     
     public static final String GET_SUBSCRIPTION_UUID_SQL =
@@ -1108,6 +1109,7 @@ public class SQLConstants {
     public static final String UPDATE_SUBSCRIPTION_STATUS_SQL =
             " UPDATE AM_SUBSCRIPTION " +
             " SET SUB_STATUS = ? " +
+            " , UPDATED_TIME = ? " +
             " WHERE SUBSCRIPTION_ID = ?";
 
     public static final String UPDATE_SUBSCRIPTION_STATUS_AND_TIER_SQL =
@@ -1115,6 +1117,7 @@ public class SQLConstants {
                     " SET TIER_ID_PENDING = ? " +
                     " , TIER_ID = ? " +
                     " , SUB_STATUS = ? " +
+                    " , UPDATED_TIME = ? " +
                     " WHERE SUBSCRIPTION_ID = ?";
 
     public static final String UPDATE_REFRESHED_APPLICATION_ACCESS_TOKEN_PREFIX = "UPDATE ";
@@ -1421,7 +1424,7 @@ public class SQLConstants {
                     "   NAME = ? AND APPLICATION_ID = ?";
 
     public static final String UPDATE_APPLICATION_STATUS_SQL =
-            " UPDATE AM_APPLICATION SET APPLICATION_STATUS = ? WHERE APPLICATION_ID = ?";
+            " UPDATE AM_APPLICATION SET APPLICATION_STATUS = ?, UPDATED_TIME = ? WHERE APPLICATION_ID = ?";
 
     public static final String GET_APPLICATION_STATUS_BY_ID_SQL =
             "SELECT APPLICATION_STATUS FROM AM_APPLICATION WHERE APPLICATION_ID= ?";
@@ -1545,7 +1548,8 @@ public class SQLConstants {
             "UPDATE AM_APPLICATION " +
             " SET " +
                 "CREATED_BY = ? , " +
-                "SUBSCRIBER_ID = ? " +
+                "SUBSCRIBER_ID = ? , " +
+                "UPDATED_TIME = ? " +
             " WHERE " +
             "   UUID = ? ";
 
@@ -57,6 +57,10 @@ public class SubscriptionValidationSQLConstants {
                     "   APP.SUBSCRIBER_ID = SUB.SUBSCRIBER_ID AND" +
                     "   SUB.TENANT_ID = ? ";
 
+    public static final String GET_TENANT_APPLICATIONS_UPDATED_SINCE_SQL =
+            GET_TENANT_APPLICATIONS_SQL +
+                    " AND (APP.CREATED_TIME > ? OR APP.UPDATED_TIME > ?)";
+
     public static final String GET_APPLICATION_BY_ID_SQL =
             " SELECT " +
                     "   APP.UUID AS APP_UUID," +
@@ -222,6 +226,10 @@ public class SubscriptionValidationSQLConstants {
                     "   APP.SUBSCRIBER_ID = SUB.SUBSCRIBER_ID AND " +
                     "   SUB.TENANT_ID = ? ";
 
+    public static final String GET_TENANT_SUBSCRIPTIONS_UPDATED_SINCE_SQL =
+            GET_TENANT_SUBSCRIPTIONS_SQL +
+                    " AND (SUBS.CREATED_TIME > ? OR SUBS.UPDATED_TIME > ?)";
+
     public static final String GET_TENANT_SUBSCRIPTION_POLICIES_SQL =
             "SELECT " +
                     "   APS.POLICY_ID AS POLICY_ID," +
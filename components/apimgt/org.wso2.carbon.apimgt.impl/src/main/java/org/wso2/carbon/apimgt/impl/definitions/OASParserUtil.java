@@ -875,13 +875,17 @@ public class OASParserUtil {
             HttpGet httpGet = new HttpGet(url);
 
             HttpResponse response = httpClient.execute(httpGet);
-
-            if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode()) {
-                String responseStr = EntityUtils.toString(response.getEntity(), "UTF-8");
-                validationResponse = validateAPIDefinition(responseStr, returnJsonContent);
-            } else {
-                validationResponse.setValid(false);
-                validationResponse.getErrorItems().add(ExceptionCodes.OPENAPI_URL_NO_200);
+            try {
+                if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode()) {
+                    String responseStr = EntityUtils.toString(response.getEntity(), "UTF-8");
+                    validationResponse = validateAPIDefinition(responseStr, returnJsonContent);
+                } else {
+                    validationResponse.setValid(false);
+                    validationResponse.getErrorItems().add(ExceptionCodes.OPENAPI_URL_NO_200);
+                }
+            } finally {
+                // The client is shared, hence the connection is returned to its pool on every path
+                EntityUtils.consumeQuietly(response.getEntity());
             }
         } catch (IOException e) {
             ErrorHandler errorHandler = ExceptionCodes.OPENAPI_URL_MALFORMED;
@@ -23,6 +23,8 @@ public class EventHubConfigurationDto {
     private boolean enabled = false;
     private String serviceUrl;
     private int initDelay = 0;
+    private int syncInterval = 0;
+    private int snapshotInterval = 0;
     private String username;
     private char[] password;
     private EventHubReceiverConfiguration eventHubReceiverConfiguration;
@@ -57,6 +59,26 @@ public class EventHubConfigurationDto {
         this.initDelay = initDelay;
     }
 
+    public int getSyncInterval() {
+
+        return syncInterval;
+    }
+
+    public void setSyncInterval(int syncInterval) {
+
+        this.syncInterval = syncInterval;
+    }
+
+    public int getSnapshotInterval() {
+
+        return snapshotInterval;
+    }
+
+    public void setSnapshotInterval(int snapshotInterval) {
+
+        this.snapshotInterval = snapshotInterval;
+    }
+
     public EventHubReceiverConfiguration getEventHubReceiverConfiguration() {
 
         return eventHubReceiverConfiguration;
@@ -13,6 +13,7 @@ public class GatewayArtifactSynchronizerProperties {
     private String saverName = APIConstants.GatewayArtifactSynchronizer.DB_SAVER_NAME;
     private String retrieverName = APIConstants.GatewayArtifactSynchronizer.DB_RETRIEVER_NAME;
     private Set<String> gatewayLabels = new HashSet<>();
+    private int deploymentParallelism = Runtime.getRuntime().availableProcessors();
 
     public String getSaverName() {
 
@@ -64,6 +65,16 @@ public class GatewayArtifactSynchronizerProperties {
         this.retrieveFromStorageEnabled = retrieveFromStorageEnabled;
     }
 
+    public int getDeploymentParallelism() {
+
+        return deploymentParallelism;
+    }
+
+    public void setDeploymentParallelism(int deploymentParallelism) {
+
+        this.deploymentParallelism = deploymentParallelism;
+    }
+
     public boolean isSaveArtifactsEnabled() {
 
         return saveArtifactsEnabled;
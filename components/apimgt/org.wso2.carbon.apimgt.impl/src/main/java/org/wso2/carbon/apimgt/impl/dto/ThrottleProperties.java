@@ -27,6 +27,7 @@ public class ThrottleProperties {
     private GlobalEngineWSConnection globalEngineWSConnection;
     private DataPublisherPool dataPublisherPool;
     private DataPublisherThreadPool dataPublisherThreadPool;
+    private DataPublisherBatching dataPublisherBatching = new DataPublisherBatching();
     private JMSConnectionProperties jmsConnectionProperties;
     private boolean enableUnlimitedTier;
     private String throttleDataSourceName;
@@ -37,6 +38,7 @@ public class ThrottleProperties {
     private boolean enableQueryParamConditions =false;
     private Map<String, Long> defaultThrottleTierLimits = new HashMap<String, Long>();
     private TrafficManager trafficManager;
+    private LocalThrottling localThrottling = new LocalThrottling();
     public boolean isEnabledSubscriptionLevelSpikeArrest() {
         return enabledSubscriptionLevelSpikeArrest;
     }
@@ -53,6 +55,14 @@ public class ThrottleProperties {
         this.dataPublisherThreadPool = dataPublisherThreadPool;
     }
 
+    public DataPublisherBatching getDataPublisherBatching() {
+        return dataPublisherBatching;
+    }
+
+    public void setDataPublisherBatching(DataPublisherBatching dataPublisherBatching) {
+        this.dataPublisherBatching = dataPublisherBatching;
+    }
+
     public BlockCondition getBlockCondition() {
         return blockCondition;
     }
@@ -166,6 +176,14 @@ public class ThrottleProperties {
         this.defaultThrottleTierLimits = defaultThrottleTierLimits;
     }
 
+    public LocalThrottling getLocalThrottling() {
+        return localThrottling;
+    }
+
+    public void setLocalThrottling(LocalThrottling localThrottling) {
+        this.localThrottling = localThrottling;
+    }
+
     public static class DataPublisher {
         private String type = "Binary";
         private String receiverUrlGroup = "tcp://localhost:9611";
@@ -456,6 +474,40 @@ public class ThrottleProperties {
         }
     }
 
+    /**
+     * Node local throttling which rejects requests ahead of the decisions of the traffic manager, using the share of
+     * the tier limits of a gateway. Tier limits are in requests per minute.
+     */
+    public static class LocalThrottling {
+        private boolean enabled = false;
+        private int gatewayCount = 1;
+        private Map<String, Long> tierLimits = new HashMap<String, Long>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getGatewayCount() {
+            return gatewayCount;
+        }
+
+        public void setGatewayCount(int gatewayCount) {
+            this.gatewayCount = gatewayCount;
+        }
+
+        public Map<String, Long> getTierLimits() {
+            return tierLimits;
+        }
+
+        public void setTierLimits(Map<String, Long> tierLimits) {
+            this.tierLimits = tierLimits;
+        }
+    }
+
     public static class PolicyDeployer {
         private boolean enabled = false;
         private String serviceUrl;
@@ -602,5 +654,65 @@ public class ThrottleProperties {
             this.keepAliveTime = keepAliveTime;
         }
     }
-}
 
+    /**
+     * Publishing of throttle events in batches through a bounded buffer, instead of a task per request. The linger
+     * time is in milliseconds, and the overflow policy is one of DropOldest, Sample and Block.
+     */
+    public static class DataPublisherBatching {
+        private boolean enabled = false;
+        private int bufferSize = 65536;
+        private int batchSize = 200;
+        private long lingerTime = 5;
+        private int workerCount = 2;
+        private String overflowPolicy = "DropOldest";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getLingerTime() {
+            return lingerTime;
+        }
+
+        public void setLingerTime(long lingerTime) {
+            this.lingerTime = lingerTime;
+        }
+
+        public int getWorkerCount() {
+            return workerCount;
+        }
+
+        public void setWorkerCount(int workerCount) {
+            this.workerCount = workerCount;
+        }
+
+        public String getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(String overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+    }
+}
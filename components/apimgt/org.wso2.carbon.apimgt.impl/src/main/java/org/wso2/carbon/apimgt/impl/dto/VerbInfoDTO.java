@@ -24,6 +24,10 @@ public class VerbInfoDTO implements Serializable {
     private String requestKey;
 
     private ConditionGroupDTO[] conditionGroups;
+
+    // Compiled form of the condition groups, set by the gateway. It is not serialized, hence it is compiled again
+    // when a deserialized resource is throttled.
+    private transient Object conditionGroupPlan;
     
     private boolean contentAware;
 
@@ -104,6 +108,14 @@ public class VerbInfoDTO implements Serializable {
     public ConditionGroupDTO[] getConditionGroups() {
         return conditionGroups;
     }
+
+    public Object getConditionGroupPlan() {
+        return conditionGroupPlan;
+    }
+
+    public void setConditionGroupPlan(Object conditionGroupPlan) {
+        this.conditionGroupPlan = conditionGroupPlan;
+    }
     
     public boolean isContentAware() {
         return contentAware;
@@ -21,6 +21,7 @@ package org.wso2.carbon.apimgt.impl.gatewayartifactsynchronizer;
 import org.wso2.carbon.apimgt.impl.gatewayartifactsynchronizer.exception.ArtifactSynchronizerException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * This is a Artifact Retriever type. this interface let users to retriever API artifacts from a storage.
@@ -56,6 +57,23 @@ public interface ArtifactRetriever {
      List<String> retrieveAllArtifacts(String gatewayLabel)
             throws ArtifactSynchronizerException;
 
+    /**
+     * This method is used to retrieve data from the storage one API at a time. Retrievers which can read the
+     * artifacts of the APIs one by one should override this, so that the artifacts of all the APIs are not held in
+     * memory at once
+     *
+     * @param gatewayLabel     - Label subscribed by the gateway
+     * @param artifactConsumer - Consumer of the information about each API and its gateway artifacts
+     * @throws ArtifactSynchronizerException if there are any errors when retrieving the Artifacts
+     */
+    default void retrieveAllArtifacts(String gatewayLabel, Consumer<String> artifactConsumer)
+            throws ArtifactSynchronizerException {
+
+        for (String artifact : retrieveAllArtifacts(gatewayLabel)) {
+            artifactConsumer.accept(artifact);
+        }
+    }
+
     /**
      * Will be called after all publishing is done or if init fails
      */
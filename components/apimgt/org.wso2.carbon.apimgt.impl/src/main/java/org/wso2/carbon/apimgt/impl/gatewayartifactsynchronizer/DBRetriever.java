@@ -30,6 +30,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class DBRetriever implements ArtifactRetriever {
 
@@ -79,6 +80,20 @@ public class DBRetriever implements ArtifactRetriever {
         return gatewayRuntimeArtifactsArray;
     }
 
+    @Override
+    public void retrieveAllArtifacts(String label, Consumer<String> artifactConsumer)
+            throws ArtifactSynchronizerException {
+
+        try {
+            apiMgtDAO.getAllGatewayPublishedAPIArtifacts(label, bytes -> artifactConsumer.accept(new String(bytes)));
+            if (log.isDebugEnabled()) {
+                log.debug("Successfully retrieved Artifacts from DB");
+            }
+        } catch (APIManagementException e) {
+            throw new ArtifactSynchronizerException("Error retrieving Artifact from DB", e);
+        }
+    }
+
     @Override
     public void disconnect() {
         //not required
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.impl.jwt;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.security.interfaces.RSAPublicKey;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The RSA public keys of a JWKS, indexed by their key IDs, as fetched at a point in time. The keys are converted once
+ * when the JWKS is fetched, instead of for each token which is validated.
+ */
+class JWKSKeySet {
+
+    private static final Log log = LogFactory.getLog(JWKSKeySet.class);
+
+    private final Map<String, RSAPublicKey> keys = new HashMap<>();
+    private final long fetchedTime;
+
+    JWKSKeySet(JWKSet jwkSet, long fetchedTime) {
+
+        this.fetchedTime = fetchedTime;
+        for (JWK jwk : jwkSet.getKeys()) {
+            if (jwk instanceof RSAKey && jwk.getKeyID() != null) {
+                try {
+                    keys.put(jwk.getKeyID(), ((RSAKey) jwk).toRSAPublicKey());
+                } catch (JOSEException e) {
+                    log.error("Error while reading the RSA public key " + jwk.getKeyID() + " of JWKS", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param keyID key ID in the header of a token
+     * @return the RSA public key of the key ID, or null if there is no such RSA key in the JWKS
+     */
+    RSAPublicKey getKey(String keyID) {
+
+        return keys.get(keyID);
+    }
+
+    /**
+     * @return time at which the JWKS was fetched, in milliseconds
+     */
+    long getFetchedTime() {
+
+        return fetchedTime;
+    }
+}
@@ -18,9 +18,7 @@
 
 package org.wso2.carbon.apimgt.impl.jwt;
 
-import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import com.nimbusds.jwt.util.DateUtils;
@@ -36,21 +34,53 @@ import org.wso2.carbon.apimgt.impl.internal.ServiceReferenceHolder;
 import org.wso2.carbon.apimgt.impl.jwt.transformer.DefaultJWTTransformer;
 import org.wso2.carbon.apimgt.impl.jwt.transformer.JWTTransformer;
 import org.wso2.carbon.apimgt.impl.utils.JWTUtil;
+import org.wso2.carbon.apimgt.impl.utils.TinyLFUCache;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.interfaces.RSAPublicKey;
 import java.text.ParseException;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.cache.Cache;
 
 public class JWTValidatorImpl implements JWTValidator {
 
+    private static final int MAX_VERIFIED_SIGNATURES = 10000;
+    // Minimum time between two fetches of the JWKS, other than when the JWKS is expired
+    private static final long JWKS_MIN_REFETCH_INTERVAL = TimeUnit.SECONDS.toMillis(60);
+    // The JWKS is fetched again in the background once this fraction of its expiry time is passed
+    private static final double JWKS_REFRESH_RATIO = 0.8;
+
+    // JWKS are refreshed ahead of their expiry by a shared pool, since a refresh is rare
+    private static final ExecutorService jwksRefreshPool = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable);
+        thread.setName("JWKS-Refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     TokenIssuerDto tokenIssuer;
     private Log log = LogFactory.getLog(JWTValidatorImpl.class);
     JWTTransformer jwtTransformer;
+    private final Object jwksLock = new Object();
+    private final AtomicBoolean jwksRefreshing = new AtomicBoolean();
+    private volatile JWKSKeySet jwksKeySet;
+    private volatile long jwksRefreshAttemptTime;
+    private long jwksExpiryTime = TimeUnit.SECONDS.toMillis(APIConstants.DEFAULT_TIMEOUT);
+    // Digests of the tokens of which the signatures were verified, with the keys which verified them
+    private final Map<ByteBuffer, RSAPublicKey> verifiedSignatures =
+            new TinyLFUCache<>(MAX_VERIFIED_SIGNATURES, APIConstants.DEFAULT_TIMEOUT, TimeUnit.SECONDS);
 
     @Override
     public JWTValidationInfo validateToken(SignedJWT jwtToken) throws APIManagementException {
@@ -94,6 +124,7 @@ public class JWTValidatorImpl implements JWTValidator {
             this.jwtTransformer = new DefaultJWTTransformer();
         }
         this.jwtTransformer.loadConfiguration(tokenIssuer);
+        this.jwksExpiryTime = TimeUnit.SECONDS.toMillis(CacheProvider.getDefaultCacheTimeout());
     }
 
     protected boolean validateSignature(SignedJWT signedJWT) throws APIManagementException {
@@ -104,42 +135,146 @@ public class JWTValidatorImpl implements JWTValidator {
             if (StringUtils.isNotEmpty(keyID)) {
                 if (tokenIssuer.getJwksConfigurationDTO().isEnabled() &&
                         StringUtils.isNotEmpty(tokenIssuer.getJwksConfigurationDTO().getUrl())) {
-                    // Check JWKSet Available in Cache
-                    Object jwks = getJWKSCache().get(tokenIssuer.getIssuer());
-                    JWKSet jwkSet;
-                    if (jwks != null) {
-                        jwkSet = (JWKSet) jwks;
-                    } else {
-                        String jwksInfo = JWTUtil
-                                .retrieveJWKSConfiguration(tokenIssuer.getJwksConfigurationDTO().getUrl());
-                        jwkSet = JWKSet.parse(jwksInfo);
-                        getJWKSCache().put(tokenIssuer.getIssuer(), jwkSet);
-                    }
-                    if (jwkSet.getKeyByKeyId(keyID) instanceof RSAKey) {
-                        RSAKey keyByKeyId = (RSAKey) jwkSet.getKeyByKeyId(keyID);
-                        RSAPublicKey rsaPublicKey = keyByKeyId.toRSAPublicKey();
-                        if (rsaPublicKey != null) {
-                            return JWTUtil.verifyTokenSignature(signedJWT, rsaPublicKey);
-                        }
+                    RSAPublicKey rsaPublicKey = getJWKSKey(keyID);
+                    if (rsaPublicKey != null) {
+                        return verifyTokenSignature(signedJWT, rsaPublicKey);
                     } else {
                         throw new APIManagementException("Key Algorithm not supported");
                     }
                 } else if (tokenIssuer.getCertificate() != null) {
                     log.debug("Retrieve certificate from Token issuer and validating");
                     RSAPublicKey rsaPublicKey = (RSAPublicKey) tokenIssuer.getCertificate().getPublicKey();
-                    return JWTUtil.verifyTokenSignature(signedJWT, rsaPublicKey);
+                    return verifyTokenSignature(signedJWT, rsaPublicKey);
                 } else {
                     return JWTUtil.verifyTokenSignature(signedJWT, keyID);
                 }
             }
             return JWTUtil.verifyTokenSignature(signedJWT, certificateAlias);
-        } catch (ParseException | JOSEException | IOException e) {
+        } catch (ParseException | IOException e) {
             log.error("Error while parsing JWT", e);
         }
 
         return true;
     }
 
+    /**
+     * Verifies the signature of a token with the given key, unless the signature of the same token was already
+     * verified with the key.
+     *
+     * @param signedJWT    token to be verified
+     * @param rsaPublicKey key to verify the signature with
+     * @return whether the signature is verified or not
+     */
+    private boolean verifyTokenSignature(SignedJWT signedJWT, RSAPublicKey rsaPublicKey) {
+
+        ByteBuffer digest = getDigest(signedJWT);
+        if (digest != null && rsaPublicKey.equals(verifiedSignatures.get(digest))) {
+            return true;
+        }
+        boolean verified = JWTUtil.verifyTokenSignature(signedJWT, rsaPublicKey);
+        if (verified && digest != null) {
+            verifiedSignatures.put(digest, rsaPublicKey);
+        }
+        return verified;
+    }
+
+    private ByteBuffer getDigest(SignedJWT signedJWT) {
+
+        // The digest covers the header and the payload as well as the signature, hence a valid signature which is
+        // attached to another payload does not match a verified token
+        String token = signedJWT.getParsedString();
+        if (token == null) {
+            return null;
+        }
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            log.error("Error while computing the digest of JWT", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the key of the given key ID from the JWKS of the token issuer. The JWKS is fetched by a single request
+     * when it is expired, while other requests wait for it, and is fetched again in the background before it expires.
+     *
+     * @param keyID key ID in the header of the token
+     * @return RSA public key of the key ID, or null if there is no such RSA key in the JWKS
+     */
+    private RSAPublicKey getJWKSKey(String keyID) throws APIManagementException, IOException, ParseException {
+
+        long currentTime = System.currentTimeMillis();
+        JWKSKeySet keySet = jwksKeySet;
+        if (keySet == null || currentTime - keySet.getFetchedTime() >= jwksExpiryTime) {
+            keySet = loadJWKS(keySet);
+        } else if (currentTime - keySet.getFetchedTime() >= jwksExpiryTime * JWKS_REFRESH_RATIO) {
+            refreshJWKSInBackground(currentTime);
+        }
+        RSAPublicKey rsaPublicKey = keySet.getKey(keyID);
+        if (rsaPublicKey == null && currentTime - keySet.getFetchedTime() >= JWKS_MIN_REFETCH_INTERVAL) {
+            // The key may have been rotated by the token issuer after the JWKS was fetched
+            keySet = loadJWKS(keySet);
+            rsaPublicKey = keySet.getKey(keyID);
+        }
+        return rsaPublicKey;
+    }
+
+    private JWKSKeySet loadJWKS(JWKSKeySet staleKeySet) throws APIManagementException, IOException, ParseException {
+
+        synchronized (jwksLock) {
+            JWKSKeySet keySet = jwksKeySet;
+            if (keySet != staleKeySet) {
+                // Loaded by another request while this request was waiting
+                return keySet;
+            }
+            if (keySet == null) {
+                // Check JWKSet Available in Cache
+                Object jwks = getJWKSCache().get(tokenIssuer.getIssuer());
+                if (jwks != null) {
+                    keySet = new JWKSKeySet((JWKSet) jwks, System.currentTimeMillis());
+                    jwksKeySet = keySet;
+                    return keySet;
+                }
+            }
+            JWKSet jwkSet = fetchJWKS();
+            getJWKSCache().put(tokenIssuer.getIssuer(), jwkSet);
+            keySet = new JWKSKeySet(jwkSet, System.currentTimeMillis());
+            jwksKeySet = keySet;
+            return keySet;
+        }
+    }
+
+    private void refreshJWKSInBackground(long currentTime) {
+
+        if (currentTime - jwksRefreshAttemptTime < JWKS_MIN_REFETCH_INTERVAL ||
+                !jwksRefreshing.compareAndSet(false, true)) {
+            return;
+        }
+        jwksRefreshAttemptTime = currentTime;
+        jwksRefreshPool.execute(() -> {
+            try {
+                JWKSKeySet keySet = new JWKSKeySet(fetchJWKS(), System.currentTimeMillis());
+                synchronized (jwksLock) {
+                    jwksKeySet = keySet;
+                }
+            } catch (APIManagementException | IOException | ParseException e) {
+                log.warn("Error while refreshing JWKS of " + tokenIssuer.getIssuer() + ". The JWKS fetched " +
+                        "earlier is used until it expires.", e);
+            } finally {
+                jwksRefreshing.set(false);
+            }
+        });
+    }
+
+    private JWKSet fetchJWKS() throws APIManagementException, IOException, ParseException {
+
+        String jwksInfo = JWTUtil.retrieveJWKSConfiguration(tokenIssuer.getJwksConfigurationDTO().getUrl());
+        if (jwksInfo == null) {
+            throw new APIManagementException("Error while retrieving JWKS of " + tokenIssuer.getIssuer());
+        }
+        return JWKSet.parse(jwksInfo);
+    }
+
     protected boolean validateTokenExpiry(JWTClaimsSet jwtClaimsSet) {
 
         long timestampSkew =
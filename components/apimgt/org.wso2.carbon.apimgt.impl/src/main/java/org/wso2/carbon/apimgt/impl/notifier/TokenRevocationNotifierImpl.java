@@ -120,6 +120,8 @@ public class TokenRevocationNotifierImpl implements TokenRevocationNotifier {
             }
         } catch (IOException e) {
             log.error("Error while sending revoked token to the persistent storage :", e);
+        } finally {
+            httpETCDPut.releaseConnection();
         }
     }
 }
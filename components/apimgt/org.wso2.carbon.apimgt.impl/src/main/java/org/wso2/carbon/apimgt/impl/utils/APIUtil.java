@@ -56,10 +56,6 @@ import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.conn.ssl.X509HostnameVerifier;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
-import org.apache.http.params.BasicHttpParams;
-import org.apache.http.params.HttpParams;
 import org.apache.http.util.EntityUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
@@ -7175,13 +7171,25 @@ public final class APIUtil {
     }
 
     /**
-     * Return a http client instance
+     * Return a http client instance. The client is shared by all the callers of the same protocol and port, and
+     * reuses its connections between calls, see {@link HttpClientRegistry}.
      *
      * @param port      - server port
      * @param protocol- service endpoint protocol http/https
      * @return
      */
     public static HttpClient getHttpClient(int port, String protocol) {
+        return HttpClientRegistry.getInstance().getHttpClient(port, protocol);
+    }
+
+    /**
+     * Return the scheme registry of a http client
+     *
+     * @param port      - server port
+     * @param protocol- service endpoint protocol http/https
+     * @return scheme registry with the socket factory of the protocol
+     */
+    static SchemeRegistry createSchemeRegistry(int port, String protocol) {
         SchemeRegistry registry = new SchemeRegistry();
         SSLSocketFactory socketFactory = SSLSocketFactory.getSocketFactory();
         String hostnameVerifierOption = System.getProperty(HOST_NAME_VERIFIER);
@@ -7226,10 +7234,7 @@ public final class APIUtil {
                 registry.register(new Scheme(APIConstants.HTTP_PROTOCOL, 80, PlainSocketFactory.getSocketFactory()));
             }
         }
-        HttpParams params = new BasicHttpParams();
-        ThreadSafeClientConnManager tcm = new ThreadSafeClientConnManager(registry);
-        return new DefaultHttpClient(tcm, params);
-
+        return registry;
     }
 
     private static SSLSocketFactory createSocketFactory() throws APIManagementException {
@@ -9401,7 +9406,7 @@ public final class APIUtil {
 
             httpPost.setEntity(requestEntity);
 
-            HttpResponse response;
+            HttpResponse response = null;
             try {
                 response = httpClient.execute(httpPost);
                 HttpEntity entity = response.getEntity();
@@ -9425,6 +9430,11 @@ public final class APIUtil {
             } catch (ParseException e) {
                 handleException("Error while parsing the response ", e);
             } finally {
+                // The entity is consumed on the error paths as well, so that the connection is returned to the pool
+                // of the shared client instead of being aborted by the reset
+                if (response != null) {
+                    EntityUtils.consumeQuietly(response.getEntity());
+                }
                 httpPost.reset();
             }
 
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.impl.utils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.client.params.CookiePolicy;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.NoopUserTokenHandler;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of the HTTP clients used to call other servers, such as the key manager, the traffic manager and the
+ * identity providers. A client is created once per protocol and port, and is shared by all the callers, hence
+ * connections are kept alive and reused between calls, instead of a new connection, and a new TLS handshake, for each
+ * call.
+ *
+ * Callers must consume the entity of a response, or release the connection of the request, so that the connection
+ * goes back to the pool. Cookies are ignored, since a client is shared by callers of different users and tenants.
+ * Closing a shared client has no effect. Connections which are idle for longer than the idle timeout are closed in the
+ * background.
+ *
+ * The pools are configured through the following system properties.
+ * <ul>
+ * <li>httpclient.maxConnectionsPerRoute - maximum number of connections to a host, 20 by default</li>
+ * <li>httpclient.maxTotalConnections - maximum number of connections of a client, 100 by default</li>
+ * <li>httpclient.connectionRequestTimeout - milliseconds to wait for a free connection, 30000 by default</li>
+ * <li>httpclient.keepAliveTimeout - seconds to keep a connection alive, unless the server says otherwise, 30 by
+ * default</li>
+ * <li>httpclient.idleTimeout - seconds after which an idle connection is closed, 60 by default</li>
+ * </ul>
+ */
+public class HttpClientRegistry {
+
+    private static final Log log = LogFactory.getLog(HttpClientRegistry.class);
+
+    public static final String MAX_CONNECTIONS_PER_ROUTE = "httpclient.maxConnectionsPerRoute";
+    public static final String MAX_TOTAL_CONNECTIONS = "httpclient.maxTotalConnections";
+    public static final String CONNECTION_REQUEST_TIMEOUT = "httpclient.connectionRequestTimeout";
+    public static final String KEEP_ALIVE_TIMEOUT = "httpclient.keepAliveTimeout";
+    public static final String IDLE_TIMEOUT = "httpclient.idleTimeout";
+
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    private static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 100;
+    private static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 30000;
+    private static final int DEFAULT_KEEP_ALIVE_TIMEOUT = 30;
+    private static final int DEFAULT_IDLE_TIMEOUT = 60;
+
+    private static final HttpClientRegistry instance = new HttpClientRegistry();
+
+    private final ConcurrentMap<String, PooledHttpClient> clients = new ConcurrentHashMap<>();
+    private final int maxConnectionsPerRoute = Integer.getInteger(MAX_CONNECTIONS_PER_ROUTE,
+            DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    private final int maxTotalConnections = Integer.getInteger(MAX_TOTAL_CONNECTIONS, DEFAULT_MAX_TOTAL_CONNECTIONS);
+    private final long connectionRequestTimeout = Integer.getInteger(CONNECTION_REQUEST_TIMEOUT,
+            DEFAULT_CONNECTION_REQUEST_TIMEOUT);
+    private final long keepAliveTimeout = TimeUnit.SECONDS.toMillis(Integer.getInteger(KEEP_ALIVE_TIMEOUT,
+            DEFAULT_KEEP_ALIVE_TIMEOUT));
+    private final long idleTimeout = TimeUnit.SECONDS.toMillis(Integer.getInteger(IDLE_TIMEOUT,
+            DEFAULT_IDLE_TIMEOUT));
+    private ScheduledExecutorService idleConnectionEvictor;
+
+    private HttpClientRegistry() {
+
+    }
+
+    public static HttpClientRegistry getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Returns the shared client of the given protocol and port, creating it on first use
+     *
+     * @param port     server port, or -1 for the default port of the protocol
+     * @param protocol service endpoint protocol http/https
+     * @return shared client
+     */
+    public HttpClient getHttpClient(int port, String protocol) {
+
+        String key = protocol + ":" + port;
+        PooledHttpClient client = clients.get(key);
+        if (client == null) {
+            client = clients.computeIfAbsent(key, k -> createHttpClient(port, protocol));
+        }
+        return client;
+    }
+
+    /**
+     * Returns the statistics of the connection pool of each client
+     *
+     * @return statistics of the connection pools, by protocol and port of the clients
+     */
+    public Map<String, PoolStats> getPoolStats() {
+
+        Map<String, PoolStats> poolStats = new TreeMap<>();
+        for (Map.Entry<String, PooledHttpClient> entry : clients.entrySet()) {
+            poolStats.put(entry.getKey(), entry.getValue().getPoolingConnectionManager().getTotalStats());
+        }
+        return poolStats;
+    }
+
+    /**
+     * Closes the expired connections, and the connections which are idle for longer than the idle timeout
+     */
+    public void closeIdleConnections() {
+
+        for (Map.Entry<String, PooledHttpClient> entry : clients.entrySet()) {
+            PoolingClientConnectionManager connectionManager = entry.getValue().getPoolingConnectionManager();
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+            if (log.isDebugEnabled()) {
+                log.debug("Connection pool of " + entry.getKey() + " : " + connectionManager.getTotalStats());
+            }
+        }
+    }
+
+    /**
+     * Closes all the connections of the shared clients. Clients are created again if they are used afterwards.
+     */
+    public synchronized void shutdown() {
+
+        if (idleConnectionEvictor != null) {
+            idleConnectionEvictor.shutdownNow();
+            idleConnectionEvictor = null;
+        }
+        for (String key : clients.keySet()) {
+            PooledHttpClient client = clients.remove(key);
+            if (client != null) {
+                client.getConnectionManager().shutdown();
+            }
+        }
+    }
+
+    private PooledHttpClient createHttpClient(int port, String protocol) {
+
+        PoolingClientConnectionManager connectionManager =
+                new PoolingClientConnectionManager(APIUtil.createSchemeRegistry(port, protocol));
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setMaxTotal(maxTotalConnections);
+        HttpParams params = new BasicHttpParams();
+        // Fail rather than wait forever if the connections of the pool are not released
+        params.setLongParameter(ClientPNames.CONN_MANAGER_TIMEOUT, connectionRequestTimeout);
+        // Cookies set by one caller must not be sent on behalf of another
+        params.setParameter(ClientPNames.COOKIE_POLICY, CookiePolicy.IGNORE_COOKIES);
+        PooledHttpClient client = new PooledHttpClient(connectionManager, params);
+        // Connections are shared between callers, even if a client certificate was used to open them
+        client.setUserTokenHandler(NoopUserTokenHandler.INSTANCE);
+        client.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+
+                long duration = super.getKeepAliveDuration(response, context);
+                return duration > 0 ? Math.min(duration, keepAliveTimeout) : keepAliveTimeout;
+            }
+        });
+        startIdleConnectionEvictor();
+        if (log.isDebugEnabled()) {
+            log.debug("Created HTTP client for " + protocol + ":" + port + " with " + maxConnectionsPerRoute +
+                    " connections per route and " + maxTotalConnections + " connections in total");
+        }
+        return client;
+    }
+
+    private synchronized void startIdleConnectionEvictor() {
+
+        if (idleConnectionEvictor == null) {
+            idleConnectionEvictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setName("HttpClient-IdleConnectionEvictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = Math.max(idleTimeout / 2, TimeUnit.SECONDS.toMillis(1));
+            idleConnectionEvictor.scheduleWithFixedDelay(this::closeIdleConnections, interval, interval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Client shared by all the callers of a destination, which is not shut down when a caller closes it
+     */
+    private static class PooledHttpClient extends DefaultHttpClient {
+
+        private final PoolingClientConnectionManager connectionManager;
+
+        private PooledHttpClient(PoolingClientConnectionManager connectionManager, HttpParams params) {
+
+            super(connectionManager, params);
+            this.connectionManager = connectionManager;
+        }
+
+        private PoolingClientConnectionManager getPoolingConnectionManager() {
+
+            return connectionManager;
+        }
+
+        @Override
+        public void close() {
+
+            // Shared by other callers, hence the connections are closed only when the registry is shut down
+        }
+    }
+}
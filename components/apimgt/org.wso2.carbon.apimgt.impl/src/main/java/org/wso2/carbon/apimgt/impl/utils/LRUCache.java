@@ -24,7 +24,10 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 /**
  * A simple, thread-safe LRU cache implementation. This cache allows concurrent reads.
  * Concurrent write attempts are synchronized using an exclusive lock.
+ *
+ * @deprecated use {@link TinyLFUCache}, which does not serialize writes and evicts by recency and frequency of use
  */
+@Deprecated
 public class LRUCache<K,V> extends LinkedHashMap<K,V> {
 
     private int maxEntries;
@@ -0,0 +1,662 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.impl.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A thread-safe, size bounded cache which evicts entries based on both their recency and frequency of use, in the
+ * manner of W-TinyLFU. Entries may also be given a time to live.
+ *
+ * Entries are held in a concurrent map, hence reads do not lock. The eviction policy is split into segments by the
+ * hash of the key, each with its own lock. A new entry enters a small LRU window, and on leaving the window it has
+ * to be used more often than the least recently used entry of the main space, according to a count-min sketch of
+ * the frequencies of keys, in order to take its place. The main space is a segmented LRU, where entries used again
+ * are moved from the probation segment to the protected segment. Reads update the policy only if the lock of the
+ * segment is free, as the policy tolerates losing a few of them.
+ *
+ * Null keys are not permitted. The key set, values and entry set are weakly consistent views.
+ */
+public class TinyLFUCache<K, V> extends AbstractMap<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    // Minimum number of entries of a segment when the cache is split into several segments.
+    private static final int MIN_SEGMENT_SIZE = 64;
+    private static final long NO_EXPIRY = Long.MIN_VALUE;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private final int segmentMask;
+    private final long defaultTtlNanos;
+    private final LongSupplier ticker;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param maxEntries maximum number of entries in the cache
+     */
+    public TinyLFUCache(int maxEntries) {
+
+        this(maxEntries, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param maxEntries maximum number of entries in the cache
+     * @param ttl        time to live of the entries, or 0 if they do not expire
+     * @param unit       unit of the time to live
+     */
+    public TinyLFUCache(int maxEntries, long ttl, TimeUnit unit) {
+
+        this(maxEntries, unit.toNanos(ttl), System::nanoTime);
+    }
+
+    TinyLFUCache(int maxEntries, long defaultTtlNanos, LongSupplier ticker) {
+
+        int capacity = Math.max(maxEntries, 0);
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && capacity / (segmentCount * 2) >= MIN_SEGMENT_SIZE) {
+            segmentCount *= 2;
+        }
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add(new Segment(capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0)));
+        }
+        this.segmentMask = segmentCount - 1;
+        this.defaultTtlNanos = defaultTtlNanos;
+        this.ticker = ticker;
+    }
+
+    @Override
+    public V get(Object key) {
+
+        Node<K, V> node = key != null ? data.get(key) : null;
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        Segment segment = segmentFor(node.hash);
+        if (isExpired(node)) {
+            missCount.increment();
+            segment.expire(node);
+            return null;
+        }
+        hitCount.increment();
+        segment.recordAccess(node);
+        return node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+
+        Node<K, V> node = key != null ? data.get(key) : null;
+        return node != null && !isExpired(node);
+    }
+
+    @Override
+    public V put(K key, V value) {
+
+        return put(key, value, defaultTtlNanos);
+    }
+
+    /**
+     * Adds an entry with its own time to live, instead of the default time to live of the cache.
+     *
+     * @param key   key of the entry
+     * @param value value of the entry
+     * @param ttl   time to live of the entry, or 0 if it does not expire
+     * @param unit  unit of the time to live
+     * @return previous value of the key, or null if there was none
+     */
+    public V put(K key, V value, long ttl, TimeUnit unit) {
+
+        return put(key, value, unit.toNanos(ttl));
+    }
+
+    private V put(K key, V value, long ttlNanos) {
+
+        if (key == null) {
+            throw new NullPointerException("Null keys are not permitted");
+        }
+        int hash = spread(key.hashCode());
+        Segment segment = segmentFor(hash);
+        long expiresAt = ttlNanos > 0 ? ticker.getAsLong() + ttlNanos : NO_EXPIRY;
+        V previous = null;
+        List<Node<K, V>> evicted;
+        Node<K, V> node = new Node<>(key, hash, value, expiresAt);
+        segment.lock();
+        try {
+            Node<K, V> existing = data.putIfAbsent(key, node);
+            if (existing != null) {
+                if (!isExpired(existing)) {
+                    previous = existing.value;
+                }
+                existing.value = value;
+                existing.expiresAt = expiresAt;
+                segment.onAccess(existing);
+                return previous;
+            }
+            segment.onInsert(node);
+            evicted = segment.evict();
+        } finally {
+            segment.unlock();
+        }
+        notifyRemoval(evicted);
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+
+        if (key == null) {
+            return null;
+        }
+        Segment segment = segmentFor(spread(key.hashCode()));
+        segment.lock();
+        try {
+            Node<K, V> node = data.remove(key);
+            if (node == null) {
+                return null;
+            }
+            segment.unlink(node);
+            return isExpired(node) ? null : node.value;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public int size() {
+
+        return data.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+
+        return data.isEmpty();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+
+        return new EntrySet();
+    }
+
+    /**
+     * Called after an entry is evicted to keep the cache within its size, or removed as it has expired. Entries
+     * removed explicitly, or by clearing the cache, are not passed to this method.
+     *
+     * @param entry entry removed by the cache
+     */
+    protected void handleRemovableEntry(Map.Entry<K, V> entry) {
+
+    }
+
+    public long getHitCount() {
+
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+
+        return missCount.sum();
+    }
+
+    /**
+     * @return number of entries evicted to keep the cache within its size, or removed as they had expired
+     */
+    public long getEvictionCount() {
+
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return ratio of the reads which found an entry, or 1 if there have been no reads
+     */
+    public double getHitRatio() {
+
+        long hits = hitCount.sum();
+        long requests = hits + missCount.sum();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    /**
+     * Reads the clock only for the entries which have a time to live, as reading it is costly.
+     */
+    private boolean isExpired(Node<K, V> node) {
+
+        long expiresAt = node.expiresAt;
+        return expiresAt != NO_EXPIRY && ticker.getAsLong() - expiresAt >= 0;
+    }
+
+    private void notifyRemoval(List<Node<K, V>> removed) {
+
+        if (removed != null) {
+            for (Node<K, V> node : removed) {
+                handleRemovableEntry(new SimpleImmutableEntry<>(node.key, node.value));
+            }
+        }
+    }
+
+    private Segment segmentFor(int hash) {
+
+        return segments.get(hash & segmentMask);
+    }
+
+    private static int spread(int hashCode) {
+
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    private static final class Node<K, V> {
+
+        private static final int WINDOW = 0;
+        private static final int PROBATION = 1;
+        private static final int PROTECTED = 2;
+        private static final int REMOVED = 3;
+
+        private final K key;
+        private final int hash;
+        private volatile V value;
+        private volatile long expiresAt;
+        // Guarded by the lock of the segment of the node.
+        private Node<K, V> previous;
+        private Node<K, V> next;
+        private int queue = WINDOW;
+
+        private Node(K key, int hash, V value, long expiresAt) {
+
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Doubly linked list of nodes in access order, least recently used first.
+     */
+    private static final class AccessQueue<K, V> {
+
+        private Node<K, V> first;
+        private Node<K, V> last;
+        private int size;
+
+        private void add(Node<K, V> node) {
+
+            node.previous = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            size++;
+        }
+
+        private void remove(Node<K, V> node) {
+
+            if (node.previous == null) {
+                first = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            size--;
+        }
+
+        private void moveToLast(Node<K, V> node) {
+
+            if (node != last) {
+                remove(node);
+                add(node);
+            }
+        }
+
+        private Node<K, V> removeFirst() {
+
+            Node<K, V> node = first;
+            remove(node);
+            return node;
+        }
+
+        private void clear() {
+
+            first = null;
+            last = null;
+            size = 0;
+        }
+    }
+
+    /**
+     * Eviction policy of the entries of a segment of the cache.
+     */
+    private final class Segment extends ReentrantLock {
+
+        private final int capacity;
+        private final int windowCapacity;
+        private final int protectedCapacity;
+        private final AccessQueue<K, V> window = new AccessQueue<>();
+        private final AccessQueue<K, V> probation = new AccessQueue<>();
+        private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+        private final FrequencySketch sketch;
+
+        private Segment(int capacity) {
+
+            this.capacity = capacity;
+            this.windowCapacity = Math.max(1, capacity / 100);
+            this.protectedCapacity = Math.max(0, capacity - windowCapacity) * 4 / 5;
+            this.sketch = new FrequencySketch(capacity);
+        }
+
+        private int size() {
+
+            return window.size + probation.size + protectedQueue.size;
+        }
+
+        private void recordAccess(Node<K, V> node) {
+
+            if (tryLock()) {
+                try {
+                    if (node.queue != Node.REMOVED) {
+                        onAccess(node);
+                    }
+                } finally {
+                    unlock();
+                }
+            }
+        }
+
+        private void onAccess(Node<K, V> node) {
+
+            sketch.increment(node.hash);
+            if (node.queue == Node.WINDOW) {
+                window.moveToLast(node);
+            } else if (node.queue == Node.PROBATION) {
+                probation.remove(node);
+                node.queue = Node.PROTECTED;
+                protectedQueue.add(node);
+                if (protectedQueue.size > protectedCapacity) {
+                    Node<K, V> demoted = protectedQueue.removeFirst();
+                    demoted.queue = Node.PROBATION;
+                    probation.add(demoted);
+                }
+            } else if (node.queue == Node.PROTECTED) {
+                protectedQueue.moveToLast(node);
+            }
+        }
+
+        private void onInsert(Node<K, V> node) {
+
+            sketch.increment(node.hash);
+            node.queue = Node.WINDOW;
+            window.add(node);
+            if (window.size > windowCapacity) {
+                Node<K, V> candidate = window.removeFirst();
+                candidate.queue = Node.PROBATION;
+                probation.add(candidate);
+            }
+        }
+
+        private List<Node<K, V>> evict() {
+
+            List<Node<K, V>> evicted = null;
+            while (size() > capacity) {
+                Node<K, V> victim = selectVictim();
+                unlink(victim);
+                data.remove(victim.key, victim);
+                evictionCount.increment();
+                if (evicted == null) {
+                    evicted = new ArrayList<>(1);
+                }
+                evicted.add(victim);
+            }
+            return evicted;
+        }
+
+        /**
+         * Chooses between the entry which last left the window and the least recently used entry of the main space,
+         * evicting the one which is used less often. Expired entries are evicted first.
+         */
+        private Node<K, V> selectVictim() {
+
+            Node<K, V> candidate = probation.last;
+            if (candidate == null) {
+                return window.size > 0 ? window.first : protectedQueue.first;
+            }
+            Node<K, V> victim = probation.first != candidate ? probation.first : protectedQueue.first;
+            if (victim == null || isExpired(candidate)) {
+                return candidate;
+            }
+            if (isExpired(victim)) {
+                return victim;
+            }
+            return sketch.frequency(candidate.hash) > sketch.frequency(victim.hash) ? victim : candidate;
+        }
+
+        private void unlink(Node<K, V> node) {
+
+            if (node.queue == Node.WINDOW) {
+                window.remove(node);
+            } else if (node.queue == Node.PROBATION) {
+                probation.remove(node);
+            } else if (node.queue == Node.PROTECTED) {
+                protectedQueue.remove(node);
+            }
+            node.queue = Node.REMOVED;
+        }
+
+        private void expire(Node<K, V> node) {
+
+            List<Node<K, V>> expired = null;
+            lock();
+            try {
+                if (node.queue != Node.REMOVED && data.remove(node.key, node)) {
+                    unlink(node);
+                    evictionCount.increment();
+                    expired = new ArrayList<>(1);
+                    expired.add(node);
+                }
+            } finally {
+                unlock();
+            }
+            notifyRemoval(expired);
+        }
+
+        private void clear() {
+
+            lock();
+            try {
+                clear(window);
+                clear(probation);
+                clear(protectedQueue);
+            } finally {
+                unlock();
+            }
+        }
+
+        private void clear(AccessQueue<K, V> queue) {
+
+            for (Node<K, V> node = queue.first; node != null; node = node.next) {
+                data.remove(node.key, node);
+                node.queue = Node.REMOVED;
+            }
+            queue.clear();
+        }
+    }
+
+    /**
+     * Count-min sketch of the frequencies of keys, with counters of up to 15 which are halved periodically so that
+     * the frequencies of keys which are no longer used decay.
+     */
+    static final class FrequencySketch {
+
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+                0xcbf29ce484222325L};
+        private static final int MAX_COUNT = 15;
+        private static final int MAX_TABLE_SIZE = 1 << 22;
+
+        private final byte[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+
+            int size = Integer.highestOneBit(Math.max(8, Math.min(capacity, MAX_TABLE_SIZE / 16) * 16) - 1) << 1;
+            this.table = new byte[size];
+            this.mask = size - 1;
+            this.sampleSize = 10 * Math.max(capacity, 1);
+        }
+
+        int frequency(int hash) {
+
+            int frequency = MAX_COUNT;
+            int item = rehash(hash);
+            for (long seed : SEEDS) {
+                frequency = Math.min(frequency, table[index(item, seed)]);
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+
+            boolean added = false;
+            int item = rehash(hash);
+            for (long seed : SEEDS) {
+                int index = index(item, seed);
+                if (table[index] < MAX_COUNT) {
+                    table[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (byte) (table[i] >>> 1);
+                }
+                additions /= 2;
+            }
+        }
+
+        /**
+         * Mixes the bits of the hash, as the hash codes of keys such as integers are sequential.
+         */
+        private static int rehash(int hash) {
+
+            int h = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+            h = ((h >>> 16) ^ h) * 0x45d9f3b;
+            return (h >>> 16) ^ h;
+        }
+
+        private int index(int item, long seed) {
+
+            long h = (item + seed) * seed;
+            h += h >>> 32;
+            return (int) h & mask;
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+
+            return TinyLFUCache.this.size();
+        }
+
+        @Override
+        public void clear() {
+
+            TinyLFUCache.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+
+        private final Iterator<Node<K, V>> nodes = data.values().iterator();
+        private Node<K, V> next;
+        private Node<K, V> current;
+
+        @Override
+        public boolean hasNext() {
+
+            while (next == null && nodes.hasNext()) {
+                Node<K, V> node = nodes.next();
+                if (!isExpired(node)) {
+                    next = node;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = null;
+            return new SimpleImmutableEntry<>(current.key, current.value);
+        }
+
+        @Override
+        public void remove() {
+
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            TinyLFUCache.this.remove(current.key);
+            current = null;
+        }
+    }
+}
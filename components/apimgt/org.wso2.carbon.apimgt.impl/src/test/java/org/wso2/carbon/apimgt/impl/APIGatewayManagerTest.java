@@ -245,6 +245,24 @@ public class APIGatewayManagerTest {
     }
 
 
+    @Test
+    public void testRemovingAPIFromMultipleGatewaysWhenAGatewayIsUnreachable() throws Exception {
+        API api = new API(apiIdentifier);
+        api.setType("HTTP");
+        api.setSwaggerDefinition(swaggerDefinition);
+        api.setUUID(apiUUId);
+        Set<String> environments = new HashSet<String>();
+        environments.add(prodEnvironmentName);
+        environments.add(sandBoxEnvironmentName);
+        api.setEnvironments(environments);
+        Environment sandboxEnvironment = config.getApiGatewayEnvironments().get(sandBoxEnvironmentName);
+        PowerMockito.whenNew(APIGatewayAdminClient.class).withArguments(sandboxEnvironment)
+                .thenThrow(new AxisFault("Gateway is unreachable"));
+        Map<String, String> failedEnvironmentsMap = gatewayManager.removeFromGateway(api, tenantDomain);
+        Assert.assertEquals(failedEnvironmentsMap.size(), 1);
+        Assert.assertEquals(failedEnvironmentsMap.get(sandBoxEnvironmentName), "Gateway is unreachable");
+    }
+
     @Test public void testCreatingNewWebSocketAPIWithProductionEndpoint() throws GovernanceException, AxisFault {
         API api = new API(apiIdentifier);
         api.setType("WS");
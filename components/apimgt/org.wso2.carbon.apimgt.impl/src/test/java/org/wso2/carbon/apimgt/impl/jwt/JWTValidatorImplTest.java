@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.impl.jwt;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.wso2.carbon.apimgt.impl.caching.CacheProvider;
+import org.wso2.carbon.apimgt.impl.dto.JWKSConfigurationDTO;
+import org.wso2.carbon.apimgt.impl.dto.TokenIssuerDto;
+import org.wso2.carbon.apimgt.impl.utils.JWTUtil;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.cache.Cache;
+
+/**
+ * JWTValidatorImpl Test Class
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ JWTUtil.class, CacheProvider.class })
+public class JWTValidatorImplTest {
+
+    private static final String ISSUER = "https://localhost:9443/oauth2/token";
+    private static final String JWKS_URL = "https://localhost:9443/oauth2/jwks";
+    private static final String KEY_ID = "MTk5NjA3YjRkNGRmZmI4NTYxZGQ5ZDdjMmYyNDA2YmRkMg";
+
+    private KeyPair keyPair;
+    private JWTValidatorImpl jwtValidator;
+
+    @Before
+    public void setup() throws Exception {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        keyPair = keyPairGenerator.generateKeyPair();
+        RSAKey rsaKey = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic()).keyID(KEY_ID).build();
+
+        PowerMockito.mockStatic(CacheProvider.class);
+        PowerMockito.when(CacheProvider.getDefaultCacheTimeout()).thenReturn(900L);
+        PowerMockito.spy(JWTUtil.class);
+        PowerMockito.doReturn(new JWKSet(rsaKey).toJSONObject().toString())
+                .when(JWTUtil.class, "retrieveJWKSConfiguration", JWKS_URL);
+
+        final Cache jwksCache = Mockito.mock(Cache.class);
+        jwtValidator = new JWTValidatorImpl() {
+            @Override
+            protected Cache getJWKSCache() {
+
+                return jwksCache;
+            }
+        };
+        TokenIssuerDto tokenIssuerDto = new TokenIssuerDto(ISSUER);
+        tokenIssuerDto.setJwksConfigurationDTO(new JWKSConfigurationDTO(JWKS_URL, true));
+        jwtValidator.loadTokenIssuerConfiguration(tokenIssuerDto);
+    }
+
+    @Test
+    public void testJWKSIsFetchedOnceForConcurrentRequests() throws Exception {
+
+        final SignedJWT signedJWT = createToken("admin");
+        ExecutorService executorService = Executors.newFixedThreadPool(10);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(executorService.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+
+                    return jwtValidator.validateSignature(signedJWT);
+                }
+            }));
+        }
+        for (Future<Boolean> result : results) {
+            Assert.assertTrue(result.get());
+        }
+        executorService.shutdown();
+
+        PowerMockito.verifyStatic(JWTUtil.class, Mockito.times(1));
+        JWTUtil.retrieveJWKSConfiguration(JWKS_URL);
+    }
+
+    @Test
+    public void testVerifiedSignatureIsNotVerifiedAgain() throws Exception {
+
+        SignedJWT signedJWT = createToken("admin");
+        Assert.assertTrue(jwtValidator.validateSignature(signedJWT));
+        Assert.assertTrue(jwtValidator.validateSignature(SignedJWT.parse(signedJWT.serialize())));
+
+        PowerMockito.verifyStatic(JWTUtil.class, Mockito.times(1));
+        JWTUtil.verifyTokenSignature(Mockito.any(SignedJWT.class), Mockito.any(RSAPublicKey.class));
+    }
+
+    @Test
+    public void testVerifiedSignatureOnAnotherPayloadIsRejected() throws Exception {
+
+        SignedJWT signedJWT = createToken("admin");
+        Assert.assertTrue(jwtValidator.validateSignature(signedJWT));
+
+        // The signature of the verified token, attached to the payload of another token
+        String[] parts = signedJWT.serialize().split("\\.");
+        String[] otherParts = createToken("attacker").serialize().split("\\.");
+        SignedJWT tamperedJWT = SignedJWT.parse(parts[0] + "." + otherParts[1] + "." + parts[2]);
+        Assert.assertFalse(jwtValidator.validateSignature(tamperedJWT));
+    }
+
+    private SignedJWT createToken(String subject) throws Exception {
+
+        JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(KEY_ID).build();
+        JWTClaimsSet claimsSet = new JWTClaimsSet.Builder().issuer(ISSUER).subject(subject).build();
+        SignedJWT signedJWT = new SignedJWT(header, claimsSet);
+        signedJWT.sign(new RSASSASigner(keyPair.getPrivate()));
+        return SignedJWT.parse(signedJWT.serialize());
+    }
+}
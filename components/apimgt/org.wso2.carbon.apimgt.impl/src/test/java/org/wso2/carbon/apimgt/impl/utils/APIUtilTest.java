@@ -28,6 +28,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.http.client.HttpClient;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.juddi.v3.error.RegistryException;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -197,6 +198,25 @@ public class APIUtilTest {
         Assert.assertNotNull(client);
     }
 
+    @Test
+    public void testGetHttpClientIsShared() throws Exception {
+        Log log = Mockito.mock(Log.class);
+        PowerMockito.mockStatic(LogFactory.class);
+        Mockito.when(LogFactory.getLog(Mockito.any(Class.class))).thenReturn(log);
+
+        ServiceReferenceHolderMockCreator holderMockCreator = new ServiceReferenceHolderMockCreator(1);
+        ServiceReferenceHolderMockCreator.initContextService();
+
+        HttpClient client = APIUtil.getHttpClient(3245, "http");
+        ((CloseableHttpClient) client).close();
+
+        // Closing the client by a caller does not close the client shared with the other callers
+        Assert.assertSame(client, APIUtil.getHttpClient(3245, "http"));
+        Assert.assertNotSame(client, APIUtil.getHttpClient(3246, "http"));
+        Assert.assertNotNull(client.getConnectionManager().getSchemeRegistry().get("http"));
+        Assert.assertTrue(HttpClientRegistry.getInstance().getPoolStats().containsKey("http:3245"));
+    }
+
     @Test
     public void testIsValidURL() throws Exception {
         String validURL = "http://fsdfsfd.sda";
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.impl.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TinyLFUCacheTest {
+
+    @Test
+    public void testMapOperations() {
+
+        TinyLFUCache<String, String> cache = new TinyLFUCache<>(10);
+        Assert.assertNull(cache.put("a", "1"));
+        Assert.assertEquals("1", cache.put("a", "2"));
+        Assert.assertEquals("2", cache.get("a"));
+        Assert.assertTrue(cache.containsKey("a"));
+        Assert.assertNull(cache.get("b"));
+        cache.put("b", "3");
+        Map<String, String> copy = new HashMap<>(cache);
+        Assert.assertEquals(2, copy.size());
+        Assert.assertEquals("3", copy.get("b"));
+        Assert.assertEquals("2", cache.remove("a"));
+        Assert.assertNull(cache.remove("a"));
+        Assert.assertEquals(1, cache.size());
+        cache.clear();
+        Assert.assertTrue(cache.isEmpty());
+        Assert.assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+
+        for (int maxEntries : new int[]{0, 1, 5, 100, 1000, 5000}) {
+            List<String> evicted = new ArrayList<>();
+            TinyLFUCache<Integer, Integer> cache = new TinyLFUCache<Integer, Integer>(maxEntries) {
+                @Override
+                protected void handleRemovableEntry(Map.Entry<Integer, Integer> entry) {
+
+                    evicted.add(entry.getKey() + "=" + entry.getValue());
+                }
+            };
+            for (int i = 0; i < maxEntries * 3 + 10; i++) {
+                cache.put(i, i);
+                Assert.assertTrue(cache.size() <= maxEntries);
+            }
+            Assert.assertEquals(maxEntries, cache.size());
+            Assert.assertEquals(maxEntries * 2 + 10, evicted.size());
+            Assert.assertEquals(evicted.size(), cache.getEvictionCount());
+        }
+    }
+
+    @Test
+    public void testFrequentlyUsedEntriesSurviveScan() {
+
+        TinyLFUCache<Integer, Integer> cache = new TinyLFUCache<>(100);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.put(i, i);
+                cache.get(i);
+            }
+        }
+        // A scan of keys used once each does not push out the keys which are still used, less often than the scan
+        // inserts keys, as it would with LRU.
+        for (int i = 0; i < 10000; i++) {
+            cache.put(1000 + i, i);
+            if (i % 10 == 0) {
+                Assert.assertEquals(Integer.valueOf(i / 10 % 50), cache.get(i / 10 % 50));
+            }
+        }
+    }
+
+    @Test
+    public void testHitRatioIsHigherThanLruOnSkewedLoad() {
+
+        TinyLFUCache<Integer, Integer> cache = new TinyLFUCache<>(500);
+        LRUCache<Integer, Integer> lruCache = new LRUCache<>(500);
+        Random random = new Random(7);
+        int lruHits = 0;
+        int requests = 200000;
+        for (int i = 0; i < requests; i++) {
+            // Half of the requests are for 400 hot keys, the others for a large number of keys used rarely.
+            int key = random.nextBoolean() ? random.nextInt(400) : 1000 + random.nextInt(100000);
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+            if (lruCache.get(key) == null) {
+                lruCache.put(key, key);
+            } else {
+                lruHits++;
+            }
+        }
+        Assert.assertEquals(requests, cache.getHitCount() + cache.getMissCount());
+        Assert.assertTrue(cache.getHitRatio() > (double) lruHits / requests);
+        Assert.assertTrue(cache.getHitRatio() > 0.4);
+    }
+
+    @Test
+    public void testEntriesExpire() {
+
+        AtomicLong time = new AtomicLong();
+        List<String> expired = new ArrayList<>();
+        TinyLFUCache<String, String> cache = new TinyLFUCache<String, String>(10, TimeUnit.SECONDS.toNanos(10),
+                time::get) {
+            @Override
+            protected void handleRemovableEntry(Map.Entry<String, String> entry) {
+
+                expired.add(entry.getKey());
+            }
+        };
+        cache.put("default", "1");
+        cache.put("short", "2", 1, TimeUnit.SECONDS);
+        cache.put("forever", "3", 0, TimeUnit.SECONDS);
+        time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        Assert.assertEquals("1", cache.get("default"));
+        Assert.assertFalse(cache.containsKey("short"));
+        Assert.assertNull(cache.get("short"));
+        time.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        Assert.assertNull(cache.get("default"));
+        Assert.assertEquals("3", cache.get("forever"));
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(2, expired.size());
+        Assert.assertTrue(expired.contains("short"));
+        Assert.assertTrue(expired.contains("default"));
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testConcurrentMixedLoad() throws Exception {
+
+        int maxEntries = 2000;
+        TinyLFUCache<Integer, Integer> cache = new TinyLFUCache<>(maxEntries);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[32];
+        for (int t = 0; t < threads.length; t++) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    for (int i = 0; i < 50000; i++) {
+                        int key = random.nextInt(10000);
+                        int operation = random.nextInt(10);
+                        if (operation < 7) {
+                            Integer value = cache.get(key);
+                            if (value != null && value != key) {
+                                throw new AssertionError("Unexpected value " + value + " for " + key);
+                            }
+                        } else if (operation < 9) {
+                            cache.put(key, key);
+                        } else {
+                            cache.remove(key);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(failure.get());
+        Assert.assertTrue(cache.size() <= maxEntries);
+        int count = 0;
+        for (Map.Entry<Integer, Integer> entry : cache.entrySet()) {
+            Assert.assertEquals(entry.getKey(), entry.getValue());
+            count++;
+        }
+        Assert.assertEquals(cache.size(), count);
+    }
+}
@@ -22,6 +22,7 @@ public class SubscriptionListDTO   {
     private Integer count = null;
     private List<SubscriptionDTO> list = new ArrayList<>();
     private PaginationDTO pagination = null;
+    private Long revision = null;
 
   /**
    * Number of Subscriptions returned. 
@@ -75,6 +76,24 @@ public class SubscriptionListDTO   {
     this.pagination = pagination;
   }
 
+  /**
+   * Revision (epoch milliseconds) of the returned data. Pass it as updatedSince to fetch later changes. 
+   **/
+  public SubscriptionListDTO revision(Long revision) {
+    this.revision = revision;
+    return this;
+  }
+
+  
+  @ApiModelProperty(value = "Revision (epoch milliseconds) of the returned data. Pass it as updatedSince to fetch later changes. ")
+  @JsonProperty("revision")
+  public Long getRevision() {
+    return revision;
+  }
+  public void setRevision(Long revision) {
+    this.revision = revision;
+  }
+
 
   @Override
   public boolean equals(java.lang.Object o) {
@@ -87,12 +106,13 @@ public class SubscriptionListDTO   {
     SubscriptionListDTO subscriptionList = (SubscriptionListDTO) o;
     return Objects.equals(count, subscriptionList.count) &&
         Objects.equals(list, subscriptionList.list) &&
-        Objects.equals(pagination, subscriptionList.pagination);
+        Objects.equals(pagination, subscriptionList.pagination) &&
+        Objects.equals(revision, subscriptionList.revision);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(count, list, pagination);
+    return Objects.hash(count, list, pagination, revision);
   }
 
   @Override
@@ -103,6 +123,7 @@ public class SubscriptionListDTO   {
     sb.append("    count: ").append(toIndentedString(count)).append("\n");
     sb.append("    list: ").append(toIndentedString(list)).append("\n");
     sb.append("    pagination: ").append(toIndentedString(pagination)).append("\n");
+    sb.append("    revision: ").append(toIndentedString(revision)).append("\n");
     sb.append("}");
     return sb.toString();
   }
@@ -23,6 +23,7 @@ import org.apache.cxf.jaxrs.ext.MessageContext;
 import org.wso2.carbon.apimgt.api.model.subscription.Application;
 import org.wso2.carbon.apimgt.impl.dao.SubscriptionValidationDAO;
 import org.wso2.carbon.apimgt.internal.service.ApplicationsApiService;
+import org.wso2.carbon.apimgt.internal.service.dto.ApplicationListDTO;
 import org.wso2.carbon.apimgt.internal.service.utils.SubscriptionValidationDataUtil;
 
 import java.util.List;
@@ -31,9 +32,12 @@ import javax.ws.rs.core.Response;
 public class ApplicationsApiServiceImpl implements ApplicationsApiService {
 
     @Override
-    public Response applicationsGet(String xWSO2Tenant, Integer appId, MessageContext messageContext) {
+    public Response applicationsGet(String xWSO2Tenant, Integer appId, Long updatedSince,
+                                    MessageContext messageContext) {
 
         SubscriptionValidationDAO subscriptionValidationDAO = new SubscriptionValidationDAO();
+        // Revision is taken before querying so that entries updated while the query runs are picked up next time
+        long revision = System.currentTimeMillis();
         if (appId != null && appId > 0) {
             List<Application> application = subscriptionValidationDAO.getApplicationById(appId);
             return Response.ok().entity(SubscriptionValidationDataUtil.fromApplicationToApplicationListDTO(application)
@@ -41,9 +45,16 @@ public class ApplicationsApiServiceImpl implements ApplicationsApiService {
         }
         xWSO2Tenant = SubscriptionValidationDataUtil.validateTenantDomain(xWSO2Tenant, messageContext);
         if (StringUtils.isNotEmpty(xWSO2Tenant)) {
-            return Response.ok().entity(SubscriptionValidationDataUtil.fromApplicationToApplicationListDTO(
-                    subscriptionValidationDAO.getAllApplications(xWSO2Tenant)))
-                    .build();
+            List<Application> applications;
+            if (updatedSince != null && updatedSince > 0) {
+                applications = subscriptionValidationDAO.getAllApplications(xWSO2Tenant, updatedSince);
+            } else {
+                applications = subscriptionValidationDAO.getAllApplications(xWSO2Tenant);
+            }
+            ApplicationListDTO applicationListDTO =
+                    SubscriptionValidationDataUtil.fromApplicationToApplicationListDTO(applications);
+            applicationListDTO.setRevision(revision);
+            return Response.ok().entity(applicationListDTO).build();
         }
         return Response.ok().entity(SubscriptionValidationDataUtil.fromApplicationToApplicationListDTO(
                 subscriptionValidationDAO.getAllApplications())).build();
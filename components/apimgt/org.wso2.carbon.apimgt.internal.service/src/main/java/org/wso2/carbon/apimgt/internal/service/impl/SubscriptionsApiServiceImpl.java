@@ -22,6 +22,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.wso2.carbon.apimgt.api.model.subscription.Subscription;
 import org.wso2.carbon.apimgt.impl.dao.SubscriptionValidationDAO;
 import org.wso2.carbon.apimgt.internal.service.*;
+import org.wso2.carbon.apimgt.internal.service.dto.SubscriptionListDTO;
 import org.apache.cxf.jaxrs.ext.MessageContext;
 import org.wso2.carbon.apimgt.internal.service.utils.SubscriptionValidationDataUtil;
 
@@ -32,10 +33,13 @@ import javax.ws.rs.core.Response;
 public class SubscriptionsApiServiceImpl implements SubscriptionsApiService {
 
     @Override
-    public Response subscriptionsGet(String xWSO2Tenant, Integer apiId, Integer appId, MessageContext messageContext) {
+    public Response subscriptionsGet(String xWSO2Tenant, Integer apiId, Integer appId, Long updatedSince,
+                                     MessageContext messageContext) {
 
         SubscriptionValidationDAO subscriptionValidationDAO = new SubscriptionValidationDAO();
         List<Subscription> subscriptionList = new ArrayList<>();
+        // Revision is taken before querying so that entries updated while the query runs are picked up next time
+        long revision = System.currentTimeMillis();
         xWSO2Tenant = SubscriptionValidationDataUtil.validateTenantDomain(xWSO2Tenant, messageContext);
         if (apiId != null && appId != null) {
             Subscription subscription = subscriptionValidationDAO.getSubscription(apiId, appId);
@@ -45,8 +49,15 @@ public class SubscriptionsApiServiceImpl implements SubscriptionsApiService {
             return Response.ok().entity(
                     SubscriptionValidationDataUtil.fromSubscriptionToSubscriptionListDTO(subscriptionList)).build();
         } else if (StringUtils.isNotEmpty(xWSO2Tenant)) {
-            return Response.ok().entity(SubscriptionValidationDataUtil.fromSubscriptionToSubscriptionListDTO(
-                    subscriptionValidationDAO.getAllSubscriptions(xWSO2Tenant))).build();
+            if (updatedSince != null && updatedSince > 0) {
+                subscriptionList = subscriptionValidationDAO.getAllSubscriptions(xWSO2Tenant, updatedSince);
+            } else {
+                subscriptionList = subscriptionValidationDAO.getAllSubscriptions(xWSO2Tenant);
+            }
+            SubscriptionListDTO subscriptionListDTO =
+                    SubscriptionValidationDataUtil.fromSubscriptionToSubscriptionListDTO(subscriptionList);
+            subscriptionListDTO.setRevision(revision);
+            return Response.ok().entity(subscriptionListDTO).build();
         }
         return Response.ok().entity(SubscriptionValidationDataUtil.fromSubscriptionToSubscriptionListDTO(
                 subscriptionValidationDAO.getAllSubscriptions())).build();
@@ -22,12 +22,15 @@ import org.wso2.carbon.apimgt.keymgt.model.entity.API;
 import org.wso2.carbon.apimgt.keymgt.model.entity.ApiPolicy;
 import org.wso2.carbon.apimgt.keymgt.model.entity.Application;
 import org.wso2.carbon.apimgt.keymgt.model.entity.ApplicationKeyMapping;
+import org.wso2.carbon.apimgt.keymgt.model.entity.ApplicationList;
 import org.wso2.carbon.apimgt.keymgt.model.entity.ApplicationPolicy;
 import org.wso2.carbon.apimgt.keymgt.model.entity.Subscription;
+import org.wso2.carbon.apimgt.keymgt.model.entity.SubscriptionList;
 import org.wso2.carbon.apimgt.keymgt.model.entity.SubscriptionPolicy;
 import org.wso2.carbon.apimgt.keymgt.model.exception.DataLoadingException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * This interface abstracts Data Loading operations. Interface will be consumed by
@@ -44,6 +47,30 @@ public interface SubscriptionDataLoader {
      */
     public List<Subscription> loadAllSubscriptions(String tenantDomain) throws DataLoadingException;
 
+    /**
+     * Loads the subscriptions created or updated after the given revision.
+     *
+     * @param tenantDomain Tenant domain of the subscriptions
+     * @param revision     Revision returned by a previous load, or 0 to load all subscriptions
+     * @return A {@link SubscriptionList} with the changed subscriptions and the revision to be used for the next load.
+     * @throws DataLoadingException If any error
+     */
+    public SubscriptionList loadSubscriptionsChangedSince(String tenantDomain, long revision)
+            throws DataLoadingException;
+
+    /**
+     * Streams the subscriptions created or updated after the given revision to the consumer, one at a time, without
+     * holding the whole list in memory.
+     *
+     * @param tenantDomain Tenant domain of the subscriptions
+     * @param revision     Revision returned by a previous load, or 0 to load all subscriptions
+     * @param consumer     Consumer of the loaded {@link Subscription}s
+     * @return The revision to be used for the next load, or null if not available.
+     * @throws DataLoadingException If any error
+     */
+    public Long loadSubscriptionsChangedSince(String tenantDomain, long revision, Consumer<Subscription> consumer)
+            throws DataLoadingException;
+
     /**
      * Load all Applications from the Database belonging to all Tenants
      *
@@ -52,6 +79,30 @@ public interface SubscriptionDataLoader {
      */
     public List<Application> loadAllApplications(String tenantDomain) throws DataLoadingException;
 
+    /**
+     * Loads the Applications created or updated after the given revision.
+     *
+     * @param tenantDomain Tenant domain of the Applications
+     * @param revision     Revision returned by a previous load, or 0 to load all Applications
+     * @return An {@link ApplicationList} with the changed Applications and the revision to be used for the next load.
+     * @throws DataLoadingException If any error
+     */
+    public ApplicationList loadApplicationsChangedSince(String tenantDomain, long revision)
+            throws DataLoadingException;
+
+    /**
+     * Streams the Applications created or updated after the given revision to the consumer, one at a time, without
+     * holding the whole list in memory.
+     *
+     * @param tenantDomain Tenant domain of the Applications
+     * @param revision     Revision returned by a previous load, or 0 to load all Applications
+     * @param consumer     Consumer of the loaded {@link Application}s
+     * @return The revision to be used for the next load, or null if not available.
+     * @throws DataLoadingException If any error
+     */
+    public Long loadApplicationsChangedSince(String tenantDomain, long revision, Consumer<Application> consumer)
+            throws DataLoadingException;
+
     /**
      * Load all Key Mappings (Mapping between the Consumer Key and Application) from the Database
      * owned by all tenants
@@ -61,6 +112,15 @@ public interface SubscriptionDataLoader {
      */
     public List<ApplicationKeyMapping> loadAllKeyMappings(String tenantDomain) throws DataLoadingException;
 
+    /**
+     * Streams all Key Mappings of the tenant to the consumer, one at a time.
+     *
+     * @param consumer Consumer of the loaded {@link ApplicationKeyMapping}s
+     * @throws DataLoadingException If any error
+     */
+    public void loadAllKeyMappings(String tenantDomain, Consumer<ApplicationKeyMapping> consumer)
+            throws DataLoadingException;
+
     /**
      * Load all {@link API} objects owned by all Tenants.
      *
@@ -69,6 +129,14 @@ public interface SubscriptionDataLoader {
      */
     public List<API> loadAllApis(String tenantDomain) throws DataLoadingException;
 
+    /**
+     * Streams all {@link API} objects of the tenant to the consumer, one at a time.
+     *
+     * @param consumer Consumer of the loaded {@link API}s
+     * @throws DataLoadingException If any error
+     */
+    public void loadAllApis(String tenantDomain, Consumer<API> consumer) throws DataLoadingException;
+
     /**
      * Load All Subscription Throttling Policies.
      *
@@ -77,6 +145,15 @@ public interface SubscriptionDataLoader {
      */
     public List<SubscriptionPolicy> loadAllSubscriptionPolicies(String tenantDomain) throws DataLoadingException;
 
+    /**
+     * Streams all Subscription Throttling Policies of the tenant to the consumer, one at a time.
+     *
+     * @param consumer Consumer of the loaded {@link SubscriptionPolicy}s
+     * @throws DataLoadingException If any error
+     */
+    public void loadAllSubscriptionPolicies(String tenantDomain, Consumer<SubscriptionPolicy> consumer)
+            throws DataLoadingException;
+
     /**
      * Load All API Throttling Policies.
      *
@@ -85,6 +162,14 @@ public interface SubscriptionDataLoader {
      */
     public List<ApiPolicy> loadAllAPIPolicies(String tenantDomain) throws DataLoadingException;
 
+    /**
+     * Streams all API Throttling Policies of the tenant to the consumer, one at a time.
+     *
+     * @param consumer Consumer of the loaded {@link ApiPolicy}s
+     * @throws DataLoadingException If any error
+     */
+    public void loadAllAPIPolicies(String tenantDomain, Consumer<ApiPolicy> consumer) throws DataLoadingException;
+
     /**
      * Loads All Application Throttling Policies.
      *
@@ -93,6 +178,15 @@ public interface SubscriptionDataLoader {
      */
     public List<ApplicationPolicy> loadAllAppPolicies(String tenantDomain) throws DataLoadingException;
 
+    /**
+     * Streams all Application Throttling Policies of the tenant to the consumer, one at a time.
+     *
+     * @param consumer Consumer of the loaded {@link ApplicationPolicy}s
+     * @throws DataLoadingException If any error
+     */
+    public void loadAllAppPolicies(String tenantDomain, Consumer<ApplicationPolicy> consumer)
+            throws DataLoadingException;
+
     /**
      * Retrieve Subscription from db.
      *
@@ -26,6 +26,7 @@ public class ApplicationList {
 
     private Integer count = null;
     private List<Application> list = new ArrayList<>();
+    private Long revision = null;
 
     public Integer getCount() {
 
@@ -46,4 +47,14 @@ public class ApplicationList {
 
         this.list = list;
     }
+
+    public Long getRevision() {
+
+        return revision;
+    }
+
+    public void setRevision(Long revision) {
+
+        this.revision = revision;
+    }
 }
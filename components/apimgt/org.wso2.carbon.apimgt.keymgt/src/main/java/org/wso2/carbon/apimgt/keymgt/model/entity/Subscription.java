@@ -24,7 +24,7 @@ import org.wso2.carbon.apimgt.keymgt.model.util.SubscriptionDataStoreUtil;
 /**
  * Entity for representing a SubscriptionDTO in APIM
  */
-public class Subscription implements CacheableEntity<String> {
+public class Subscription implements CacheableEntity<Long> {
 
     private String subscriptionId = null;
     private String policyId = null;
@@ -83,7 +83,7 @@ public class Subscription implements CacheableEntity<String> {
     }
 
     @Override
-    public String getCacheKey() {
+    public Long getCacheKey() {
 
         return SubscriptionDataStoreUtil.getSubscriptionCacheKey(getAppId(), getApiId());
     }
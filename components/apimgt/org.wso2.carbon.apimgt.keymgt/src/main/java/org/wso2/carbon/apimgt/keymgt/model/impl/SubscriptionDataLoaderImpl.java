@@ -18,9 +18,13 @@
 package org.wso2.carbon.apimgt.keymgt.model.impl;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
@@ -48,10 +52,12 @@ import org.wso2.carbon.apimgt.keymgt.model.entity.SubscriptionPolicyList;
 import org.wso2.carbon.apimgt.keymgt.model.exception.DataLoadingException;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class SubscriptionDataLoaderImpl implements SubscriptionDataLoader {
 
@@ -61,6 +67,9 @@ public class SubscriptionDataLoaderImpl implements SubscriptionDataLoader {
     public static final int retrievalTimeoutInSeconds = 15;
     public static final int retrievalRetries = 15;
     public static final String UTF8 = "UTF-8";
+    private static final String LIST = "list";
+    private static final String REVISION = "revision";
+    private final Gson gson = new Gson();
 
     public SubscriptionDataLoaderImpl() {
 
@@ -72,137 +81,140 @@ public class SubscriptionDataLoaderImpl implements SubscriptionDataLoader {
     @Override
     public List<Subscription> loadAllSubscriptions(String tenantDomain) throws DataLoadingException {
 
-        String subscriptionsEP = APIConstants.SubscriptionValidationResources.SUBSCRIPTIONS;
         List<Subscription> subscriptions = new ArrayList<>();
-        String responseString = null;
-        try {
-            responseString = invokeService(subscriptionsEP, tenantDomain);
-        } catch (IOException e) {
-            String msg = "Error while executing the http client " + subscriptionsEP;
-            log.error(msg, e);
-            throw new DataLoadingException(msg, e);
-        }
-        if (responseString != null && !responseString.isEmpty()) {
-            subscriptions = (new Gson().fromJson(responseString, SubscriptionList.class)).getList();
-        }
+        loadSubscriptionsChangedSince(tenantDomain, 0, subscriptions::add);
         return subscriptions;
     }
 
+    @Override
+    public SubscriptionList loadSubscriptionsChangedSince(String tenantDomain, long revision)
+            throws DataLoadingException {
+
+        SubscriptionList subscriptionList = new SubscriptionList();
+        subscriptionList.setRevision(
+                loadSubscriptionsChangedSince(tenantDomain, revision, subscriptionList.getList()::add));
+        subscriptionList.setCount(subscriptionList.getList().size());
+        return subscriptionList;
+    }
+
+    @Override
+    public Long loadSubscriptionsChangedSince(String tenantDomain, long revision, Consumer<Subscription> consumer)
+            throws DataLoadingException {
+
+        String subscriptionsEP = APIConstants.SubscriptionValidationResources.SUBSCRIPTIONS;
+        if (revision > 0) {
+            subscriptionsEP = subscriptionsEP + "?updatedSince=" + revision;
+        }
+        return loadEntities(subscriptionsEP, tenantDomain, Subscription.class, consumer);
+    }
+
     @Override
     public List<Application> loadAllApplications(String tenantDomain) throws DataLoadingException {
 
-        String applicationsEP = APIConstants.SubscriptionValidationResources.APPLICATIONS;
         List<Application> applications = new ArrayList<>();
-        String responseString = null;
-        try {
-            responseString = invokeService(applicationsEP, tenantDomain);
-        } catch (IOException e) {
-            String msg = "Error while executing the http client " + applicationsEP;
-            log.error(msg, e);
-            throw new DataLoadingException(msg, e);
-        }
-        if (responseString != null && !responseString.isEmpty()) {
-            applications = (new Gson().fromJson(responseString, ApplicationList.class)).getList();
-        }
+        loadApplicationsChangedSince(tenantDomain, 0, applications::add);
         return applications;
     }
 
+    @Override
+    public ApplicationList loadApplicationsChangedSince(String tenantDomain, long revision)
+            throws DataLoadingException {
+
+        ApplicationList applicationList = new ApplicationList();
+        applicationList.setRevision(
+                loadApplicationsChangedSince(tenantDomain, revision, applicationList.getList()::add));
+        applicationList.setCount(applicationList.getList().size());
+        return applicationList;
+    }
+
+    @Override
+    public Long loadApplicationsChangedSince(String tenantDomain, long revision, Consumer<Application> consumer)
+            throws DataLoadingException {
+
+        String applicationsEP = APIConstants.SubscriptionValidationResources.APPLICATIONS;
+        if (revision > 0) {
+            applicationsEP = applicationsEP + "?updatedSince=" + revision;
+        }
+        return loadEntities(applicationsEP, tenantDomain, Application.class, consumer);
+    }
+
     @Override
     public List<ApplicationKeyMapping> loadAllKeyMappings(String tenantDomain) throws DataLoadingException {
 
-        String applicationsEP = APIConstants.SubscriptionValidationResources.APPLICATION_KEY_MAPPINGS;
         List<ApplicationKeyMapping> applicationKeyMappings = new ArrayList<>();
-        String responseString = null;
-        try {
-            responseString = invokeService(applicationsEP, tenantDomain);
-        } catch (IOException e) {
-            String msg = "Error while executing the http client " + applicationsEP;
-            log.error(msg, e);
-            throw new DataLoadingException(msg, e);
-        }
-        if (responseString != null && !responseString.isEmpty()) {
-            applicationKeyMappings = (new Gson().fromJson(responseString, ApplicationKeyMappingList.class)).getList();
-        }
+        loadAllKeyMappings(tenantDomain, applicationKeyMappings::add);
         return applicationKeyMappings;
     }
 
+    @Override
+    public void loadAllKeyMappings(String tenantDomain, Consumer<ApplicationKeyMapping> consumer)
+            throws DataLoadingException {
+
+        loadEntities(APIConstants.SubscriptionValidationResources.APPLICATION_KEY_MAPPINGS, tenantDomain,
+                ApplicationKeyMapping.class, consumer);
+    }
+
     @Override
     public List<API> loadAllApis(String tenantDomain) throws DataLoadingException {
 
-        String apisEP = APIConstants.SubscriptionValidationResources.APIS;
         List<API> apis = new ArrayList<>();
-        String responseString = null;
-        try {
-            responseString = invokeService(apisEP, tenantDomain);
-        } catch (IOException e) {
-            String msg = "Error while executing the http client " + apisEP;
-            log.error(msg, e);
-            throw new DataLoadingException(msg, e);
-        }
-        if (responseString != null && !responseString.isEmpty()) {
-            apis = (new Gson().fromJson(responseString, APIList.class)).getList();
-        }
-        System.out.println("apis :" +  apis.get(0).toString());
+        loadAllApis(tenantDomain, apis::add);
         return apis;
     }
 
+    @Override
+    public void loadAllApis(String tenantDomain, Consumer<API> consumer) throws DataLoadingException {
+
+        loadEntities(APIConstants.SubscriptionValidationResources.APIS, tenantDomain, API.class, consumer);
+    }
+
     @Override
     public List<SubscriptionPolicy> loadAllSubscriptionPolicies(String tenantDomain) throws DataLoadingException {
 
-        String subscriptionPoliciesEP = APIConstants.SubscriptionValidationResources.SUBSCRIPTION_POLICIES;
         List<SubscriptionPolicy> subscriptionPolicies = new ArrayList<>();
-        String responseString = null;
-        try {
-            responseString = invokeService(subscriptionPoliciesEP, tenantDomain);
-        } catch (IOException e) {
-            String msg = "Error while executing the http client " + subscriptionPoliciesEP;
-            log.error(msg, e);
-            throw new DataLoadingException(msg, e);
-        }
-        if (responseString != null && !responseString.isEmpty()) {
-            subscriptionPolicies = (new Gson().fromJson(responseString, SubscriptionPolicyList.class)).getList();
-        }
+        loadAllSubscriptionPolicies(tenantDomain, subscriptionPolicies::add);
         return subscriptionPolicies;
     }
 
+    @Override
+    public void loadAllSubscriptionPolicies(String tenantDomain, Consumer<SubscriptionPolicy> consumer)
+            throws DataLoadingException {
+
+        loadEntities(APIConstants.SubscriptionValidationResources.SUBSCRIPTION_POLICIES, tenantDomain,
+                SubscriptionPolicy.class, consumer);
+    }
+
     @Override
     public List<ApiPolicy> loadAllAPIPolicies(String tenantDomain) throws DataLoadingException {
 
-        String apiPoliciesEP = APIConstants.SubscriptionValidationResources.API_POLICIES;
         List<ApiPolicy> apiPolicies = new ArrayList<>();
-        String responseString = null;
-        try {
-            responseString = invokeService(apiPoliciesEP, tenantDomain);
-        } catch (IOException e) {
-            String msg = "Error while executing the http client " + apiPoliciesEP;
-            log.error(msg, e);
-            throw new DataLoadingException(msg, e);
-        }
-        if (responseString != null && !responseString.isEmpty()) {
-            apiPolicies = (new Gson().fromJson(responseString, APIPolicyList.class)).getList();
-        }
+        loadAllAPIPolicies(tenantDomain, apiPolicies::add);
         return apiPolicies;
     }
 
+    @Override
+    public void loadAllAPIPolicies(String tenantDomain, Consumer<ApiPolicy> consumer) throws DataLoadingException {
+
+        loadEntities(APIConstants.SubscriptionValidationResources.API_POLICIES, tenantDomain, ApiPolicy.class,
+                consumer);
+    }
+
     @Override
     public List<ApplicationPolicy> loadAllAppPolicies(String tenantDomain) throws DataLoadingException {
 
-        String applicationsEP = APIConstants.SubscriptionValidationResources.APPLICATION_POLICIES;
         List<ApplicationPolicy> applicationPolicies = new ArrayList<>();
-        String responseString = null;
-        try {
-            responseString = invokeService(applicationsEP, tenantDomain);
-        } catch (IOException e) {
-            String msg = "Error while executing the http client " + applicationsEP;
-            log.error(msg, e);
-            throw new DataLoadingException(msg, e);
-        }
-        if (responseString != null && !responseString.isEmpty()) {
-            applicationPolicies = (new Gson().fromJson(responseString, ApplicationPolicyList.class)).getList();
-        }
+        loadAllAppPolicies(tenantDomain, applicationPolicies::add);
         return applicationPolicies;
     }
 
+    @Override
+    public void loadAllAppPolicies(String tenantDomain, Consumer<ApplicationPolicy> consumer)
+            throws DataLoadingException {
+
+        loadEntities(APIConstants.SubscriptionValidationResources.APPLICATION_POLICIES, tenantDomain,
+                ApplicationPolicy.class, consumer);
+    }
+
     @Override
     public Subscription getSubscriptionById(String apiId, String appId) throws DataLoadingException {
 
@@ -372,8 +384,73 @@ public class SubscriptionDataLoaderImpl implements SubscriptionDataLoader {
         return apiPolicy;
     }
 
+    /**
+     * Reads the entity list returned by the given service path one entity at a time and hands each entity over to
+     * the consumer, so that the whole response is never held in memory.
+     *
+     * @param path         service path
+     * @param tenantDomain tenant domain to load the entities of
+     * @param entityType   type of a single entry of the list
+     * @param consumer     consumer of the loaded entities
+     * @return revision returned along with the list, or null if the service did not return one
+     * @throws DataLoadingException if the service could not be invoked or the response could not be parsed
+     */
+    private <T> Long loadEntities(String path, String tenantDomain, Class<T> entityType, Consumer<T> consumer)
+            throws DataLoadingException {
+
+        Long revision = null;
+        int count = 0;
+        try {
+            HttpEntity entity = executeService(path, tenantDomain).getEntity();
+            if (entity == null || entity.getContentLength() == 0) {
+                return null;
+            }
+            try (JsonReader jsonReader =
+                         new JsonReader(new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8))) {
+                jsonReader.beginObject();
+                while (jsonReader.hasNext()) {
+                    String name = jsonReader.nextName();
+                    if (LIST.equals(name) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                        jsonReader.beginArray();
+                        while (jsonReader.hasNext()) {
+                            consumer.accept(gson.fromJson(jsonReader, entityType));
+                            count++;
+                        }
+                        jsonReader.endArray();
+                    } else if (REVISION.equals(name) && jsonReader.peek() == JsonToken.NUMBER) {
+                        revision = jsonReader.nextLong();
+                    } else {
+                        jsonReader.skipValue();
+                    }
+                }
+                jsonReader.endObject();
+            }
+        } catch (IOException e) {
+            String msg = "Error while executing the http client " + path;
+            log.error(msg, e);
+            throw new DataLoadingException(msg, e);
+        } catch (JsonParseException | IllegalStateException e) {
+            String msg = "Error while parsing the response of " + path;
+            log.error(msg, e);
+            throw new DataLoadingException(msg, e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + count + " entries from " + path + " for tenantDomain : " + tenantDomain);
+        }
+        return revision;
+    }
+
     private String invokeService(String path, String tenantDomain) throws DataLoadingException, IOException {
 
+        String responseString = EntityUtils.toString(executeService(path, tenantDomain).getEntity(), UTF8);
+        if (log.isDebugEnabled()) {
+            log.debug("Response : " + responseString);
+        }
+        return responseString;
+    }
+
+    private HttpResponse executeService(String path, String tenantDomain) throws DataLoadingException, IOException {
+
         String serviceURLStr = getEventHubConfigurationDto.getServiceUrl();
         HttpGet method = new HttpGet(serviceURLStr + path);
 
@@ -414,14 +491,11 @@ public class SubscriptionDataLoaderImpl implements SubscriptionDataLoader {
                 }
             } while (retry);
             if (HttpStatus.SC_OK != httpResponse.getStatusLine().getStatusCode()) {
+                EntityUtils.consumeQuietly(httpResponse.getEntity());
                 log.error("Could not retrieve subscriptions for tenantDomain : " + tenantDomain);
                 throw new DataLoadingException("Error while retrieving subscription from " + path);
             }
-            String responseString = EntityUtils.toString(httpResponse.getEntity(), UTF8);
-            if (log.isDebugEnabled()) {
-                log.debug("Response : " + responseString);
-            }
-            return responseString;
+            return httpResponse;
 
     }
 
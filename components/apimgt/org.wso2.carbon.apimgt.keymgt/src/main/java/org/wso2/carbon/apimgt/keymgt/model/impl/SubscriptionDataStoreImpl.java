@@ -21,20 +21,38 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.apimgt.api.APIManagementException;
 import org.wso2.carbon.apimgt.api.model.subscription.CacheableEntity;
+import org.wso2.carbon.apimgt.impl.APIConstants;
+import org.wso2.carbon.apimgt.keymgt.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.keymgt.model.SubscriptionDataLoader;
 import org.wso2.carbon.apimgt.keymgt.model.SubscriptionDataStore;
 import org.wso2.carbon.apimgt.keymgt.model.entity.API;
 import org.wso2.carbon.apimgt.keymgt.model.entity.ApiPolicy;
 import org.wso2.carbon.apimgt.keymgt.model.entity.Application;
 import org.wso2.carbon.apimgt.keymgt.model.entity.ApplicationKeyMapping;
 import org.wso2.carbon.apimgt.keymgt.model.entity.ApplicationKeyMappingCacheKey;
+import org.wso2.carbon.apimgt.keymgt.model.entity.ApplicationList;
 import org.wso2.carbon.apimgt.keymgt.model.entity.ApplicationPolicy;
 import org.wso2.carbon.apimgt.keymgt.model.entity.Policy;
 import org.wso2.carbon.apimgt.keymgt.model.entity.Subscription;
+import org.wso2.carbon.apimgt.keymgt.model.entity.SubscriptionList;
 import org.wso2.carbon.apimgt.keymgt.model.entity.SubscriptionPolicy;
 import org.wso2.carbon.apimgt.keymgt.model.exception.DataLoadingException;
+import org.wso2.carbon.apimgt.keymgt.model.util.ConcurrentLongHashMap;
+import org.wso2.carbon.apimgt.keymgt.model.util.SubscriptionDataSnapshot;
+import org.wso2.carbon.apimgt.keymgt.model.util.SubscriptionDataSnapshot.Section;
 import org.wso2.carbon.apimgt.keymgt.model.util.SubscriptionDataStoreUtil;
+import org.wso2.carbon.base.CarbonBaseUtils;
 import org.wso2.carbon.base.MultitenantConstants;
-
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,7 +60,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Supplier;
+import java.util.function.Consumer;
 
 public class SubscriptionDataStoreImpl implements SubscriptionDataStore {
 
@@ -56,12 +74,14 @@ public class SubscriptionDataStoreImpl implements SubscriptionDataStore {
 
     // Maps for keeping Subscription related details.
     private Map<ApplicationKeyMappingCacheKey, ApplicationKeyMapping> applicationKeyMappingMap;
-    private Map<Integer, Application> applicationMap;
+    private ConcurrentLongHashMap<Application> applicationMap;
     private Map<String, API> apiMap;
-    private Map<String, ApiPolicy> apiPolicyMap;
-    private Map<String, SubscriptionPolicy> subscriptionPolicyMap;
-    private Map<String, ApplicationPolicy> appPolicyMap;
-    private Map<String, Subscription> subscriptionMap;
+    // Policies are indexed by tenant id and then by policy name, so that lookups do not build composite keys.
+    private ConcurrentLongHashMap<Map<String, ApiPolicy>> apiPolicyMap;
+    private ConcurrentLongHashMap<Map<String, SubscriptionPolicy>> subscriptionPolicyMap;
+    private ConcurrentLongHashMap<Map<String, ApplicationPolicy>> appPolicyMap;
+    // Subscriptions are indexed by the application id and api id packed into a long.
+    private ConcurrentLongHashMap<Subscription> subscriptionMap;
     private boolean apisInitialized;
     private boolean applicationsInitialized;
     private boolean subscriptionsInitialized;
@@ -70,6 +90,17 @@ public class SubscriptionDataStoreImpl implements SubscriptionDataStore {
     private boolean subscriptionPoliciesInitialized;
     private boolean apiPoliciesInitialized;
     public static final int LOADING_POOL_SIZE = 7;
+    // Changes committed while a delta was being read can carry an older timestamp, hence deltas overlap by this much.
+    public static final long SYNC_OVERLAP_MILLIS = 60000;
+    private volatile long subscriptionRevision;
+    private volatile long applicationRevision;
+    // Latest synced store of each tenant, read by the sync lag metric, which is registered once per tenant.
+    private static final Map<String, SubscriptionDataStoreImpl> syncedStores = new ConcurrentHashMap<>();
+    public static final String SNAPSHOT_DIRECTORY = "subscription-data";
+    public static final String SNAPSHOT_FILE_EXTENSION = ".snapshot";
+    private Path snapshotFile;
+    // Entries restored from the snapshot, by cache key, until the initial loading confirms that they still exist.
+    private final Map<Section, Map<Object, CacheableEntity<?>>> restoredEntries = new EnumMap<>(Section.class);
     private String tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
     private ScheduledExecutorService executorService = Executors.newScheduledThreadPool(LOADING_POOL_SIZE);
 
@@ -87,13 +118,25 @@ public class SubscriptionDataStoreImpl implements SubscriptionDataStore {
     private void initializeStore() {
 
         this.applicationKeyMappingMap = new ConcurrentHashMap<>();
-        this.applicationMap = new ConcurrentHashMap<>();
+        this.applicationMap = new ConcurrentLongHashMap<>();
         this.apiMap = new ConcurrentHashMap<>();
-        this.subscriptionPolicyMap = new ConcurrentHashMap<>();
-        this.appPolicyMap = new ConcurrentHashMap<>();
-        this.apiPolicyMap = new ConcurrentHashMap<>();
-        this.subscriptionMap = new ConcurrentHashMap<>();
+        this.subscriptionPolicyMap = new ConcurrentLongHashMap<>();
+        this.appPolicyMap = new ConcurrentLongHashMap<>();
+        this.apiPolicyMap = new ConcurrentLongHashMap<>();
+        this.subscriptionMap = new ConcurrentLongHashMap<>();
+        int snapshotInterval = ServiceReferenceHolder.getInstance().getAPIManagerConfigurationService()
+                .getAPIManagerConfiguration().getEventHubConfigurationDto().getSnapshotInterval();
+        if (snapshotInterval > 0) {
+            snapshotFile = Paths.get(CarbonBaseUtils.getCarbonHome(), "repository", "data", SNAPSHOT_DIRECTORY,
+                    tenantDomain + SNAPSHOT_FILE_EXTENSION);
+            restoreSnapshot();
+        }
         initializeLoadingTasks();
+        initializeDeltaSyncTask();
+        if (snapshotFile != null) {
+            executorService.scheduleWithFixedDelay(this::writeSnapshot, snapshotInterval, snapshotInterval,
+                    TimeUnit.SECONDS);
+        }
     }
 
     @Override
@@ -118,17 +161,13 @@ public class SubscriptionDataStoreImpl implements SubscriptionDataStore {
     @Override
     public SubscriptionPolicy getSubscriptionPolicyByName(String policyName, int tenantId) {
 
-        String key = POLICY_TYPE.SUBSCRIPTION +
-                SubscriptionDataStoreUtil.getPolicyCacheKey(policyName, tenantId);
-        return subscriptionPolicyMap.get(key);
+        return getPolicy(policyName, tenantId, subscriptionPolicyMap);
     }
 
     @Override
     public ApplicationPolicy getApplicationPolicyByName(String policyName, int tenantId) {
 
-        String key = POLICY_TYPE.APPLICATION + DELEM_PERIOD + 
-                SubscriptionDataStoreUtil.getPolicyCacheKey(policyName, tenantId);
-        return appPolicyMap.get(key);
+        return getPolicy(policyName, tenantId, appPolicyMap);
     }
 
     @Override
@@ -140,172 +179,433 @@ public class SubscriptionDataStoreImpl implements SubscriptionDataStore {
     @Override
     public ApiPolicy getApiPolicyByName(String policyName, int tenantId) {
 
-        String key = POLICY_TYPE.API + DELEM_PERIOD + 
-                SubscriptionDataStoreUtil.getPolicyCacheKey(policyName, tenantId);
-        return apiPolicyMap.get(key);
+        return getPolicy(policyName, tenantId, apiPolicyMap);
     }
 
     public void initializeLoadingTasks() {
 
-        Runnable apiTask = new PopulateTask<String, API>(apiMap,
-                () -> {
-                    try {
-                        log.debug("Calling loadAllApis. ");
-                        List<API> apiList = new SubscriptionDataLoaderImpl().loadAllApis(tenantDomain);
-                        apisInitialized = true;
-                        return apiList;
-                    } catch (APIManagementException e) {
-                        log.error("Exception while loading APIs " + e);
-                    }
-                    return null;
+        Runnable apiTask = new PopulateTask<API>(Section.APIS, this::addOrUpdateAPI,
+                consumer -> {
+                    log.debug("Calling loadAllApis. ");
+                    new SubscriptionDataLoaderImpl().loadAllApis(tenantDomain, consumer);
+                    apisInitialized = true;
                 });
 
         executorService.schedule(apiTask, 0, TimeUnit.SECONDS);
 
-        Runnable subscriptionLoadingTask = new PopulateTask<String, Subscription>(subscriptionMap,
-                () -> {
-                    try {
-                        log.debug("Calling loadAllSubscriptions.");
-                        List<Subscription> subscriptionList =
-                                new SubscriptionDataLoaderImpl().loadAllSubscriptions(tenantDomain);
-                        subscriptionsInitialized = true;
-                        return subscriptionList;
-                    } catch (APIManagementException e) {
-                        log.error("Exception while loading Subscriptions " + e);
+        Runnable subscriptionLoadingTask = new PopulateTask<Subscription>(Section.SUBSCRIPTIONS,
+                this::addOrUpdateSubscription,
+                consumer -> {
+                    log.debug("Calling loadAllSubscriptions.");
+                    Long revision =
+                            new SubscriptionDataLoaderImpl().loadSubscriptionsChangedSince(tenantDomain, 0, consumer);
+                    if (revision != null) {
+                        subscriptionRevision = revision;
                     }
-                    return null;
+                    subscriptionsInitialized = true;
                 });
 
         executorService.schedule(subscriptionLoadingTask, 0, TimeUnit.SECONDS);
 
-        Runnable applicationLoadingTask = new PopulateTask<Integer, Application>(applicationMap,
-                () -> {
-                    try {
-                        log.debug("Calling loadAllApplications.");
-                        List<Application> applicationList =
-                                new SubscriptionDataLoaderImpl().loadAllApplications(tenantDomain);
-                        applicationsInitialized = true;
-                        return applicationList;
-                    } catch (APIManagementException e) {
-                        log.error("Exception while loading Applications " + e);
+        Runnable applicationLoadingTask = new PopulateTask<Application>(Section.APPLICATIONS,
+                this::addOrUpdateApplication,
+                consumer -> {
+                    log.debug("Calling loadAllApplications.");
+                    Long revision =
+                            new SubscriptionDataLoaderImpl().loadApplicationsChangedSince(tenantDomain, 0, consumer);
+                    if (revision != null) {
+                        applicationRevision = revision;
                     }
-                    return null;
+                    applicationsInitialized = true;
                 });
 
         executorService.schedule(applicationLoadingTask, 0, TimeUnit.SECONDS);
 
         Runnable keyMappingsTask =
-                new PopulateTask<ApplicationKeyMappingCacheKey, ApplicationKeyMapping>(applicationKeyMappingMap,
-                        () -> {
-                            try {
-                                log.debug("Calling loadAllKeyMappings.");
-                                List<ApplicationKeyMapping> applicationKeyMappingList =
-                                        new SubscriptionDataLoaderImpl().loadAllKeyMappings(tenantDomain);
-                                applicationKeysInitialized = true;
-                                return applicationKeyMappingList;
-                            } catch (APIManagementException e) {
-                                log.error("Exception while loading ApplicationKeyMapping " + e);
-                            }
-                            return null;
+                new PopulateTask<ApplicationKeyMapping>(Section.KEY_MAPPINGS,
+                        this::addOrUpdateApplicationKeyMapping,
+                        consumer -> {
+                            log.debug("Calling loadAllKeyMappings.");
+                            new SubscriptionDataLoaderImpl().loadAllKeyMappings(tenantDomain, consumer);
+                            applicationKeysInitialized = true;
                         });
 
         executorService.schedule(keyMappingsTask, 0, TimeUnit.SECONDS);
 
         Runnable apiPolicyLoadingTask =
-                new PopulateTask<String, ApiPolicy>(apiPolicyMap,
-                        () -> {
-                            try {
-                                log.debug("Calling loadAllSubscriptionPolicies.");
-                                List<ApiPolicy> apiPolicyList =
-                                        new SubscriptionDataLoaderImpl().loadAllAPIPolicies(tenantDomain);
-                                apiPoliciesInitialized = true;
-                                return apiPolicyList;
-                            } catch (APIManagementException e) {
-                                log.error("Exception while loading api Policies " + e);
-                            }
-                            return null;
+                new PopulateTask<ApiPolicy>(Section.API_POLICIES,
+                        apiPolicy -> addPolicy(apiPolicy, apiPolicyMap),
+                        consumer -> {
+                            log.debug("Calling loadAllSubscriptionPolicies.");
+                            new SubscriptionDataLoaderImpl().loadAllAPIPolicies(tenantDomain, consumer);
+                            apiPoliciesInitialized = true;
                         });
 
         executorService.schedule(apiPolicyLoadingTask, 0, TimeUnit.SECONDS);
 
         Runnable subPolicyLoadingTask =
-                new PopulateTask<String, SubscriptionPolicy>(subscriptionPolicyMap,
-                        () -> {
-                            try {
-                                log.debug("Calling loadAllSubscriptionPolicies.");
-                                List<SubscriptionPolicy> subscriptionPolicyList =
-                                        new SubscriptionDataLoaderImpl().loadAllSubscriptionPolicies(tenantDomain);
-                                subscriptionPoliciesInitialized = true;
-                                return subscriptionPolicyList;
-                            } catch (APIManagementException e) {
-                                log.error("Exception while loading Subscription Policies " + e);
-                            }
-                            return null;
+                new PopulateTask<SubscriptionPolicy>(Section.SUBSCRIPTION_POLICIES,
+                        this::addOrUpdateSubscriptionPolicy,
+                        consumer -> {
+                            log.debug("Calling loadAllSubscriptionPolicies.");
+                            new SubscriptionDataLoaderImpl().loadAllSubscriptionPolicies(tenantDomain, consumer);
+                            subscriptionPoliciesInitialized = true;
                         });
 
         executorService.schedule(subPolicyLoadingTask, 0, TimeUnit.SECONDS);
 
         Runnable appPolicyLoadingTask =
-                new PopulateTask<String, ApplicationPolicy>(appPolicyMap,
-                        () -> {
-                            try {
-                                log.debug("Calling loadAllAppPolicies.");
-                                List<ApplicationPolicy> applicationPolicyList =
-                                        new SubscriptionDataLoaderImpl().loadAllAppPolicies(tenantDomain);
-                                applicationPoliciesInitialized = true;
-                                return applicationPolicyList;
-                            } catch (APIManagementException e) {
-                                log.error("Exception while loading Application Policies " + e);
-                            }
-                            return null;
+                new PopulateTask<ApplicationPolicy>(Section.APPLICATION_POLICIES,
+                        this::addOrUpdateApplicationPolicy,
+                        consumer -> {
+                            log.debug("Calling loadAllAppPolicies.");
+                            new SubscriptionDataLoaderImpl().loadAllAppPolicies(tenantDomain, consumer);
+                            applicationPoliciesInitialized = true;
                         });
 
         executorService.schedule(appPolicyLoadingTask, 0, TimeUnit.SECONDS);
     }
 
+    /**
+     * Schedules the periodic delta sync of Subscriptions and Applications, if a sync interval is configured, and
+     * registers the sync lag metric of the tenant, unless an earlier store of the tenant has already registered it.
+     */
+    private void initializeDeltaSyncTask() {
+
+        int syncInterval = ServiceReferenceHolder.getInstance().getAPIManagerConfigurationService()
+                .getAPIManagerConfiguration().getEventHubConfigurationDto().getSyncInterval();
+        if (syncInterval <= 0) {
+            return;
+        }
+        String syncedTenantDomain = tenantDomain;
+        if (syncedStores.put(syncedTenantDomain, this) == null) {
+            MetricManager.gauge(Level.INFO, MetricManager.name(APIConstants.METRICS_PREFIX,
+                    SubscriptionDataStoreImpl.class.getSimpleName(), syncedTenantDomain, "syncLag"), () -> {
+                SubscriptionDataStoreImpl store = syncedStores.get(syncedTenantDomain);
+                return store != null ? store.getSyncLag() : -1L;
+            });
+        }
+        executorService.scheduleWithFixedDelay(new DeltaSyncTask(), syncInterval, syncInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the time in milliseconds since the oldest revision held by this store, or -1 if the store has not
+     * been synced yet.
+     *
+     * @return sync lag in milliseconds
+     */
+    public long getSyncLag() {
+
+        long revision = Math.min(subscriptionRevision, applicationRevision);
+        if (revision <= 0) {
+            return -1;
+        }
+        return System.currentTimeMillis() - revision;
+    }
+
+    /**
+     * Restores the maps from the snapshot file of the tenant, if there is one, and marks the store as initialized
+     * so that it serves from the restored data until the initial loading brings it up to date.
+     */
+    private void restoreSnapshot() {
+
+        long createdTime;
+        try {
+            createdTime = SubscriptionDataSnapshot.read(snapshotFile, this::restoreEntry);
+        } catch (IOException e) {
+            log.error("Error while restoring subscription data of " + tenantDomain + " from " + snapshotFile, e);
+            createdTime = -1;
+        }
+        if (createdTime < 0) {
+            clearMaps();
+            restoredEntries.clear();
+            return;
+        }
+        apisInitialized = true;
+        applicationsInitialized = true;
+        subscriptionsInitialized = true;
+        applicationKeysInitialized = true;
+        applicationPoliciesInitialized = true;
+        subscriptionPoliciesInitialized = true;
+        apiPoliciesInitialized = true;
+        log.info("Restored subscription data of " + tenantDomain + " from the snapshot taken at "
+                + new Date(createdTime));
+    }
+
+    private void restoreEntry(Section section, Object entity) {
+
+        switch (section) {
+            case APIS:
+                addOrUpdateAPI((API) entity);
+                break;
+            case SUBSCRIPTIONS:
+                addOrUpdateSubscription((Subscription) entity);
+                break;
+            case APPLICATIONS:
+                addOrUpdateApplication((Application) entity);
+                break;
+            case KEY_MAPPINGS:
+                addOrUpdateApplicationKeyMapping((ApplicationKeyMapping) entity);
+                break;
+            case SUBSCRIPTION_POLICIES:
+                addOrUpdateSubscriptionPolicy((SubscriptionPolicy) entity);
+                break;
+            case APPLICATION_POLICIES:
+                addOrUpdateApplicationPolicy((ApplicationPolicy) entity);
+                break;
+            case API_POLICIES:
+                addPolicy((ApiPolicy) entity, apiPolicyMap);
+                break;
+            default:
+                return;
+        }
+        CacheableEntity<?> cacheableEntity = (CacheableEntity<?>) entity;
+        restoredEntries.computeIfAbsent(section, key -> new HashMap<>())
+                .put(cacheableEntity.getCacheKey(), cacheableEntity);
+    }
+
+    /**
+     * Removes an entry restored from the snapshot which was not loaded, unless it was replaced since it was restored.
+     * An entry which is replaced, such as by an event received while loading, is newer than the loaded entries.
+     */
+    private void removeRestoredEntry(Section section, Object entity) {
+
+        switch (section) {
+            case APIS:
+                API api = (API) entity;
+                removeIfSame(apiMap, api.getCacheKey(), api);
+                break;
+            case SUBSCRIPTIONS:
+                Subscription subscription = (Subscription) entity;
+                subscriptionMap.remove(SubscriptionDataStoreUtil.getSubscriptionCacheKey(subscription.getAppId(),
+                        subscription.getApiId()), subscription);
+                break;
+            case APPLICATIONS:
+                Application application = (Application) entity;
+                applicationMap.remove(application.getId(), application);
+                break;
+            case KEY_MAPPINGS:
+                ApplicationKeyMapping keyMapping = (ApplicationKeyMapping) entity;
+                removeIfSame(applicationKeyMappingMap, keyMapping.getCacheKey(), keyMapping);
+                break;
+            case SUBSCRIPTION_POLICIES:
+                removeRestoredPolicy((SubscriptionPolicy) entity, subscriptionPolicyMap);
+                break;
+            case APPLICATION_POLICIES:
+                removeRestoredPolicy((ApplicationPolicy) entity, appPolicyMap);
+                break;
+            case API_POLICIES:
+                removeRestoredPolicy((ApiPolicy) entity, apiPolicyMap);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private <T extends Policy> void removeRestoredPolicy(T policy, ConcurrentLongHashMap<Map<String, T>> policyMap) {
+
+        Map<String, T> tenantPolicies = policyMap.get(policy.getTenantId());
+        if (tenantPolicies != null) {
+            removeIfSame(tenantPolicies, policy.getName(), policy);
+        }
+    }
+
+    private static <K, V> void removeIfSame(Map<K, V> map, K key, V value) {
+
+        map.computeIfPresent(key, (k, current) -> current == value ? null : current);
+    }
+
+    private synchronized Map<Object, CacheableEntity<?>> takeRestoredEntries(Section section) {
+
+        return restoredEntries.remove(section);
+    }
+
+    private void clearMaps() {
+
+        applicationKeyMappingMap.clear();
+        applicationMap.clear();
+        apiMap.clear();
+        subscriptionPolicyMap.clear();
+        appPolicyMap.clear();
+        apiPolicyMap.clear();
+        subscriptionMap.clear();
+    }
+
+    /**
+     * Writes the current content of the maps into the snapshot file of the tenant. Nothing is written until the
+     * store is initialized. The entries are copied out of the maps before they are written, so that the maps are not
+     * locked while the entries are serialized.
+     */
+    public void writeSnapshot() {
+
+        if (snapshotFile == null || !isSubscriptionValidationDataInitialized()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        List<Subscription> subscriptions = new ArrayList<>(subscriptionMap.size());
+        subscriptionMap.forEach((key, subscription) -> subscriptions.add(subscription));
+        List<Application> applications = new ArrayList<>(applicationMap.size());
+        applicationMap.forEach((key, application) -> applications.add(application));
+        List<SubscriptionPolicy> subscriptionPolicies = new ArrayList<>();
+        subscriptionPolicyMap.forEach((tenantId, policies) -> subscriptionPolicies.addAll(policies.values()));
+        List<ApplicationPolicy> applicationPolicies = new ArrayList<>();
+        appPolicyMap.forEach((tenantId, policies) -> applicationPolicies.addAll(policies.values()));
+        List<ApiPolicy> apiPolicies = new ArrayList<>();
+        apiPolicyMap.forEach((tenantId, policies) -> apiPolicies.addAll(policies.values()));
+        try (SubscriptionDataSnapshot.Writer writer = SubscriptionDataSnapshot.createWriter(snapshotFile)) {
+            writer.startSection(Section.APIS);
+            apiMap.values().forEach(writer::write);
+            writer.endSection();
+            writer.startSection(Section.SUBSCRIPTIONS);
+            subscriptions.forEach(writer::write);
+            writer.endSection();
+            writer.startSection(Section.APPLICATIONS);
+            applications.forEach(writer::write);
+            writer.endSection();
+            writer.startSection(Section.KEY_MAPPINGS);
+            applicationKeyMappingMap.values().forEach(writer::write);
+            writer.endSection();
+            writer.startSection(Section.SUBSCRIPTION_POLICIES);
+            subscriptionPolicies.forEach(writer::write);
+            writer.endSection();
+            writer.startSection(Section.APPLICATION_POLICIES);
+            applicationPolicies.forEach(writer::write);
+            writer.endSection();
+            writer.startSection(Section.API_POLICIES);
+            apiPolicies.forEach(writer::write);
+            writer.endSection();
+            writer.commit();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Error while writing the subscription data snapshot of " + tenantDomain, e);
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Wrote the subscription data snapshot of " + tenantDomain + " in "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+        }
+    }
+
     private <T extends Policy> T getPolicy(String policyName, int tenantId,
-                                           Map<String, T> policyMap) {
+                                           ConcurrentLongHashMap<Map<String, T>> policyMap) {
 
-        return policyMap.get(SubscriptionDataStoreUtil.getPolicyCacheKey(policyName, tenantId));
+        Map<String, T> tenantPolicies = policyMap.get(tenantId);
+        return tenantPolicies != null ? tenantPolicies.get(policyName) : null;
     }
 
-    private class PopulateTask<K, V extends CacheableEntity<K>> implements Runnable {
+    private <T extends Policy> void addPolicy(T policy, ConcurrentLongHashMap<Map<String, T>> policyMap) {
+
+        policyMapFor(policy.getTenantId(), policyMap).put(policy.getName(), policy);
+    }
 
-        private Map<K, V> entityMap;
-        private Supplier<List<V>> supplier;
+    private <T extends Policy> Map<String, T> policyMapFor(int tenantId,
+                                                         ConcurrentLongHashMap<Map<String, T>> policyMap) {
+
+        return policyMap.computeIfAbsent(tenantId, key -> new ConcurrentHashMap<>());
+    }
 
-        PopulateTask(Map<K, V> entityMap, Supplier<List<V>> supplier) {
+    private <T extends Policy> void removePolicy(T policy, ConcurrentLongHashMap<Map<String, T>> policyMap) {
 
-            this.entityMap = entityMap;
-            this.supplier = supplier;
+        Map<String, T> tenantPolicies = policyMap.get(policy.getTenantId());
+        if (tenantPolicies != null) {
+            tenantPolicies.remove(policy.getName());
         }
+    }
 
-        public void run() {
+    private class DeltaSyncTask implements Runnable {
 
-            List<V> list = supplier.get();
-            HashMap<K, V> tempMap = new HashMap<>();
+        public void run() {
 
-            if (list != null) {
-                for (V v : list) {
-                    tempMap.put(v.getCacheKey(), v);
+            if (!subscriptionsInitialized || !applicationsInitialized) {
+                return;
+            }
+            SubscriptionDataLoader subscriptionDataLoader = new SubscriptionDataLoaderImpl();
+            try {
+                if (subscriptionRevision > 0) {
+                    SubscriptionList subscriptionList = subscriptionDataLoader
+                            .loadSubscriptionsChangedSince(tenantDomain, subscriptionRevision - SYNC_OVERLAP_MILLIS);
+                    for (Subscription subscription : subscriptionList.getList()) {
+                        addOrUpdateSubscription(subscription);
+                    }
+                    if (subscriptionList.getRevision() != null) {
+                        subscriptionRevision = subscriptionList.getRevision();
+                    }
                     if (log.isDebugEnabled()) {
-                        log.debug(String.format("Adding entry Key : %s Value : %s", v.getCacheKey(), v));
+                        log.debug("Synced " + subscriptionList.getList().size() + " changed Subscriptions for "
+                                + tenantDomain);
                     }
-
-                    if (!tempMap.isEmpty()) {
-                        entityMap.clear();
-                        entityMap.putAll(tempMap);
+                }
+                if (applicationRevision > 0) {
+                    ApplicationList applicationList = subscriptionDataLoader
+                            .loadApplicationsChangedSince(tenantDomain, applicationRevision - SYNC_OVERLAP_MILLIS);
+                    for (Application application : applicationList.getList()) {
+                        addOrUpdateApplication(application);
+                    }
+                    if (applicationList.getRevision() != null) {
+                        applicationRevision = applicationList.getRevision();
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug("Synced " + applicationList.getList().size() + " changed Applications for "
+                                + tenantDomain);
                     }
                 }
+            } catch (DataLoadingException e) {
+                log.error("Exception while syncing subscription data for " + tenantDomain, e);
+            }
+        }
+    }
+
+    /**
+     * Loads entities through a streaming loader and puts each entity into the store map as soon as it is read, so
+     * that the loaded list is never held in memory as a whole. Entries restored from a snapshot which are not part
+     * of the loaded entities were deleted since the snapshot was taken, hence they are removed once loading is done,
+     * unless they were replaced while loading.
+     */
+    private class PopulateTask<V extends CacheableEntity<?>> implements Runnable {
+
+        private Section section;
+        private Consumer<V> store;
+        private EntityLoader<V> loader;
+
+        PopulateTask(Section section, Consumer<V> store, EntityLoader<V> loader) {
+
+            this.section = section;
+            this.store = store;
+            this.loader = loader;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void run() {
 
-            } else {
-                if (log.isDebugEnabled()) {
-                    log.debug("List is null for " + supplier.getClass());
+            Map<Object, V> restored = (Map<Object, V>) (Map<Object, ?>) takeRestoredEntries(section);
+            try {
+                loader.load(v -> {
+                    store.accept(v);
+                    if (restored != null) {
+                        restored.remove(v.getCacheKey());
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug(String.format("Adding entry Key : %s Value : %s", v.getCacheKey(), v));
+                    }
+                });
+                if (restored != null && !restored.isEmpty()) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Removing " + restored.size() + " " + section + " entries of the snapshot of "
+                                + tenantDomain + " which no longer exist");
+                    }
+                    restored.values().forEach(entity -> removeRestoredEntry(section, entity));
                 }
+            } catch (APIManagementException e) {
+                log.error("Exception while loading entries for tenant " + tenantDomain, e);
             }
         }
     }
 
+    @FunctionalInterface
+    private interface EntityLoader<V> {
+
+        void load(Consumer<V> consumer) throws APIManagementException;
+    }
+
     public boolean isApisInitialized() {
 
         return apisInitialized;
@@ -354,11 +654,13 @@ public class SubscriptionDataStoreImpl implements SubscriptionDataStore {
 
     @Override
     public void addOrUpdateSubscription(Subscription subscription) {
-        subscriptionMap.put(subscription.getCacheKey(), subscription);
+        subscriptionMap.put(SubscriptionDataStoreUtil.getSubscriptionCacheKey(subscription.getAppId(),
+                subscription.getApiId()), subscription);
     }
     @Override
     public void removeSubscription(Subscription subscription) {
-        subscriptionMap.remove(subscription.getCacheKey());
+        subscriptionMap.remove(SubscriptionDataStoreUtil.getSubscriptionCacheKey(subscription.getAppId(),
+                subscription.getApiId()));
     }
 
     @Override
@@ -395,29 +697,26 @@ public class SubscriptionDataStoreImpl implements SubscriptionDataStore {
     
     @Override
     public void addOrUpdateSubscriptionPolicy(SubscriptionPolicy subscriptionPolicy) {
-        subscriptionPolicyMap.remove(subscriptionPolicy.getCacheKey());
-        subscriptionPolicyMap.put(subscriptionPolicy.getCacheKey(), subscriptionPolicy);
+        addPolicy(subscriptionPolicy, subscriptionPolicyMap);
     }
     
     @Override
     public void addOrUpdateApplicationPolicy(ApplicationPolicy applicationPolicy) {
-        appPolicyMap.remove(applicationPolicy.getCacheKey());
-        appPolicyMap.put(applicationPolicy.getCacheKey(), applicationPolicy);
+        addPolicy(applicationPolicy, appPolicyMap);
     }
     
     @Override
     public void removeApplicationPolicy(ApplicationPolicy applicationPolicy) {
-        appPolicyMap.remove(applicationPolicy.getCacheKey());
+        removePolicy(applicationPolicy, appPolicyMap);
     }
     
     @Override
     public void removeSubscriptionPolicy(SubscriptionPolicy subscriptionPolicy) {
-        subscriptionPolicyMap.remove(subscriptionPolicy.getCacheKey());
+        removePolicy(subscriptionPolicy, subscriptionPolicyMap);
     }
     
     @Override
     public void addOrUpdateApplication(Application application) {
-        applicationMap.remove(application.getId());
         applicationMap.put(application.getId(), application);
     }
     
@@ -430,8 +729,7 @@ public class SubscriptionDataStoreImpl implements SubscriptionDataStore {
     public void addOrUpdateApiPolicy(ApiPolicy apiPolicy) {
         try {
             ApiPolicy policy = new SubscriptionDataLoaderImpl().getAPIPolicy(apiPolicy.getName(), tenantDomain);
-            apiPolicyMap.remove(apiPolicy.getCacheKey());
-            apiPolicyMap.put(apiPolicy.getCacheKey(), policy);
+            policyMapFor(apiPolicy.getTenantId(), apiPolicyMap).put(apiPolicy.getName(), policy);
         } catch (DataLoadingException e) {
             log.error("Exception while loading api policy for " + apiPolicy.getName() + " for domain " + tenantDomain,
                     e);
@@ -440,6 +738,6 @@ public class SubscriptionDataStoreImpl implements SubscriptionDataStore {
 
     @Override
     public void removeApiPolicy(ApiPolicy apiPolicy) {
-        apiPolicyMap.remove(apiPolicy.getCacheKey());
+        removePolicy(apiPolicy, apiPolicyMap);
     }
 }
@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.apimgt.keymgt.model.util;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * A concurrent hash map keyed by primitive long values. Entries are kept in open addressing (linear probing)
+ * arrays split into segments, so that neither the keys nor the map entries are boxed. Lookups are optimistic and
+ * do not block unless a write to the same segment happens concurrently.
+ *
+ * Int keys can be stored by widening them to long.
+ *
+ * @param <V> type of the values. Null values are not allowed.
+ */
+public class ConcurrentLongHashMap<V> {
+
+    private static final int DEFAULT_EXPECTED_SIZE = 256;
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+    private static final int MAX_CONCURRENCY_LEVEL = 1 << 8;
+    private static final int MIN_SEGMENT_CAPACITY = 4;
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+
+    public ConcurrentLongHashMap() {
+
+        this(DEFAULT_EXPECTED_SIZE, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongHashMap(int expectedSize, int concurrencyLevel) {
+
+        int segmentCount = tableSizeFor(Math.max(1, Math.min(concurrencyLevel, MAX_CONCURRENCY_LEVEL)));
+        int segmentCapacity = tableSizeFor(Math.max(MIN_SEGMENT_CAPACITY, (expectedSize / segmentCount) * 3 / 2));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentCapacity);
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    /**
+     * Packs two int values into a single long key.
+     *
+     * @param high value to be stored in the high order 32 bits
+     * @param low  value to be stored in the low order 32 bits
+     * @return packed key
+     */
+    public static long pack(int high, int low) {
+
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    public V get(long key) {
+
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public boolean containsKey(long key) {
+
+        return get(key) != null;
+    }
+
+    /**
+     * Associates the value with the key.
+     *
+     * @return the previous value of the key, or null if there was none
+     */
+    public V put(long key, V value) {
+
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value);
+    }
+
+    /**
+     * Returns the value of the key, computing and storing it with the given function if the key is not mapped.
+     *
+     * @return the current or the computed value
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+
+        int hash = hash(key);
+        Segment<V> segment = segmentFor(hash);
+        V value = segment.get(key, hash);
+        if (value != null) {
+            return value;
+        }
+        return segment.computeIfAbsent(key, hash, mappingFunction);
+    }
+
+    /**
+     * Removes the mapping of the key.
+     *
+     * @return the removed value, or null if there was none
+     */
+    public V remove(long key) {
+
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, null);
+    }
+
+    /**
+     * Removes the mapping of the key, if the key is mapped to the given instance.
+     *
+     * @return true if the mapping was removed
+     */
+    public boolean remove(long key, V value) {
+
+        if (value == null) {
+            return false;
+        }
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, value) != null;
+    }
+
+    public int size() {
+
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+
+        return size() == 0;
+    }
+
+    public void clear() {
+
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Performs the given action for each entry. The entries of a segment are visited under its read lock, hence
+     * the action must not modify this map.
+     */
+    public void forEach(EntryConsumer<V> action) {
+
+        for (Segment<V> segment : segments) {
+            segment.forEach(action);
+        }
+    }
+
+    private Segment<V> segmentFor(int hash) {
+
+        return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    private static int hash(long key) {
+
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int size) {
+
+        int highestOneBit = Integer.highestOneBit(size);
+        return highestOneBit == size ? size : highestOneBit << 1;
+    }
+
+    /**
+     * Consumer of the map entries, taking the key as a primitive.
+     *
+     * @param <V> type of the values
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        void accept(long key, V value);
+    }
+
+    private static final class Segment<V> extends StampedLock {
+
+        private final int initialCapacity;
+        private long[] keys;
+        // A null value marks an empty slot
+        private Object[] values;
+        private volatile int size;
+        private int resizeThreshold;
+
+        Segment(int capacity) {
+
+            this.initialCapacity = capacity;
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+
+            keys = new long[capacity];
+            values = new Object[capacity];
+            resizeThreshold = capacity * 2 / 3;
+        }
+
+        V get(long key, int hash) {
+
+            long stamp = tryOptimisticRead();
+            V value = find(keys, values, key, hash);
+            if (!validate(stamp)) {
+                stamp = readLock();
+                try {
+                    value = find(keys, values, key, hash);
+                } finally {
+                    unlockRead(stamp);
+                }
+            }
+            return value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> V find(long[] keys, Object[] values, long key, int hash) {
+
+            int capacity = values.length;
+            if (keys.length != capacity) {
+                // Arrays of two generations were read while resizing. The caller retries under the read lock.
+                return null;
+            }
+            int mask = capacity - 1;
+            int index = hash & mask;
+            for (int probes = 0; probes < capacity; probes++) {
+                Object value = values[index];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[index] == key) {
+                    return (V) value;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        V computeIfAbsent(long key, int hash, LongFunction<? extends V> mappingFunction) {
+
+            long stamp = writeLock();
+            try {
+                V value = find(keys, values, key, hash);
+                if (value == null) {
+                    value = mappingFunction.apply(key);
+                    if (value != null) {
+                        insert(key, hash, value);
+                    }
+                }
+                return value;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long key, int hash, V value) {
+
+            long stamp = writeLock();
+            try {
+                int mask = values.length - 1;
+                int index = hash & mask;
+                while (values[index] != null) {
+                    if (keys[index] == key) {
+                        V previous = (V) values[index];
+                        values[index] = value;
+                        return previous;
+                    }
+                    index = (index + 1) & mask;
+                }
+                insertAt(index, key, value);
+                return null;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        private void insert(long key, int hash, V value) {
+
+            int mask = values.length - 1;
+            int index = hash & mask;
+            while (values[index] != null) {
+                index = (index + 1) & mask;
+            }
+            insertAt(index, key, value);
+        }
+
+        private void insertAt(int index, long key, V value) {
+
+            keys[index] = key;
+            values[index] = value;
+            if (++size > resizeThreshold) {
+                rehash(values.length << 1);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        /**
+         * Removes the mapping of the key, or only a mapping to the expected instance if one is given.
+         */
+        V remove(long key, int hash, V expected) {
+
+            long stamp = writeLock();
+            try {
+                int mask = values.length - 1;
+                int index = hash & mask;
+                while (values[index] != null) {
+                    if (keys[index] == key) {
+                        if (expected != null && values[index] != expected) {
+                            return null;
+                        }
+                        V previous = (V) values[index];
+                        deleteSlot(index, mask);
+                        size--;
+                        return previous;
+                    }
+                    index = (index + 1) & mask;
+                }
+                return null;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Empties the slot and shifts back the following entries of the probe sequence, so that no tombstones
+         * are needed.
+         */
+        private void deleteSlot(int slot, int mask) {
+
+            int gap = slot;
+            int index = slot;
+            values[gap] = null;
+            while (true) {
+                index = (index + 1) & mask;
+                if (values[index] == null) {
+                    return;
+                }
+                int home = hash(keys[index]) & mask;
+                boolean reachable = gap <= index ? (gap < home && home <= index) : (gap < home || home <= index);
+                if (!reachable) {
+                    keys[gap] = keys[index];
+                    values[gap] = values[index];
+                    values[index] = null;
+                    gap = index;
+                }
+            }
+        }
+
+        private void rehash(int capacity) {
+
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            long[] newKeys = new long[capacity];
+            Object[] newValues = new Object[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    int index = hash(oldKeys[i]) & mask;
+                    while (newValues[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    newKeys[index] = oldKeys[i];
+                    newValues[index] = oldValues[i];
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+            resizeThreshold = capacity * 2 / 3;
+        }
+
+        void clear() {
+
+            long stamp = writeLock();
+            try {
+                allocate(initialCapacity);
+                size = 0;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(EntryConsumer<V> action) {
+
+            long stamp = readLock();
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] != null) {
+                        action.accept(keys[i], (V) values[i]);
+                    }
+                }
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.apimgt.keymgt.model.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.apimgt.keymgt.model.entity.API;
+import org.wso2.carbon.apimgt.keymgt.model.entity.ApiPolicy;
+import org.wso2.carbon.apimgt.keymgt.model.entity.Application;
+import org.wso2.carbon.apimgt.keymgt.model.entity.ApplicationKeyMapping;
+import org.wso2.carbon.apimgt.keymgt.model.entity.ApplicationPolicy;
+import org.wso2.carbon.apimgt.keymgt.model.entity.Subscription;
+import org.wso2.carbon.apimgt.keymgt.model.entity.SubscriptionPolicy;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes snapshot files of the subscription data of a tenant, so that a gateway can start serving from
+ * the data it held before a restart while the data is being reloaded from the key manager.
+ *
+ * A snapshot file starts with a header of a magic number, the format version and the creation time, followed by a
+ * section per entity type. A section is the section id followed by the length prefixed JSON of each entity and
+ * ends with a length of -1. Snapshot files are memory mapped when read, hence they are limited to 2 GB.
+ */
+public class SubscriptionDataSnapshot {
+
+    private static final Log log = LogFactory.getLog(SubscriptionDataSnapshot.class);
+    private static final int MAGIC = 0x41504D53;
+    // Has to be incremented whenever the layout or the entity classes change incompatibly.
+    public static final int FORMAT_VERSION = 1;
+    private static final int HEADER_LENGTH = 16;
+    private static final int END_OF_SECTION = -1;
+    private static final Gson gson = new Gson();
+
+    public enum Section {
+        APIS(1, API.class),
+        SUBSCRIPTIONS(2, Subscription.class),
+        APPLICATIONS(3, Application.class),
+        KEY_MAPPINGS(4, ApplicationKeyMapping.class),
+        SUBSCRIPTION_POLICIES(5, SubscriptionPolicy.class),
+        APPLICATION_POLICIES(6, ApplicationPolicy.class),
+        API_POLICIES(7, ApiPolicy.class);
+
+        private final byte id;
+        private final Class<?> entityType;
+
+        Section(int id, Class<?> entityType) {
+
+            this.id = (byte) id;
+            this.entityType = entityType;
+        }
+
+        private static Section forId(byte id) throws IOException {
+
+            for (Section section : values()) {
+                if (section.id == id) {
+                    return section;
+                }
+            }
+            throw new IOException("Unknown snapshot section " + id);
+        }
+    }
+
+    private SubscriptionDataSnapshot() {
+
+    }
+
+    /**
+     * Reads the snapshot file and passes each entity to the consumer, in the order they were written.
+     *
+     * @param file     snapshot file
+     * @param consumer consumer of the entities
+     * @return creation time of the snapshot, or -1 if the file does not exist or was written in another format
+     * @throws IOException if the file could not be read or is corrupted
+     */
+    public static long read(Path file, EntryConsumer consumer) throws IOException {
+
+        if (!Files.isReadable(file)) {
+            return -1;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH) {
+                throw new IOException("Snapshot " + file + " is truncated");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not a subscription data snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                log.info("Ignoring snapshot " + file + " of format version " + version);
+                return -1;
+            }
+            long createdTime = buffer.getLong();
+            while (buffer.hasRemaining()) {
+                Section section = Section.forId(buffer.get());
+                int length;
+                while ((length = buffer.getInt()) != END_OF_SECTION) {
+                    byte[] entity = new byte[length];
+                    buffer.get(entity);
+                    consumer.accept(section, gson.fromJson(new String(entity, StandardCharsets.UTF_8),
+                            section.entityType));
+                }
+            }
+            return createdTime;
+        } catch (BufferUnderflowException | NegativeArraySizeException | JsonParseException e) {
+            throw new IOException("Snapshot " + file + " is corrupted", e);
+        }
+    }
+
+    /**
+     * Opens a writer of a new snapshot. The snapshot replaces the given file only once it is committed.
+     *
+     * @param file snapshot file
+     * @return snapshot writer
+     * @throws IOException if the temporary file of the snapshot could not be created
+     */
+    public static Writer createWriter(Path file) throws IOException {
+
+        return new Writer(file);
+    }
+
+    /**
+     * Consumer of the entities read from a snapshot.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        void accept(Section section, Object entity);
+    }
+
+    /**
+     * Writes a snapshot into a temporary file, which is atomically moved over the snapshot file on commit. Entities
+     * are written between {@link #startSection(Section)} and {@link #endSection()}.
+     */
+    public static class Writer implements Closeable {
+
+        private final Path file;
+        private final Path tempFile;
+        private final DataOutputStream out;
+        private boolean committed;
+
+        private Writer(Path file) throws IOException {
+
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            this.file = file;
+            this.tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+        }
+
+        public void startSection(Section section) throws IOException {
+
+            out.writeByte(section.id);
+        }
+
+        /**
+         * Writes an entity into the current section. I/O errors are thrown unchecked, so that this can be used
+         * within forEach actions.
+         *
+         * @param entity entity of the type of the current section
+         * @throws UncheckedIOException if the entity could not be written
+         */
+        public void write(Object entity) {
+
+            byte[] json = gson.toJson(entity).getBytes(StandardCharsets.UTF_8);
+            try {
+                out.writeInt(json.length);
+                out.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public void endSection() throws IOException {
+
+            out.writeInt(END_OF_SECTION);
+        }
+
+        public void commit() throws IOException {
+
+            out.close();
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if (!committed) {
+                out.close();
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+}
@@ -27,9 +27,9 @@ public class SubscriptionDataStoreUtil {
         return context + DELEM_PERIOD + version;
     }
 
-    public static String getSubscriptionCacheKey(int appId, int apiId) {
+    public static long getSubscriptionCacheKey(int appId, int apiId) {
 
-        return appId + DELEM_PERIOD + apiId;
+        return ConcurrentLongHashMap.pack(appId, apiId);
     }
 
     public static String getPolicyCacheKey(String tierName, int tenantId) {
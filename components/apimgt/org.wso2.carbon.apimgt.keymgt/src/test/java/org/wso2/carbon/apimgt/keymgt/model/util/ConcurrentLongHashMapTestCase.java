@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.keymgt.model.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class ConcurrentLongHashMapTestCase {
+
+    @Test
+    public void testPutGetRemove() {
+
+        ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>(4, 2);
+        Assert.assertNull(map.put(1L, "one"));
+        Assert.assertNull(map.put(-1L, "minus one"));
+        Assert.assertNull(map.put(0L, "zero"));
+        Assert.assertEquals("one", map.put(1L, "uno"));
+        Assert.assertEquals(3, map.size());
+        Assert.assertEquals("uno", map.get(1L));
+        Assert.assertEquals("zero", map.get(0L));
+        Assert.assertEquals("minus one", map.remove(-1L));
+        Assert.assertNull(map.get(-1L));
+        Assert.assertNull(map.remove(-1L));
+        Assert.assertEquals(2, map.size());
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.get(1L));
+    }
+
+    @Test
+    public void testRemoveOfMappedInstance() {
+
+        ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>();
+        String restored = new String("one");
+        map.put(1L, restored);
+        Assert.assertFalse(map.remove(1L, new String("one")));
+        Assert.assertEquals("one", map.get(1L));
+        Assert.assertTrue(map.remove(1L, restored));
+        Assert.assertNull(map.get(1L));
+        Assert.assertFalse(map.remove(1L, restored));
+    }
+
+    @Test
+    public void testComputeIfAbsent() {
+
+        ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>();
+        Assert.assertEquals("10", map.computeIfAbsent(10L, String::valueOf));
+        Assert.assertEquals("10", map.computeIfAbsent(10L, key -> "other"));
+        Assert.assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testPackedKeys() {
+
+        long key = ConcurrentLongHashMap.pack(1, 2);
+        Assert.assertNotEquals(key, ConcurrentLongHashMap.pack(2, 1));
+        Assert.assertNotEquals(ConcurrentLongHashMap.pack(-1, 0), ConcurrentLongHashMap.pack(0, -1));
+        Assert.assertEquals(1, (int) (key >>> 32));
+        Assert.assertEquals(2, (int) key);
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+
+        ConcurrentLongHashMap<Integer> map = new ConcurrentLongHashMap<>(8, 4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200000; i++) {
+            long key = random.nextInt(2000) - 1000;
+            switch (random.nextInt(3)) {
+                case 0:
+                    Assert.assertEquals(expected.put(key, i), map.put(key, i));
+                    break;
+                case 1:
+                    Assert.assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                default:
+                    Assert.assertEquals(expected.get(key), map.get(key));
+            }
+        }
+        Assert.assertEquals(expected.size(), map.size());
+        Map<Long, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        Assert.assertEquals(expected, visited);
+    }
+}
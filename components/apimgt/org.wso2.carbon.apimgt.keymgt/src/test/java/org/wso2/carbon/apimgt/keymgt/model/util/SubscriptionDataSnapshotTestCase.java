@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.keymgt.model.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wso2.carbon.apimgt.keymgt.model.entity.Application;
+import org.wso2.carbon.apimgt.keymgt.model.entity.Subscription;
+import org.wso2.carbon.apimgt.keymgt.model.util.SubscriptionDataSnapshot.Section;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SubscriptionDataSnapshotTestCase {
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+
+        Path file = Files.createTempDirectory("snapshot").resolve("carbon.super.snapshot");
+        Subscription subscription = new Subscription();
+        subscription.setAppId(1);
+        subscription.setApiId(2);
+        subscription.setSubscriptionState("UNBLOCKED");
+        Application application = new Application();
+        application.setId(1);
+        application.setName("DefaultApplication");
+        application.addAttribute("key", "value");
+
+        try (SubscriptionDataSnapshot.Writer writer = SubscriptionDataSnapshot.createWriter(file)) {
+            writer.startSection(Section.SUBSCRIPTIONS);
+            writer.write(subscription);
+            writer.endSection();
+            writer.startSection(Section.APPLICATIONS);
+            writer.write(application);
+            writer.endSection();
+            writer.startSection(Section.APIS);
+            writer.endSection();
+            writer.commit();
+        }
+
+        List<Object> entities = new ArrayList<>();
+        List<Section> sections = new ArrayList<>();
+        long createdTime = SubscriptionDataSnapshot.read(file, (section, entity) -> {
+            sections.add(section);
+            entities.add(entity);
+        });
+        Assert.assertTrue(createdTime > 0);
+        Assert.assertEquals(2, entities.size());
+        Assert.assertEquals(Section.SUBSCRIPTIONS, sections.get(0));
+        Subscription restoredSubscription = (Subscription) entities.get(0);
+        Assert.assertEquals(subscription.getCacheKey(), restoredSubscription.getCacheKey());
+        Assert.assertEquals("UNBLOCKED", restoredSubscription.getSubscriptionState());
+        Assert.assertEquals(Section.APPLICATIONS, sections.get(1));
+        Application restoredApplication = (Application) entities.get(1);
+        Assert.assertEquals(application.getId(), restoredApplication.getId());
+        Assert.assertEquals("value", restoredApplication.getAttributes().get("key"));
+        Assert.assertEquals(1, Files.list(file.getParent()).count());
+    }
+
+    @Test
+    public void testUncommittedSnapshotIsDiscarded() throws IOException {
+
+        Path file = Files.createTempDirectory("snapshot").resolve("carbon.super.snapshot");
+        try (SubscriptionDataSnapshot.Writer writer = SubscriptionDataSnapshot.createWriter(file)) {
+            writer.startSection(Section.APIS);
+        }
+        Assert.assertEquals(-1, SubscriptionDataSnapshot.read(file, (section, entity) -> Assert.fail()));
+        Assert.assertEquals(0, Files.list(file.getParent()).count());
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedSnapshot() throws IOException {
+
+        Path file = Files.createTempDirectory("snapshot").resolve("carbon.super.snapshot");
+        try (SubscriptionDataSnapshot.Writer writer = SubscriptionDataSnapshot.createWriter(file)) {
+            writer.startSection(Section.APPLICATIONS);
+            writer.write(new Application());
+            writer.commit();
+        }
+        SubscriptionDataSnapshot.read(file, (section, entity) -> {
+        });
+    }
+}